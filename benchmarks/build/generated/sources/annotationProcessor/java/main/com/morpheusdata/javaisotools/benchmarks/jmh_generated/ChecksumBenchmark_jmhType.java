@@ -0,0 +1,4 @@
+package com.morpheusdata.javaisotools.benchmarks.jmh_generated;
+public class ChecksumBenchmark_jmhType extends ChecksumBenchmark_jmhType_B3 {
+}
+
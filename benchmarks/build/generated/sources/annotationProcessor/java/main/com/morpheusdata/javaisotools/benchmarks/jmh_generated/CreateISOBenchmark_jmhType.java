@@ -0,0 +1,4 @@
+package com.morpheusdata.javaisotools.benchmarks.jmh_generated;
+public class CreateISOBenchmark_jmhType extends CreateISOBenchmark_jmhType_B3 {
+}
+
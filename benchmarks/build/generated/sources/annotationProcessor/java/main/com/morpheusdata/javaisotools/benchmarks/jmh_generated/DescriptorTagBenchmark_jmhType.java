@@ -0,0 +1,4 @@
+package com.morpheusdata.javaisotools.benchmarks.jmh_generated;
+public class DescriptorTagBenchmark_jmhType extends DescriptorTagBenchmark_jmhType_B3 {
+}
+
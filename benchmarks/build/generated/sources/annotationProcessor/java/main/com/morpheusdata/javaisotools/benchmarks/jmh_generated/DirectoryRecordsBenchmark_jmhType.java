@@ -0,0 +1,4 @@
+package com.morpheusdata.javaisotools.benchmarks.jmh_generated;
+public class DirectoryRecordsBenchmark_jmhType extends DirectoryRecordsBenchmark_jmhType_B3 {
+}
+
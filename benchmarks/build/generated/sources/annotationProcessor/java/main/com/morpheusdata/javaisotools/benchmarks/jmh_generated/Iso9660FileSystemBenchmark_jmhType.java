@@ -0,0 +1,4 @@
+package com.morpheusdata.javaisotools.benchmarks.jmh_generated;
+public class Iso9660FileSystemBenchmark_jmhType extends Iso9660FileSystemBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.morpheusdata.javaisotools.benchmarks.jmh_generated;
+public class NamingConventionsBenchmark_jmhType extends NamingConventionsBenchmark_jmhType_B3 {
+}
+
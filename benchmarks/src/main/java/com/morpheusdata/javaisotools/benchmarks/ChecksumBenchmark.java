@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.morpheusdata.javaisotools.udflib.tools.Checksum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CRC of UDF descriptors, from a bare descriptor tag up to a full sector. <code>bytewise</code> is the former
+ * table lookup per byte, the other benchmarks use the slicing-by-8 implementation on arrays, slices and buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChecksumBenchmark {
+
+    @Param({"16", "512", "2048"})
+    public int length;
+
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            int crc = n << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = ((crc & 0x8000) != 0) ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            TABLE[n] = crc & 0xffff;
+        }
+    }
+
+    private byte[] bytes;
+    private byte[] sector;
+    private ByteBuffer directBuffer;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+
+        // The same bytes behind a descriptor tag, as in an encoded descriptor
+        sector = new byte[16 + length];
+        System.arraycopy(bytes, 0, sector, 16, length);
+
+        directBuffer = ByteBuffer.allocateDirect(length);
+        directBuffer.put(bytes);
+        directBuffer.flip();
+    }
+
+    @Benchmark
+    public int bytewise() {
+        int crc = 0;
+        for (int n = 0; n < bytes.length; ++n) {
+            crc = TABLE[(crc >> 8 ^ bytes[n]) & 0xff] ^ (crc << 8);
+        }
+        return crc & 0xffff;
+    }
+
+    @Benchmark
+    public int cksum() {
+        return Checksum.cksum(bytes);
+    }
+
+    @Benchmark
+    public int cksumSlice() {
+        return Checksum.cksum(sector, 16, length);
+    }
+
+    @Benchmark
+    public int cksumDirectBuffer() {
+        return Checksum.cksum(directBuffer);
+    }
+}
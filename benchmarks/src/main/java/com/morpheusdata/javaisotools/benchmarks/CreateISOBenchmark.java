@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.benchmarks;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
+import com.morpheusdata.javaisotools.iso9660.impl.CreateISO;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Config;
+import com.morpheusdata.javaisotools.joliet.impl.JolietConfig;
+import com.morpheusdata.javaisotools.rockridge.impl.RockRidgeConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating a complete ISO 9660 image with Rock Ridge and Joliet extensions. The image is written to a stream that
+ * discards it, so the results do not depend on the disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CreateISOBenchmark {
+
+    @Param({SyntheticTrees.SMALL_FILES, SyntheticTrees.HUGE_FILES, SyntheticTrees.DEEP_TREE,
+            SyntheticTrees.COLLIDING_NAMES})
+    public String tree;
+
+    private ISO9660RootDirectory root;
+    private ISO9660Config iso9660Config;
+    private RockRidgeConfig rrConfig;
+    private JolietConfig jolietConfig;
+    private CountingOutputStream outputStream;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws Exception {
+        root = SyntheticTrees.create(tree);
+
+        iso9660Config = new ISO9660Config();
+        iso9660Config.setInterchangeLevel(SyntheticTrees.COLLIDING_NAMES.equals(tree) ? 1 : 2);
+        iso9660Config.setVolumeID("BENCHMARK");
+        rrConfig = new RockRidgeConfig();
+        jolietConfig = new JolietConfig();
+        jolietConfig.setVolumeID("Benchmark");
+
+        outputStream = new CountingOutputStream();
+    }
+
+    @Benchmark
+    public long process() throws Exception {
+        new CreateISO(outputStream, root).process(iso9660Config, rrConfig, jolietConfig, null);
+        return outputStream.count;
+    }
+
+    /**
+     * Discards everything but the number of bytes written
+     */
+    static class CountingOutputStream extends OutputStream {
+
+        long count = 0;
+
+        public void write(int b) {
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+import com.morpheusdata.javaisotools.sabre.impl.ChainingStreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.WordDataReference;
+import com.morpheusdata.javaisotools.udflib.SabreUDFElement;
+import com.morpheusdata.javaisotools.udflib.handler.DescriptorTagHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Descriptor tags of UDF descriptors, from a bare tag up to a full sector. <code>byteArrays</code> passes the tag
+ * fields and the descriptor as the UDF handlers do, so they are read straight from the words and the array;
+ * <code>streams</code> hides their types, so they are read through input streams and the descriptor is copied.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DescriptorTagBenchmark {
+
+    @Param({"16", "512", "2032"})
+    public int length;
+
+    private byte[] descriptor;
+    private DescriptorTagHandler handler;
+    private long written;
+
+    @Setup
+    public void setUp() {
+        descriptor = new byte[length];
+        new Random(length).nextBytes(descriptor);
+
+        // Only counts what is passed on, so that writing does not dominate
+        ChainingStreamHandler sink = new ChainingStreamHandler(null, null) {
+            public void data(DataReference reference) {
+                written += reference.getLength();
+            }
+        };
+        handler = new DescriptorTagHandler(sink, sink);
+    }
+
+    @Benchmark
+    public long byteArrays() throws HandlerException {
+        return passDescriptor(new WordDataReference(2), new WordDataReference(257), new WordDataReference(1),
+                new WordDataReference(2), new ByteArrayDataReference(descriptor));
+    }
+
+    @Benchmark
+    public long streams() throws HandlerException {
+        return passDescriptor(hide(new WordDataReference(2)), hide(new WordDataReference(257)),
+                hide(new WordDataReference(1)), hide(new WordDataReference(2)),
+                hide(new ByteArrayDataReference(descriptor)));
+    }
+
+    private long passDescriptor(DataReference identifier, DataReference location, DataReference serialNumber,
+                                DataReference version, DataReference payload) throws HandlerException {
+        handler.startElement(new SabreUDFElement(SabreUDFElement.UDFElementType.DescriptorTag));
+        handler.data(identifier);
+        handler.data(location);
+        handler.data(serialNumber);
+        handler.data(version);
+        handler.data(payload);
+        handler.endElement();
+        return written;
+    }
+
+    private static DataReference hide(final DataReference reference) {
+        return new DataReference() {
+            public long getLength() {
+                return reference.getLength();
+            }
+
+            public InputStream createInputStream() throws IOException {
+                return reference.createInputStream();
+            }
+        };
+    }
+}
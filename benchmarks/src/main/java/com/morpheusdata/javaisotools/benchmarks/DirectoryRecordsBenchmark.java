@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.benchmarks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Config;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Constants;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Factory;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660LayoutHelper;
+import com.morpheusdata.javaisotools.iso9660.impl.LogicalSectorPaddingHandler;
+import com.morpheusdata.javaisotools.iso9660.sabre.impl.BothWordDataReference;
+import com.morpheusdata.javaisotools.iso9660.sabre.impl.LSBFWordDataReference;
+import com.morpheusdata.javaisotools.sabre.Fixup;
+import com.morpheusdata.javaisotools.sabre.StreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.CountingStreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.WordDataReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Laying out the Directory Records Area of an ISO 9660 hierarchy. The records are only counted, not written, so this
+ * measures the factory alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DirectoryRecordsBenchmark {
+
+    @Param({SyntheticTrees.SMALL_FILES, SyntheticTrees.DEEP_TREE, SyntheticTrees.COLLIDING_NAMES})
+    public String tree;
+
+    private StreamHandler streamHandler;
+    private ISO9660Factory factory;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws Exception {
+        ISO9660RootDirectory root = SyntheticTrees.create(tree);
+        ISO9660Config config = new ISO9660Config();
+        config.setInterchangeLevel(SyntheticTrees.COLLIDING_NAMES.equals(tree) ? 1 : 2);
+
+        CountingStreamHandler countingHandler = new CountingStreamHandler();
+        streamHandler = new LogicalSectorPaddingHandler(countingHandler, countingHandler);
+        streamHandler.startDocument();
+
+        // The fixups the Primary Volume Descriptor would hand to the factory
+        HashMap<String, Fixup> volumeFixups = new HashMap<String, Fixup>();
+        volumeFixups.put("typeLPTLocationFixup", streamHandler.fixup(new LSBFWordDataReference(0)));
+        volumeFixups.put("typeMPTLocationFixup", streamHandler.fixup(new WordDataReference(0)));
+        volumeFixups.put("ptSizeFixup", streamHandler.fixup(new BothWordDataReference(0)));
+        volumeFixups.put("rootDirLocationFixup", streamHandler.fixup(new BothWordDataReference(0)));
+        volumeFixups.put("rootDirLengthFixup", streamHandler.fixup(new BothWordDataReference(0)));
+
+        ISO9660LayoutHelper helper = new ISO9660LayoutHelper(streamHandler, root, config);
+        factory = new ISO9660Factory(streamHandler, config, helper, root, volumeFixups);
+        factory.relocateDirectories();
+        factory.applyNamingConventions();
+
+        // The Directory Records Area fills in the Path Table fixups
+        factory.doPT(ISO9660Constants.TYPE_L_PT);
+        factory.doPT(ISO9660Constants.TYPE_M_PT);
+    }
+
+    @Benchmark
+    public long doDRA() throws Exception {
+        factory.doDRA();
+        return streamHandler.mark();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.benchmarks;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
+import com.morpheusdata.javaisotools.iso9660.impl.CreateISO;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Config;
+import com.morpheusdata.javaisotools.iso9660.impl.ISOImageFileHandler;
+import com.morpheusdata.javaisotools.loopfs.iso9660.Iso9660FileEntry;
+import com.morpheusdata.javaisotools.loopfs.iso9660.Iso9660FileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading an image of 10000 small files and one file of 64 MB: iterating over all entries and streaming the contents
+ * of the large file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Iso9660FileSystemBenchmark {
+
+    private File image;
+    private Iso9660FileSystem fileSystem;
+    private Iso9660FileEntry largeFile;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ISO9660RootDirectory root = SyntheticTrees.create(SyntheticTrees.SMALL_FILES);
+        root.addFile(new ISO9660File(new SyntheticTrees.PatternDataReference(64L * 1024 * 1024), "large.bin", 0));
+
+        ISO9660Config config = new ISO9660Config();
+        config.setInterchangeLevel(2);
+        config.setVolumeID("BENCHMARK");
+
+        image = File.createTempFile("benchmark", ".iso");
+        new CreateISO(new ISOImageFileHandler(image), root).process(config, null, null, null);
+
+        fileSystem = new Iso9660FileSystem(image, true);
+        largeFile = fileSystem.getEntry("LARGE.BIN");
+        buffer = new byte[65536];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fileSystem.close();
+        image.delete();
+    }
+
+    @Benchmark
+    public int iterate() {
+        int count = 0;
+        for (Iso9660FileEntry entry : fileSystem) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int iterateDepthFirst() throws Exception {
+        int count = 0;
+        Iterator<Iso9660FileEntry> it = fileSystem.depthFirstIterator();
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long readLargeFile() throws Exception {
+        long total = 0;
+        InputStream inputStream = fileSystem.getInputStream(largeFile);
+        try {
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                total += bytesRead;
+            }
+        } finally {
+            inputStream.close();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
+import com.morpheusdata.javaisotools.iso9660.NamingConventions;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Config;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660NamingConventions;
+import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renaming a single directory whose files all collide once truncated to 8+3 (Interchange Level 1).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NamingConventionsBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    private NamingConventions namingConventions;
+    private ISO9660RootDirectory root;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws Exception {
+        ISO9660Config config = new ISO9660Config();
+        config.setInterchangeLevel(1);
+        namingConventions = new ISO9660NamingConventions(config);
+
+        // Files are renamed in place, so every invocation needs a fresh directory
+        root = new ISO9660RootDirectory();
+        byte[] contents = new byte[0];
+        for (int i = 0; i < files; i++) {
+            root.addFile(new ISO9660File(new ByteArrayDataReference(contents), "collidingname" + i + ".txt", 0));
+        }
+    }
+
+    @Benchmark
+    public ISO9660RootDirectory processDirectory() throws Exception {
+        namingConventions.processDirectory(root);
+        return root;
+    }
+}
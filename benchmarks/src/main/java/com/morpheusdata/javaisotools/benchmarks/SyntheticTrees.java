@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660Directory;
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+
+/**
+ * Directory trees for the benchmarks. File contents are generated on the fly, so even trees of several gigabytes take
+ * no memory.
+ */
+final class SyntheticTrees {
+
+    static final String SMALL_FILES = "smallFiles";
+    static final String HUGE_FILES = "hugeFiles";
+    static final String DEEP_TREE = "deepTree";
+    static final String COLLIDING_NAMES = "collidingNames";
+
+    private SyntheticTrees() {
+    }
+
+    /**
+     * Create a tree of the given shape
+     *
+     * @param shape smallFiles: 100 directories of 100 files of 1 KB each<br> hugeFiles: 4 files of 256 MB each<br>
+     *              deepTree: directories 11 levels deep, 2 subdirectories and 2 files of 4 KB per directory<br>
+     *              collidingNames: 10000 empty files whose names collide once truncated to 8+3
+     *
+     * @return Root directory
+     *
+     * @throws HandlerException Problems creating the tree
+     */
+    static ISO9660RootDirectory create(String shape) throws HandlerException {
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        if (SMALL_FILES.equals(shape)) {
+            for (int i = 0; i < 100; i++) {
+                ISO9660Directory dir = root.addDirectory("dir" + i);
+                for (int j = 0; j < 100; j++) {
+                    dir.addFile(new ISO9660File(new PatternDataReference(1024), "file" + j + ".txt", 0));
+                }
+            }
+        } else if (HUGE_FILES.equals(shape)) {
+            for (int i = 0; i < 4; i++) {
+                root.addFile(new ISO9660File(new PatternDataReference(256L * 1024 * 1024), "disk" + i + ".img", 0));
+            }
+        } else if (DEEP_TREE.equals(shape)) {
+            addLevels(root, 10);
+        } else if (COLLIDING_NAMES.equals(shape)) {
+            for (int i = 0; i < 10000; i++) {
+                root.addFile(new ISO9660File(new PatternDataReference(0), "collidingname" + i + ".txt", 0));
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown tree shape: " + shape);
+        }
+        return root;
+    }
+
+    private static void addLevels(ISO9660Directory dir, int levels) throws HandlerException {
+        for (int i = 0; i < 2; i++) {
+            dir.addFile(new ISO9660File(new PatternDataReference(4096), "file" + i + ".cfg", 0));
+        }
+        if (levels > 0) {
+            for (int i = 0; i < 2; i++) {
+                addLevels(dir.addDirectory("level" + levels + "_" + i), levels - 1);
+            }
+        }
+    }
+
+    /**
+     * Data of a given length, repeating the byte values 0 to 255
+     */
+    static class PatternDataReference implements DataReference {
+
+        private final long length;
+
+        PatternDataReference(long length) {
+            this.length = length;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public InputStream createInputStream() throws IOException {
+            return new InputStream() {
+                private long position = 0;
+
+                public int read() {
+                    if (position >= length) {
+                        return -1;
+                    }
+                    return (int) (position++ & 0xFF);
+                }
+
+                public int read(byte[] b, int off, int len) {
+                    if (position >= length) {
+                        return -1;
+                    }
+                    int count = (int) Math.min(len, length - position);
+                    for (int i = 0; i < count; i++) {
+                        b[off + i] = (byte) (position + i);
+                    }
+                    position += count;
+                    return count;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package com.morpheusdata.javaisotools.iso9660.append;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.morpheusdata.javaisotools.eltorito.impl.ElToritoConfig;
+import com.morpheusdata.javaisotools.iso9660.ISO9660Directory;
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
+import com.morpheusdata.javaisotools.iso9660.impl.CreateISO;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Config;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Constants;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Element;
+import com.morpheusdata.javaisotools.iso9660.impl.ProgressListener;
+import com.morpheusdata.javaisotools.joliet.impl.JolietConfig;
+import com.morpheusdata.javaisotools.loopfs.iso9660.Iso9660FileEntry;
+import com.morpheusdata.javaisotools.loopfs.iso9660.Iso9660FileSystem;
+import com.morpheusdata.javaisotools.rockridge.impl.RockRidgeConfig;
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.Element;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.StreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.ChainingStreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.FileChannelStreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.FileDataReference;
+
+/**
+ * Append a session to an existing ISO image. The new session is written behind the existing image and holds fresh
+ * volume descriptors, path tables and directories, but only the contents of new and changed files; all other files
+ * refer to the contents recorded by earlier sessions. The volume descriptors of the new session are finally copied
+ * to the start of the image, so readers that do not know about sessions see the new session as well. The new session
+ * has no System Area of its own, and the El Torito Boot Record of the image is kept unless the new session brings
+ * its own.
+ * <p>
+ * The directory hierarchy of the existing image is available through {@link #getRoot()} and can be changed with
+ * {@link #putFile} and {@link #remove} or through the usual {@link ISO9660Directory} methods.
+ */
+public class AppendISO {
+
+    private static final byte[] EL_TORITO_ID = "EL TORITO SPECIFICATION".getBytes(StandardCharsets.US_ASCII);
+
+    private File image;
+    private Iso9660FileSystem previous;
+    private ISO9660RootDirectory root;
+    private Map<ISO9660File, Long> recordedFiles;
+    private ProgressListener progressListener;
+
+    /**
+     * @param image    Image to append to
+     * @param previous The same image, opened for reading; it must stay open until {@link #process} has returned
+     *
+     * @throws HandlerException Problems reading the directory hierarchy of the image
+     */
+    public AppendISO(File image, Iso9660FileSystem previous) throws HandlerException {
+        this.image = image;
+        this.previous = previous;
+        this.root = new ISO9660RootDirectory();
+        this.recordedFiles = new IdentityHashMap<ISO9660File, Long>();
+        readHierarchy();
+    }
+
+    private void readHierarchy() throws HandlerException {
+        Map<String, ISO9660Directory> directories = new HashMap<String, ISO9660Directory>();
+        directories.put("", root);
+
+        try {
+            Iterator<Iso9660FileEntry> it = previous.depthFirstIterator();
+            while (it.hasNext()) {
+                Iso9660FileEntry entry = it.next();
+                String path = entry.getPath();
+                if (path.length() == 0) {
+                    // Root directory
+                    continue;
+                }
+
+                String parentPath = getParentPath(path);
+                ISO9660Directory parent = directories.get(parentPath);
+                if (entry.isDirectory()) {
+                    directories.put(path, parent.addDirectory(entry.getName()));
+                } else {
+                    String name = entry.getName();
+                    if (name.endsWith(".")) {
+                        // File without extension, recorded with a separator
+                        name = name.substring(0, name.length() - 1);
+                    }
+                    ISO9660File file = new ISO9660File(new RecordedDataReference(previous, entry), name,
+                            entry.getLastModifiedTime());
+                    parent.addFile(file);
+                    if (entry.getSize() > 0 && entry.isContiguous()) {
+                        recordedFiles.put(file, Long.valueOf(entry.getStartBlock()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new HandlerException(e);
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new HandlerException((IOException) e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    private static String getParentPath(String path) {
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        return path.substring(0, path.lastIndexOf('/', end - 1) + 1);
+    }
+
+    /**
+     * Returns the directory hierarchy of the new session, initially that of the existing image
+     *
+     * @return Root directory
+     */
+    public ISO9660RootDirectory getRoot() {
+        return root;
+    }
+
+    /**
+     * Add a file to the new session, replacing a file of the same name
+     *
+     * @param path Path of the file, with directories separated by a slash; missing directories are added
+     * @param file File
+     *
+     * @throws HandlerException Problems adding the file
+     */
+    public void putFile(String path, File file) throws HandlerException {
+        putFile(path, new FileDataReference(file), file.lastModified());
+    }
+
+    /**
+     * Add a file to the new session, replacing a file of the same name
+     *
+     * @param path         Path of the file, with directories separated by a slash; missing directories are added
+     * @param reference    Contents of the file
+     * @param lastModified Time of the last modification
+     *
+     * @throws HandlerException Problems adding the file
+     */
+    public void putFile(String path, DataReference reference, long lastModified) throws HandlerException {
+        String[] names = path.split("/");
+        ISO9660Directory dir = root;
+        for (int i = 0; i < names.length - 1; i++) {
+            if (names[i].length() == 0) {
+                continue;
+            }
+            ISO9660Directory subdir = findDirectory(dir, names[i]);
+            if (subdir == null) {
+                subdir = dir.addDirectory(names[i]);
+            }
+            dir = subdir;
+        }
+
+        ISO9660File file = new ISO9660File(reference, names[names.length - 1], lastModified);
+        ISO9660File existing = findFile(dir, file.getName());
+        if (existing != null) {
+            dir.removeFile(existing);
+        }
+        dir.addFile(file);
+    }
+
+    /**
+     * Remove a file or a directory with all its contents from the new session
+     *
+     * @param path Path of the file or directory, with directories separated by a slash
+     *
+     * @return Whether there was such a file or directory
+     */
+    public boolean remove(String path) {
+        String[] names = path.split("/");
+        ISO9660Directory dir = root;
+        for (int i = 0; i < names.length - 1; i++) {
+            if (names[i].length() == 0) {
+                continue;
+            }
+            dir = findDirectory(dir, names[i]);
+            if (dir == null) {
+                return false;
+            }
+        }
+
+        String name = names[names.length - 1];
+        ISO9660File file = findFile(dir, name);
+        if (file != null) {
+            return dir.removeFile(file);
+        }
+        ISO9660Directory subdir = findDirectory(dir, name);
+        return subdir != null && dir.removeDirectory(subdir);
+    }
+
+    private static ISO9660Directory findDirectory(ISO9660Directory dir, String name) {
+        for (ISO9660Directory subdir : dir.getDirectories()) {
+            if (subdir.getName().equals(name)) {
+                return subdir;
+            }
+        }
+        return null;
+    }
+
+    private static ISO9660File findFile(ISO9660Directory dir, String name) {
+        for (ISO9660File file : dir.getFiles()) {
+            if (file.getName().equals(name)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Report the progress of {@link #process} to a listener
+     *
+     * @param progressListener Listener, or null for no reports
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Write the new session. If anything goes wrong, the image is restored to its previous state.
+     *
+     * @param iso9660Config  ISO 9660 configuration
+     * @param rrConfig       Rock Ridge configuration, or null
+     * @param jolietConfig   Joliet configuration, or null
+     * @param elToritoConfig El Torito configuration, or null to keep the Boot Record of the image
+     *
+     * @throws HandlerException Problems writing the session
+     */
+    public void process(ISO9660Config iso9660Config, RockRidgeConfig rrConfig, JolietConfig jolietConfig,
+                        ElToritoConfig elToritoConfig) throws HandlerException {
+        long length = image.length();
+        long start = (length + ISO9660Constants.LOGICAL_SECTOR_SIZE - 1) / ISO9660Constants.LOGICAL_SECTOR_SIZE
+                * ISO9660Constants.LOGICAL_SECTOR_SIZE;
+
+        try {
+            try {
+                byte[] bootRecord = (elToritoConfig == null) ? readBootRecord() : null;
+
+                StreamHandler streamHandler = new SystemAreaSkippingHandler(new FileChannelStreamHandler(image, start));
+                CreateISO createISO = new CreateISO(streamHandler, root);
+                createISO.setRecordedFiles(recordedFiles);
+                createISO.setProgressListener(progressListener);
+                createISO.process(iso9660Config, rrConfig, jolietConfig, elToritoConfig);
+
+                copyVolumeDescriptors(start, bootRecord);
+            } catch (IOException e) {
+                throw new HandlerException(e);
+            }
+        } catch (Throwable t) {
+            // Restore the image without hiding what went wrong
+            try {
+                truncate(length);
+            } catch (HandlerException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+    }
+
+    /**
+     * Returns the El Torito Boot Record of the image, or null if it is not bootable
+     */
+    private byte[] readBootRecord() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(image, "r");
+        try {
+            long position = 16 * (long) ISO9660Constants.LOGICAL_SECTOR_SIZE;
+            while (position + ISO9660Constants.LOGICAL_SECTOR_SIZE <= file.length()) {
+                byte[] sector = new byte[ISO9660Constants.LOGICAL_SECTOR_SIZE];
+                file.seek(position);
+                file.readFully(sector);
+                if ((sector[0] & 0xFF) == 0xFF) {
+                    break;
+                }
+                byte[] systemId = Arrays.copyOfRange(sector, 7, 7 + EL_TORITO_ID.length);
+                if (sector[0] == 0 && Arrays.equals(EL_TORITO_ID, systemId)) {
+                    return sector;
+                }
+                position += sector.length;
+            }
+            return null;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Returns the first logical block of the Boot Catalog and the Boot Images it points to
+     */
+    private static long getFirstBootBlock(RandomAccessFile file, byte[] bootRecord) throws IOException {
+        long catalog = readWord(bootRecord, 0x47) * ISO9660Constants.LOGICAL_SECTOR_SIZE;
+        long firstBlock = catalog / ISO9660Constants.LOGICAL_BLOCK_SIZE;
+
+        // Initial/Default Entry behind the Validation Entry, then any sections, each a header followed by entries
+        byte[] entry = new byte[32];
+        long position = catalog + 32;
+        int entries = 1;
+        boolean last = false;
+        while (position + entry.length <= file.length()) {
+            file.seek(position);
+            file.readFully(entry);
+            position += entry.length;
+            if (entries > 0) {
+                long location = readWord(entry, 8);
+                if (location > 0) {
+                    firstBlock = Math.min(firstBlock, location);
+                }
+                entries--;
+            } else if ((entry[0] & 0xFF) == 0x44) {
+                // Extension Entry of the entry before
+            } else if (!last && ((entry[0] & 0xFF) == 0x90 || (entry[0] & 0xFF) == 0x91)) {
+                entries = (entry[2] & 0xFF) | (entry[3] & 0xFF) << 8;
+                last = (entry[0] & 0xFF) == 0x91;
+            } else {
+                break;
+            }
+        }
+        return firstBlock;
+    }
+
+    private static long readWord(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8 | (buffer[offset + 2] & 0xFF) << 16
+                | (long) (buffer[offset + 3] & 0xFF) << 24);
+    }
+
+    private void copyVolumeDescriptors(long start, byte[] bootRecord) throws IOException, HandlerException {
+        // The contents of earlier sessions still in use must not be overwritten. Files of removed directories keep
+        // their parent, so only those still reachable from the root count.
+        long firstUsed = start / ISO9660Constants.LOGICAL_BLOCK_SIZE;
+        Iterator<ISO9660Directory> it = root.unsortedIterator();
+        while (it.hasNext()) {
+            for (ISO9660File file : it.next().getFiles()) {
+                Long block = recordedFiles.get(file);
+                if (block != null) {
+                    firstUsed = Math.min(firstUsed, block.longValue());
+                }
+            }
+        }
+
+        RandomAccessFile file = new RandomAccessFile(image, "rw");
+        try {
+            // Volume Descriptor Set right at the start of the session, which has no System Area
+            List<byte[]> descriptors = readVolumeDescriptors(file, start);
+            if (bootRecord != null) {
+                // The Boot Catalog and Boot Images stay in use, the Boot Record has to follow the Primary Volume
+                // Descriptor
+                firstUsed = Math.min(firstUsed, getFirstBootBlock(file, bootRecord));
+                descriptors.add(1, bootRecord);
+            }
+            if (16 + descriptors.size() > firstUsed) {
+                throw new HandlerException("Volume descriptors of the new session do not fit in front of the "
+                        + "contents of earlier sessions.");
+            }
+
+            // Keep the volume descriptors of the image to restore them if copying fails
+            List<byte[]> originals = new ArrayList<byte[]>(descriptors.size());
+            for (int i = 0; i < descriptors.size(); i++) {
+                byte[] sector = new byte[ISO9660Constants.LOGICAL_SECTOR_SIZE];
+                file.seek((16 + i) * (long) ISO9660Constants.LOGICAL_SECTOR_SIZE);
+                file.readFully(sector);
+                originals.add(sector);
+            }
+
+            boolean copied = false;
+            try {
+                writeSectors(file, 16, descriptors);
+                copied = true;
+            } finally {
+                if (!copied) {
+                    writeSectors(file, 16, originals);
+                }
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    private static List<byte[]> readVolumeDescriptors(RandomAccessFile file, long position)
+            throws IOException, HandlerException {
+        List<byte[]> descriptors = new ArrayList<byte[]>();
+        boolean terminated = false;
+        while (!terminated) {
+            if (position + ISO9660Constants.LOGICAL_SECTOR_SIZE > file.length()) {
+                throw new HandlerException("Volume Descriptor Set of the new session is not terminated.");
+            }
+            byte[] sector = new byte[ISO9660Constants.LOGICAL_SECTOR_SIZE];
+            file.seek(position);
+            file.readFully(sector);
+            descriptors.add(sector);
+            terminated = (sector[0] & 0xFF) == 0xFF;
+            position += sector.length;
+        }
+        return descriptors;
+    }
+
+    private static void writeSectors(RandomAccessFile file, long firstSector, List<byte[]> sectors)
+            throws IOException {
+        file.seek(firstSector * ISO9660Constants.LOGICAL_SECTOR_SIZE);
+        for (byte[] sector : sectors) {
+            file.write(sector);
+        }
+    }
+
+    private void truncate(long length) throws HandlerException {
+        try {
+            RandomAccessFile file = new RandomAccessFile(image, "rw");
+            try {
+                file.setLength(length);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            throw new HandlerException(e);
+        }
+    }
+
+    /**
+     * Drops the System Area of the new session. Only its Volume Descriptor Set is read, to be copied to the start of
+     * the image, so the 16 empty sectors would be wasted.
+     */
+    private static class SystemAreaSkippingHandler extends ChainingStreamHandler {
+
+        private int depth;
+
+        SystemAreaSkippingHandler(StreamHandler streamHandler) {
+            super(streamHandler, streamHandler);
+        }
+
+        public void startElement(Element element) throws HandlerException {
+            if (depth > 0 || (element instanceof ISO9660Element && "SA".equals(((ISO9660Element) element).getId()))) {
+                depth++;
+            }
+            super.startElement(element);
+        }
+
+        public void data(DataReference reference) throws HandlerException {
+            if (depth == 0) {
+                super.data(reference);
+            }
+        }
+
+        public void endElement() throws HandlerException {
+            if (depth > 0) {
+                depth--;
+            }
+            super.endElement();
+        }
+    }
+
+    /**
+     * Contents of a file recorded by an earlier session, read only if the file cannot refer to them
+     */
+    private static class RecordedDataReference implements DataReference {
+
+        private Iso9660FileSystem fileSystem;
+        private Iso9660FileEntry entry;
+
+        RecordedDataReference(Iso9660FileSystem fileSystem, Iso9660FileEntry entry) {
+            this.fileSystem = fileSystem;
+            this.entry = entry;
+        }
+
+        public long getLength() {
+            return entry.getSize();
+        }
+
+        public InputStream createInputStream() throws IOException {
+            return fileSystem.getInputStream(entry);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660.append;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.morpheusdata.javaisotools.eltorito.impl.ElToritoConfig;
+import com.morpheusdata.javaisotools.iso9660.ISO9660Directory;
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
+import com.morpheusdata.javaisotools.iso9660.impl.CreateISO;
+import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Config;
+import com.morpheusdata.javaisotools.iso9660.impl.ISOImageFileHandler;
+import com.morpheusdata.javaisotools.joliet.impl.JolietConfig;
+import com.morpheusdata.javaisotools.loopfs.iso9660.Iso9660FileSystem;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+
+import org.codehaus.plexus.util.IOUtil;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Appends sessions to images written by {@link CreateISO} and reads them back.
+ */
+public class AppendISOTest {
+
+    private static File workDir;
+
+    private Random entropy = new Random();
+
+    @BeforeClass
+    public static void loadConfiguration() throws Exception {
+        workDir = new File(System.getProperty("testWorkDir"));
+    }
+
+    @Test
+    public void canAppendASession() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "append.iso");
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Directory dir = root.addDirectory("dir");
+        byte[] unchanged = new byte[100000];
+        entropy.nextBytes(unchanged);
+        dir.addFile(new ISO9660File(new ByteArrayDataReference(unchanged), "unchanged.bin", 1121040000l));
+        dir.addFile(new ISO9660File(new ByteArrayDataReference(new byte[100000]), "changed.bin", 1121040000l));
+        root.addFile(new ISO9660File(new ByteArrayDataReference(new byte[100000]), "removed.bin", 1121040000l));
+
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        JolietConfig jolietConfig = new JolietConfig();
+        jolietConfig.setVolumeID("Joliet Test");
+        new CreateISO(new ISOImageFileHandler(outfile), root).process(iso9660Config, null, jolietConfig, null);
+        long length = outfile.length();
+
+        // Append a session with one file changed, one added and one removed
+        Iso9660FileSystem previous = new Iso9660FileSystem(outfile, true);
+        try {
+            AppendISO append = new AppendISO(outfile, previous);
+            append.putFile("dir/changed.bin", new ByteArrayDataReference("changed".getBytes()), 1121040000l);
+            append.putFile("added/added.txt", new ByteArrayDataReference("added".getBytes()), 1121040000l);
+            assertThat(append.remove("removed.bin"), is(true));
+            append.process(iso9660Config, null, jolietConfig, null);
+        } finally {
+            previous.close();
+        }
+
+        // Contents of the unchanged file are not written again
+        assertThat(outfile.length() - length < unchanged.length, is(true));
+        // The new session starts with its Primary Volume Descriptor, without a System Area
+        byte[] image = readFile(outfile);
+        assertThat(image[(int) length], is((byte) 1));
+        assertThat(new String(image, (int) length + 1, 5, StandardCharsets.US_ASCII), is("CD001"));
+
+        Iso9660FileSystem fs = new Iso9660FileSystem(outfile, true);
+        try {
+            assertThat(fs.getEntry("removed.bin"), nullValue());
+            assertArrayEquals(unchanged, IOUtil.toByteArray(fs.getInputStream(fs.getEntry("dir/unchanged.bin"))));
+            assertThat(IOUtil.toString(fs.getInputStream(fs.getEntry("dir/changed.bin"))), is("changed"));
+            assertThat(IOUtil.toString(fs.getInputStream(fs.getEntry("added/added.txt"))), is("added"));
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void canAppendASessionWithoutARemovedDirectory() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "append-removed.iso");
+
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Directory dir = root.addDirectory("removed");
+        dir.addFile(new ISO9660File(new ByteArrayDataReference("recorded".getBytes()), "recorded.txt",
+                1121040000l));
+        root.addFile(new ISO9660File(new ByteArrayDataReference("kept".getBytes()), "kept.txt", 1121040000l));
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setVolumeID("ISO Test");
+        new CreateISO(new ISOImageFileHandler(outfile), root).process(iso9660Config, null, null, null);
+
+        // Move the contents of the file in the directory to be removed right behind the Primary Volume Descriptor,
+        // where the volume descriptors of the new session go
+        byte[] image = readFile(outfile);
+        int record = indexOf(image, "RECORDED.TXT;1".getBytes(StandardCharsets.US_ASCII)) - 33;
+        assertThat(record > 0, is(true));
+        for (int i = 0; i < 4; i++) {
+            image[record + 2 + i] = (byte) (17 >> (8 * i));
+            image[record + 9 - i] = (byte) (17 >> (8 * i));
+        }
+        OutputStream os = new FileOutputStream(outfile);
+        os.write(image);
+        IOUtil.close(os);
+
+        // The removed file is no longer in use, so its contents may be overwritten
+        Iso9660FileSystem previous = new Iso9660FileSystem(outfile, true);
+        try {
+            AppendISO append = new AppendISO(outfile, previous);
+            assertThat(append.remove("REMOVED"), is(true));
+            append.putFile("added.txt", new ByteArrayDataReference("added".getBytes()), 1121040000l);
+            append.process(iso9660Config, null, null, null);
+        } finally {
+            previous.close();
+        }
+
+        Iso9660FileSystem fs = new Iso9660FileSystem(outfile, true);
+        try {
+            assertThat(fs.getEntry("REMOVED"), nullValue());
+            assertThat(IOUtil.toString(fs.getInputStream(fs.getEntry("KEPT.TXT"))), is("kept"));
+            assertThat(IOUtil.toString(fs.getInputStream(fs.getEntry("ADDED.TXT"))), is("added"));
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void canLeaveTheImageUnchangedIfAnAppendFails() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "append-fails.iso");
+
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        root.addFile(new ISO9660File(new ByteArrayDataReference("recorded".getBytes()), "recorded.txt",
+                1121040000l));
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setVolumeID("ISO Test");
+        new CreateISO(new ISOImageFileHandler(outfile), root).process(iso9660Config, null, null, null);
+
+        // Move the contents of the file right behind the Primary Volume Descriptor, where the Volume Descriptor Set
+        // Terminator of the new session would go
+        byte[] image = readFile(outfile);
+        int record = indexOf(image, "RECORDED.TXT;1".getBytes(StandardCharsets.US_ASCII)) - 33;
+        assertThat(record > 0, is(true));
+        for (int i = 0; i < 4; i++) {
+            image[record + 2 + i] = (byte) (17 >> (8 * i));
+            image[record + 9 - i] = (byte) (17 >> (8 * i));
+        }
+        OutputStream os = new FileOutputStream(outfile);
+        os.write(image);
+        IOUtil.close(os);
+
+        Iso9660FileSystem previous = new Iso9660FileSystem(outfile, true);
+        try {
+            AppendISO append = new AppendISO(outfile, previous);
+            append.putFile("added.txt", new ByteArrayDataReference("added".getBytes()), 1121040000l);
+            try {
+                append.process(iso9660Config, null, null, null);
+                fail("Volume descriptors of the new session must not overwrite the recorded file");
+            } catch (HandlerException e) {
+                // expected
+            }
+        } finally {
+            previous.close();
+        }
+
+        assertArrayEquals(image, readFile(outfile));
+    }
+
+    @Test
+    public void canAppendASessionToABootableImage() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "append-boot.iso");
+        byte[] contents = new byte[5003];
+        entropy.nextBytes(contents);
+
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        root.addFile(new ISO9660File(new ByteArrayDataReference("recorded".getBytes()), "recorded.txt",
+                1121040000l));
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setVolumeID("ISO Test");
+        new CreateISO(new ISOImageFileHandler(outfile), root).process(iso9660Config, null, null,
+                createElToritoConfig("append-boot.bin", contents));
+        byte[] original = readFile(outfile);
+        int catalog = readWord(original, 17 * 2048 + 0x47);
+        int bootImage = readWord(original, catalog * 2048 + 32 + 8);
+
+        // No El Torito configuration for the new session, so the image stays bootable as it is
+        Iso9660FileSystem previous = new Iso9660FileSystem(outfile, true);
+        try {
+            AppendISO append = new AppendISO(outfile, previous);
+            append.putFile("added.txt", new ByteArrayDataReference("added".getBytes()), 1121040000l);
+            append.process(iso9660Config, null, null, null);
+        } finally {
+            previous.close();
+        }
+
+        byte[] image = readFile(outfile);
+        assertThat(Arrays.equals(Arrays.copyOfRange(original, 16 * 2048, 17 * 2048),
+                Arrays.copyOfRange(image, 16 * 2048, 17 * 2048)), is(false));
+        assertArrayEquals(Arrays.copyOfRange(original, 17 * 2048, 18 * 2048),
+                Arrays.copyOfRange(image, 17 * 2048, 18 * 2048));
+        assertArrayEquals(Arrays.copyOfRange(original, catalog * 2048, (catalog + 1) * 2048),
+                Arrays.copyOfRange(image, catalog * 2048, (catalog + 1) * 2048));
+        assertArrayEquals(contents, Arrays.copyOfRange(image, bootImage * 2048, bootImage * 2048 + contents.length));
+
+        Iso9660FileSystem fs = new Iso9660FileSystem(outfile, true);
+        try {
+            assertThat(IOUtil.toString(fs.getInputStream(fs.getEntry("RECORDED.TXT"))), is("recorded"));
+            assertThat(IOUtil.toString(fs.getInputStream(fs.getEntry("ADDED.TXT"))), is("added"));
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void canKeepTheBootCatalogOfTheImage() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "append-catalog.iso");
+        byte[] contents = new byte[5003];
+        entropy.nextBytes(contents);
+
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setVolumeID("ISO Test");
+        new CreateISO(new ISOImageFileHandler(outfile), root).process(iso9660Config, null, null,
+                createElToritoConfig("append-catalog.bin", contents));
+        byte[] image = readFile(outfile);
+        assertThat(readWord(image, 17 * 2048 + 0x47), is(19));
+
+        // With the Boot Record kept, a Joliet Supplementary Volume Descriptor pushes the Volume Descriptor Set
+        // Terminator onto the Boot Catalog
+        Iso9660FileSystem previous = new Iso9660FileSystem(outfile, true);
+        try {
+            AppendISO append = new AppendISO(outfile, previous);
+            append.putFile("added.txt", new ByteArrayDataReference("added".getBytes()), 1121040000l);
+            JolietConfig jolietConfig = new JolietConfig();
+            jolietConfig.setVolumeID("Joliet Test");
+            try {
+                append.process(iso9660Config, null, jolietConfig, null);
+                fail("Volume descriptors of the new session must not overwrite the Boot Catalog");
+            } catch (HandlerException e) {
+                // expected
+            }
+        } finally {
+            previous.close();
+        }
+
+        assertArrayEquals(image, readFile(outfile));
+    }
+
+    private ElToritoConfig createElToritoConfig(String name, byte[] contents) throws Exception {
+        File bootImage = new File(workDir, name);
+        OutputStream os = new FileOutputStream(bootImage);
+        os.write(contents);
+        IOUtil.close(os);
+        return new ElToritoConfig(bootImage, ElToritoConfig.BOOT_MEDIA_TYPE_NO_EMU, ElToritoConfig.PLATFORM_ID_X86,
+                "Boot Test", 4, ElToritoConfig.LOAD_SEGMENT_7C0);
+    }
+
+    private static int readWord(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8 | (buffer[offset + 2] & 0xFF) << 16
+                | (buffer[offset + 3] & 0xFF) << 24;
+    }
+
+    private static byte[] readFile(File file) throws Exception {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            return IOUtil.toByteArray(fis);
+        } finally {
+            IOUtil.close(fis);
+        }
+    }
+
+    private static int indexOf(byte[] buffer, byte[] pattern) {
+        for (int i = 0; i <= buffer.length - pattern.length; i++) {
+            if (Arrays.equals(pattern, Arrays.copyOfRange(buffer, i, i + pattern.length))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package com.morpheusdata.javaisotools.eltorito.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+
+/**
+ * Boot information table (cf. man mkisofs, section EL TORITO BOOT INFORMATION TABLE) laid over the bytes at offset 8
+ * of a Boot Image. The source itself is never modified. The Boot Image is written in three parts: the {@link #getHead()
+ * head} before the table, a {@link #getPlaceholder() placeholder} for the table, to be filled in with a fixup, and the
+ * {@link #getBody() body} from offset 64 on. The checksum in the table covers the body, so it is summed up while the
+ * body is written, and the source is read only once.
+ */
+public class BootInfoTable {
+
+    public static final int TABLE_OFFSET = 8;
+    public static final int TABLE_LENGTH = 56;
+    public static final int CHECKSUM_OFFSET = TABLE_OFFSET + TABLE_LENGTH;
+
+    // Location of the Primary Volume Descriptor
+    private static final int PVD_LOCATION = 16;
+
+    private final DataReference source;
+    private final int bootImageLocation;
+    private long checksum = -1;
+
+    /**
+     * @param source            Unpatched Boot Image, at least {@link #CHECKSUM_OFFSET} bytes long
+     * @param bootImageLocation Logical block number the Boot Image is recorded at
+     */
+    public BootInfoTable(DataReference source, int bootImageLocation) {
+        this.source = source;
+        this.bootImageLocation = bootImageLocation;
+    }
+
+    /**
+     * Returns the bytes of the Boot Image before the table
+     *
+     * @return First {@link #TABLE_OFFSET} bytes of the source
+     */
+    public DataReference getHead() {
+        return new SectionDataReference(0, TABLE_OFFSET, false);
+    }
+
+    /**
+     * Returns zero bytes holding the place of the table until its checksum is known
+     *
+     * @return {@link #TABLE_LENGTH} zero bytes
+     */
+    public DataReference getPlaceholder() {
+        return new ByteArrayDataReference(new byte[TABLE_LENGTH]);
+    }
+
+    /**
+     * Returns the bytes of the Boot Image after the table. Reading them in full sums up the checksum.
+     *
+     * @return Source from offset {@link #CHECKSUM_OFFSET} on
+     */
+    public DataReference getBody() {
+        return new SectionDataReference(CHECKSUM_OFFSET, source.getLength() - CHECKSUM_OFFSET, true);
+    }
+
+    /**
+     * Returns the table. Its contents are determined when it is read: the checksum is taken from the last full read of
+     * the {@link #getBody() body}, or, if the body has not been read yet, e.g. for a fixup recorded in a dry run, by
+     * reading the body now.
+     *
+     * @return Boot information table
+     */
+    public DataReference getTable() {
+        return new DataReference() {
+            public long getLength() {
+                return TABLE_LENGTH;
+            }
+
+            public InputStream createInputStream() throws IOException {
+                byte[] buffer = new byte[TABLE_LENGTH];
+                int i = putWord(buffer, 0, PVD_LOCATION);
+                i = putWord(buffer, i, bootImageLocation);
+                i = putWord(buffer, i, source.getLength());
+                putWord(buffer, i, getChecksum());
+                // The remaining 40 bytes are reserved and stay 0
+                return new ByteArrayInputStream(buffer);
+            }
+        };
+    }
+
+    /**
+     * Sum of all 32-bit words of the body, in 7.3.1 format. A trailing partial word is padded with zero bytes.
+     */
+    private synchronized long getChecksum() throws IOException {
+        if (checksum < 0) {
+            InputStream in = getBody().createInputStream();
+            try {
+                byte[] buffer = new byte[0x2000];
+                while (in.read(buffer) >= 0) {
+                    // Summed up by the stream
+                }
+            } finally {
+                in.close();
+            }
+            if (checksum < 0) {
+                throw new IOException("Boot Image shorter than its length: " + source.getLength() + " bytes.");
+            }
+        }
+        return checksum;
+    }
+
+    private synchronized void setChecksum(long checksum) {
+        this.checksum = checksum & 0xFFFFFFFFl;
+    }
+
+    private static int putWord(byte[] buffer, int i, long value) {
+        buffer[i++] = (byte) (value & 0xFF);
+        buffer[i++] = (byte) ((value >> 8) & 0xFF);
+        buffer[i++] = (byte) ((value >> 16) & 0xFF);
+        buffer[i++] = (byte) ((value >> 24) & 0xFF);
+        return i;
+    }
+
+    /**
+     * Part of the source, optionally summed up while it is read
+     */
+    private class SectionDataReference implements DataReference {
+
+        private final long start;
+        private final long length;
+        private final boolean sum;
+
+        SectionDataReference(long start, long length, boolean sum) {
+            this.start = start;
+            this.length = length;
+            this.sum = sum;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public InputStream createInputStream() throws IOException {
+            InputStream in = source.createInputStream();
+            try {
+                long toSkip = start;
+                while (toSkip > 0) {
+                    long skipped = in.skip(toSkip);
+                    if (skipped <= 0) {
+                        if (in.read() < 0) {
+                            throw new IOException("Boot Image too short for a boot information table");
+                        }
+                        skipped = 1;
+                    }
+                    toSkip -= skipped;
+                }
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            return new SectionInputStream(in, length, sum);
+        }
+    }
+
+    /**
+     * Ends after the given number of bytes and, if summing, passes the checksum on once they have all been read
+     */
+    private class SectionInputStream extends FilterInputStream {
+
+        private final long length;
+        private boolean sum;
+        private long position;
+        private long checksum;
+
+        SectionInputStream(InputStream in, long length, boolean sum) {
+            super(in);
+            this.length = length;
+            this.sum = sum;
+        }
+
+        public int read() throws IOException {
+            if (position >= length) {
+                finish();
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                add(b);
+                position++;
+                finish();
+            }
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= length) {
+                finish();
+                return -1;
+            }
+            int count = super.read(b, off, (int) Math.min(len, length - position));
+            if (count > 0) {
+                for (int i = 0; i < count; i++) {
+                    add(b[off + i] & 0xFF);
+                    position++;
+                }
+                finish();
+            }
+            return count;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, length - position));
+            if (skipped > 0) {
+                // Skipped bytes are not summed up
+                sum = false;
+                position += skipped;
+            }
+            return skipped;
+        }
+
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), length - position);
+        }
+
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void add(int b) {
+            if (sum) {
+                checksum += (long) b << ((position & 3) * 8);
+            }
+        }
+
+        private void finish() {
+            if (sum && position == length) {
+                setChecksum(checksum);
+                sum = false;
+            }
+        }
+    }
+}
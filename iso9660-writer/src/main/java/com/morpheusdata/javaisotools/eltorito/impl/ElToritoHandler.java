@@ -19,19 +19,12 @@
 
 package com.morpheusdata.javaisotools.eltorito.impl;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.util.Arrays;
-
-import com.morpheusdata.javaisotools.iso9660.ISO9660File;
 import com.morpheusdata.javaisotools.iso9660.LayoutHelper;
 import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Constants;
 import com.morpheusdata.javaisotools.iso9660.impl.ISO9660Element;
 import com.morpheusdata.javaisotools.iso9660.sabre.impl.LSBFWordDataReference;
 import com.morpheusdata.javaisotools.iso9660.volumedescriptors.BootRecord;
+import com.morpheusdata.javaisotools.sabre.DataReference;
 import com.morpheusdata.javaisotools.sabre.Element;
 import com.morpheusdata.javaisotools.sabre.HandlerException;
 import com.morpheusdata.javaisotools.sabre.impl.ChainingStreamHandler;
@@ -119,103 +112,26 @@ public class ElToritoHandler extends ChainingStreamHandler {
         bootImageLocation.data(new LSBFWordDataReference(location));
         bootImageLocation.close();
 
+        // Write Boot Image, with the boot information table patched in on the way
+        DataReference bootImage = config.getBootImage().getDataReference();
         if (config.getGenBootInfoTable()) {
-            this.genBootInfoTable(location);
+            if (bootImage.getLength() < BootInfoTable.CHECKSUM_OFFSET) {
+                throw new HandlerException("Boot Image too short for a boot information table: "
+                        + bootImage.getLength() + " bytes.");
+            }
+            log.debug("Patching boot information table into Boot Image at block {}", location);
+            BootInfoTable table = new BootInfoTable(bootImage, location);
+            data(table.getHead());
+            Fixup tableFixup = fixup(table.getPlaceholder());
+            data(table.getBody());
+
+            // Write and close Boot Information Table Fixup, with the checksum summed up while writing the body
+            tableFixup.data(table.getTable());
+            tableFixup.close();
+        } else {
+            data(bootImage);
         }
 
-        // Write Boot Image
-        data(config.getBootImage().getDataReference());
-
         super.endElement();
     }
-
-    private void genBootInfoTable(int lba) throws HandlerException {
-        // Patch the Boot Image: write 56 byte boot information table
-        // (cf. man mkisofs, section EL TORITO BOOT INFORMATION TABLE)
-        try {
-            String orgName = config.getBootImage().getAbsolutePath();
-            File orgFile = new File(orgName);
-
-            // Compute the checksum over all 32-bit words starting at byte offset 64
-            FileInputStream fis = new FileInputStream(orgFile);
-            fis.skip(64);
-            long checksum = 0;
-            byte[] buffer = new byte[0x2000];
-            while (fis.available() > 0) {
-                int len = fis.read(buffer);
-                for (int i = 0; i < len;) {
-                    long temp = buffer[i++] & 0xFF;
-                    temp |= (buffer[i++] << 8) & 0xFF00;
-                    temp |= (buffer[i++] << 16) & 0xFF0000;
-                    temp |= (buffer[i++] << 24) & 0xFF000000l;
-                    checksum += temp;
-                }
-            }
-            fis.close();
-
-            // Create the patched file
-            fis = new FileInputStream(orgFile);
-            File patchedFile = new File(orgName + ".mod");
-            FileOutputStream fos = new FileOutputStream(patchedFile);
-
-            // Copy first 8 bytes
-            buffer = new byte[8];
-            fis.read(buffer);
-            fos.write(buffer);
-
-            // Read 56 bytes and init the buffer with as many 0 bytes
-            buffer = new byte[56];
-            fis.read(buffer);
-            Arrays.fill(buffer, (byte) 0);
-
-            // Write boot info tables fields
-            int i = 0;
-            // PVD LBA (always 16), 7.3.1 format
-            int pvd = 16;
-            buffer[i++] = (byte) (pvd & 0xFF);
-            buffer[i++] = (byte) ((pvd >> 8) & 0xFF);
-            buffer[i++] = (byte) ((pvd >> 16) & 0xFF);
-            buffer[i++] = (byte) ((pvd >> 24) & 0xFF);
-            // Boot file LBA, 7.3.1 format
-            buffer[i++] = (byte) (lba & 0xFF);
-            buffer[i++] = (byte) ((lba >> 8) & 0xFF);
-            buffer[i++] = (byte) ((lba >> 16) & 0xFF);
-            buffer[i++] = (byte) ((lba >> 24) & 0xFF);
-            // Boot file length in bytes, 7.3.1 format
-            int len = (int) config.getBootImage().length();
-            buffer[i++] = (byte) (len & 0xFF);
-            buffer[i++] = (byte) ((len >> 8) & 0xFF);
-            buffer[i++] = (byte) ((len >> 16) & 0xFF);
-            buffer[i++] = (byte) ((len >> 24) & 0xFF);
-            // 32-bit checksum, 7.3.1 format
-            buffer[i++] = (byte) (checksum & 0xFF);
-            buffer[i++] = (byte) ((checksum >> 8) & 0xFF);
-            buffer[i++] = (byte) ((checksum >> 16) & 0xFF);
-            buffer[i++] = (byte) ((checksum >> 24) & 0xFF);
-            // Write 38 byte buffer
-            fos.write(buffer);
-
-            // Write the rest
-            buffer = new byte[0x2000];
-            while (fis.available() > 0) {
-                len = fis.read(buffer);
-                fos.write(buffer, 0, len);
-            }
-            fis.close();
-            fos.close();
-
-            // Replace original file by patched one
-            orgFile.delete();
-            orgFile = new File(orgName);
-            patchedFile.renameTo(orgFile);
-            config.setBootImage(new ISO9660File(orgFile));
-
-
-            log.info("Patched boot image at {}", orgFile.getPath());
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
 }
@@ -31,6 +31,7 @@ import com.morpheusdata.javaisotools.sabre.HandlerException;
 public class ISO9660Directory implements ISO9660HierarchyObject {
 
     private String name;
+    private String sortName;
     private int level;
     private List<ISO9660File> files;
     private List<ISO9660Directory> directories;
@@ -38,6 +39,7 @@ public class ISO9660Directory implements ISO9660HierarchyObject {
     private ISO9660RootDirectory root;
     private long lastModified;
     private boolean sorted;
+    private List<ISO9660HierarchyObject> contents;
     private Object id;
     ISO9660DirectoryIterator sortedIterator, unsortedIterator;
 
@@ -81,6 +83,7 @@ public class ISO9660Directory implements ISO9660HierarchyObject {
 
     public void setName(String name) {
         this.name = name;
+        this.sortName = null;
 
         if (parent != this) {
             // Force sort of parent only if is contains this directory
@@ -92,6 +95,18 @@ public class ISO9660Directory implements ISO9660HierarchyObject {
         return name;
     }
 
+    /**
+     * Returns the upper case name used to sort this directory
+     *
+     * @return Upper case directory name
+     */
+    String getSortName() {
+        if (sortName == null) {
+            sortName = name.toUpperCase();
+        }
+        return sortName;
+    }
+
     private void setLevel(int level) {
         this.level = level;
     }
@@ -145,6 +160,31 @@ public class ISO9660Directory implements ISO9660HierarchyObject {
         return directories;
     }
 
+    /**
+     * Returns the directory's subdirectories and files in ISO 9660 sort order. The list is shared until the contents
+     * or their names change and must not be modified.
+     *
+     * @return List containing ISO9660Directory and ISO9660File objects
+     */
+    public List<ISO9660HierarchyObject> getSortedContents() {
+        if (!sorted) {
+            sort();
+        }
+        if (contents == null) {
+            List<ISO9660HierarchyObject> list =
+                    new ArrayList<ISO9660HierarchyObject>(directories.size() + files.size());
+            list.addAll(directories);
+            list.addAll(files);
+            Collections.sort(list);
+            if (files instanceof ISO9660FileTable) {
+                // Files of a view are created on demand, keeping them would cost as much as a copy of the hierarchy
+                return list;
+            }
+            contents = list;
+        }
+        return contents;
+    }
+
     /**
      * Returns whether this directory contains subdirectories
      *
@@ -296,6 +336,61 @@ public class ISO9660Directory implements ISO9660HierarchyObject {
         return addDirectory(name);
     }
 
+    /**
+     * Remove directory
+     *
+     * @param dir Directory to be removed, with all its contents
+     *
+     * @return Whether the directory was a subdirectory of this directory
+     */
+    public boolean removeDirectory(ISO9660Directory dir) {
+        if (!removeIdentical(directories, dir)) {
+            return false;
+        }
+        dir.setParentDirectory(dir);
+        sorted = false;
+
+        // Hierarchy iterators are set up once, drop them up to the root
+        ISO9660Directory ancestor = this;
+        while (true) {
+            ancestor.sortedIterator = null;
+            ancestor.unsortedIterator = null;
+            if (ancestor.getParentDirectory() == ancestor) {
+                break;
+            }
+            ancestor = ancestor.getParentDirectory();
+        }
+        return true;
+    }
+
+    /**
+     * Remove file
+     *
+     * @param file File to be removed
+     *
+     * @return Whether the file was in this directory
+     */
+    public boolean removeFile(ISO9660File file) {
+        if (!removeIdentical(files, file)) {
+            return false;
+        }
+        file.setParentDirectory(null);
+        sorted = false;
+        return true;
+    }
+
+    private static boolean removeIdentical(List<?> list, Object object) {
+        // Files are equal if their contents are
+        Iterator<?> it = list.iterator();
+        while (it.hasNext()) {
+            if (it.next() == object) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Force a sort of this directory's files and subdirectories
      */
@@ -306,6 +401,7 @@ public class ISO9660Directory implements ISO9660HierarchyObject {
     private void sort() {
         Collections.sort(files);
         Collections.sort(directories);
+        contents = null;
         sorted = true;
     }
 
@@ -415,10 +511,10 @@ public class ISO9660Directory implements ISO9660HierarchyObject {
             return 0;
         } else if (object instanceof ISO9660Directory) {
             ISO9660Directory dir = (ISO9660Directory) object;
-            return getName().toUpperCase().compareTo(dir.getName().toUpperCase());
+            return getSortName().compareTo(dir.getSortName());
         } else if (object instanceof ISO9660File) {
             ISO9660File file = (ISO9660File) object;
-            return getName().toUpperCase().compareTo(file.getFullName().toUpperCase());
+            return getSortName().compareTo(file.getSortName());
         } else {
             throw new ClassCastException();
         }
@@ -488,7 +584,10 @@ public class ISO9660Directory implements ISO9660HierarchyObject {
         clone.files = new ArrayList<ISO9660File>();
         clone.id = id;
         clone.sortedIterator = null;
+        // The iterator refers to the directories of the original, whose root must not become the clone
+        clone.unsortedIterator = null;
         clone.sorted = false;
+        clone.contents = null;
 
         for (ISO9660Directory subdir : directories) {
             ISO9660Directory subdirClone = (ISO9660Directory) subdir.clone();
@@ -509,6 +608,50 @@ public class ISO9660Directory implements ISO9660HierarchyObject {
         return clone;
     }
 
+    /**
+     * Set this directory up as a view of another directory and, recursively, of its subdirectories
+     *
+     * @param source Directory to create the view of
+     * @param root   Root of the view
+     */
+    void setUpView(ISO9660Directory source, ISO9660RootDirectory root) {
+        this.name = source.name;
+        this.lastModified = source.lastModified;
+        this.level = source.level;
+        this.id = source.id;
+        this.root = root;
+        this.files = new ISO9660FileTable(this, source.files);
+        this.directories = new ArrayList<ISO9660Directory>(source.directories.size());
+
+        for (ISO9660Directory subdir : source.directories) {
+            ISO9660Directory view = new ISO9660Directory(subdir.name);
+            view.setParentDirectory(this);
+            view.setUpView(subdir, root);
+            directories.add(view);
+        }
+    }
+
+    /**
+     * Returns the file of this directory that stands for the same file as the given one. The file belongs to the
+     * matching directory of another view of the same hierarchy, or to the directory the views were created from.
+     *
+     * @param file File to match
+     *
+     * @return Matching file, <code>null</code> if there is none
+     */
+    public ISO9660File matchFile(ISO9660File file) {
+        if (files instanceof ISO9660FileTable) {
+            return ((ISO9660FileTable) files).match(file);
+        }
+
+        for (ISO9660File candidate : files) {
+            if (candidate.getID() == file.getID()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns a directory iterator to traverse the directory hierarchy according to the needs of ISO 9660 (sort order
      * of Path Tables and Directory Records)
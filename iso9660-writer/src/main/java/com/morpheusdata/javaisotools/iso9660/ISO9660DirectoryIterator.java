@@ -68,10 +68,10 @@ public class ISO9660DirectoryIterator implements Iterator<ISO9660Directory> {
     }
 
     private List<ISO9660Directory> checkMoved(List<ISO9660Directory> dirs) {
-        List<ISO9660Directory> copy = new ArrayList<ISO9660Directory>(dirs);
+        List<ISO9660Directory> copy = new ArrayList<ISO9660Directory>(dirs.size());
         for (ISO9660Directory dir : dirs) {
-            if (dir.isMoved()) {
-                copy.remove(dir);
+            if (!dir.isMoved()) {
+                copy.add(dir);
             }
         }
         return copy;
@@ -46,6 +46,10 @@ public class ISO9660File implements ISO9660HierarchyObject {
     private final long lastModified;
     private final DataReference dataReference;
     private final String absolutePath;
+    private String sortName, sortFilename, sortExtension, sortFullName;
+    // Set for the files of a view, whose names are kept in the table instead
+    private final ISO9660FileTable table;
+    private final int ordinal;
     
     public ISO9660File(DataReference dataReference, String name, long lastModified) throws HandlerException {
         this.dataReference = dataReference;
@@ -53,6 +57,8 @@ public class ISO9660File implements ISO9660HierarchyObject {
         this.isDirectory = false;
         this.isMovedDirectory = false;
         this.absolutePath = null;
+        this.table = null;
+        this.ordinal = 0;
         setVersion(1);
         setName(name);
         id = new Object();
@@ -71,6 +77,8 @@ public class ISO9660File implements ISO9660HierarchyObject {
         this.lastModified = file.lastModified();
         this.isDirectory = file.isDirectory();
         this.absolutePath = file.getAbsolutePath();
+        this.table = null;
+        this.ordinal = 0;
         setName(file.getName());
         setVersion(version);
         id = new Object();
@@ -121,17 +129,91 @@ public class ISO9660File implements ISO9660HierarchyObject {
         this.lastModified = file.lastModified();
         this.isDirectory = file.isDirectory();
         this.absolutePath = file.getAbsolutePath();
+        this.table = null;
+        this.ordinal = 0;
         setName(file.getName());
         setVersion(file.getVersion());
     }
 
+    /**
+     * Create the file of a view, which shares everything but its name with the file it overlays
+     *
+     * @param table   Names of the files of a directory of the view
+     * @param ordinal Index of the file in the table
+     */
+    ISO9660File(ISO9660FileTable table, int ordinal) {
+        ISO9660File source = table.getSource(ordinal);
+        this.dataReference = source.dataReference;
+        this.lastModified = source.lastModified;
+        this.isDirectory = source.isDirectory;
+        this.absolutePath = source.absolutePath;
+        this.id = source.id;
+        this.parent = table.getDirectory();
+        this.table = table;
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Copy the name of this file to a table of a view
+     *
+     * @param table   Names of the files of a directory of the view
+     * @param ordinal Index of the file in the table
+     */
+    void copyNameTo(ISO9660FileTable table, int ordinal) {
+        table.filenames[ordinal] = filename();
+        table.extensions[ordinal] = extension();
+        table.versions[ordinal] = (short) getVersion();
+        table.flags[ordinal] = (byte) ((enforces8plus3() ? ISO9660FileTable.ENFORCE_8PLUS3 : 0)
+                | (enforcesDotDelimiter() ? ISO9660FileTable.DOT_DELIMITER : 0)
+                | (isMovedDirectory() ? ISO9660FileTable.MOVED_DIRECTORY : 0));
+    }
+
+    /**
+     * Returns the index of this file in the table of its view
+     *
+     * @return Index, -1 if this file is not part of a view
+     */
+    int getOrdinal() {
+        return table == null ? -1 : ordinal;
+    }
+
+    /**
+     * Returns the file this file of a view overlays
+     *
+     * @return Overlaid file, this file itself if it is not part of a view
+     */
+    public ISO9660File getSource() {
+        return table == null ? this : table.getSource(ordinal);
+    }
+
+    private String filename() {
+        return table == null ? filename : table.filenames[ordinal];
+    }
+
+    private String extension() {
+        return table == null ? extension : table.extensions[ordinal];
+    }
+
+    private boolean hasFlag(int flag, boolean value) {
+        return table == null ? value : (table.flags[ordinal] & flag) != 0;
+    }
+
+    private void setFlag(int flag, boolean value) {
+        if (value) {
+            table.flags[ordinal] |= flag;
+        } else {
+            table.flags[ordinal] &= ~flag;
+        }
+    }
+
     /**
      * Returns the name of the file (without dot)
      *
      * @return File name
      */
     public String getFilename() {
-        if (enforce8plus3) {
+        String filename = filename();
+        if (enforces8plus3()) {
             return filename.substring(0, 8);
         }
         return filename;
@@ -143,18 +225,21 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * @return File extension
      */
     public String getExtension() {
-        if (enforce8plus3) {
+        String extension = extension();
+        if (enforces8plus3()) {
             return extension.substring(0, 3);
         }
         return extension;
     }
 
     public String getName() {
+        String filename = filename();
         if (isMovedDirectory()) {
             return filename;
         } // else
 
-        if (!extension.equals("") || enforceDotDelimiter) {
+        String extension = extension();
+        if (!extension.equals("") || enforcesDotDelimiter()) {
             return filename + "." + extension;
         } // else
 
@@ -165,7 +250,12 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * Declare this file to be a moved directory "totem pole"
      */
     public void setIsMovedDirectory() {
-        isMovedDirectory = true;
+        if (table != null) {
+            setFlag(ISO9660FileTable.MOVED_DIRECTORY, true);
+        } else {
+            isMovedDirectory = true;
+        }
+        invalidateSortKey();
     }
 
     /**
@@ -174,7 +264,7 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * @return Whether this is a moved directory
      */
     public boolean isMovedDirectory() {
-        return isMovedDirectory;
+        return hasFlag(ISO9660FileTable.MOVED_DIRECTORY, isMovedDirectory);
     }
 
     /**
@@ -183,7 +273,12 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * @param filename File name
      */
     public void setFilename(String filename) {
-        this.filename = filename;
+        if (table != null) {
+            table.filenames[ordinal] = filename;
+        } else {
+            this.filename = filename;
+        }
+        invalidateSortKey();
         if (parent != null) {
             parent.forceSort();
         }
@@ -195,7 +290,12 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * @param extension File extension
      */
     public void setExtension(String extension) {
-        this.extension = extension;
+        if (table != null) {
+            table.extensions[ordinal] = extension;
+        } else {
+            this.extension = extension;
+        }
+        invalidateSortKey();
         if (parent != null) {
             parent.forceSort();
         }
@@ -203,6 +303,7 @@ public class ISO9660File implements ISO9660HierarchyObject {
 
     public void setName(String name) {
         Matcher m = ISO9660File.FILEPATTERN.matcher(name);
+        String filename, extension;
         if (m.matches()) {
             filename = m.group(1);
             extension = m.group(2);
@@ -210,6 +311,14 @@ public class ISO9660File implements ISO9660HierarchyObject {
             filename = name;
             extension = "";
         }
+        if (table != null) {
+            table.filenames[ordinal] = filename;
+            table.extensions[ordinal] = extension;
+        } else {
+            this.filename = filename;
+            this.extension = extension;
+        }
+        invalidateSortKey();
 
         if (parent != null) {
             parent.forceSort();
@@ -223,7 +332,7 @@ public class ISO9660File implements ISO9660HierarchyObject {
      */
     public String getFullName() {
         if (isMovedDirectory()) {
-            return filename;
+            return filename();
         } // else
 
         return getName() + ";" + getVersion();
@@ -235,7 +344,7 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * @return File version
      */
     public int getVersion() {
-        return version;
+        return table == null ? version : table.versions[ordinal];
     }
 
     /**
@@ -249,7 +358,12 @@ public class ISO9660File implements ISO9660HierarchyObject {
         if (version < 1 || version > ISO9660Constants.MAX_FILE_VERSION) {
             throw new HandlerException("Invalid file version: " + version);
         }
-        this.version = version;
+        if (table != null) {
+            table.versions[ordinal] = (short) version;
+        } else {
+            this.version = version;
+        }
+        invalidateSortKey();
 
         if (parent != null) {
             parent.forceSort();
@@ -262,7 +376,7 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * @return Whether this file name will be short
      */
     public boolean enforces8plus3() {
-        return enforce8plus3;
+        return hasFlag(ISO9660FileTable.ENFORCE_8PLUS3, enforce8plus3);
     }
 
     /**
@@ -271,7 +385,12 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * @param force Whether to force this file's name to be short
      */
     public void enforce8plus3(boolean force) {
-        this.enforce8plus3 = force;
+        if (table != null) {
+            setFlag(ISO9660FileTable.ENFORCE_8PLUS3, force);
+        } else {
+            this.enforce8plus3 = force;
+        }
+        invalidateSortKey();
     }
 
     /**
@@ -280,7 +399,7 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * @return Whether the dot character is enforced
      */
     public boolean enforcesDotDelimiter() {
-        return enforceDotDelimiter;
+        return hasFlag(ISO9660FileTable.DOT_DELIMITER, enforceDotDelimiter);
     }
 
     /**
@@ -289,7 +408,35 @@ public class ISO9660File implements ISO9660HierarchyObject {
      * @param force Whether to force this file's name to include the dot character
      */
     public void enforceDotDelimiter(boolean force) {
-        this.enforceDotDelimiter = force;
+        if (table != null) {
+            setFlag(ISO9660FileTable.DOT_DELIMITER, force);
+        } else {
+            this.enforceDotDelimiter = force;
+        }
+        invalidateSortKey();
+    }
+
+    private void invalidateSortKey() {
+        sortName = null;
+    }
+
+    private void updateSortKey() {
+        if (sortName == null) {
+            sortFilename = getFilename().toUpperCase();
+            sortExtension = getExtension().toUpperCase();
+            sortFullName = getFullName().toUpperCase();
+            sortName = getName();
+        }
+    }
+
+    /**
+     * Returns the upper case full name used to sort this file among directories
+     *
+     * @return Upper case full ISO 9660 file name
+     */
+    String getSortName() {
+        updateSortKey();
+        return sortFullName;
     }
 
     public int compareTo(Object object) throws ClassCastException, NullPointerException {
@@ -298,28 +445,30 @@ public class ISO9660File implements ISO9660HierarchyObject {
             throw new NullPointerException();
         } else if (object instanceof ISO9660File) {
             ISO9660File file = (ISO9660File) object;
+            updateSortKey();
+            file.updateSortKey();
 
-            if (getName().equalsIgnoreCase(file.getName())) {
+            if (sortName.equalsIgnoreCase(file.sortName)) {
                 // Same name -> ensure descending version order (see ISO9660:9.3)
-                if (version > file.getVersion()) {
+                if (getVersion() > file.getVersion()) {
                     // This version is greater -> This file comes first
                     return -1;
-                } else if (version < file.getVersion()) {
+                } else if (getVersion() < file.getVersion()) {
                     // This version is smaller -> This file comes last
                     return 1;
                 } // else: versions are equal -> file will be renamed later
             } // else: Compare filenames
 
-            int test = getFilename().toUpperCase().compareTo(file.getFilename().toUpperCase());
+            int test = sortFilename.compareTo(file.sortFilename);
             if (test != 0) {
                 // Different filenames -> no need to check extension
                 return test;
             } // else: Compare extensions
 
-            return getExtension().toUpperCase().compareTo(file.getExtension().toUpperCase());
+            return sortExtension.compareTo(file.sortExtension);
         } else if (object instanceof ISO9660Directory) {
             ISO9660Directory dir = (ISO9660Directory) object;
-            return getFullName().toUpperCase().compareTo(dir.getName().toUpperCase());
+            return getSortName().compareTo(dir.getSortName());
         } else {
             throw new ClassCastException();
         }
@@ -332,10 +481,6 @@ public class ISO9660File implements ISO9660HierarchyObject {
         return false;
     }
 
-    public int hashCode() {
-        return super.hashCode();
-    }
-
     void setParentDirectory(ISO9660Directory parent) {
         this.parent = parent;
     }
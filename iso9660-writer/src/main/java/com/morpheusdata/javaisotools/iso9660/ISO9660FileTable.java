@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Files of a directory in a view of the hierarchy (see {@link ISO9660RootDirectory#createView()}). Only the names are
+ * kept, in arrays indexed by the position of the file in the directory the view was created from. The ISO9660File
+ * objects handed out are created once with the table and read and write their names through it. Files cannot be added
+ * or removed.
+ */
+class ISO9660FileTable extends AbstractList<ISO9660File> {
+
+    static final int ENFORCE_8PLUS3 = 1;
+    static final int DOT_DELIMITER = 2;
+    static final int MOVED_DIRECTORY = 4;
+
+    private final ISO9660Directory directory;
+    private final ISO9660File[] sources;
+    private final ISO9660File[] views;
+    final String[] filenames, extensions;
+    final short[] versions;
+    final byte[] flags;
+    private int[] order;
+
+    /**
+     * Create table
+     *
+     * @param directory Directory of the view the files belong to
+     * @param files     Files of the directory the view is created from
+     */
+    ISO9660FileTable(ISO9660Directory directory, List<ISO9660File> files) {
+        this.directory = directory;
+        this.sources = files.toArray(new ISO9660File[files.size()]);
+        this.filenames = new String[sources.length];
+        this.extensions = new String[sources.length];
+        this.versions = new short[sources.length];
+        this.flags = new byte[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i].copyNameTo(this, i);
+        }
+        this.views = new ISO9660File[sources.length];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new ISO9660File(this, i);
+        }
+    }
+
+    ISO9660Directory getDirectory() {
+        return directory;
+    }
+
+    ISO9660File getSource(int ordinal) {
+        return sources[ordinal];
+    }
+
+    public ISO9660File get(int index) {
+        if (order != null) {
+            return views[order[index]];
+        }
+        if (index < 0 || index >= views.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + views.length);
+        }
+        return views[index];
+    }
+
+    public int size() {
+        return sources.length;
+    }
+
+    /**
+     * Sort the files, which only keeps their order. Files handed out before are the same objects at their new position.
+     *
+     * @param comparator Comparator, <code>null</code> for the natural ordering
+     */
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super ISO9660File> comparator) {
+        ISO9660File[] files = views.clone();
+        Arrays.sort(files, (Comparator<Object>) comparator);
+
+        int[] order = new int[files.length];
+        for (int i = 0; i < files.length; i++) {
+            order[i] = files[i].getOrdinal();
+        }
+        this.order = order;
+        modCount++;
+    }
+
+    /**
+     * Returns the file of this table that overlays the same file as the given one
+     *
+     * @param file File of another view of the same hierarchy, or of the hierarchy itself
+     *
+     * @return Matching file, <code>null</code> if there is none
+     */
+    ISO9660File match(ISO9660File file) {
+        int ordinal = file.getOrdinal();
+        if (ordinal >= 0 && ordinal < sources.length && sources[ordinal] == file.getSource()) {
+            return views[ordinal];
+        }
+
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i].getID() == file.getID()) {
+                return views[i];
+            }
+        }
+        return null;
+    }
+}
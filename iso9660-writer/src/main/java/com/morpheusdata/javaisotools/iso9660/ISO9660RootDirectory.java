@@ -83,6 +83,29 @@ public class ISO9660RootDirectory extends ISO9660Directory {
         return count;
     }
 
+    /**
+     * Returns a view of the directory hierarchy, which may be renamed and relocated independently of it. The view
+     * shares all files with the hierarchy and only keeps their names, in a compact table for each directory, so that
+     * several views cost far less than copies made with {@link #clone()}. Files cannot be added to or removed from
+     * the directories of a view.
+     *
+     * @return Root of the view
+     */
+    public ISO9660RootDirectory createView() {
+        ISO9660RootDirectory view = new ISO9660RootDirectory();
+        view.setUpView(this, view);
+
+        if (movedDirectoriesStore != null) {
+            for (ISO9660Directory dir : view.getDirectories()) {
+                if (dir.getID() == movedDirectoriesStore.getID()) {
+                    view.movedDirectoriesStore = dir;
+                }
+            }
+        }
+
+        return view;
+    }
+
     public Object clone() {
         ISO9660RootDirectory clone = (ISO9660RootDirectory) super.clone();
         clone.setParentDirectory(clone);
@@ -19,10 +19,10 @@
 
 package com.morpheusdata.javaisotools.iso9660;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.morpheusdata.javaisotools.sabre.HandlerException;
 import lombok.extern.slf4j.Slf4j;
@@ -113,132 +113,161 @@ public abstract class NamingConventions {
 
     public void incrementFilename(ISO9660Directory dir) throws HandlerException {
         String filename = dir.getName();
-        if (filename.length() > 0) {
-            int number = -1;
-            int position = filename.length() - 1;
-            while (position >= 0) {
-                try {
-                    number = Integer.parseInt(filename.substring(position, filename.length()));
-                    position--;
-                } catch (NumberFormatException e) {
-                    break;
-                }
-            }
+        int position = getNumberPosition(filename);
+        int number = getNumber(filename, position);
+        String prefix = filename.substring(0, position);
+        String candidate = prefix + (number + 1);
 
-            if (number >= 0) {
-                // Filename ends with a number -> overwrite with incremented number
-                number++;
-                if (position > 0) {
-                    filename = filename.substring(0, position + 1);
-                } else {
-                    filename = "";
-                }
-                filename += number;
-            } else {
-                // Filename does not end with a number -> append 2
-                // First try to append the number
-                ISO9660Directory copy = new ISO9660Directory(filename + "2");
-                apply(copy);
-                if (checkFilenameEquality(copy.getName(), filename)) {
-                    // Adding the number did not change the filename -> replace last character
-                    filename = filename.substring(0, filename.length()) + "2";
-                } else {
-                    filename = copy.getName();
-                }
-            }
-        } else {
-            filename = "2";
-        }
+        // Make room for the number if the name would not fit otherwise
+        ISO9660Directory copy = new ISO9660Directory(candidate);
+        apply(copy);
+        filename = shorten(prefix, number + 1, candidate.length() - copy.getName().length());
 
         setFilename(dir, filename);
     }
 
     public void incrementFilename(ISO9660File file) throws HandlerException {
         String filename = file.getFilename();
-        if (filename.length() > 0) {
-            int number = -1;
-            int position = filename.length() - 1;
-            while (position >= 0) {
-                try {
-                    number = Integer.parseInt(filename.substring(position, filename.length()));
-                    position--;
-                } catch (NumberFormatException e) {
-                    break;
-                }
-            }
+        int position = getNumberPosition(filename);
+        int number = getNumber(filename, position);
+        String prefix = filename.substring(0, position);
+        String candidate = prefix + (number + 1);
+
+        // Make room for the number if the name would not fit otherwise
+        ISO9660File copy = new ISO9660File(file);
+        copy.enforce8plus3(file.enforces8plus3());
+        copy.setFilename(candidate);
+        apply(copy);
+        filename = shorten(prefix, number + 1, candidate.length() - copy.getFilename().length());
 
-            if (number >= 0) {
-                // Filename ends with a number -> overwrite with incremented number
-                number++;
-                if (position > 0) {
-                    filename = filename.substring(0, position + 1);
-                } else {
-                    filename = "";
-                }
-                filename += number;
-            } else {
-                // Filename does not end with a number -> append 2
-                // First try to append the number
-                ISO9660File copy = null;
-                try {
-                    copy = new ISO9660File(file);
-                } catch (HandlerException e) {
-                    e.printStackTrace();
-                }
-                apply(copy);
-                if (checkFilenameEquality(copy.getFilename(), filename)) {
-                    // Adding the number did not change the filename -> replace last character
-                    filename = filename.substring(0, filename.length()) + "2";
-                } else {
-                    filename = copy.getFilename();
-                }
-            }
-        } else {
-            filename = "2";
+        setFilename(file, filename);
+    }
+
+    /**
+     * Returns the position of the number a name ends with, the length of the name if it does not end with one. Only
+     * the last nine digits count, so that the number always fits an int.
+     */
+    private static int getNumberPosition(String filename) {
+        int position = filename.length();
+        while (position > 0 && position > filename.length() - 9 && isDigit(filename.charAt(position - 1))) {
+            position--;
         }
+        return position;
+    }
 
-        setFilename(file, filename);
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Returns the number a name ends with, 1 if it does not end with one, so that the first increment appends 2.
+     */
+    private static int getNumber(String filename, int position) {
+        return (position < filename.length()) ? Integer.parseInt(filename.substring(position)) : 1;
+    }
+
+    private static String shorten(String prefix, int number, int excess) {
+        if (excess > 0) {
+            prefix = prefix.substring(0, Math.max(0, prefix.length() - excess));
+        }
+        return prefix + number;
     }
 
     public boolean checkFilenameEquality(String name1, String name2) {
         return name1.equals(name2);
     }
 
-    public void processDirectory(ISO9660Directory dir) throws HandlerException {
-        List<String[]> duplicates = new ArrayList<String[]>();
+    /**
+     * Returns the key under which a name is indexed for duplicate detection. Names are duplicates if and only if their
+     * keys are equal, so this has to match {@link #checkFilenameEquality(String, String)}.
+     *
+     * @param name File or directory name
+     *
+     * @return Index key
+     */
+    public String getDuplicateKey(String name) {
+        return name;
+    }
+
+    /**
+     * @deprecated {@link #processDirectory(ISO9660Directory)} keeps the names of a directory in an index instead of a
+     * list. Kept for conventions that still track duplicates themselves, and compares names by
+     * {@link #getDuplicateKey(String)} like the index.
+     */
+    @Deprecated
+    public boolean checkDuplicate(List<String[]> duplicates, String name, int version) {
+        return checkDuplicate(duplicates, name, version, true);
+    }
 
-        // Prepare files and directories to be processed in sorted order
-        List<ISO9660HierarchyObject> contents = new ArrayList<ISO9660HierarchyObject>();
-        contents.addAll(dir.getDirectories());
-        contents.addAll(dir.getFiles());
-        Collections.sort(contents);
+    /**
+     * @deprecated See {@link #checkDuplicate(List, String, int)}.
+     */
+    @Deprecated
+    public boolean checkDuplicate(List<String[]> duplicates, String name, int version, boolean checkVersion) {
+        String key = getDuplicateKey(name);
+        for (String[] data : duplicates) {
+            // Check for name equality
+            if (getDuplicateKey(data[0]).equals(key)) {
+                int aVersion = Integer.parseInt(data[1]);
+                // Require version equality for files
+                if (!checkVersion || aVersion == -1 || version == aVersion) {
+                    return true;
+                }
+            }
+        }
 
-        boolean duplicate;
+        return false;
+    }
+
+    /**
+     * @deprecated See {@link #checkDuplicate(List, String, int)}.
+     */
+    @Deprecated
+    public void addDuplicate(List<String[]> duplicates, String name, int version) {
+        String[] data = {name, version + ""};
+        duplicates.add(data);
+    }
+
+    public void processDirectory(ISO9660Directory dir) throws HandlerException {
+        // Files and directories in sorted order, renaming below does not affect this list
+        List<ISO9660HierarchyObject> contents = dir.getSortedContents();
+
+        NameIndex duplicates = new NameIndex(contents.size());
         for (ISO9660HierarchyObject object : contents) {
-            duplicate = false;
             if (object instanceof ISO9660Directory) {
                 ISO9660Directory subdir = (ISO9660Directory) object;
                 apply(subdir);
-                while (checkDuplicate(duplicates, subdir.getName(), -1)) {
-                    incrementFilename(subdir);
-                    duplicate = true;
+                String name = subdir.getName();
+                if (duplicates.contains(name, -1)) {
+                    // Continue after the last name handed out for this name, all names up to it are taken
+                    String renamed = duplicates.getRename(name, -1);
+                    if (renamed != null) {
+                        setFilename(subdir, renamed);
+                    }
+                    do {
+                        incrementFilename(subdir);
+                    } while (duplicates.contains(subdir.getName(), -1));
+                    duplicates.putRename(name, -1, subdir.getName());
                 }
-                if (!duplicate) {
-                    duplicates.clear();
-                }
-                addDuplicate(duplicates, subdir.getName(), -1);
+                duplicates.add(subdir.getName(), -1);
                 checkPathLength(subdir.getISOPath());
             } else if (object instanceof ISO9660File) {
                 ISO9660File file = (ISO9660File) object;
                 apply(file);
-                while (checkDuplicate(duplicates, file.getName(), file.getVersion())) {
-                    incrementFilename(file);
-                    duplicate = true;
-                }
-                if (!duplicate) {
-                    duplicates.clear();
+                String name = file.getName();
+                int version = file.getVersion();
+                if (duplicates.contains(name, version)) {
+                    // Continue after the last name handed out for this name, all names up to it are taken
+                    String renamed = duplicates.getRename(name, version);
+                    if (renamed != null) {
+                        setFilename(file, renamed);
+                    }
+                    do {
+                        incrementFilename(file);
+                    } while (duplicates.contains(file.getName(), version));
+                    duplicates.putRename(name, version, file.getFilename());
                 }
-                addDuplicate(duplicates, file.getName(), file.getVersion());
+                duplicates.add(file.getName(), version);
                 checkPathLength(file.getISOPath());
             } else {
                 throw new HandlerException("Neither file nor directory: " + object);
@@ -246,28 +275,75 @@ public abstract class NamingConventions {
         }
     }
 
-    public boolean checkDuplicate(List<String[]> duplicates, String name, int version) {
-        return checkDuplicate(duplicates, name, version, true);
-    }
+    /**
+     * Names taken within one directory, indexed by {@link #getDuplicateKey(String)}. Directories (version -1) collide
+     * with any version of a name, files only with the same version.
+     */
+    private class NameIndex {
 
-    public boolean checkDuplicate(List<String[]> duplicates, String name, int version, boolean checkVersion) {
-        for (String[] data : duplicates) {
-            // Check for name equality
-            if (checkFilenameEquality(data[0], name)) {
-                int aVersion = Integer.parseInt(data[1]);
-                // Require version equality for files
-                if (!checkVersion || aVersion == -1 || version == aVersion) {
-                    return true;
-                }
+        private final HashMap<String, Set<Integer>> names;
+        private final HashMap<String, String> renames;
+
+        NameIndex(int capacity) {
+            this.names = new HashMap<String, Set<Integer>>(capacity * 4 / 3 + 1);
+            this.renames = new HashMap<String, String>();
+        }
+
+        boolean contains(String name, int version) {
+            Set<Integer> versions = names.get(getDuplicateKey(name));
+            if (versions == null) {
+                return false;
             }
+            return version == -1 || versions.contains(Integer.valueOf(-1)) || versions.contains(Integer.valueOf(version));
         }
 
-        return false;
+        void add(String name, int version) {
+            String key = getDuplicateKey(name);
+            Set<Integer> versions = names.get(key);
+            if (versions == null) {
+                versions = new HashSet<Integer>(2);
+                names.put(key, versions);
+            }
+            versions.add(Integer.valueOf(version));
+        }
+
+        String getRename(String name, int version) {
+            return renames.get(getDuplicateKey(name) + ";" + version);
+        }
+
+        void putRename(String name, int version, String renamed) {
+            renames.put(getDuplicateKey(name) + ";" + version, renamed);
+        }
     }
 
-    public void addDuplicate(List<String[]> duplicates, String name, int version) {
-        String[] data = {name, version + ""};
-        duplicates.add(data);
+    /**
+     * Replace characters of a name by an underscore. Same as a regular expression character class, but without the
+     * cost of one for every file of the hierarchy.
+     *
+     * @param name       Name to normalize
+     * @param characters Characters to be replaced, or to be kept if <code>keep</code> is set
+     * @param keep       Whether to replace all characters except the given ones
+     *
+     * @return Name with all such characters replaced, the name itself if nothing had to be replaced
+     */
+    protected static String replaceCharacters(String name, String characters, boolean keep) {
+        StringBuilder buffer = null;
+        int i = 0;
+        while (i < name.length()) {
+            int codePoint = name.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+            if ((characters.indexOf(codePoint) >= 0) != keep) {
+                if (buffer == null) {
+                    buffer = new StringBuilder(name.length());
+                    buffer.append(name, 0, i);
+                }
+                buffer.append('_');
+            } else if (buffer != null) {
+                buffer.append(name, i, next);
+            }
+            i = next;
+        }
+        return buffer == null ? name : buffer.toString();
     }
 
     public abstract void apply(ISO9660Directory dir) throws HandlerException;
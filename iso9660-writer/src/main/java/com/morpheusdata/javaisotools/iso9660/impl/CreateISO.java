@@ -20,8 +20,12 @@
 package com.morpheusdata.javaisotools.iso9660.impl;
 
 import java.io.FileNotFoundException;
+import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import com.morpheusdata.javaisotools.eltorito.impl.ElToritoHandler;
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
 import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
 import com.morpheusdata.javaisotools.joliet.impl.JolietHandler;
 import com.morpheusdata.javaisotools.rockridge.impl.RockRidgeConfig;
@@ -29,23 +33,161 @@ import com.morpheusdata.javaisotools.sabre.StreamHandler;
 import com.morpheusdata.javaisotools.eltorito.impl.ElToritoConfig;
 import com.morpheusdata.javaisotools.joliet.impl.JolietConfig;
 import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.impl.CountingStreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.OutputStreamHandler;
+import com.morpheusdata.javaisotools.sabre.util.FixupJournal;
 
 public class CreateISO {
 
     private ISO9660RootDirectory root;
     private StreamHandler streamHandler;
+    private OutputStream outputStream;
+    private ProgressListener progressListener;
+    private Map<ISO9660File, Long> recordedFiles;
+    private long sectionLength = ISO9660Constants.MAX_SECTION_LENGTH;
+    // Checksums of file contents for deduplication, computed once for all passes over the root
+    private final Map<ISO9660File, Long> checksums = new IdentityHashMap<ISO9660File, Long>();
+
+    /**
+     * Lay out an image with {@link #layout} without writing it
+     *
+     * @param root Root directory of the image
+     */
+    public CreateISO(ISO9660RootDirectory root) {
+        this.root = root;
+    }
 
     public CreateISO(StreamHandler streamHandler, ISO9660RootDirectory root) throws FileNotFoundException {
-        this.streamHandler = new LogicalSectorPaddingHandler(streamHandler, streamHandler);
+        this.streamHandler = streamHandler;
+        this.root = root;
+    }
+
+    /**
+     * Create an ISO image on a stream that cannot be seeked, e.g. a socket or an HTTP response. The image is laid out
+     * in a dry run first, which does not read any file contents, and then written strictly forward with all fixups
+     * already in place. Use {@link java.nio.channels.Channels#newOutputStream} to write to a
+     * {@link java.nio.channels.WritableByteChannel}. The stream is not closed.
+     *
+     * @param outputStream Stream to write the image to
+     * @param root         Root directory of the image
+     */
+    public CreateISO(OutputStream outputStream, ISO9660RootDirectory root) {
+        this.outputStream = outputStream;
         this.root = root;
     }
 
+    /**
+     * Report the progress of {@link #process} to a listener. To estimate the time remaining, the image is laid out in
+     * a dry run first, which does not read any file contents.
+     *
+     * @param progressListener Listener, or null for no reports
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Refer to the contents of files already recorded in the image being written to instead of writing them, as when
+     * appending a session
+     *
+     * @param recordedFiles Map of file to the logical block number its contents are recorded at, or null
+     */
+    public void setRecordedFiles(Map<ISO9660File, Long> recordedFiles) {
+        this.recordedFiles = recordedFiles;
+    }
+
+    /**
+     * Split files into File Sections of the given length instead of {@link ISO9660Constants#MAX_SECTION_LENGTH}
+     * in the ISO 9660 hierarchy
+     *
+     * @param sectionLength Length in bytes, a multiple of the logical block size
+     */
+    void setSectionLength(long sectionLength) {
+        this.sectionLength = sectionLength;
+    }
+
     public void process(ISO9660Config iso9660Config, RockRidgeConfig rrConfig, JolietConfig jolietConfig,
                         ElToritoConfig elToritoConfig) throws HandlerException {
         if (iso9660Config == null) {
             throw new NullPointerException("Cannot create ISO without ISO9660Config.");
         }
-        ((LogicalSectorPaddingHandler) streamHandler).setPadEnd(iso9660Config.getPadEnd());
+
+        if (outputStream == null) {
+            if (streamHandler == null) {
+                throw new HandlerException("No stream handler to write the image to.");
+            }
+            StreamHandler handler = streamHandler;
+            if (progressListener != null) {
+                // Dry run: determine the size of the image
+                ProgressStreamHandler dryRun = new ProgressStreamHandler(new CountingStreamHandler(), null);
+                process(dryRun, false, iso9660Config, rrConfig, jolietConfig, elToritoConfig);
+
+                ProgressStreamHandler progressHandler = new ProgressStreamHandler(streamHandler, progressListener);
+                progressHandler.setTotals(dryRun.getMetrics().getBytesWritten(), dryRun.getMetrics().getFilesWritten());
+                handler = progressHandler;
+            }
+            process(handler, true, iso9660Config, rrConfig, jolietConfig, elToritoConfig);
+            return;
+        }
+
+        // Dry run: determine the layout and collect all fixups
+        FixupJournal journal = new FixupJournal(ISO9660Constants.LOGICAL_SECTOR_SIZE);
+        CountingStreamHandler countingHandler = new CountingStreamHandler(journal);
+        ProgressStreamHandler dryRun = new ProgressStreamHandler(countingHandler, null);
+        process(dryRun, false, iso9660Config, rrConfig, jolietConfig, elToritoConfig);
+
+        // Write pass: the same layout again, with the fixups spliced in on the way out
+        OutputStreamHandler outputStreamHandler = new OutputStreamHandler(outputStream, journal);
+        StreamHandler handler = outputStreamHandler;
+        if (progressListener != null) {
+            ProgressStreamHandler progressHandler = new ProgressStreamHandler(outputStreamHandler, progressListener);
+            progressHandler.setTotals(dryRun.getMetrics().getBytesWritten(), dryRun.getMetrics().getFilesWritten());
+            handler = progressHandler;
+        }
+        process(handler, true, iso9660Config, rrConfig, jolietConfig, elToritoConfig);
+        if (outputStreamHandler.mark() != countingHandler.mark()) {
+            throw new HandlerException("Image size changed between passes: " + countingHandler.mark() + " bytes expected, "
+                    + outputStreamHandler.mark() + " bytes written.");
+        }
+    }
+
+    /**
+     * Determine the size of the image and the location of every file in it, without writing it. The same handlers lay
+     * out the image as for {@link #process}, but against a sink that only counts, so no file contents are read unless
+     * they have to be compared for {@link ISO9660Config#setDeduplicate deduplication}. The image written by
+     * {@link #process} with the same configuration and directory hierarchy has exactly this layout.
+     *
+     * @param iso9660Config  ISO 9660 configuration
+     * @param rrConfig       Rock Ridge configuration, or null
+     * @param jolietConfig   Joliet configuration, or null
+     * @param elToritoConfig El Torito configuration, or null
+     *
+     * @return Layout of the image
+     *
+     * @throws HandlerException Problems laying out the image
+     */
+    public ImageLayout layout(ISO9660Config iso9660Config, RockRidgeConfig rrConfig, JolietConfig jolietConfig,
+                              ElToritoConfig elToritoConfig) throws HandlerException {
+        if (iso9660Config == null) {
+            throw new NullPointerException("Cannot create ISO without ISO9660Config.");
+        }
+
+        LayoutStreamHandler layoutHandler = new LayoutStreamHandler(new CountingStreamHandler());
+        process(layoutHandler, false, iso9660Config, rrConfig, jolietConfig, elToritoConfig);
+        return layoutHandler.getLayout();
+    }
+
+    private void process(StreamHandler handler, boolean readContents, ISO9660Config iso9660Config,
+                         RockRidgeConfig rrConfig, JolietConfig jolietConfig, ElToritoConfig elToritoConfig)
+            throws HandlerException {
+        ProgressStreamHandler progressHandler = null;
+        if (handler instanceof ProgressStreamHandler) {
+            progressHandler = (ProgressStreamHandler) handler;
+        }
+
+        LogicalSectorPaddingHandler paddingHandler = new LogicalSectorPaddingHandler(handler, handler);
+        paddingHandler.setPadEnd(iso9660Config.getPadEnd());
+        StreamHandler streamHandler = paddingHandler;
 
         // Last handler added processes data first
         if (jolietConfig != null) {
@@ -54,39 +196,60 @@ public class CreateISO {
         if (elToritoConfig != null) {
             streamHandler = new ElToritoHandler(streamHandler, elToritoConfig);
         }
-        streamHandler = new ISO9660Handler(streamHandler, root, iso9660Config, rrConfig);
-        streamHandler = new FileHandler(streamHandler, root);
+        ISO9660Handler iso9660Handler = new ISO9660Handler(streamHandler, root, iso9660Config, rrConfig);
+        iso9660Handler.setSectionLength(sectionLength);
+        streamHandler = iso9660Handler;
+        FileHandler fileHandler = null;
+        if (readContents) {
+            fileHandler = new FileHandler(streamHandler, root, iso9660Config.getReadAhead(),
+                    iso9660Config.getReadAheadBudget());
+        } else {
+            // Nothing to read ahead for
+            fileHandler = new FileHandler(streamHandler, root);
+        }
+        // Deduplication changes the layout, so it applies to a dry run as well
+        fileHandler.setDeduplicate(iso9660Config.getDeduplicate());
+        fileHandler.setChecksums(checksums);
+        if (recordedFiles != null) {
+            fileHandler.setRecordedFiles(recordedFiles);
+        }
+        streamHandler = fileHandler;
 
         streamHandler.startDocument();
 
         // System Area
-        streamHandler.startElement(new ISO9660Element("SA"));
-        streamHandler.endElement();
+        doArea(streamHandler, progressHandler, "SA");
 
         // Volume Descriptor Set
-        streamHandler.startElement(new ISO9660Element("VDS"));
-        streamHandler.endElement();
+        doArea(streamHandler, progressHandler, "VDS");
 
         // Boot Info Area
-        streamHandler.startElement(new ISO9660Element("BIA"));
-        streamHandler.endElement();
+        doArea(streamHandler, progressHandler, "BIA");
 
         // Path Table Area
-        streamHandler.startElement(new ISO9660Element("PTA"));
-        streamHandler.endElement();
+        doArea(streamHandler, progressHandler, "PTA");
 
         // Directory Records Area
-        streamHandler.startElement(new ISO9660Element("DRA"));
-        streamHandler.endElement();
+        doArea(streamHandler, progressHandler, "DRA");
 
         // Boot Data Area
-        streamHandler.startElement(new ISO9660Element("BDA"));
-        streamHandler.endElement();
+        doArea(streamHandler, progressHandler, "BDA");
 
         // File Contents Area
-        streamHandler.startElement(new ISO9660Element("FCA"));
-        streamHandler.endElement();
+        doArea(streamHandler, progressHandler, "FCA");
 
         streamHandler.endDocument();
     }
+
+    private void doArea(StreamHandler streamHandler, ProgressStreamHandler progressHandler, String id)
+            throws HandlerException {
+        if (progressHandler != null) {
+            progressHandler.startPhase(id);
+        }
+        streamHandler.startElement(new ISO9660Element(id));
+        streamHandler.endElement();
+        if (progressHandler != null) {
+            progressHandler.endPhase();
+        }
+    }
 }
\ No newline at end of file
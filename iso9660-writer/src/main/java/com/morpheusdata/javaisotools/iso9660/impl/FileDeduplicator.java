@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+
+/**
+ * Finds files with identical contents. Only files of the same size are checksummed, and only files with the same
+ * size and checksum are compared byte by byte. Checksums are kept by the caller, so the contents are checksummed only
+ * once over all passes of writing an image.
+ */
+class FileDeduplicator {
+
+    private static final int BUFFER_LENGTH = 65536;
+
+    private FileDeduplicator() {
+    }
+
+    /**
+     * Map every file whose contents equal those of a file earlier in the list to that earlier file
+     *
+     * @param files     Files in the order they are written
+     * @param checksums Checksums of file contents computed by earlier calls, by file identity. Checksums computed
+     *                  here are added. A stale checksum can only hide a duplicate, as candidates are always compared
+     *                  byte by byte.
+     *
+     * @return Duplicates mapped to their originals
+     *
+     * @throws HandlerException Problems reading the contents
+     */
+    static Map<ISO9660File, ISO9660File> findDuplicates(List<ISO9660File> files, Map<ISO9660File, Long> checksums)
+            throws HandlerException {
+        Map<ISO9660File, ISO9660File> duplicates = new IdentityHashMap<ISO9660File, ISO9660File>();
+
+        Map<Long, List<ISO9660File>> sizes = new LinkedHashMap<Long, List<ISO9660File>>();
+        for (ISO9660File file : files) {
+            Long length = Long.valueOf(file.length());
+            List<ISO9660File> list = sizes.get(length);
+            if (list == null) {
+                list = new ArrayList<ISO9660File>(1);
+                sizes.put(length, list);
+            }
+            list.add(file);
+        }
+
+        byte[] buffer = new byte[BUFFER_LENGTH];
+        byte[] otherBuffer = new byte[BUFFER_LENGTH];
+        try {
+            for (List<ISO9660File> sameSize : sizes.values()) {
+                if (sameSize.size() < 2) {
+                    continue;
+                }
+
+                Map<Long, List<ISO9660File>> originals = new HashMap<Long, List<ISO9660File>>();
+                for (ISO9660File file : sameSize) {
+                    Long checksum = checksums.get(file);
+                    if (checksum == null) {
+                        checksum = Long.valueOf(checksum(file.getDataReference(), buffer));
+                        checksums.put(file, checksum);
+                    }
+                    List<ISO9660File> candidates = originals.get(checksum);
+                    if (candidates == null) {
+                        candidates = new ArrayList<ISO9660File>(1);
+                        originals.put(checksum, candidates);
+                    }
+
+                    ISO9660File original = null;
+                    for (ISO9660File candidate : candidates) {
+                        if (candidate == file || contentEquals(candidate.getDataReference(), file.getDataReference(),
+                                buffer, otherBuffer)) {
+                            original = candidate;
+                            break;
+                        }
+                    }
+
+                    if (original != null) {
+                        duplicates.put(file, original);
+                    } else {
+                        candidates.add(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new HandlerException(e);
+        }
+
+        return duplicates;
+    }
+
+    private static long checksum(DataReference reference, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        if (reference.getLength() == 0) {
+            return crc.getValue();
+        }
+
+        InputStream inputStream = reference.createInputStream();
+        try {
+            long lengthToRead = reference.getLength();
+            while (lengthToRead > 0) {
+                int bytesHandled = inputStream.read(buffer, 0, (int) Math.min(lengthToRead, buffer.length));
+                if (bytesHandled == -1) {
+                    throw new IOException("Cannot read all data from reference.");
+                }
+                crc.update(buffer, 0, bytesHandled);
+                lengthToRead -= bytesHandled;
+            }
+        } finally {
+            inputStream.close();
+        }
+        return crc.getValue();
+    }
+
+    private static boolean contentEquals(DataReference reference, DataReference other, byte[] buffer,
+                                         byte[] otherBuffer) throws IOException {
+        long lengthToRead = reference.getLength();
+        if (lengthToRead == 0) {
+            return true;
+        }
+
+        InputStream inputStream = reference.createInputStream();
+        try {
+            InputStream otherInputStream = other.createInputStream();
+            try {
+                while (lengthToRead > 0) {
+                    int length = (int) Math.min(lengthToRead, buffer.length);
+                    readFully(inputStream, buffer, length);
+                    readFully(otherInputStream, otherBuffer, length);
+                    for (int i = 0; i < length; i++) {
+                        if (buffer[i] != otherBuffer[i]) {
+                            return false;
+                        }
+                    }
+                    lengthToRead -= length;
+                }
+            } finally {
+                otherInputStream.close();
+            }
+        } finally {
+            inputStream.close();
+        }
+        return true;
+    }
+
+    private static void readFully(InputStream inputStream, byte[] buffer, int length) throws IOException {
+        int bytesRead = 0;
+        while (bytesRead < length) {
+            int bytesHandled = inputStream.read(buffer, bytesRead, length - bytesRead);
+            if (bytesHandled == -1) {
+                throw new IOException("Cannot read all data from reference.");
+            }
+            bytesRead += bytesHandled;
+        }
+    }
+}
@@ -19,23 +19,77 @@
 
 package com.morpheusdata.javaisotools.iso9660.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import com.morpheusdata.javaisotools.iso9660.ISO9660Directory;
 import com.morpheusdata.javaisotools.iso9660.ISO9660File;
 import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
+import com.morpheusdata.javaisotools.sabre.DataReference;
 import com.morpheusdata.javaisotools.sabre.HandlerException;
 import com.morpheusdata.javaisotools.sabre.StreamHandler;
 import com.morpheusdata.javaisotools.sabre.Element;
 import com.morpheusdata.javaisotools.sabre.impl.ChainingStreamHandler;
+import com.morpheusdata.javaisotools.sabre.util.DataPrefetcher;
 
 public class FileHandler extends ChainingStreamHandler {
 
     private ISO9660RootDirectory root;
+    private int readAhead;
+    private long readAheadBudget;
+    private boolean deduplicate;
+    private Map<ISO9660File, Long> recordedFiles = Collections.emptyMap();
+    private Map<ISO9660File, Long> checksums = new IdentityHashMap<ISO9660File, Long>();
 
     public FileHandler(StreamHandler streamHandler, ISO9660RootDirectory root) {
+        this(streamHandler, root, 0, 0);
+    }
+
+    /**
+     * File handler reading the contents of the next files ahead while the current one is being written
+     *
+     * @param streamHandler   Downstream handler
+     * @param root            Root directory
+     * @param readAhead       Maximum number of files read ahead, 0 to disable
+     * @param readAheadBudget Maximum number of bytes held in memory by files read ahead
+     */
+    public FileHandler(StreamHandler streamHandler, ISO9660RootDirectory root, int readAhead, long readAheadBudget) {
         super(streamHandler, streamHandler);
         this.root = root;
+        this.readAhead = readAhead;
+        this.readAheadBudget = readAheadBudget;
+    }
+
+    /**
+     * Write files with identical contents only once
+     *
+     * @param deduplicate Whether to compare the contents of all files of the same size
+     */
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    /**
+     * Reuse the checksums of file contents computed for deduplication in an earlier pass over the same root
+     *
+     * @param checksums Map of file to the checksum of its contents, by identity; checksums computed are added
+     */
+    public void setChecksums(Map<ISO9660File, Long> checksums) {
+        this.checksums = checksums;
+    }
+
+    /**
+     * Do not write the contents of files that are already recorded in the image being written to, e.g. by a previous
+     * session, but refer to them
+     *
+     * @param recordedFiles Map of file to the logical block number its contents are recorded at
+     */
+    public void setRecordedFiles(Map<ISO9660File, Long> recordedFiles) {
+        this.recordedFiles = recordedFiles;
     }
 
     public void startElement(Element element) throws HandlerException {
@@ -53,25 +107,117 @@ public class FileHandler extends ChainingStreamHandler {
     }
 
     private void doFCA() throws HandlerException {
-        doFCADirs(root);
+        if (!deduplicate && (readAhead <= 0 || readAheadBudget <= 0)) {
+            doFCADirs(root);
 
+            Iterator<ISO9660Directory> it = root.sortedIterator();
+            while (it.hasNext()) {
+                ISO9660Directory dir = it.next();
+                doFCADirs(dir);
+            }
+            return;
+        }
+
+        // Same order as doFCADirs
+        List<ISO9660File> files = new ArrayList<ISO9660File>(root.getFiles());
         Iterator<ISO9660Directory> it = root.sortedIterator();
         while (it.hasNext()) {
-            ISO9660Directory dir = it.next();
-            doFCADirs(dir);
+            files.addAll(it.next().getFiles());
+        }
+
+        // Recorded contents are neither compared nor read
+        List<ISO9660File> unrecorded = files;
+        if (!recordedFiles.isEmpty()) {
+            unrecorded = new ArrayList<ISO9660File>(files.size());
+            for (ISO9660File file : files) {
+                if (!recordedFiles.containsKey(file)) {
+                    unrecorded.add(file);
+                }
+            }
+        }
+
+        Map<ISO9660File, ISO9660File> duplicates = Collections.emptyMap();
+        if (deduplicate) {
+            duplicates = FileDeduplicator.findDuplicates(unrecorded, checksums);
+        }
+
+        DataPrefetcher prefetcher = null;
+        if (readAhead > 0 && readAheadBudget > 0) {
+            final List<ISO9660File> unique = new ArrayList<ISO9660File>(unrecorded.size() - duplicates.size());
+            for (ISO9660File file : unrecorded) {
+                if (!duplicates.containsKey(file)) {
+                    unique.add(file);
+                }
+            }
+
+            final Iterator<ISO9660File> fileIterator = unique.iterator();
+            prefetcher = new DataPrefetcher(new Iterator<DataReference>() {
+                public boolean hasNext() {
+                    return fileIterator.hasNext();
+                }
+
+                public DataReference next() {
+                    return fileIterator.next().getDataReference();
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            }, readAhead, readAheadBudget);
+        }
+
+        try {
+            for (ISO9660File file : files) {
+                Long location = recordedFiles.get(file);
+                ISO9660File original = duplicates.get(file);
+                if (location != null) {
+                    doRecorded(file, location.longValue());
+                } else if (original != null) {
+                    doLink(file, original);
+                } else if (prefetcher != null) {
+                    doFile(file, prefetcher.next());
+                } else {
+                    doFile(file);
+                }
+            }
+        } finally {
+            if (prefetcher != null) {
+                prefetcher.close();
+            }
         }
     }
 
     private void doFCADirs(ISO9660Directory dir) throws HandlerException {
         for (ISO9660File file : dir.getFiles()) {
-            doFile(file);
+            Long location = recordedFiles.get(file);
+            if (location != null) {
+                doRecorded(file, location.longValue());
+            } else {
+                doFile(file);
+            }
         }
     }
 
+    private void doLink(ISO9660File file, ISO9660File original) throws HandlerException {
+        // No contents and no padding, the file is recorded at the location of the original
+        super.startElement(new FileLinkElement(file, original));
+        super.endElement();
+    }
+
+    private void doRecorded(ISO9660File file, long location) throws HandlerException {
+        // No contents and no padding, the file is recorded at the location of its existing contents
+        super.startElement(new RecordedFileElement(file, location));
+        super.endElement();
+    }
+
     private void doFile(ISO9660File file) throws HandlerException {
+        doFile(file, file.getDataReference());
+    }
+
+    private void doFile(ISO9660File file, DataReference reference) throws HandlerException {
         super.startElement(new FileElement(file));
 
-        data(file.getDataReference());
+        data(reference);
 
         super.endElement();
     }
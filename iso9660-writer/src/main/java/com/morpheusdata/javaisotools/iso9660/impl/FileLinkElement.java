@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660.impl;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.sabre.Element;
+
+/**
+ * A file whose contents have already been written for another file. Unlike {@link FileElement}, this element occupies
+ * no space in the image.
+ */
+public class FileLinkElement extends Element {
+
+    private ISO9660File file, original;
+
+    public FileLinkElement(ISO9660File file, ISO9660File original) {
+        this.file = file;
+        this.original = original;
+    }
+
+    public Object getId() {
+        return "LINK";
+    }
+
+    public ISO9660File getFile() {
+        return file;
+    }
+
+    public ISO9660File getOriginal() {
+        return original;
+    }
+}
@@ -23,7 +23,6 @@ import java.lang.Character.UnicodeBlock;
 
 import com.morpheusdata.javaisotools.iso9660.ConfigException;
 import com.morpheusdata.javaisotools.iso9660.StandardConfig;
-import jdk.jpackage.internal.Log;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -32,7 +31,9 @@ public class ISO9660Config extends StandardConfig {
     public int interchangeLevel = 1;
     public boolean forceISO9660Charset = true;
     public boolean forceDotDelimiter = true;
-    private boolean restrictDirDepthTo8, allowASCII, padEnd;
+    private boolean restrictDirDepthTo8, allowASCII, padEnd, deduplicate;
+    private int readAhead = 0;
+    private long readAheadBudget = 64 * 1024 * 1024;
 
     public ISO9660Config() {
         super();
@@ -42,7 +43,7 @@ public class ISO9660Config extends StandardConfig {
 
     /**
      * Set Interchange Level<br> 1: Filenames 8+3, directories 8 characters<br> 2: Filenames 30, directories 31
-     * characters<br> 3: multiple File Sections (files &gt; 2 GB)
+     * characters<br> 3: as 2, plus multiple File Sections (files &gt; 4 GB)
      *
      * @param level 1, 2 or 3
      *
@@ -52,10 +53,6 @@ public class ISO9660Config extends StandardConfig {
         if (level < 1 || level > 3) {
             throw new ConfigException(this, "Invalid ISO9660 Interchange Level: " + level);
         }
-        if (level == 3) {
-            throw new ConfigException(this,
-                    "Interchange Level 3 (multiple File Sections per file) is not (yet) supported by this implementation.");
-        }
         this.interchangeLevel = level;
     }
 
@@ -146,6 +143,53 @@ public class ISO9660Config extends StandardConfig {
         return this.padEnd;
     }
 
+    /**
+     * Write files with identical contents only once and record all of them at the same location. All files of the
+     * same size are read an additional time to find the duplicates.
+     *
+     * @param deduplicate Whether to deduplicate file contents, defaults to false
+     */
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    public boolean getDeduplicate() {
+        return this.deduplicate;
+    }
+
+    /**
+     * Read the contents of the next files ahead on a worker pool while the current file is being written. The files
+     * are still written in layout order.
+     *
+     * @param readAhead Maximum number of files read ahead, 0 (default) to disable
+     */
+    public void setReadAhead(int readAhead) {
+        if (readAhead < 0) {
+            throw new IllegalArgumentException("'readAhead' must be >= 0");
+        }
+        this.readAhead = readAhead;
+    }
+
+    public int getReadAhead() {
+        return this.readAhead;
+    }
+
+    /**
+     * Limit the memory used by files read ahead. Files larger than the budget are not read ahead.
+     *
+     * @param readAheadBudget Maximum number of bytes held in memory, defaults to 64 MB
+     */
+    public void setReadAheadBudget(long readAheadBudget) {
+        if (readAheadBudget <= 0) {
+            throw new IllegalArgumentException("'readAheadBudget' must be > 0");
+        }
+        this.readAheadBudget = readAheadBudget;
+    }
+
+    public long getReadAheadBudget() {
+        return this.readAheadBudget;
+    }
+
     private String checkAString(String string) {
         if (allowsASCII()) {
             return checkASCIIString(string);
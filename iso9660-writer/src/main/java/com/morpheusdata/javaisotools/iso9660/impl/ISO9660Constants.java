@@ -31,6 +31,12 @@ public class ISO9660Constants {
      */
     public static final int LOGICAL_BLOCK_SIZE = LOGICAL_SECTOR_SIZE;
 
+    /**
+     * Maximum length of a File Section: the largest multiple of the Logical Block Size fitting into the 32 bit Data
+     * Length of a Directory Record. Larger files are recorded in several File Sections (Interchange Level 3).
+     */
+    public static final long MAX_SECTION_LENGTH = 0xFFFFFFFFL / LOGICAL_BLOCK_SIZE * LOGICAL_BLOCK_SIZE;
+
     /**
      * Boot Record Type
      */
@@ -38,7 +38,7 @@ public class ISO9660DirectoryRecord {
     private StreamHandler streamHandler;
     private int volSeqNo;
     private DataReference filenameDataReference;
-    public boolean hide, isDirectory;
+    public boolean hide, isDirectory, notFinal;
 
     /**
      * File
@@ -85,6 +85,7 @@ public class ISO9660DirectoryRecord {
         this.volSeqNo = 1;
         this.hide = false;
         this.isDirectory = true;
+        this.notFinal = false;
     }
 
     public void setVolSeqNo(int value) {
@@ -95,6 +96,13 @@ public class ISO9660DirectoryRecord {
         this.hide = true;
     }
 
+    /**
+     * Mark this Directory Record as not being the final one of a file recorded in multiple File Sections
+     */
+    public void notFinal() {
+        this.notFinal = true;
+    }
+
     public HashMap doDR() throws HandlerException {
         HashMap memory = new HashMap();
         int length = 0;
@@ -170,11 +178,13 @@ public class ISO9660DirectoryRecord {
         if (isDirectory) {
             flags |= 2;
         }
+        if (notFinal) {
+            flags |= 0x80;
+        }
         // ignore other cases for now:
         // - bit 2: Associated File
         // - bit 3: Record Format specified in XAR
         // - bit 4: Owner, Group and Permissions specified in XAR
-        // - bit 7: not the final DR for this file (-> multiple File Sections)
 
         return flags;
     }
@@ -19,7 +19,6 @@
 
 package com.morpheusdata.javaisotools.iso9660.impl;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Vector;
@@ -48,6 +47,7 @@ public class ISO9660Factory {
     ISO9660RootDirectory root;
     HashMap volumeFixups, typeLPTFixups, typeMPTFixups, dirFixups, fileFixups, locationFixups;
     Vector emptyFileFixups;
+    long sectionLength = ISO9660Constants.MAX_SECTION_LENGTH;
 
     public ISO9660Factory(StreamHandler streamHandler, StandardConfig config, LayoutHelper helper,
                           ISO9660RootDirectory root, HashMap volumeFixups) {
@@ -69,6 +69,15 @@ public class ISO9660Factory {
         this.emptyFileFixups = new Vector();
     }
 
+    /**
+     * Set the length of the File Sections large files are split into
+     *
+     * @param sectionLength Length in bytes, a multiple of the logical block size
+     */
+    void setSectionLength(long sectionLength) {
+        this.sectionLength = sectionLength;
+    }
+
     public void applyNamingConventions() throws HandlerException {
         NamingConventions namingConventions = helper.getNamingConventions();
         namingConventions.processDirectory(root);
@@ -206,13 +215,8 @@ public class ISO9660Factory {
         Fixup dotdotLocationFixup = (Fixup) dotdotMemory.get("drLocationFixup");
         Fixup dotdotLengthFixup = (Fixup) dotdotMemory.get("drDataLengthFixup");
 
-        // Prepare files and directories to be processed in sorted order
-        Vector contents = new Vector();
-        contents.addAll(dir.getDirectories());
-        contents.addAll(dir.getFiles());
-        Collections.sort(contents);
-
-        Iterator it = contents.iterator();
+        // Files and directories in sorted order
+        Iterator it = dir.getSortedContents().iterator();
         while (it.hasNext()) {
             doBlockCheck(position);
             Object object = it.next();
@@ -225,7 +229,13 @@ public class ISO9660Factory {
                 }
             } else if (object instanceof ISO9660File) {
                 ISO9660File file = (ISO9660File) object;
-                doDRLengthFixup(doDR(file));
+                int sections = getSectionCount(file);
+                for (int section = 0; section < sections; section++) {
+                    if (section > 0) {
+                        doBlockCheck(position);
+                    }
+                    doDRLengthFixup(doDR(file, section));
+                }
             } else {
                 throw new HandlerException("Neither file nor directory: " + object);
             }
@@ -322,20 +332,55 @@ public class ISO9660Factory {
         return memory;
     }
 
-    HashMap doDR(ISO9660File file) throws HandlerException {
+    /**
+     * Returns the number of File Sections a file is recorded in. Files whose length does not fit into a single
+     * Directory Record are split into sections of {@link ISO9660Constants#MAX_SECTION_LENGTH} bytes, or the length
+     * set with {@link #setSectionLength}, which requires Interchange Level 3.
+     *
+     * @param file File
+     *
+     * @return Number of File Sections
+     *
+     * @throws HandlerException File too large for the configured Interchange Level
+     */
+    int getSectionCount(ISO9660File file) throws HandlerException {
+        long length = file.length();
+        if (length <= sectionLength) {
+            return 1;
+        }
+
+        if (config instanceof ISO9660Config && ((ISO9660Config) config).interchangeLevel < 3) {
+            throw new HandlerException("File recorded in several sections requires Interchange Level 3: "
+                    + file.getISOPath());
+        }
+        return (int) ((length + sectionLength - 1) / sectionLength);
+    }
+
+    HashMap doDR(ISO9660File file, int section) throws HandlerException {
+        int sections = getSectionCount(file);
         ISO9660DirectoryRecord dr = new ISO9660DirectoryRecord(streamHandler, file, helper);
+        if (section < sections - 1) {
+            dr.notFinal();
+        }
         HashMap memory = dr.doDR();
 
-        // Remember Location Fixup
+        // Remember Location Fixup of each File Section
         Fixup locationFixup = (Fixup) memory.get("drLocationFixup");
-        if (fileFixups.containsKey(file.getID())) {
-            throw new RuntimeException("Duplicate file encountered: " + file.getISOPath());
+        if (section == 0) {
+            if (fileFixups.containsKey(file.getID())) {
+                throw new RuntimeException("Duplicate file encountered: " + file.getISOPath());
+            }
+            fileFixups.put(file.getID(), new Fixup[sections]);
         }
-        fileFixups.put(file.getID(), locationFixup);
+        ((Fixup[]) fileFixups.get(file.getID()))[section] = locationFixup;
 
         // Write and close Length Fixup
+        long length = file.length();
+        if (sections > 1) {
+            length = Math.min(length - section * sectionLength, sectionLength);
+        }
         Fixup dataLengthFixup = (Fixup) memory.get("drDataLengthFixup");
-        dataLengthFixup.data(new BothWordDataReference(file.length()));
+        dataLengthFixup.data(new BothWordDataReference(length));
         dataLengthFixup.close();
 
         return memory;
@@ -387,20 +432,70 @@ public class ISO9660Factory {
         if (!fileFixups.containsKey(file.getID())) {
             throw new RuntimeException("File " + file.getID() + " missing: " + file.getISOPath());
         }
-        Fixup locationFixup = (Fixup) fileFixups.get(file.getID());
+        Fixup[] locationFixups = (Fixup[]) fileFixups.get(file.getID());
 
         int location = helper.getCurrentLocation();
 
         // Hardlink support for ISO9660Files that have the same underlying File
-        if (locationFixups.containsKey(file.getContentID())) {
-            location = ((Integer) locationFixups.get(file.getContentID())).intValue();
+        Object contentID = file.getSource().getContentID();
+        if (this.locationFixups.containsKey(contentID)) {
+            location = ((Integer) this.locationFixups.get(contentID)).intValue();
         } else {
-            locationFixups.put(file.getContentID(), new Integer(location));
+            this.locationFixups.put(contentID, Integer.valueOf(location));
         }
 
-        // Write and close File Fixup
-        locationFixup.data(new BothWordDataReference(location));
-        locationFixup.close();
+        // Write and close File Fixups
+        doLocationFixups(locationFixups, location);
+    }
+
+    /**
+     * Record a file at the location already used for another file with the same contents
+     *
+     * @param file     File
+     * @param original File whose contents have been written before
+     *
+     * @throws HandlerException Problems writing the fixup
+     */
+    public void doFileLinkFixup(ISO9660File file, ISO9660File original) throws HandlerException {
+        if (!fileFixups.containsKey(file.getID())) {
+            throw new RuntimeException("File " + file.getID() + " missing: " + file.getISOPath());
+        }
+        Object contentID = original.getSource().getContentID();
+        if (!locationFixups.containsKey(contentID)) {
+            throw new RuntimeException("File " + original.getID() + " not yet written: " + original.getISOPath());
+        }
+        Fixup[] locationFixups = (Fixup[]) fileFixups.get(file.getID());
+        int location = ((Integer) this.locationFixups.get(contentID)).intValue();
+
+        // Write and close File Fixups
+        doLocationFixups(locationFixups, location);
+    }
+
+    /**
+     * Record a file at the location its contents are already recorded at in the image being written to
+     *
+     * @param file     File
+     * @param location Logical block number of the contents
+     *
+     * @throws HandlerException Problems writing the fixup
+     */
+    public void doRecordedFileFixup(ISO9660File file, long location) throws HandlerException {
+        if (!fileFixups.containsKey(file.getID())) {
+            throw new RuntimeException("File " + file.getID() + " missing: " + file.getISOPath());
+        }
+        Fixup[] locationFixups = (Fixup[]) fileFixups.get(file.getID());
+
+        // Write and close File Fixups
+        doLocationFixups(locationFixups, location);
+    }
+
+    private void doLocationFixups(Fixup[] locationFixups, long location) throws HandlerException {
+        // File Sections are recorded back to back
+        int sectionBlocks = (int) (sectionLength / ISO9660Constants.LOGICAL_BLOCK_SIZE);
+        for (int section = 0; section < locationFixups.length; section++) {
+            locationFixups[section].data(new BothWordDataReference(location + (long) section * sectionBlocks));
+            locationFixups[section].close();
+        }
     }
 
     public void doEmptyFileFixups() throws HandlerException {
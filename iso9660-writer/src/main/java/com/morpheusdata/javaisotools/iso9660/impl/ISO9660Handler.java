@@ -52,8 +52,8 @@ public class ISO9660Handler extends StandardHandler {
 
         checkMetadataFiles();
 
-        // Use a copy of the original root for ISO 9660
-        ISO9660RootDirectory isoRoot = (ISO9660RootDirectory) root.clone();
+        // Use a view of the original root for ISO 9660
+        ISO9660RootDirectory isoRoot = root.createView();
         this.helper = new ISO9660LayoutHelper(this, isoRoot, config);
 
         if (rrConfig != null) {
@@ -69,6 +69,15 @@ public class ISO9660Handler extends StandardHandler {
         factory.applyNamingConventions();
     }
 
+    /**
+     * Set the length of the File Sections large files are split into
+     *
+     * @param sectionLength Length in bytes, a multiple of the logical block size
+     */
+    void setSectionLength(long sectionLength) {
+        factory.setSectionLength(sectionLength);
+    }
+
     public void startElement(Element element) throws HandlerException {
         elements.push(element);
         if (element instanceof ISO9660Element) {
@@ -77,6 +86,12 @@ public class ISO9660Handler extends StandardHandler {
         } else if (element instanceof FileElement) {
             FileElement fileElement = (FileElement) element;
             factory.doFileFixup(fileElement.getFile());
+        } else if (element instanceof FileLinkElement) {
+            FileLinkElement linkElement = (FileLinkElement) element;
+            factory.doFileLinkFixup(linkElement.getFile(), linkElement.getOriginal());
+        } else if (element instanceof RecordedFileElement) {
+            RecordedFileElement recordedElement = (RecordedFileElement) element;
+            factory.doRecordedFileFixup(recordedElement.getFile(), recordedElement.getLocation());
         }
         super.startElement(element);
     }
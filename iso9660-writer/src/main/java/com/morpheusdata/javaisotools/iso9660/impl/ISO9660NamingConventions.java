@@ -143,13 +143,16 @@ public class ISO9660NamingConventions extends NamingConventions {
     private String normalize(String name) {
         if (forceISO9660Charset) {
             name = name.toUpperCase();
-            return name.replaceAll("[^A-Z0-9_]", "_");
+            return replaceCharacters(name, "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_", true);
         } // else
 
-        // Note: Backslash escaped for both the RegEx and Java itself
-        return name.replaceAll("[*/:;?\\\\]", "_");
+        return replaceCharacters(name, "*/:;?\\", false);
     }
 
+    /**
+     * @deprecated See {@link NamingConventions#checkDuplicate(java.util.List, String, int)}.
+     */
+    @Deprecated
     public void addDuplicate(Vector duplicates, String name, int version) {
         String[] data = {name.toUpperCase(), version + ""};
         duplicates.add(data);
@@ -159,6 +162,10 @@ public class ISO9660NamingConventions extends NamingConventions {
         return name1.equalsIgnoreCase(name2);
     }
 
+    public String getDuplicateKey(String name) {
+        return name.toUpperCase();
+    }
+
     public void checkPathLength(String isoPath) {
         // ISO 9660:6.8.2.1: 255 Byte (255 characters)
         if (isoPath.length() > 255) {
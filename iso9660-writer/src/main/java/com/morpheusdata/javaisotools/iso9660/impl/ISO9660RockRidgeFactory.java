@@ -23,7 +23,10 @@ package com.morpheusdata.javaisotools.iso9660.impl;
 import com.morpheusdata.javaisotools.iso9660.*;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import com.morpheusdata.javaisotools.iso9660.sabre.impl.BothWordDataReference;
 import com.morpheusdata.javaisotools.rockridge.impl.*;
@@ -39,10 +42,13 @@ public class ISO9660RockRidgeFactory extends ISO9660Factory {
 
     private RRIPFactory rripFactory;
     private final RockRidgeConfig rrConfig;
+    private final Map<Pattern, Integer> modePatterns;
     private LinkedList unfinishedNMEntries;
     private RockRidgeLayoutHelper helper;
     private ISO9660RootDirectory rripRoot;
-    private HashMap originalParentMapper, parentLocationFixups, parentLocations, childLocationFixups, childLocations;
+    private Map<ISO9660Directory, List<ISO9660Directory>> originalParentMapper;
+    private Map<ISO9660Directory, Fixup> parentLocationFixups, childLocationFixups;
+    private Map<ISO9660Directory, Integer> parentLocations, childLocations;
 
     public ISO9660RockRidgeFactory(StreamHandler streamHandler, StandardConfig config, LayoutHelper helper,
                                    ISO9660RootDirectory root, ISO9660RootDirectory isoRoot, HashMap volumeFixups, RockRidgeConfig rrConfig) {
@@ -51,11 +57,17 @@ public class ISO9660RockRidgeFactory extends ISO9660Factory {
         this.rrConfig = rrConfig;
         this.unfinishedNMEntries = new LinkedList();
 
-        // Use a copy of the original root for Rock Ridge
-        rripRoot = (ISO9660RootDirectory) root.clone();
+        // Compile once, patterns are matched against every file and directory
+        this.modePatterns = new LinkedHashMap<Pattern, Integer>();
+        for (Map.Entry<String, Integer> entry : rrConfig.getPatternToModeMap().entrySet()) {
+            modePatterns.put(Pattern.compile(entry.getKey(), Pattern.CASE_INSENSITIVE), entry.getValue());
+        }
+
+        // Use a view of the original root for Rock Ridge
+        rripRoot = root.createView();
         this.helper = new RockRidgeLayoutHelper(streamHandler, isoRoot, rripRoot, rrConfig);
 
-        originalParentMapper = new HashMap();
+        originalParentMapper = new HashMap<ISO9660Directory, List<ISO9660Directory>>();
     }
 
     public void applyNamingConventions() throws HandlerException {
@@ -73,10 +85,10 @@ public class ISO9660RockRidgeFactory extends ISO9660Factory {
 
     public void relocateDirectories() {
         if (rripRoot.deepLevelCount() >= 8) {
-            parentLocationFixups = new HashMap();
-            parentLocations = new HashMap();
-            childLocationFixups = new HashMap();
-            childLocations = new HashMap();
+            parentLocationFixups = new HashMap<ISO9660Directory, Fixup>();
+            parentLocations = new HashMap<ISO9660Directory, Integer>();
+            childLocationFixups = new HashMap<ISO9660Directory, Fixup>();
+            childLocations = new HashMap<ISO9660Directory, Integer>();
             rripRoot.setMovedDirectoryStore();
 
             if (rrConfig.isHideMovedDirectoriesStore()
@@ -96,8 +108,13 @@ public class ISO9660RockRidgeFactory extends ISO9660Factory {
         helper.matchDirectory(dir).relocate();
 
         if (dir.getRoot() == root) {
-            // Save only mappings from ISO 9660 hierarchy
-            originalParentMapper.put(originalParent, dir);
+            // Save only mappings from ISO 9660 hierarchy, a parent may lose several subdirectories
+            List<ISO9660Directory> movedDirs = originalParentMapper.get(originalParent);
+            if (movedDirs == null) {
+                movedDirs = new LinkedList<ISO9660Directory>();
+                originalParentMapper.put(originalParent, movedDirs);
+            }
+            movedDirs.add(dir);
         }
 
         return originalParent;
@@ -115,8 +132,10 @@ public class ISO9660RockRidgeFactory extends ISO9660Factory {
         Integer location = new Integer(helper.getCurrentLocation());
 
         if (originalParentMapper.containsKey(dir)) {
-            // Remember directory location for PL Location Fixup
-            parentLocations.put(originalParentMapper.get(dir), location);
+            // Remember directory location for PL Location Fixups
+            for (ISO9660Directory movedDir : originalParentMapper.get(dir)) {
+                parentLocations.put(movedDir, location);
+            }
         } else if (dir.isMoved()) {
             // Remember directory location for CL Location Fixup
             childLocations.put(dir, location);
@@ -153,9 +172,9 @@ public class ISO9660RockRidgeFactory extends ISO9660Factory {
         return finalizeDR(memory, length);
     }
 
-    HashMap doDR(ISO9660File file) throws HandlerException {
+    HashMap doDR(ISO9660File file, int section) throws HandlerException {
         long position = streamHandler.mark();
-        HashMap memory = super.doDR(file);
+        HashMap memory = super.doDR(file, section);
 
         if (RRIPFactory.MKISOFS_COMPATIBILITY) {
             // RR: Recorded Fields
@@ -347,14 +366,12 @@ public class ISO9660RockRidgeFactory extends ISO9660Factory {
         doRelocationFixups(childLocationFixups, childLocations);
     }
 
-    private void doRelocationFixups(HashMap fixups, HashMap locations) throws HandlerException {
-        Iterator it = fixups.keySet().iterator();
-        while (it.hasNext()) {
-            ISO9660Directory dir = (ISO9660Directory) it.next();
-
+    private void doRelocationFixups(Map<ISO9660Directory, Fixup> fixups, Map<ISO9660Directory, Integer> locations)
+            throws HandlerException {
+        for (Map.Entry<ISO9660Directory, Fixup> entry : fixups.entrySet()) {
             // Write and close Location Fixup
-            Fixup locationFixup = (Fixup) fixups.get(dir);
-            int location = ((Integer) locations.get(dir)).intValue();
+            Fixup locationFixup = entry.getValue();
+            int location = locations.get(entry.getKey()).intValue();
             locationFixup.data(new BothWordDataReference(location));
             locationFixup.close();
         }
@@ -414,13 +431,12 @@ public class ISO9660RockRidgeFactory extends ISO9660Factory {
         final POSIXFileMode ret = new POSIXFileMode();
         
         // Try to see if we can match the object name against one of the matchers
-        for(String pattern: rrConfig.getPatternToModeMap().keySet()) {
-            Pattern p = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-            Matcher m = p.matcher(ho.getName());
+        for(Map.Entry<Pattern, Integer> entry: modePatterns.entrySet()) {
+            Matcher m = entry.getKey().matcher(ho.getName());
             if (m.matches()) {
                 POSIXFileMode mode = new POSIXFileMode();
                 mode.setDefault(ho instanceof ISO9660Directory);
-                mode.setPermission(rrConfig.getPatternToModeMap().get(pattern));
+                mode.setPermission(entry.getValue());
                 return mode;
             }
         }
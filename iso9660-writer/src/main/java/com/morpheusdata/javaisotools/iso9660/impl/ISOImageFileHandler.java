@@ -27,21 +27,35 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 import com.morpheusdata.javaisotools.sabre.DataReference;
 import com.morpheusdata.javaisotools.sabre.HandlerException;
 import com.morpheusdata.javaisotools.sabre.StreamHandler;
 import com.morpheusdata.javaisotools.sabre.impl.FileFixup;
+import com.morpheusdata.javaisotools.sabre.impl.JournalFixup;
+import com.morpheusdata.javaisotools.sabre.util.FixupJournal;
 import com.morpheusdata.javaisotools.sabre.Element;
 import com.morpheusdata.javaisotools.sabre.Fixup;
 
 public class ISOImageFileHandler implements StreamHandler {
 
+    /**
+     * Size of the write-behind window used when fixups are journaled (512 logical sectors)
+     */
+    public static final int JOURNAL_WINDOW_SIZE = 512 * ISO9660Constants.LOGICAL_SECTOR_SIZE;
+
     private File file = null;
     private RandomAccessFile raFile = null;
     private DataOutputStream dataOutputStream = null;
     private long position = 0;
 
+    // Fixup journal mode
+    private FixupJournal journal = null;
+    private byte[] window = null;
+    private int windowLength = 0;
+    private long windowStart = 0;
+
     /**
      * ISO Image File Handler
      *
@@ -55,8 +69,35 @@ public class ISOImageFileHandler implements StreamHandler {
         this.dataOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.file)));
     }
 
+    /**
+     * ISO Image File Handler
+     *
+     * @param file          ISO image output file
+     * @param journalFixups Whether to record fixups in a sector-indexed journal instead of seeking back into the
+     *                      output file. Fixups are spliced into the output while it is still in the write-behind
+     *                      window, all others are applied in one ascending pass at the end of the document.
+     *
+     * @throws FileNotFoundException File not found
+     */
+    public ISOImageFileHandler(File file, boolean journalFixups) throws FileNotFoundException {
+        this.file = file;
+        this.raFile = new RandomAccessFile(file, "rw");
+        if (journalFixups) {
+            this.journal = new FixupJournal(ISO9660Constants.LOGICAL_SECTOR_SIZE);
+            this.window = new byte[JOURNAL_WINDOW_SIZE];
+        } else {
+            this.dataOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.file)));
+        }
+    }
+
     public void startDocument() throws HandlerException {
-        // nothing to do here
+        if (journal != null) {
+            try {
+                raFile.setLength(0);
+            } catch (IOException e) {
+                throw new HandlerException(e);
+            }
+        }
     }
 
     public void startElement(Element element) throws HandlerException {
@@ -64,6 +105,11 @@ public class ISOImageFileHandler implements StreamHandler {
     }
 
     public void data(DataReference reference) throws HandlerException {
+        if (journal != null) {
+            journalData(reference);
+            return;
+        }
+
         InputStream inputStream = null;
         byte[] buffer = null;
         int bytesToRead = 0;
@@ -107,9 +153,60 @@ public class ISOImageFileHandler implements StreamHandler {
         }
     }
 
+    private void journalData(DataReference reference) throws HandlerException {
+        InputStream inputStream = null;
+        long lengthToWrite = reference.getLength();
+
+        try {
+            inputStream = reference.createInputStream();
+            while (lengthToWrite > 0) {
+                if (windowLength == window.length) {
+                    flushWindow();
+                }
+
+                int bytesToRead = (int) Math.min(lengthToWrite, window.length - windowLength);
+                int bytesHandled = inputStream.read(window, windowLength, bytesToRead);
+                if (bytesHandled == -1) {
+                    throw new HandlerException("Cannot read all data from reference.");
+                }
+
+                windowLength += bytesHandled;
+                lengthToWrite -= bytesHandled;
+                position += bytesHandled;
+            }
+        } catch (IOException e) {
+            throw new HandlerException(e);
+        } finally {
+            try {
+                if (inputStream != null) {
+                    inputStream.close();
+                    inputStream = null;
+                }
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    private void flushWindow() throws IOException {
+        // Splice fixups targeting the window before it is written
+        journal.splice(windowStart, window, 0, windowLength);
+
+        ByteBuffer buffer = ByteBuffer.wrap(window, 0, windowLength);
+        while (buffer.hasRemaining()) {
+            raFile.getChannel().write(buffer, windowStart + buffer.position());
+        }
+
+        windowStart += windowLength;
+        windowLength = 0;
+    }
+
     public Fixup fixup(DataReference reference) throws HandlerException {
         Fixup fixup = null;
-        fixup = new FileFixup(raFile, position, reference.getLength());
+        if (journal != null) {
+            fixup = new JournalFixup(journal, position, reference.getLength());
+        } else {
+            fixup = new FileFixup(raFile, position, reference.getLength());
+        }
         data(reference);
         return fixup;
     }
@@ -124,8 +221,16 @@ public class ISOImageFileHandler implements StreamHandler {
 
     public void endDocument() throws HandlerException {
         try {
+            if (journal != null) {
+                // Write the remaining window and apply outstanding fixups in one sorted pass
+                flushWindow();
+                journal.apply(raFile.getChannel());
+            }
+
         	this.raFile.close();
-            this.dataOutputStream.close();
+            if (this.dataOutputStream != null) {
+                this.dataOutputStream.close();
+            }
         } catch (IOException e) {
             throw new HandlerException(e);
         }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package com.morpheusdata.javaisotools.iso9660.impl;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+
+/**
+ * Layout of an image as determined by {@link CreateISO#layout}, without writing it. Instances are immutable.
+ */
+public class ImageLayout {
+
+    private final long size;
+    private final Map<ISO9660File, Long> locations;
+
+    ImageLayout(long size, Map<ISO9660File, Long> locations) {
+        this.size = size;
+        this.locations = Collections.unmodifiableMap(locations);
+    }
+
+    /**
+     * Returns the size of the image
+     *
+     * @return Size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the size of the image
+     *
+     * @return Number of logical sectors
+     */
+    public long getSectorCount() {
+        return (size + ISO9660Constants.LOGICAL_SECTOR_SIZE - 1) / ISO9660Constants.LOGICAL_SECTOR_SIZE;
+    }
+
+    /**
+     * Returns the location of the contents of a file. Files larger than
+     * {@link ISO9660Constants#MAX_SECTION_LENGTH} are recorded in several sections, which follow each other from
+     * this location on.
+     *
+     * @param file File of the directory hierarchy the layout was determined for
+     *
+     * @return Logical block number, or -1 for empty files and files not in the image
+     */
+    public long getLocation(ISO9660File file) {
+        Long location = locations.get(file);
+        return location == null ? -1 : location.longValue();
+    }
+
+    /**
+     * Returns the locations of the contents of all files that are not empty. The map compares files by identity.
+     *
+     * @return Map of file to logical block number
+     */
+    public Map<ISO9660File, Long> getLocations() {
+        return locations;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package com.morpheusdata.javaisotools.iso9660.impl;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.sabre.Element;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.StreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.ChainingStreamHandler;
+
+/**
+ * Stream handler noting where the contents of each file start, meant to be placed right in front of the handler
+ * writing the image. Files are told apart by identity, as files with the same contents are equal.
+ */
+class LayoutStreamHandler extends ChainingStreamHandler {
+
+    private Map<ISO9660File, Long> locations;
+
+    LayoutStreamHandler(StreamHandler streamHandler) {
+        super(streamHandler, streamHandler);
+    }
+
+    public void startDocument() throws HandlerException {
+        this.locations = new IdentityHashMap<ISO9660File, Long>();
+        super.startDocument();
+    }
+
+    public void startElement(Element element) throws HandlerException {
+        if (element instanceof FileElement) {
+            ISO9660File file = ((FileElement) element).getFile();
+            if (file.length() > 0) {
+                locations.put(file, Long.valueOf(mark() / ISO9660Constants.LOGICAL_BLOCK_SIZE));
+            }
+        } else if (element instanceof FileLinkElement) {
+            FileLinkElement linkElement = (FileLinkElement) element;
+            Long location = locations.get(linkElement.getOriginal());
+            if (location != null) {
+                locations.put(linkElement.getFile(), location);
+            }
+        } else if (element instanceof RecordedFileElement) {
+            RecordedFileElement recordedElement = (RecordedFileElement) element;
+            if (recordedElement.getFile().length() > 0) {
+                locations.put(recordedElement.getFile(), Long.valueOf(recordedElement.getLocation()));
+            }
+        }
+        super.startElement(element);
+    }
+
+    /**
+     * Returns the layout of the document handled so far
+     *
+     * @return Layout
+     *
+     * @throws HandlerException Problems determining the current position
+     */
+    ImageLayout getLayout() throws HandlerException {
+        return new ImageLayout(mark(), locations);
+    }
+}
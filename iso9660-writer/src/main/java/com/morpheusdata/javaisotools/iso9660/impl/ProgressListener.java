@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660.impl;
+
+/**
+ * Receives progress reports while an image is created, see {@link CreateISO#setProgressListener(ProgressListener)}.
+ * All methods are called on the thread creating the image and should return quickly.
+ */
+public interface ProgressListener {
+
+    /**
+     * An area of the image starts: SA (System Area), VDS (Volume Descriptor Set), BIA (Boot Info Area), PTA (Path
+     * Table Area), DRA (Directory Records Area), BDA (Boot Data Area) or FCA (File Contents Area)
+     *
+     * @param phase   Area identifier
+     * @param metrics Metrics at the start of the area
+     */
+    void phaseStarted(String phase, ProgressMetrics metrics);
+
+    /**
+     * An area of the image is complete
+     *
+     * @param phase   Area identifier
+     * @param metrics Metrics at the end of the area, including its duration
+     */
+    void phaseFinished(String phase, ProgressMetrics metrics);
+
+    /**
+     * Periodic report while data is being written
+     *
+     * @param metrics Current metrics
+     */
+    void progress(ProgressMetrics metrics);
+
+    /**
+     * The image is complete
+     *
+     * @param metrics Final metrics
+     */
+    void finished(ProgressMetrics metrics);
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the progress of creating an image. Instances are immutable and can be handed to other threads, e.g. to
+ * be exported to a metrics registry through {@link #toMap()}.
+ */
+public class ProgressMetrics {
+
+    private final String phase;
+    private final long bytesWritten;
+    private final long filesWritten;
+    private final long fixupCount;
+    private final long totalBytes;
+    private final long totalFiles;
+    private final long elapsedNanos;
+    private final Map<String, Long> phaseNanos;
+
+    public ProgressMetrics(String phase, long bytesWritten, long filesWritten, long fixupCount, long totalBytes,
+                           long totalFiles, long elapsedNanos, Map<String, Long> phaseNanos) {
+        this.phase = phase;
+        this.bytesWritten = bytesWritten;
+        this.filesWritten = filesWritten;
+        this.fixupCount = fixupCount;
+        this.totalBytes = totalBytes;
+        this.totalFiles = totalFiles;
+        this.elapsedNanos = elapsedNanos;
+        this.phaseNanos = Collections.unmodifiableMap(new LinkedHashMap<String, Long>(phaseNanos));
+    }
+
+    /**
+     * Returns the area currently being written
+     *
+     * @return Area identifier, or null outside of any area
+     */
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the number of files written so far, including files recorded as links to identical files or to contents
+     * recorded by a previous session
+     *
+     * @return Number of files
+     */
+    public long getFilesWritten() {
+        return filesWritten;
+    }
+
+    public long getFixupCount() {
+        return fixupCount;
+    }
+
+    /**
+     * Returns the size of the complete image
+     *
+     * @return Size in bytes, or -1 if not known
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the number of files in the complete image
+     *
+     * @return Number of files, or -1 if not known
+     */
+    public long getTotalFiles() {
+        return totalFiles;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the duration of every area finished so far, in the order they were written
+     *
+     * @return Durations in nanoseconds by area identifier
+     */
+    public Map<String, Long> getPhaseNanos() {
+        return phaseNanos;
+    }
+
+    /**
+     * Returns the average throughput since the image was started
+     *
+     * @return Bytes per second
+     */
+    public double getThroughput() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return bytesWritten * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Estimates the time left from the remaining bytes and the average throughput
+     *
+     * @return Nanoseconds, or -1 if the total size is not known or nothing has been written yet
+     */
+    public long getEstimatedRemainingNanos() {
+        if (totalBytes < 0 || bytesWritten <= 0 || elapsedNanos <= 0) {
+            return -1;
+        }
+        long remainingBytes = Math.max(0, totalBytes - bytesWritten);
+        return (long) (remainingBytes * ((double) elapsedNanos / bytesWritten));
+    }
+
+    /**
+     * Returns all metrics under dotted names, ready to be registered as gauges of a metrics registry
+     *
+     * @return Metric values by name
+     */
+    public Map<String, Number> toMap() {
+        Map<String, Number> map = new LinkedHashMap<String, Number>();
+        map.put("iso.bytes.written", Long.valueOf(bytesWritten));
+        map.put("iso.bytes.total", Long.valueOf(totalBytes));
+        map.put("iso.files.written", Long.valueOf(filesWritten));
+        map.put("iso.files.total", Long.valueOf(totalFiles));
+        map.put("iso.fixups", Long.valueOf(fixupCount));
+        map.put("iso.elapsed.nanos", Long.valueOf(elapsedNanos));
+        map.put("iso.throughput.bytes.per.second", Double.valueOf(getThroughput()));
+        map.put("iso.remaining.nanos", Long.valueOf(getEstimatedRemainingNanos()));
+        for (Map.Entry<String, Long> entry : phaseNanos.entrySet()) {
+            map.put("iso.phase." + entry.getKey() + ".nanos", entry.getValue());
+        }
+        return map;
+    }
+
+    public String toString() {
+        return "ProgressMetrics" + toMap();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.Element;
+import com.morpheusdata.javaisotools.sabre.Fixup;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.StreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.ChainingStreamHandler;
+
+/**
+ * Stream handler counting the bytes, files and fixups passed on to the handler it decorates, meant to be placed right
+ * in front of the handler writing the image. Counting only adds a few field updates per call; the clock is read and
+ * a {@link ProgressMetrics} snapshot is published every {@link #CHECK_BYTES} bytes at most, so the counters can be
+ * left on in production. The latest snapshot can be read from any thread with {@link #getMetrics()}. When handed to
+ * {@link CreateISO} directly, it is also told about the areas of the image.
+ */
+public class ProgressStreamHandler extends ChainingStreamHandler {
+
+    /**
+     * Number of bytes written between two looks at the clock
+     */
+    public static final long CHECK_BYTES = 1024 * 1024;
+
+    private final ProgressListener listener;
+    private final long intervalNanos;
+    private long totalBytes = -1;
+    private long totalFiles = -1;
+
+    private long bytesWritten, filesWritten, fixupCount;
+    private long startNanos, lastReportNanos, nextCheckBytes;
+    private String phase;
+    private long phaseStartNanos;
+    private final Map<String, Long> phaseNanos;
+    private volatile ProgressMetrics metrics;
+
+    public ProgressStreamHandler(StreamHandler streamHandler, ProgressListener listener) {
+        this(streamHandler, listener, 1000);
+    }
+
+    /**
+     * @param streamHandler  Handler writing the image
+     * @param listener       Listener to report to, may be null to only collect metrics
+     * @param intervalMillis Minimum time between two calls to {@link ProgressListener#progress(ProgressMetrics)}
+     */
+    public ProgressStreamHandler(StreamHandler streamHandler, ProgressListener listener, long intervalMillis) {
+        super(streamHandler, streamHandler);
+        this.listener = listener;
+        this.intervalNanos = intervalMillis * 1000000L;
+        this.phaseNanos = new LinkedHashMap<String, Long>();
+    }
+
+    /**
+     * Set the expected size of the image, to estimate the remaining time
+     *
+     * @param totalBytes Size in bytes, or -1 if not known
+     * @param totalFiles Number of files, or -1 if not known
+     */
+    public void setTotals(long totalBytes, long totalFiles) {
+        this.totalBytes = totalBytes;
+        this.totalFiles = totalFiles;
+    }
+
+    /**
+     * Returns the metrics as of the last report
+     *
+     * @return Latest snapshot, or null before the document has started
+     */
+    public ProgressMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void startDocument() throws HandlerException {
+        bytesWritten = 0;
+        filesWritten = 0;
+        fixupCount = 0;
+        phase = null;
+        phaseNanos.clear();
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+        nextCheckBytes = CHECK_BYTES;
+        metrics = snapshot(startNanos);
+
+        super.startDocument();
+    }
+
+    /**
+     * Called by the producer of the document when an area of the image starts
+     *
+     * @param phase Area identifier
+     */
+    public void startPhase(String phase) {
+        this.phase = phase;
+        this.phaseStartNanos = System.nanoTime();
+        metrics = snapshot(phaseStartNanos);
+        if (listener != null) {
+            listener.phaseStarted(phase, metrics);
+        }
+    }
+
+    /**
+     * Called by the producer of the document when the current area of the image is complete
+     */
+    public void endPhase() {
+        long now = System.nanoTime();
+        String finished = phase;
+        Long previous = phaseNanos.get(finished);
+        phaseNanos.put(finished, Long.valueOf(now - phaseStartNanos + (previous == null ? 0 : previous.longValue())));
+        phase = null;
+        metrics = snapshot(now);
+        if (listener != null) {
+            listener.phaseFinished(finished, metrics);
+        }
+    }
+
+    public void startElement(Element element) throws HandlerException {
+        if (element instanceof FileElement || element instanceof FileLinkElement
+                || element instanceof RecordedFileElement) {
+            filesWritten++;
+        }
+        super.startElement(element);
+    }
+
+    public void data(DataReference reference) throws HandlerException {
+        super.data(reference);
+        count(reference.getLength());
+    }
+
+    public Fixup fixup(DataReference reference) throws HandlerException {
+        Fixup fixup = super.fixup(reference);
+        fixupCount++;
+        count(reference.getLength());
+        return fixup;
+    }
+
+    private void count(long length) {
+        bytesWritten += length;
+        if (bytesWritten >= nextCheckBytes) {
+            nextCheckBytes = bytesWritten + CHECK_BYTES;
+            long now = System.nanoTime();
+            if (now - lastReportNanos >= intervalNanos) {
+                lastReportNanos = now;
+                metrics = snapshot(now);
+                if (listener != null) {
+                    listener.progress(metrics);
+                }
+            }
+        }
+    }
+
+    public void endDocument() throws HandlerException {
+        super.endDocument();
+
+        metrics = snapshot(System.nanoTime());
+        if (listener != null) {
+            listener.finished(metrics);
+        }
+    }
+
+    private ProgressMetrics snapshot(long now) {
+        return new ProgressMetrics(phase, bytesWritten, filesWritten, fixupCount, totalBytes, totalFiles,
+                now - startNanos, phaseNanos);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (C) 2007. Jens Hatlak <hatlak@rbg.informatik.tu-darmstadt.de>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660.impl;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.sabre.Element;
+
+/**
+ * A file whose contents are already recorded in the image being written to, e.g. by a previous session. Like
+ * {@link FileLinkElement}, this element occupies no space in the image.
+ */
+public class RecordedFileElement extends Element {
+
+    private ISO9660File file;
+    private long location;
+
+    public RecordedFileElement(ISO9660File file, long location) {
+        this.file = file;
+        this.location = location;
+    }
+
+    public Object getId() {
+        return "RECORDED";
+    }
+
+    public ISO9660File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the location of the contents
+     *
+     * @return Logical block number
+     */
+    public long getLocation() {
+        return location;
+    }
+}
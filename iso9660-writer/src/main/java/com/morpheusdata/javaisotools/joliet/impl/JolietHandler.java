@@ -24,6 +24,8 @@ import java.util.HashMap;
 import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
 import com.morpheusdata.javaisotools.iso9660.StandardHandler;
 import com.morpheusdata.javaisotools.iso9660.impl.FileElement;
+import com.morpheusdata.javaisotools.iso9660.impl.FileLinkElement;
+import com.morpheusdata.javaisotools.iso9660.impl.RecordedFileElement;
 import com.morpheusdata.javaisotools.iso9660.volumedescriptors.SupplementaryVolumeDescriptor;
 import com.morpheusdata.javaisotools.sabre.Element;
 import com.morpheusdata.javaisotools.sabre.Fixup;
@@ -52,8 +54,8 @@ public class JolietHandler extends StandardHandler {
 
         checkMetadataFiles();
 
-        // Use a copy of the original root for Joliet
-        ISO9660RootDirectory jolietRoot = (ISO9660RootDirectory) root.clone();
+        // Use a view of the original root for Joliet
+        ISO9660RootDirectory jolietRoot = root.createView();
         this.helper = new JolietLayoutHelper(this, jolietRoot, config.getMaxCharsInFilename(), config.getFailOnTruncation(), config.isForceDotDelimiter());
         this.factory = new ISO9660Factory(this, config, helper, jolietRoot, volumeFixups);
 
@@ -67,6 +69,12 @@ public class JolietHandler extends StandardHandler {
         } else if (element instanceof FileElement) {
             FileElement fileElement = (FileElement) element;
             factory.doFileFixup(fileElement.getFile());
+        } else if (element instanceof FileLinkElement) {
+            FileLinkElement linkElement = (FileLinkElement) element;
+            factory.doFileLinkFixup(linkElement.getFile(), linkElement.getOriginal());
+        } else if (element instanceof RecordedFileElement) {
+            RecordedFileElement recordedElement = (RecordedFileElement) element;
+            factory.doRecordedFileFixup(recordedElement.getFile(), recordedElement.getLocation());
         }
         super.startElement(element);
     }
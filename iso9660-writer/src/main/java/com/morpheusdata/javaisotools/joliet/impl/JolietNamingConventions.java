@@ -116,10 +116,13 @@ public class JolietNamingConventions extends NamingConventions {
     }
 
     private String normalize(String name) {
-        // Note: Backslash escaped for both the RegEx and Java itself
-        return name.replaceAll("[*/:;?\\\\]", "_");
+        return replaceCharacters(name, "*/:;?\\", false);
     }
 
+    /**
+     * @deprecated See {@link NamingConventions#checkDuplicate(java.util.List, String, int)}.
+     */
+    @Deprecated
     public void addDuplicate(Vector duplicates, String name, int version) {
         String[] data = {name.toUpperCase(), version + ""};
         duplicates.add(data);
@@ -129,6 +132,10 @@ public class JolietNamingConventions extends NamingConventions {
         return name1.equalsIgnoreCase(name2);
     }
 
+    public String getDuplicateKey(String name) {
+        return name.toUpperCase();
+    }
+
     public void checkPathLength(String isoPath) {
         // "Remainder of ISO 9660 section 6.8.2.1": 240 Byte (120 characters)
         if (isoPath.length() > 120) {
@@ -33,7 +33,7 @@ import com.morpheusdata.javaisotools.iso9660.LayoutHelper;
 public class RockRidgeLayoutHelper extends LayoutHelper {
 
     private ISO9660RootDirectory rripRoot;
-    private HashMap directoryMapper, fileMapper;
+    private HashMap directoryMapper;
 
     public RockRidgeLayoutHelper(StreamHandler streamHandler, ISO9660RootDirectory isoRoot,
                                  ISO9660RootDirectory rripRoot, RockRidgeConfig rockRidgeConfig) {
@@ -43,24 +43,13 @@ public class RockRidgeLayoutHelper extends LayoutHelper {
     }
 
     private void setup(ISO9660RootDirectory isoRoot) {
-        // Lookup tables mapping files and directories between hierarchies
-        // (ISO 9660 -> Rock Ridge)
+        // Lookup table mapping directories between hierarchies
+        // (ISO 9660 -> Rock Ridge), files are matched within their directory
         int dirCount = isoRoot.deepDirCount() + 1;
         directoryMapper = new HashMap(dirCount);
-        int fileCount = isoRoot.deepFileCount() + 1;
-        fileMapper = new HashMap(fileCount);
-
-        // Root files (root itself does not have to be mapped)
-        Iterator isoFit = isoRoot.getFiles().iterator();
-        Iterator rripFit = rripRoot.getFiles().iterator();
-        while (isoFit.hasNext()) {
-            ISO9660File isoFile = (ISO9660File) isoFit.next();
-            ISO9660File rripFile = (ISO9660File) rripFit.next();
-            fileMapper.put(isoFile, rripFile);
-        }
 
-        // Subdirectories:
-        // Since rripRoot and isoRoot are just a deep copy of the same
+        // Subdirectories (root itself does not have to be mapped):
+        // Since rripRoot and isoRoot are just views of the same
         // root at this point, simultaneous iteration can be applied here
         Iterator isoIt = isoRoot.unsortedIterator();
         Iterator rripIt = rripRoot.unsortedIterator();
@@ -68,14 +57,6 @@ public class RockRidgeLayoutHelper extends LayoutHelper {
             ISO9660Directory isoDir = (ISO9660Directory) isoIt.next();
             ISO9660Directory rripDir = (ISO9660Directory) rripIt.next();
             directoryMapper.put(isoDir.getID(), rripDir);
-
-            isoFit = isoDir.getFiles().iterator();
-            rripFit = rripDir.getFiles().iterator();
-            while (isoFit.hasNext()) {
-                ISO9660File isoFile = (ISO9660File) isoFit.next();
-                ISO9660File rripFile = (ISO9660File) rripFit.next();
-                fileMapper.put(isoFile.getID(), rripFile);
-            }
         }
     }
 
@@ -109,7 +90,7 @@ public class RockRidgeLayoutHelper extends LayoutHelper {
     }
 
     public ISO9660File matchFile(ISO9660File file) {
-        ISO9660File rripFile = (ISO9660File) fileMapper.get(file.getID());
+        ISO9660File rripFile = matchDirectory(file.getParentDirectory()).matchFile(file);
         if (rripFile != null) {
             return rripFile;
         }
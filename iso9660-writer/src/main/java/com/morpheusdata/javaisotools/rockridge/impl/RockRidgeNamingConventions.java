@@ -75,6 +75,10 @@ public class RockRidgeNamingConventions extends NamingConventions {
         setFilename(file, filename, extension);
     }
 
+    /**
+     * @deprecated See {@link NamingConventions#checkDuplicate(java.util.List, String, int)}.
+     */
+    @Deprecated
     public boolean checkDuplicate(Vector duplicates, String name, int version) {
         return checkDuplicate(duplicates, name, version, false);
     }
@@ -87,7 +91,7 @@ public class RockRidgeNamingConventions extends NamingConventions {
 
     private String normalize(String name) {
         if (forcePortableFilenameCharacterSet) {
-            return name.replaceAll("[^-A-Za-z0-9._]", "_");
+            return replaceCharacters(name, "-ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789._", true);
         }
         return name;
     }
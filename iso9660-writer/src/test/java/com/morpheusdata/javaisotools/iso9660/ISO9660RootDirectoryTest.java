@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that views of a directory hierarchy can be renamed independently of each other.
+ */
+public class ISO9660RootDirectoryTest {
+
+    @Test
+    public void canRenameViewsIndependently() throws Exception {
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Directory dir = root.addDirectory("dir");
+        ISO9660File b = new ISO9660File(new ByteArrayDataReference(new byte[3]), "b.txt", 1121040000l);
+        ISO9660File a = new ISO9660File(new ByteArrayDataReference(new byte[5]), "a.txt", 1121040000l);
+        dir.addFile(b);
+        dir.addFile(a);
+
+        ISO9660RootDirectory first = root.createView();
+        ISO9660RootDirectory second = root.createView();
+        ISO9660Directory firstDir = first.getDirectories().get(0);
+        ISO9660Directory secondDir = second.getDirectories().get(0);
+        assertThat(firstDir.getID(), sameInstance(dir.getID()));
+        assertThat(firstDir.getRoot(), sameInstance(first));
+
+        // Files of a view are sorted and share everything but their names
+        List<ISO9660File> files = firstDir.getFiles();
+        assertThat(files.get(0).getName(), is("a.txt"));
+        assertThat(files.get(0).getID(), sameInstance(a.getID()));
+        assertThat(files.get(0).getDataReference(), sameInstance(a.getDataReference()));
+        assertThat(files.get(0).getParentDirectory(), sameInstance(firstDir));
+        assertThat(files.get(1).getName(), is("b.txt"));
+
+        // Renaming in one view changes neither the hierarchy nor another view, and re-sorts the view
+        files.get(0).setFilename("c");
+        files.get(0).setVersion(2);
+        files.get(0).enforceDotDelimiter(true);
+        assertThat(firstDir.getFiles().get(0).getFullName(), is("b.txt;1"));
+        assertThat(firstDir.getFiles().get(1).getFullName(), is("c.txt;2"));
+        assertThat(a.getFullName(), is("a.txt;1"));
+        assertThat(secondDir.getFiles().get(0).getFullName(), is("a.txt;1"));
+
+        // Files of a view are matched to those of another view and of the hierarchy
+        ISO9660File renamed = firstDir.getFiles().get(1);
+        assertThat(secondDir.matchFile(renamed).getFullName(), is("a.txt;1"));
+        assertThat(firstDir.matchFile(a).getFullName(), is("c.txt;2"));
+        assertThat(renamed, equalTo(firstDir.matchFile(a)));
+        assertThat(renamed.hashCode(), is(firstDir.matchFile(a).hashCode()));
+        assertThat(renamed, not(equalTo(secondDir.matchFile(a))));
+    }
+
+    @Test
+    public void keepsTheFilesOfAViewAcrossSorts() throws Exception {
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660File b = new ISO9660File(new ByteArrayDataReference(new byte[3]), "b.txt", 1121040000l);
+        ISO9660File a = new ISO9660File(new ByteArrayDataReference(new byte[5]), "a.txt", 1121040000l);
+        root.addFile(b);
+        root.addFile(a);
+
+        ISO9660RootDirectory view = root.createView();
+        ISO9660File first = view.getFiles().get(0);
+        assertThat(view.getFiles().get(0), sameInstance(first));
+        assertThat(view.matchFile(a), sameInstance(first));
+        assertThat(first.getSource(), sameInstance(a));
+
+        // Renaming re-sorts the view, which moves the file but keeps the object
+        first.setFilename("c");
+        assertThat(view.getFiles().get(1), sameInstance(first));
+        assertThat(view.matchFile(a), sameInstance(first));
+        assertThat(view.getFiles().get(0).getSource(), sameInstance(b));
+    }
+
+    @Test
+    public void canRelocateDirectoriesOfAView() throws Exception {
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Directory dir = root.addPath("a/b/c");
+        dir.addFile(new ISO9660File(new ByteArrayDataReference(new byte[1]), "file.txt", 1121040000l));
+
+        ISO9660RootDirectory view = root.createView();
+        view.setMovedDirectoryStore();
+        ISO9660Directory moved = view.getDirectories().get(0).getDirectories().get(0).getDirectories().get(0);
+        assertThat(moved.getLevel(), is(4));
+        moved.relocate();
+
+        assertThat(moved.isMoved(), is(true));
+        assertThat(moved.getParentDirectory(), sameInstance(view.getMovedDirectoriesStore()));
+        assertThat(moved.getFiles().get(0).getISOPath(), is(moved.getISOPath() + File.separator + "file.txt;1"));
+        // The hierarchy itself is left alone
+        assertThat(root.getMovedDirectoriesStore(), nullValue());
+        assertThat(dir.getParentDirectory().getName(), is("b"));
+        assertThat(dir.getLevel(), is(4));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cannotAddFilesToAView() throws Exception {
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        root.addFile(new ISO9660File(new ByteArrayDataReference(new byte[1]), "file.txt", 1121040000l));
+
+        root.createView().addFile(new ISO9660File(new ByteArrayDataReference(new byte[1]), "other.txt", 1121040000l));
+    }
+}
@@ -18,23 +18,38 @@
 
 package com.morpheusdata.javaisotools.iso9660.impl;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.*;
 import org.hamcrest.*;
 
+import com.morpheusdata.javaisotools.eltorito.impl.ElToritoConfig;
 import com.morpheusdata.javaisotools.iso9660.ISO9660File;
 import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
 import com.morpheusdata.javaisotools.joliet.impl.JolietConfig;
+import com.morpheusdata.javaisotools.loopfs.iso9660.Iso9660FileEntry;
+import com.morpheusdata.javaisotools.loopfs.iso9660.Iso9660FileSystem;
+import com.morpheusdata.javaisotools.loopfs.iso9660.RockRidgeAttributes;
 import com.morpheusdata.javaisotools.rockridge.impl.RockRidgeConfig;
 import com.morpheusdata.javaisotools.sabre.HandlerException;
 import com.morpheusdata.javaisotools.sabre.StreamHandler;
 import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+import com.morpheusdata.javaisotools.sabre.impl.FileChannelStreamHandler;
 import com.morpheusdata.javaisotools.iso9660.ISO9660Directory;
 
 import org.apache.commons.vfs.FileObject;
@@ -250,6 +265,770 @@ public class CreateISOTest {
         }
     }
 
+    @Test
+    public void canCreateAnIsoThroughAFileChannel() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "channel.iso");
+        File contentsA = new File(workDir, "a.txt");
+        OutputStream os = new FileOutputStream(contentsA);
+        IOUtil.copy("Hello", os);
+        IOUtil.close(os);
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Directory dir = root.addDirectory("root");
+        dir.addFile(contentsA);
+        dir.addFile(new ISO9660File(new ByteArrayDataReference("Goodbye".getBytes(StandardCharsets.UTF_8)), "b.txt", 1121040000l));
+
+        StreamHandler streamHandler = new FileChannelStreamHandler(outfile);
+        CreateISO iso = new CreateISO(streamHandler, root);
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.allowASCII(false);
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.forceDotDelimiter(true);
+
+        iso.process(iso9660Config, null, null, null);
+
+        assertThat(outfile.isFile(), is(true));
+        assertThat(outfile.length() % ISO9660Constants.LOGICAL_SECTOR_SIZE, is(0L));
+
+        // Plain ISO9660, so the entries carry their upper case names
+        Iso9660FileSystem fs = new Iso9660FileSystem(outfile, true);
+        try {
+            Iso9660FileEntry entry = fs.getEntry("ROOT/A.TXT");
+            assertThat(entry, notNullValue());
+            assertThat(entry.getSize(), is(5L));
+            assertArrayEquals("Hello".getBytes(StandardCharsets.UTF_8), IOUtil.toByteArray(fs.getInputStream(entry)));
+            entry = fs.getEntry("ROOT/B.TXT");
+            assertThat(entry, notNullValue());
+            assertThat(entry.getSize(), is(7L));
+            assertArrayEquals("Goodbye".getBytes(StandardCharsets.UTF_8), IOUtil.toByteArray(fs.getInputStream(entry)));
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void canCreateAnIsoWithJournaledFixups() throws Exception {
+        final int numFiles = entropy.nextInt(50) + 50;
+        // Output file
+        File outfile = new File(workDir, "journal.iso");
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        byte[][] contents = new byte[numFiles][];
+        for (int i = 0; i < numFiles; i++) {
+            contents[i] = new byte[entropy.nextInt(1024 * 10 + 1)];
+            entropy.nextBytes(contents[i]);
+            ISO9660Directory dir = root.addPath("dir" + (i % 3));
+            dir.addFile(new ISO9660File(new ByteArrayDataReference(contents[i]), i + ".bin", 1121040000l));
+        }
+
+        StreamHandler streamHandler = new ISOImageFileHandler(outfile, true);
+        CreateISO iso = new CreateISO(streamHandler, root);
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.allowASCII(false);
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.forceDotDelimiter(true);
+        JolietConfig jolietConfig = new JolietConfig();
+        jolietConfig.setVolumeID("Joliet Test");
+        jolietConfig.forceDotDelimiter(true);
+
+        iso.process(iso9660Config, null, jolietConfig, null);
+
+        FileSystemManager fsManager = VFS.getManager();
+        for (int i = 0; i < numFiles; i++) {
+            FileObject t = fsManager.resolveFile("iso:/" + outfile.getPath() + "!/dir" + (i % 3) + "/" + i + ".bin");
+            assertThat(t.getType(), is(FileType.FILE));
+            assertThat(IOUtil.toByteArray(t.getContent().getInputStream()), is(contents[i]));
+        }
+    }
+
+    @Test
+    public void canCreateAnIsoWithReadAhead() throws Exception {
+        final int numFiles = entropy.nextInt(50) + 50;
+        // Output file
+        File outfile = new File(workDir, "readahead.iso");
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        byte[][] contents = new byte[numFiles][];
+        for (int i = 0; i < numFiles; i++) {
+            contents[i] = new byte[entropy.nextInt(1024 * 10 + 1)];
+            entropy.nextBytes(contents[i]);
+            ISO9660Directory dir = root.addPath("dir" + (i % 3));
+            dir.addFile(new ISO9660File(new ByteArrayDataReference(contents[i]), i + ".bin", 1121040000l));
+        }
+
+        StreamHandler streamHandler = new ISOImageFileHandler(outfile);
+        CreateISO iso = new CreateISO(streamHandler, root);
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.allowASCII(false);
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.forceDotDelimiter(true);
+        // Small budget, so some files are too large to be read ahead
+        iso9660Config.setReadAhead(4);
+        iso9660Config.setReadAheadBudget(8 * 1024);
+
+        iso.process(iso9660Config, null, null, null);
+
+        assertContents(outfile, contents);
+    }
+
+    @Test
+    public void canCreateAnIsoWithAReadAheadBudgetBelowOneFile() throws Exception {
+        final int numFiles = entropy.nextInt(20) + 20;
+        // Output file
+        File outfile = new File(workDir, "readahead-small.iso");
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        byte[][] contents = new byte[numFiles][];
+        for (int i = 0; i < numFiles; i++) {
+            contents[i] = new byte[1024 + entropy.nextInt(1024 * 10 + 1)];
+            entropy.nextBytes(contents[i]);
+            ISO9660Directory dir = root.addPath("dir" + (i % 3));
+            dir.addFile(new ISO9660File(new ByteArrayDataReference(contents[i]), i + ".bin", 1121040000l));
+        }
+
+        StreamHandler streamHandler = new ISOImageFileHandler(outfile);
+        CreateISO iso = new CreateISO(streamHandler, root);
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.allowASCII(false);
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.forceDotDelimiter(true);
+        // Not a single file fits, so all of them are read as usual
+        iso9660Config.setReadAhead(4);
+        iso9660Config.setReadAheadBudget(512);
+
+        iso.process(iso9660Config, null, null, null);
+
+        assertContents(outfile, contents);
+    }
+
+    @Test
+    public void canReportAFailedReadAhead() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "readahead-fails.iso");
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        final IOException failure = new IOException("Cannot read");
+        root.addFile(new ISO9660File(new ByteArrayDataReference(new byte[100]), "first.bin", 1121040000l));
+        root.addFile(new ISO9660File(new ByteArrayDataReference(new byte[100]) {
+            public InputStream createInputStream() throws IOException {
+                throw failure;
+            }
+        }, "second.bin", 1121040000l));
+        root.addFile(new ISO9660File(new ByteArrayDataReference(new byte[100]), "third.bin", 1121040000l));
+
+        StreamHandler streamHandler = new ISOImageFileHandler(outfile);
+        CreateISO iso = new CreateISO(streamHandler, root);
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.setReadAhead(4);
+
+        try {
+            iso.process(iso9660Config, null, null, null);
+            fail("Failed read not reported");
+        } catch (HandlerException e) {
+            assertThat(e.getCause(), sameInstance((Throwable) failure));
+        }
+    }
+
+    /**
+     * Checks the contents of the files <code>DIR&lt;i % 3&gt;/&lt;i&gt;.BIN</code> in a plain ISO9660 image
+     */
+    private static void assertContents(File outfile, byte[][] contents) throws IOException {
+        Iso9660FileSystem fs = new Iso9660FileSystem(outfile, true);
+        try {
+            for (int i = 0; i < contents.length; i++) {
+                Iso9660FileEntry entry = fs.getEntry("DIR" + (i % 3) + "/" + i + ".BIN");
+                assertThat(entry, notNullValue());
+                assertThat(entry.isDirectory(), is(false));
+                assertArrayEquals(contents[i], IOUtil.toByteArray(fs.getInputStream(entry)));
+            }
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void canDeduplicateIdenticalFiles() throws Exception {
+        // Output files
+        File outfile = new File(workDir, "dedup.iso");
+        File plainfile = new File(workDir, "nodedup.iso");
+
+        byte[] contents = new byte[10000];
+        entropy.nextBytes(contents);
+        byte[] other = contents.clone();
+        other[other.length - 1]++;
+
+        for (File file : new File[]{outfile, plainfile}) {
+            // Directory hierarchy, starting from the root
+            ISO9660RootDirectory root = new ISO9660RootDirectory();
+            for (int i = 0; i < 4; i++) {
+                ISO9660Directory dir = root.addPath("dir" + i);
+                dir.addFile(new ISO9660File(new ByteArrayDataReference(contents), "same.bin", 1121040000l));
+            }
+            root.addFile(new ISO9660File(new ByteArrayDataReference(other), "other.bin", 1121040000l));
+
+            StreamHandler streamHandler = new ISOImageFileHandler(file);
+            CreateISO iso = new CreateISO(streamHandler, root);
+            ISO9660Config iso9660Config = new ISO9660Config();
+            iso9660Config.allowASCII(false);
+            iso9660Config.setInterchangeLevel(2);
+            iso9660Config.setVolumeID("ISO Test");
+            iso9660Config.forceDotDelimiter(true);
+            iso9660Config.setDeduplicate(file == outfile);
+            JolietConfig jolietConfig = new JolietConfig();
+            jolietConfig.setVolumeID("Joliet Test");
+            jolietConfig.forceDotDelimiter(true);
+
+            iso.process(iso9660Config, null, jolietConfig, null);
+        }
+
+        // Three copies of five sectors less
+        assertThat(plainfile.length() - outfile.length(), is(3L * 5 * ISO9660Constants.LOGICAL_SECTOR_SIZE));
+
+        FileSystemManager fsManager = VFS.getManager();
+        for (int i = 0; i < 4; i++) {
+            FileObject t = fsManager.resolveFile("iso:/" + outfile.getPath() + "!/dir" + i + "/same.bin");
+            assertThat(IOUtil.toByteArray(t.getContent().getInputStream()), is(contents));
+        }
+        FileObject t = fsManager.resolveFile("iso:/" + outfile.getPath() + "!/other.bin");
+        assertThat(IOUtil.toByteArray(t.getContent().getInputStream()), is(other));
+    }
+
+    @Test
+    public void canChecksumFilesOnceForAllPasses() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "dedup-passes.iso");
+
+        byte[] contents = new byte[10000];
+        entropy.nextBytes(contents);
+        byte[] other = contents.clone();
+        other[other.length - 1]++;
+
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        CountingDataReference first = new CountingDataReference(contents);
+        CountingDataReference second = new CountingDataReference(contents);
+        CountingDataReference different = new CountingDataReference(other);
+        root.addPath("dir0").addFile(new ISO9660File(first, "same.bin", 1121040000l));
+        root.addPath("dir1").addFile(new ISO9660File(second, "same.bin", 1121040000l));
+        root.addFile(new ISO9660File(different, "other.bin", 1121040000l));
+
+        // Progress is reported after a dry run, so the files are deduplicated twice
+        CreateISO iso = new CreateISO(new ISOImageFileHandler(outfile), root);
+        iso.setProgressListener(new IgnoringProgressListener());
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.allowASCII(false);
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.forceDotDelimiter(true);
+        iso9660Config.setDeduplicate(true);
+        iso.process(iso9660Config, null, null, null);
+
+        // Checksummed once, compared in each pass and written once
+        assertThat(first.bytesRead, is(4L * contents.length));
+        assertThat(second.bytesRead, is(3L * contents.length));
+        // Checksummed once and written once
+        assertThat(different.bytesRead, is(2L * other.length));
+    }
+
+    @Test
+    public void canStreamAnIsoToAnOutputStream() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "stream.iso");
+        File contentsA = new File(workDir, "a.txt");
+        OutputStream os = new FileOutputStream(contentsA);
+        IOUtil.copy("Hello", os);
+        IOUtil.close(os);
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Directory dir = root.addDirectory("root");
+        dir.addFile(contentsA);
+        dir.addFile(new ISO9660File(new ByteArrayDataReference("Goodbye".getBytes(StandardCharsets.UTF_8)), "b.txt", 1121040000l));
+
+        // A plain output stream, nothing to seek on
+        os = new BufferedOutputStream(new FileOutputStream(outfile));
+        CreateISO iso = new CreateISO(os, root);
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.allowASCII(false);
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.forceDotDelimiter(true);
+        JolietConfig jolietConfig = new JolietConfig();
+        jolietConfig.setVolumeID("Joliet Test");
+        jolietConfig.forceDotDelimiter(true);
+
+        iso.process(iso9660Config, null, jolietConfig, null);
+        IOUtil.close(os);
+
+        assertThat(outfile.isFile(), is(true));
+        assertThat(outfile.length() % ISO9660Constants.LOGICAL_SECTOR_SIZE, is(0L));
+
+        FileSystemManager fsManager = VFS.getManager();
+        FileObject isoFile = fsManager.resolveFile("iso:/" + outfile.getPath() + "!/root");
+
+        FileObject t = isoFile.getChild("a.txt");
+        assertThat(IOUtil.toString(t.getContent().getInputStream()), is("Hello"));
+        t = isoFile.getChild("b.txt");
+        assertThat(IOUtil.toString(t.getContent().getInputStream()), is("Goodbye"));
+    }
+
+    @Test
+    public void canReportProgress() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "progress.iso");
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Directory dir = root.addDirectory("root");
+        for (int i = 0; i < 10; i++) {
+            byte[] contents = new byte[3000 * i];
+            entropy.nextBytes(contents);
+            dir.addFile(new ISO9660File(new ByteArrayDataReference(contents), "file" + i + ".bin", 1121040000l));
+        }
+
+        final List<String> phases = new ArrayList<String>();
+        final ProgressMetrics[] last = new ProgressMetrics[1];
+        CreateISO iso = new CreateISO(new ISOImageFileHandler(outfile), root);
+        iso.setProgressListener(new ProgressListener() {
+            public void phaseStarted(String phase, ProgressMetrics metrics) {
+                phases.add(phase);
+            }
+
+            public void phaseFinished(String phase, ProgressMetrics metrics) {
+                assertThat(metrics.getPhaseNanos().containsKey(phase), is(true));
+            }
+
+            public void progress(ProgressMetrics metrics) {
+            }
+
+            public void finished(ProgressMetrics metrics) {
+                last[0] = metrics;
+            }
+        });
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        iso.process(iso9660Config, new RockRidgeConfig(), null, null);
+
+        assertThat(phases, is(Arrays.asList("SA", "VDS", "BIA", "PTA", "DRA", "BDA", "FCA")));
+        assertThat(last[0].getBytesWritten(), is(outfile.length()));
+        assertThat(last[0].getTotalBytes(), is(outfile.length()));
+        assertThat(last[0].getFilesWritten(), is(10L));
+        assertThat(last[0].getTotalFiles(), is(10L));
+        assertThat(last[0].getFixupCount() > 0, is(true));
+        assertThat(last[0].getEstimatedRemainingNanos(), is(0L));
+    }
+
+    @Test
+    public void canLayOutAnIsoWithoutWritingIt() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "layout.iso");
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Directory dir = root.addDirectory("root");
+        List<byte[]> contents = new ArrayList<byte[]>();
+        List<ISO9660File> files = new ArrayList<ISO9660File>();
+        for (int i = 0; i < 10; i++) {
+            byte[] data = new byte[3000 * i + 1];
+            entropy.nextBytes(data);
+            ISO9660File file = new ISO9660File(new ByteArrayDataReference(data), "file" + i + ".bin", 1121040000l);
+            (i % 2 == 0 ? root : dir).addFile(file);
+            contents.add(data);
+            files.add(file);
+        }
+
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setInterchangeLevel(2);
+        iso9660Config.setVolumeID("ISO Test");
+        JolietConfig jolietConfig = new JolietConfig();
+        jolietConfig.setVolumeID("Joliet Test");
+
+        ImageLayout layout = new CreateISO(root).layout(iso9660Config, new RockRidgeConfig(), jolietConfig, null);
+        new CreateISO(new ISOImageFileHandler(outfile), root)
+                .process(iso9660Config, new RockRidgeConfig(), jolietConfig, null);
+
+        assertThat(layout.getSize(), is(outfile.length()));
+        assertThat(layout.getSectorCount() * 2048, is(outfile.length()));
+        assertThat(layout.getLocations().size(), is(10));
+        RandomAccessFile image = new RandomAccessFile(outfile, "r");
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                byte[] data = new byte[contents.get(i).length];
+                image.seek(layout.getLocation(files.get(i)) * 2048);
+                image.readFully(data);
+                assertArrayEquals(contents.get(i), data);
+            }
+        } finally {
+            image.close();
+        }
+    }
+
+    /**
+     * Counts the bytes read from its contents
+     */
+    private static class CountingDataReference extends ByteArrayDataReference {
+
+        private long bytesRead;
+
+        CountingDataReference(byte[] buffer) {
+            super(buffer);
+        }
+
+        public InputStream createInputStream() throws IOException {
+            return new FilterInputStream(super.createInputStream()) {
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        bytesRead++;
+                    }
+                    return b;
+                }
+
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int count = super.read(b, off, len);
+                    if (count > 0) {
+                        bytesRead += count;
+                    }
+                    return count;
+                }
+            };
+        }
+    }
+
+    /**
+     * Only there to have an image laid out in a dry run before it is written
+     */
+    private static class IgnoringProgressListener implements ProgressListener {
+
+        public void phaseStarted(String phase, ProgressMetrics metrics) {
+        }
+
+        public void phaseFinished(String phase, ProgressMetrics metrics) {
+        }
+
+        public void progress(ProgressMetrics metrics) {
+        }
+
+        public void finished(ProgressMetrics metrics) {
+        }
+    }
+
+    private static byte[] readFile(File file) throws Exception {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            return IOUtil.toByteArray(fis);
+        } finally {
+            IOUtil.close(fis);
+        }
+    }
+
+    @Test
+    public void canReadRockRidgeAttributes() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "rockridge.iso");
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        StringBuilder longName = new StringBuilder();
+        while (longName.length() < 240) {
+            longName.append("Long-File-Name.");
+        }
+        longName.append("txt");
+        root.addFile(new ISO9660File(new ByteArrayDataReference("long".getBytes()), longName.toString(),
+                1121040000000l));
+        ISO9660Directory dir = root;
+        String path = "";
+        for (int i = 0; i < 10; i++) {
+            dir = dir.addDirectory("Deep-Directory." + i);
+            path += "Deep-Directory." + i + "/";
+        }
+        dir.addFile(new ISO9660File(new ByteArrayDataReference("deep".getBytes()), "Deep-File.txt", 1121040000000l));
+
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.allowASCII(false);
+        iso9660Config.setInterchangeLevel(1);
+        iso9660Config.restrictDirDepthTo8(true);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.forceDotDelimiter(true);
+        RockRidgeConfig rrConfig = new RockRidgeConfig();
+        rrConfig.setMkisofsCompatibility(false);
+        rrConfig.hideMovedDirectoriesStore(true);
+        rrConfig.forcePortableFilenameCharacterSet(true);
+        JolietConfig jolietConfig = new JolietConfig();
+        jolietConfig.setVolumeID("Joliet Test");
+        new CreateISO(new ISOImageFileHandler(outfile), root).process(iso9660Config, rrConfig, jolietConfig, null);
+
+        Iso9660FileSystem fs = new Iso9660FileSystem(outfile, true);
+        try {
+            fs.setRockRidge(true);
+            assertThat(fs.isRockRidge(), is(true));
+
+            // Name continued in a Continuation Area
+            Iso9660FileEntry entry = fs.getEntry(longName.toString());
+            assertThat(IOUtil.toString(fs.getInputStream(entry)), is("long"));
+            RockRidgeAttributes attributes = entry.getRockRidgeAttributes();
+            assertThat(attributes.getName(), is(longName.toString()));
+            assertThat(attributes.getMode(), is(0100444l));
+            assertThat(attributes.getLastModifiedTime(), is(1121040000000l));
+
+            // Relocated directory listed at its original place
+            entry = fs.getEntry(path + "Deep-File.txt");
+            assertThat(entry.getPath(), is(path + "Deep-File.txt"));
+            assertThat(IOUtil.toString(fs.getInputStream(entry)), is("deep"));
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void canRelocateSeveralDirectoriesOfOneParent() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "relocate.iso");
+
+        // Directory hierarchy, starting from the root
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Directory dir = root;
+        String path = "";
+        for (int i = 0; i < 7; i++) {
+            dir = dir.addDirectory("Level-" + i);
+            path += "Level-" + i + "/";
+        }
+        // Directories on the ninth level are relocated
+        String[] names = {"First", "Second", "Third"};
+        for (String name : names) {
+            dir.addDirectory(name).addFile(new ISO9660File(new ByteArrayDataReference(name.getBytes()), "file.txt",
+                    1121040000000l));
+        }
+
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.allowASCII(false);
+        iso9660Config.setInterchangeLevel(1);
+        iso9660Config.restrictDirDepthTo8(true);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.forceDotDelimiter(true);
+        RockRidgeConfig rrConfig = new RockRidgeConfig();
+        rrConfig.setMkisofsCompatibility(false);
+        rrConfig.hideMovedDirectoriesStore(true);
+        rrConfig.forcePortableFilenameCharacterSet(true);
+        new CreateISO(new ISOImageFileHandler(outfile), root).process(iso9660Config, rrConfig, null, null);
+
+        Iso9660FileSystem fs = new Iso9660FileSystem(outfile, true);
+        RandomAccessFile raf = new RandomAccessFile(outfile, "r");
+        try {
+            fs.setRockRidge(true);
+            long parent = fs.getEntry(path).getStartBlock();
+
+            List<Long> children = new ArrayList<Long>();
+            for (String name : names) {
+                // CL: listed at the original place, standing for the relocated directory
+                Iso9660FileEntry entry = fs.getEntry(path + name);
+                assertThat(entry.isDirectory(), is(true));
+                long child = entry.getRockRidgeAttributes().getChildLink();
+                assertThat(entry.getStartBlock(), is(child));
+                assertThat(IOUtil.toString(fs.getInputStream(fs.getEntry(path + name + "/file.txt"))), is(name));
+                children.add(Long.valueOf(child));
+
+                // PL: the ".." record of the relocated directory links back to the original parent
+                byte[] block = new byte[2048];
+                raf.seek(child * 2048);
+                raf.readFully(block);
+                Iso9660FileEntry dotDot = new Iso9660FileEntry(fs, block, (block[0] & 0xFF) + 1);
+                assertThat(dotDot.getRockRidgeAttributes().getParentLink(), is(parent));
+            }
+
+            // RE: the relocated directories themselves are hidden in the moved directories store
+            Iso9660FileEntry store = fs.getEntry("." + ISO9660RootDirectory.MOVED_DIRECTORIES_STORE_NAME);
+            byte[] block = new byte[2048];
+            raf.seek(store.getStartBlock() * 2048);
+            raf.readFully(block);
+            List<Long> relocated = new ArrayList<Long>();
+            for (int pos = 0; pos < store.getSize() && block[pos] != 0; pos += block[pos] & 0xFF) {
+                Iso9660FileEntry entry = new Iso9660FileEntry(fs, block, pos + 1);
+                RockRidgeAttributes attributes = entry.getRockRidgeAttributes();
+                if (attributes != null && attributes.isRelocated()) {
+                    relocated.add(Long.valueOf(entry.getStartBlock()));
+                    assertThat(fs.getEntry(store.getPath() + attributes.getName()), nullValue());
+                }
+            }
+            assertThat(relocated.size(), is(names.length));
+            assertThat(relocated.containsAll(children), is(true));
+        } finally {
+            raf.close();
+            fs.close();
+        }
+    }
+
+    @Test
+    public void canRecordAFileInSeveralSections() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "sections.iso");
+        byte[] contents = new byte[2 * 8192 + 1000];
+        entropy.nextBytes(contents);
+
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        root.addFile(new ISO9660File(new ByteArrayDataReference(contents), "big.bin", 1121040000000l));
+
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.allowASCII(false);
+        iso9660Config.setInterchangeLevel(3);
+        iso9660Config.restrictDirDepthTo8(true);
+        iso9660Config.setVolumeID("ISO Test");
+        iso9660Config.forceDotDelimiter(true);
+        CreateISO iso = new CreateISO(new ISOImageFileHandler(outfile), root);
+        // Four blocks per section instead of 4 GB
+        iso.setSectionLength(8192);
+        iso.process(iso9660Config, null, null, null);
+
+        // Directory Records of the root directory, located through the Primary Volume Descriptor
+        ByteBuffer image = ByteBuffer.wrap(readFile(outfile)).order(ByteOrder.LITTLE_ENDIAN);
+        int pos = image.getInt(16 * 2048 + 156 + 2) * 2048;
+        List<Integer> sections = new ArrayList<Integer>();
+        while (image.get(pos) != 0) {
+            String name = new String(image.array(), pos + 33, image.get(pos + 32), StandardCharsets.US_ASCII);
+            if (name.equals("BIG.BIN;1")) {
+                sections.add(Integer.valueOf(pos));
+            }
+            pos += image.get(pos) & 0xFF;
+        }
+
+        assertThat(sections.size(), is(3));
+        int location = image.getInt(sections.get(0).intValue() + 2);
+        int[] lengths = {8192, 8192, 1000};
+        for (int i = 0; i < sections.size(); i++) {
+            int record = sections.get(i).intValue();
+            // Multi-Extent flag on all but the last section, which follow each other
+            assertThat(image.get(record + 25) & 0x80, is(i < sections.size() - 1 ? 0x80 : 0));
+            assertThat(image.getInt(record + 2), is(location + i * 4));
+            assertThat(image.getInt(record + 10), is(lengths[i]));
+        }
+
+        Iso9660FileSystem fs = new Iso9660FileSystem(outfile, true);
+        try {
+            Iso9660FileEntry entry = fs.getEntry("BIG.BIN");
+            assertThat(entry.getSize(), is((long) contents.length));
+            assertThat(entry.isContiguous(), is(true));
+            assertArrayEquals(contents, IOUtil.toByteArray(fs.getInputStream(entry)));
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void canPatchBootInfoTableWithoutModifyingTheBootImage() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "boot.iso");
+        File bootImage = new File(workDir, "boot.bin");
+        byte[] contents = new byte[5003];
+        entropy.nextBytes(contents);
+        OutputStream os = new FileOutputStream(bootImage);
+        os.write(contents);
+        IOUtil.close(os);
+
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setVolumeID("ISO Test");
+        ElToritoConfig elToritoConfig = new ElToritoConfig(bootImage, ElToritoConfig.BOOT_MEDIA_TYPE_NO_EMU,
+                ElToritoConfig.PLATFORM_ID_X86, "Boot Test", 4, ElToritoConfig.LOAD_SEGMENT_7C0);
+        elToritoConfig.setGenBootInfoTable(true);
+        new CreateISO(new ISOImageFileHandler(outfile), root).process(iso9660Config, null, null, elToritoConfig);
+
+        // Boot image left alone, no patched copy next to it
+        FileInputStream fis = new FileInputStream(bootImage);
+        assertArrayEquals(contents, IOUtil.toByteArray(fis));
+        IOUtil.close(fis);
+        assertThat(new File(workDir, "boot.bin.mod").exists(), is(false));
+
+        assertBootInfoTable(outfile, contents);
+    }
+
+    @Test
+    public void canPatchBootInfoTableInOnePass() throws Exception {
+        // Output file
+        File outfile = new File(workDir, "boot-pass.iso");
+        File bootImage = new File(workDir, "boot-pass.bin");
+        byte[] contents = new byte[70001];
+        entropy.nextBytes(contents);
+        OutputStream os = new FileOutputStream(bootImage);
+        os.write(contents);
+        IOUtil.close(os);
+
+        // Count the bytes read from the Boot Image
+        CountingDataReference reference = new CountingDataReference(contents);
+
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        ISO9660Config iso9660Config = new ISO9660Config();
+        iso9660Config.setVolumeID("ISO Test");
+        ElToritoConfig elToritoConfig = new ElToritoConfig(bootImage, ElToritoConfig.BOOT_MEDIA_TYPE_NO_EMU,
+                ElToritoConfig.PLATFORM_ID_X86, "Boot Test", 4, ElToritoConfig.LOAD_SEGMENT_7C0);
+        elToritoConfig.setBootImage(new ISO9660File(reference, "boot.bin", 1121040000000l));
+        elToritoConfig.setGenBootInfoTable(true);
+        CreateISO iso = new CreateISO(new ISOImageFileHandler(outfile), root);
+        iso.setProgressListener(new IgnoringProgressListener());
+        iso.process(iso9660Config, null, null, elToritoConfig);
+
+        // The checksum is summed up while the Boot Image is written, the dry run reads nothing
+        assertThat(reference.bytesRead <= contents.length, is(true));
+        assertBootInfoTable(outfile, contents);
+
+        // Forward only, the table is known from the dry run before the Boot Image is written
+        reference.bytesRead = 0;
+        os = new BufferedOutputStream(new FileOutputStream(outfile));
+        new CreateISO(os, root).process(iso9660Config, null, null, elToritoConfig);
+        IOUtil.close(os);
+        assertBootInfoTable(outfile, contents);
+    }
+
+    private static void assertBootInfoTable(File outfile, byte[] contents) throws Exception {
+        // Follow the Boot Record to the Boot Catalog and on to the Boot Image
+        RandomAccessFile raf = new RandomAccessFile(outfile, "r");
+        try {
+            int catalog = readWord(raf, 17 * 2048 + 0x47);
+            int location = readWord(raf, catalog * 2048 + 32 + 8);
+            byte[] patched = new byte[contents.length];
+            raf.seek(location * 2048l);
+            raf.readFully(patched);
+
+            long checksum = 0;
+            for (int i = 64; i < contents.length; i++) {
+                checksum += (long) (contents[i] & 0xFF) << (8 * (i % 4));
+            }
+            assertThat(readWord(patched, 8), is(16));
+            assertThat(readWord(patched, 12), is(location));
+            assertThat(readWord(patched, 16), is(contents.length));
+            assertThat(readWord(patched, 20), is((int) checksum));
+            assertArrayEquals(new byte[40], Arrays.copyOfRange(patched, 24, 64));
+            assertArrayEquals(Arrays.copyOf(contents, 8), Arrays.copyOf(patched, 8));
+            assertArrayEquals(Arrays.copyOfRange(contents, 64, contents.length),
+                    Arrays.copyOfRange(patched, 64, patched.length));
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static int readWord(RandomAccessFile raf, long position) throws Exception {
+        byte[] word = new byte[4];
+        raf.seek(position);
+        raf.readFully(word);
+        return readWord(word, 0);
+    }
+
+    private static int readWord(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8 | (buffer[offset + 2] & 0xFF) << 16
+                | (buffer[offset + 3] & 0xFF) << 24;
+    }
+
     @Test
     public void canCreateAnIsoTopDownHierarchy() throws Exception {
 		// Output file
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.iso9660.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.morpheusdata.javaisotools.iso9660.ISO9660Directory;
+import com.morpheusdata.javaisotools.iso9660.ISO9660File;
+import com.morpheusdata.javaisotools.iso9660.ISO9660RootDirectory;
+import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks the names handed out when names collide under the 8+3 restriction of Interchange Level 1.
+ */
+public class ISO9660NamingConventionsTest {
+
+    @Test
+    public void canRenameCollidingNames() throws Exception {
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        List<ISO9660File> files = addFiles(root,
+                "longfilename1.txt", "longfilename2.txt", "longfilename3.txt", "longfil2.txt");
+        ISO9660Directory one = root.addDirectory("directory_one");
+        ISO9660Directory two = root.addDirectory("directory_two");
+
+        process(root);
+
+        // Numbers replace the end of names which are as long as allowed already, and names taken are skipped
+        assertThat(getFullNames(files), is(Arrays.asList("LONGFILE.TXT;1", "LONGFIL3.TXT;1", "LONGFIL4.TXT;1",
+                "LONGFIL2.TXT;1")));
+        assertThat(one.getName(), is("DIRECTOR"));
+        assertThat(two.getName(), is("DIRECTO2"));
+    }
+
+    @Test
+    public void canRenameInterleavedCollidingNames() throws Exception {
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        // Sorted by their original names, the names colliding as DOCUMENT.TEX and DOCUMENT.TXT take turns
+        List<ISO9660File> files = addFiles(root,
+                "document_a.tex", "document_a.txt", "document_b.tex", "document_b.txt", "document_c.txt");
+
+        process(root);
+
+        assertThat(getFullNames(files), is(Arrays.asList("DOCUMENT.TEX;1", "DOCUMENT.TXT;1", "DOCUMEN2.TEX;1",
+                "DOCUMEN2.TXT;1", "DOCUMEN3.TXT;1")));
+    }
+
+    @Test
+    public void canRenameMoreThanTenCollidingNames() throws Exception {
+        ISO9660RootDirectory root = new ISO9660RootDirectory();
+        List<ISO9660File> files = addFiles(root, "report_a.txt", "report_b.txt", "report_c.txt", "report_d.txt",
+                "report_e.txt", "report_f.txt", "report_g.txt", "report_h.txt", "report_i.txt", "report_j.txt",
+                "report_k.txt", "report_l.txt");
+
+        process(root);
+
+        assertThat(getFullNames(files), is(Arrays.asList("REPORT_A.TXT;1", "REPORT_B.TXT;1", "REPORT_C.TXT;1",
+                "REPORT_D.TXT;1", "REPORT_E.TXT;1", "REPORT_F.TXT;1", "REPORT_G.TXT;1", "REPORT_H.TXT;1",
+                "REPORT_I.TXT;1", "REPORT_J.TXT;1", "REPORT_K.TXT;1", "REPORT_L.TXT;1")));
+
+        root = new ISO9660RootDirectory();
+        files = addFiles(root, "reports_a.txt", "reports_b.txt", "reports_c.txt", "reports_d.txt", "reports_e.txt",
+                "reports_f.txt", "reports_g.txt", "reports_h.txt", "reports_i.txt", "reports_j.txt", "reports_k.txt",
+                "reports_l.txt");
+
+        process(root);
+
+        assertThat(getFullNames(files), is(Arrays.asList("REPORTS_.TXT;1", "REPORTS2.TXT;1", "REPORTS3.TXT;1",
+                "REPORTS4.TXT;1", "REPORTS5.TXT;1", "REPORTS6.TXT;1", "REPORTS7.TXT;1", "REPORTS8.TXT;1",
+                "REPORTS9.TXT;1", "REPORT10.TXT;1", "REPORT11.TXT;1", "REPORT12.TXT;1")));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void keepsTheDuplicateListForExistingConventions() throws Exception {
+        ISO9660NamingConventions conventions = new ISO9660NamingConventions(new ISO9660Config());
+        List<String[]> duplicates = new ArrayList<String[]>();
+        conventions.addDuplicate(duplicates, "README.TXT", 1);
+        conventions.addDuplicate(duplicates, "DOCS", -1);
+
+        // Names compare as in the index, files need the same version, directories collide with any
+        assertThat(conventions.checkDuplicate(duplicates, "readme.txt", 1), is(true));
+        assertThat(conventions.checkDuplicate(duplicates, "README.TXT", 2), is(false));
+        assertThat(conventions.checkDuplicate(duplicates, "README.TXT", 2, false), is(true));
+        assertThat(conventions.checkDuplicate(duplicates, "DOCS", 3), is(true));
+        assertThat(conventions.checkDuplicate(duplicates, "OTHER", 1), is(false));
+    }
+
+    private static List<ISO9660File> addFiles(ISO9660Directory dir, String... names) throws Exception {
+        List<ISO9660File> files = new ArrayList<ISO9660File>();
+        for (String name : names) {
+            ISO9660File file = new ISO9660File(new ByteArrayDataReference(new byte[1]), name, 1121040000l);
+            dir.addFile(file);
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static void process(ISO9660Directory dir) throws Exception {
+        new ISO9660NamingConventions(new ISO9660Config()).processDirectory(dir);
+    }
+
+    private static List<String> getFullNames(List<ISO9660File> files) {
+        List<String> names = new ArrayList<String>();
+        for (ISO9660File file : files) {
+            names.add(file.getFullName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006-2007. loopy project (http://loopy.sourceforge.net).
+ *  
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *  
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.iso9660;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * A depth-first iterator of the entries in a ISO9660 file system. Only a stack of cursors into the directories on the
+ * current path is kept, each holding a single block of its directory extent, so the memory used depends on the depth
+ * of the tree and not on its width.
+ */
+class DepthFirstEntryIterator implements Iterator<Iso9660FileEntry> {
+
+    private final Iso9660FileSystem fileSystem;
+    private final Predicate<? super Iso9660FileEntry> skipSubtree;
+    private final Deque<Cursor> stack;
+    private Iso9660FileEntry next;
+
+    /**
+     * @param skipSubtree directories for which this returns true are returned, but their contents are not; may be
+     *                    <code>null</code>
+     */
+    public DepthFirstEntryIterator(final Iso9660FileSystem fileSystem, final Iso9660FileEntry rootEntry,
+                                   final Predicate<? super Iso9660FileEntry> skipSubtree) {
+        this.fileSystem = fileSystem;
+        this.skipSubtree = skipSubtree;
+        this.stack = new ArrayDeque<Cursor>();
+        this.next = rootEntry;
+    }
+
+    public boolean hasNext() {
+        if (null == this.next) {
+            try {
+                advance();
+            }
+            catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return null != this.next;
+    }
+
+    public Iso9660FileEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final Iso9660FileEntry entry = this.next;
+        this.next = null;
+
+        // descend into the directory once the caller has seen it
+        if (entry.isDirectory() && (null == this.skipSubtree || !this.skipSubtree.test(entry))) {
+            this.stack.push(new Cursor(entry));
+        }
+
+        return entry;
+    }
+
+    private void advance() throws IOException {
+        while (!this.stack.isEmpty()) {
+            final Iso9660FileEntry entry = this.stack.peek().next();
+            if (null != entry) {
+                this.next = entry;
+                return;
+            }
+            this.stack.pop();
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Position within the extent of one directory. Directory records never cross a block boundary, so the extent is
+     * read one block at a time.
+     */
+    private final class Cursor {
+
+        private final String path;
+        private final long startBlock;
+        private final long size;
+        private byte[] block;
+        private long blockPos;
+        private int blockLength;
+        private int offset;
+
+        Cursor(final Iso9660FileEntry directory) {
+            this.path = directory.getPath();
+            this.startBlock = directory.getStartBlock();
+            this.size = directory.getSize();
+        }
+
+        /**
+         * Returns the next entry of this directory, or <code>null</code> if there are no more.
+         */
+        Iso9660FileEntry next() throws IOException {
+            Iso9660FileEntry entry = nextRecord();
+
+            // It doesn't seem useful to include the . and .. entries
+            while (null != entry && (entry.isSelfOrParent() || !fileSystem.resolveRelocation(entry))) {
+                entry = nextRecord();
+            }
+            if (null == entry) {
+                return null;
+            }
+
+            // the File Sections of a file are merged into the entry of the first one
+            if (entry.isNotFinalSection()) {
+                final List<Iso9660FileEntry> sections = new ArrayList<Iso9660FileEntry>();
+                Iso9660FileEntry section = entry;
+                sections.add(section);
+                while (section.isNotFinalSection() && null != (section = nextRecord())) {
+                    sections.add(section);
+                }
+                entry.setSections(sections);
+            }
+
+            return entry;
+        }
+
+        /**
+         * Returns the next directory record, or <code>null</code> if there are no more.
+         */
+        private Iso9660FileEntry nextRecord() throws IOException {
+            while (true) {
+                if (null == this.block || this.offset >= this.blockLength || 0 == this.block[this.offset]) {
+                    final long pos = (null == this.block) ? 0 : this.blockPos + Constants.DEFAULT_BLOCK_SIZE;
+                    if (pos >= this.size) {
+                        return null;
+                    }
+
+                    // returned entries keep the block, so never reuse it
+                    this.block = new byte[Constants.DEFAULT_BLOCK_SIZE];
+                    if (!fileSystem.readDirectoryBlock(this.startBlock + pos / Constants.DEFAULT_BLOCK_SIZE,
+                            this.block)) {
+                        throw new IOException("Directory extent beyond end of file: " + this.path);
+                    }
+                    this.blockPos = pos;
+                    this.blockLength = (int) Math.min(Constants.DEFAULT_BLOCK_SIZE, this.size - pos);
+                    this.offset = 0;
+                    continue;
+                }
+
+                final Iso9660FileEntry entry = new Iso9660FileEntry(fileSystem, this.path, this.block, this.offset + 1);
+                this.offset += entry.getEntryLength();
+                return entry;
+            }
+        }
+    }
+}
@@ -62,16 +62,13 @@ class EntryInputStream extends InputStream {
             toRead = (int)this.rem;
         }
 
-        int read;
-
-        synchronized (this.fileSystem) {
-            if (this.fileSystem.isClosed()) {
-                throw new IOException("ISO file closed.");
-            }
-
-            read = this.fileSystem.readBytes(this.entry, this.pos, b, off, toRead);
+        if (this.fileSystem.isClosed()) {
+            throw new IOException("ISO file closed.");
         }
 
+        // positional read, streams of different entries do not block each other
+        int read = this.fileSystem.readBytes(this.entry, this.pos, b, off, toRead);
+
         if (read > 0) {
             this.pos += read;
             this.rem -= read;
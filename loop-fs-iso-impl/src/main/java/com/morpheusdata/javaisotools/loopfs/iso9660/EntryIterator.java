@@ -25,8 +25,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 
-import com.morpheusdata.javaisotools.loopfs.util.LittleEndian;
-
 /**
  * A breadth-first iterator of the entries in a ISO9660 file system.
  */
@@ -56,39 +54,12 @@ class EntryIterator implements Iterator<Iso9660FileEntry> {
 
         // if the entry is a directory, queue all its children
         if (entry.isDirectory()) {
-            final byte[] content;
-
             try {
-                content = this.fileSystem.getBytes(entry);
+                this.queue.addAll(this.fileSystem.listDirectory(entry));
             }
             catch (IOException ex) {
                 throw new RuntimeException(ex);
             }
-
-            int offset = 0;
-            boolean paddingMode = false;
-
-            while (offset < content.length) {
-                if (LittleEndian.getUInt8(content, offset) <= 0) {
-                    paddingMode = true;
-                    offset += 2;
-                    continue;
-                }
-
-                Iso9660FileEntry child = new Iso9660FileEntry(
-                        this.fileSystem, entry.getPath(), content, offset + 1);
-
-                if (paddingMode && child.getSize() < 0) {
-                    continue;
-                }
-
-                offset += child.getEntryLength();
-
-                // It doesn't seem useful to include the . and .. entries
-                if (!".".equals(child.getName()) && !"..".equals(child.getName())) {
-                    this.queue.add(child);
-                }
-            }
         }
 
         return entry;
@@ -19,34 +19,41 @@
 
 package com.morpheusdata.javaisotools.loopfs.iso9660;
 
+import java.io.IOException;
+import java.util.List;
+
 import com.morpheusdata.javaisotools.loopfs.api.FileEntry;
 
 /**
- * Represents a file in an ISO9660 file system.
+ * Represents a file in an ISO9660 file system. An entry is a flyweight over the directory record it was read from:
+ * it keeps the buffer holding the record and decodes the name, time and path only when they are asked for. A file
+ * recorded in several File Sections is represented by the entry of its first section, which refers to the others.
+ * If the file system decodes Rock Ridge, the name and time are taken from the Rock Ridge attributes where recorded.
  */
 public final class Iso9660FileEntry implements FileEntry {
 
     public static final char ID_SEPARATOR = ';';
 
-    private Iso9660FileSystem fileSystem;
-    private String parentPath;
-    private final int entryLength;
-    private final long startSector;
-    private final long dataLength;
-    private final long lastModifiedTime;
-    private final int flags;
-    private final String identifier;
-
-    //private final int extAttributeLength;
-    //private final int fileUnitSize;
-    //private final int interleaveSize;
+    private final Iso9660FileSystem fileSystem;
+    private final String parentPath;
+    private final byte[] block;
+    private final int offset;
+    private String identifier;
+    private String path;
+    private Iso9660FileEntry[] sections;
+    private long size;
+    private RockRidgeAttributes rockRidge;
+    private boolean rockRidgeDecoded;
+    private long childBlock = -1;
+    private long childSize;
 
     public Iso9660FileEntry(final Iso9660FileSystem fileSystem, final byte[] block, final int pos) {
         this(fileSystem, null, block, pos);
     }
 
     /**
-     * Initialize this instance.
+     * Initialize this instance. The entry keeps a reference to <code>block</code>, which must not be modified
+     * afterwards.
      *
      * @param fileSystem the parent file system
      * @param parentPath the path of the parent directory
@@ -57,25 +64,15 @@ public final class Iso9660FileEntry implements FileEntry {
                             final byte[] block, final int startPos) {
         this.fileSystem = fileSystem;
         this.parentPath = parentPath;
-
-        final int offset = startPos - 1;
-
-        this.entryLength = Util.getUInt8(block, offset + 1);
-        //this.extAttributeLength = Util.getUInt8(block, offset+2);
-        this.startSector = Util.getUInt32LE(block, offset + 3);
-        this.dataLength = Util.getUInt32LE(block, offset + 11);
-        this.lastModifiedTime = Util.getDateTime(block, offset + 19);
-        this.flags = Util.getUInt8(block, offset + 26);
-        //this.fileUnitSize = Util.getUInt8(block, offset+27);
-        //this.interleaveSize = Util.getUInt8(block, offset+28);
-        this.identifier = getFileIdentifier(block, offset, isDirectory());
+        this.block = block;
+        this.offset = startPos - 1;
     }
 
-    private String getFileIdentifier(final byte[] block, final int offset, final boolean isDir) {
-        final int fidLength = Util.getUInt8(block, offset + 33);
+    private String getFileIdentifier() {
+        final int fidLength = Util.getUInt8(this.block, this.offset + 33);
 
-        if (isDir) {
-            final int buff34 = Util.getUInt8(block, offset + 34);
+        if (isDirectory()) {
+            final int buff34 = Util.getUInt8(this.block, this.offset + 34);
 
             if ((fidLength == 1) && (buff34 == 0x00)) {
                 return ".";
@@ -84,8 +81,7 @@ public final class Iso9660FileEntry implements FileEntry {
             }
         }
 
-        final String id = Util.getDChars(
-                block, offset + 34, fidLength, this.fileSystem.getEncoding());
+        final String id = Util.getDChars(this.block, this.offset + 34, fidLength, this.fileSystem.getCharset());
 
         final int sepIdx = id.indexOf(ID_SEPARATOR);
 
@@ -96,60 +92,200 @@ public final class Iso9660FileEntry implements FileEntry {
         }
     }
 
+    /**
+     * Returns true if this is the "." or ".." entry of a directory, without decoding the name.
+     */
+    boolean isSelfOrParent() {
+        return isDirectory()
+                && Util.getUInt8(this.block, this.offset + 33) == 1
+                && Util.getUInt8(this.block, this.offset + 34) <= 0x01;
+    }
+
     public String getName() {
-        return this.identifier;
+        String name = this.identifier;
+        if (null == name) {
+            final RockRidgeAttributes attributes = getRockRidgeAttributes();
+            name = (null != attributes && null != attributes.getName()) ? attributes.getName() : getFileIdentifier();
+            this.identifier = name;
+        }
+        return name;
     }
 
     public String getPath() {
-        if (".".equals(this.getName())) {
-            return "";
-        }
+        String result = this.path;
+        if (null == result) {
+            if (".".equals(this.getName())) {
+                result = "";
+            } else {
+                StringBuilder buf = new StringBuilder();
 
-        StringBuffer buf = new StringBuffer();
+                if (null != this.parentPath) {
+                    buf.append(this.parentPath);
+                }
 
-        if (null != this.parentPath) {
-            buf.append(this.parentPath);
-        }
+                buf.append(getName());
 
-        buf.append(getName());
+                if (isDirectory()) {
+                    buf.append("/");
+                }
 
-        if (isDirectory()) {
-            buf.append("/");
+                result = buf.toString();
+            }
+            this.path = result;
         }
-
-        return buf.toString();
+        return result;
     }
 
     public long getLastModifiedTime() {
-        return this.lastModifiedTime;
+        final RockRidgeAttributes attributes = getRockRidgeAttributes();
+        if (null != attributes && attributes.getLastModifiedTime() >= 0) {
+            return attributes.getLastModifiedTime();
+        }
+        return Util.getDateTime(this.block, this.offset + 19);
     }
 
     public boolean isDirectory() {
-        return (this.flags & 0x03) != 0;
+        return this.childBlock >= 0 || (getFlags() & 0x03) != 0;
+    }
+
+    /**
+     * Returns the Rock Ridge attributes of this entry, or <code>null</code> if the file system does not decode Rock
+     * Ridge or none are recorded for this entry. They are decoded on first use.
+     */
+    public RockRidgeAttributes getRockRidgeAttributes() {
+        try {
+            return decodeRockRidge();
+        }
+        catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Decodes the Rock Ridge attributes unless this has been done already. Reads the Continuation Areas, if any.
+     */
+    RockRidgeAttributes decodeRockRidge() throws IOException {
+        if (!this.rockRidgeDecoded) {
+            final int skip = this.fileSystem.getSystemUseSkip();
+            if (skip >= 0) {
+                // the System Use field follows the identifier and its padding byte, see section 9.1.13
+                final int idLength = Util.getUInt8(this.block, this.offset + 33);
+                final int start = 33 + idLength + ((idLength & 1) == 0 ? 1 : 0) + skip;
+                this.rockRidge = RockRidgeAttributes.decode(this.fileSystem, this.block, this.offset + start,
+                        this.offset + getEntryLength());
+            }
+            this.rockRidgeDecoded = true;
+        }
+        return this.rockRidge;
+    }
+
+    /**
+     * Makes this entry stand for the relocated directory its Rock Ridge CL field links to.
+     *
+     * @param block the block where the extent of the directory starts
+     * @param size  the size of the extent of the directory
+     */
+    void setChildLink(final long block, final long size) {
+        this.childBlock = block;
+        this.childSize = size;
     }
 
     public long getSize() {
-        return this.dataLength;
+        if (null != this.sections) {
+            return this.size;
+        }
+        return getExtentSize();
+    }
+
+    /**
+     * Returns the size of the extent of this record alone.
+     */
+    long getExtentSize() {
+        if (this.childBlock >= 0) {
+            return this.childSize;
+        }
+        return Util.getUInt32LE(this.block, this.offset + 11);
+    }
+
+    /**
+     * Returns true if the file continues in the File Section of the next record.
+     */
+    boolean isNotFinalSection() {
+        return (getFlags() & 0x80) != 0;
+    }
+
+    /**
+     * Makes this entry represent a file recorded in several File Sections.
+     *
+     * @param sections the records of all sections in order, starting with this one
+     */
+    void setSections(final List<Iso9660FileEntry> sections) {
+        long total = 0;
+        for (Iso9660FileEntry section : sections) {
+            total += section.getExtentSize();
+        }
+        this.sections = sections.toArray(new Iso9660FileEntry[sections.size()]);
+        this.size = total;
+    }
+
+    /**
+     * Returns the number of File Sections of this entry.
+     */
+    int getSectionCount() {
+        return (null == this.sections) ? 1 : this.sections.length;
+    }
+
+    /**
+     * Returns true if the contents of this entry are recorded in one run of blocks from {@link #getStartBlock()} on,
+     * i.e. not interleaved and with all File Sections back to back.
+     */
+    public boolean isContiguous() {
+        long next = getStartBlock();
+        for (int i = 0; i < getSectionCount(); i++) {
+            final Iso9660FileEntry section = getSection(i);
+            if (section.getStartBlock() != next || Util.getUInt8(section.block, section.offset + 27) != 0) {
+                return false;
+            }
+            if (i < getSectionCount() - 1 && section.getExtentSize() % Constants.DEFAULT_BLOCK_SIZE != 0) {
+                return false;
+            }
+            next += section.getExtentSize() / Constants.DEFAULT_BLOCK_SIZE;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the record of the given File Section; section 0 is this entry.
+     */
+    Iso9660FileEntry getSection(final int index) {
+        return (null == this.sections) ? this : this.sections[index];
     }
 
     /**
      * Returns the block number where this entry starts.
      */
     public long getStartBlock() {
-        return this.startSector;
+        if (this.childBlock >= 0) {
+            return this.childBlock;
+        }
+        return Util.getUInt32LE(this.block, this.offset + 3);
     }
 
     /**
      * Returns the size this entry takes up in the file table.
      */
     public int getEntryLength() {
-        return this.entryLength;
+        return Util.getUInt8(this.block, this.offset + 1);
     }
 
     /**
      * Returns true if this is the last entry in the file system.
      */
     public final boolean isLastEntry() {
-        return (this.flags & 0x40) == 0;
+        return (getFlags() & 0x40) == 0;
+    }
+
+    private int getFlags() {
+        return Util.getUInt8(this.block, this.offset + 26);
     }
-}
\ No newline at end of file
+}
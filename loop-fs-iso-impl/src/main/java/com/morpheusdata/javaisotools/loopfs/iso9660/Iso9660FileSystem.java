@@ -22,15 +22,26 @@ package com.morpheusdata.javaisotools.loopfs.iso9660;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
 
 import com.morpheusdata.javaisotools.loopfs.spi.AbstractBlockFileSystem;
 import com.morpheusdata.javaisotools.loopfs.spi.SeekableInput;
 import com.morpheusdata.javaisotools.loopfs.spi.SeekableInputFile;
 import com.morpheusdata.javaisotools.loopfs.spi.VolumeDescriptorSet;
+import com.morpheusdata.javaisotools.loopfs.util.LittleEndian;
 
 public class Iso9660FileSystem extends AbstractBlockFileSystem<Iso9660FileEntry> {
 
+    private volatile PathTable pathTable;
+    private volatile Charset charset;
+    private volatile boolean rockRidge;
+    private volatile int systemUseSkip = -1;
+
     public Iso9660FileSystem(File file, boolean readOnly) throws IOException {
         this(new SeekableInputFile(file), readOnly);
     }
@@ -39,15 +50,311 @@ public class Iso9660FileSystem extends AbstractBlockFileSystem<Iso9660FileEntry>
         super(seekable, readOnly, Constants.DEFAULT_BLOCK_SIZE, Constants.RESERVED_SECTORS);
     }
 
+    /**
+     * Decode the Rock Ridge fields of images that have them: names, time stamps, POSIX attributes and symbolic links
+     * are taken from the System Use fields, including their Continuation Areas, and relocated directories are listed
+     * at their original place. Joliet directory records carry no System Use fields, so the primary directory tree is
+     * read instead of the Joliet one. Must be set before the file system is first read.
+     *
+     * @see Iso9660FileEntry#getRockRidgeAttributes()
+     */
+    public void setRockRidge(boolean rockRidge) {
+        if (null != getVolumeDescriptorSet()) {
+            throw new IllegalStateException("Rock Ridge decoding must be set before the file system is read");
+        }
+        this.rockRidge = rockRidge;
+    }
+
+    /**
+     * Returns true if Rock Ridge decoding is set and the image has Rock Ridge fields.
+     */
+    public boolean isRockRidge() throws IOException {
+        ensureOpen();
+        ensureVolumeDescriptors();
+
+        return this.systemUseSkip >= 0;
+    }
+
+    /**
+     * Returns the number of bytes to skip at the start of each System Use field, or -1 if Rock Ridge fields are not
+     * decoded.
+     */
+    int getSystemUseSkip() {
+        return this.systemUseSkip;
+    }
+
+    protected void loadVolumeDescriptors() throws IOException {
+        super.loadVolumeDescriptors();
+
+        if (this.rockRidge) {
+            final Iso9660VolumeDescriptorSet descriptors = (Iso9660VolumeDescriptorSet) getVolumeDescriptorSet();
+            final int skip = readSystemUseIndicator(descriptors.getPrimaryRootEntry());
+            if (skip >= 0) {
+                descriptors.usePrimary();
+                this.systemUseSkip = skip;
+            }
+        }
+    }
+
+    /**
+     * Looks for the SP field at the start of the System Use field of the "." entry of the root directory, see SUSP
+     * section 5.3.
+     *
+     * @return the number of bytes to skip in every other System Use field, or -1 if there is no SP field
+     */
+    private int readSystemUseIndicator(Iso9660FileEntry root) throws IOException {
+        if (null == root) {
+            return -1;
+        }
+        final byte[] first = new byte[Constants.DEFAULT_BLOCK_SIZE];
+        if (!readBlock(root.getStartBlock(), first)) {
+            return -1;
+        }
+
+        // "." has a one byte identifier, which is not padded
+        final int pos = 34;
+        if (pos + 7 > LittleEndian.getUInt8(first, 0)) {
+            return -1;
+        }
+        if (first[pos] != 'S' || first[pos + 1] != 'P' || LittleEndian.getUInt8(first, pos + 2) < 7
+                || LittleEndian.getUInt8(first, pos + 4) != 0xBE || LittleEndian.getUInt8(first, pos + 5) != 0xEF) {
+            return -1;
+        }
+        return LittleEndian.getUInt8(first, pos + 6);
+    }
+
+    /**
+     * Reads a Continuation Area of System Use fields, through the block cache if one is set.
+     */
+    byte[] readContinuationArea(long block, long offset, long length) throws IOException {
+        if (length > Constants.DEFAULT_BLOCK_SIZE * 16L) {
+            throw new IOException("Continuation Area too large: " + length + " bytes at block " + block);
+        }
+        final byte[] area = new byte[(int) length];
+        if (readCachedData(block * Constants.DEFAULT_BLOCK_SIZE + offset, area, 0, area.length) != area.length) {
+            throw new IOException("Continuation Area beyond end of file at block " + block);
+        }
+        return area;
+    }
+
+    /**
+     * Applies the Rock Ridge relocation fields of an entry: an entry with a CL field stands for the directory it
+     * links to, and the relocated directory itself, which has an RE field, is only listed there.
+     *
+     * @return false if the entry is not to be listed
+     */
+    boolean resolveRelocation(Iso9660FileEntry entry) throws IOException {
+        if (this.systemUseSkip < 0) {
+            return true;
+        }
+
+        final RockRidgeAttributes attributes = entry.decodeRockRidge();
+        if (null == attributes) {
+            return true;
+        }
+        if (attributes.isRelocated()) {
+            return false;
+        }
+
+        final long child = attributes.getChildLink();
+        if (child >= 0) {
+            // the size of the directory is taken from its "." entry
+            final byte[] first = new byte[Constants.DEFAULT_BLOCK_SIZE];
+            if (!readDirectoryBlock(child, first)) {
+                throw new IOException("Relocated directory beyond end of file at block " + child);
+            }
+            entry.setChildLink(child, new Iso9660FileEntry(this, first, 1).getExtentSize());
+        }
+        return true;
+    }
+
     public String getEncoding() {
         return ((Iso9660VolumeDescriptorSet) getVolumeDescriptorSet()).getEncoding();
     }
 
+    /**
+     * Returns the charset of {@link #getEncoding()}, looked up once.
+     */
+    Charset getCharset() {
+        final String encoding = getEncoding();
+        Charset result = this.charset;
+        if (null == result || !result.name().equals(encoding)) {
+            result = Charset.forName(encoding);
+            this.charset = result;
+        }
+        return result;
+    }
+
     public InputStream getInputStream(Iso9660FileEntry entry) {
         ensureOpen();
         return new EntryInputStream(entry, this);
     }
 
+    /**
+     * Returns the entry with the given path, or <code>null</code> if there is no such entry. The directories on the
+     * path are looked up in the path table, so only the path table and the extent of the parent directory are read.
+     * With Rock Ridge names, which the path table does not hold, the directories on the path are read instead.
+     *
+     * @param path the path of the entry, with or without leading and trailing slashes; "/" is the root directory
+     */
+    public Iso9660FileEntry getEntry(String path) throws IOException {
+        ensureOpen();
+        ensureVolumeDescriptors();
+
+        final List<String> names = new ArrayList<String>();
+        for (String name : path.split("/")) {
+            if (name.length() > 0) {
+                names.add(name);
+            }
+        }
+
+        final Iso9660FileEntry root = getVolumeDescriptorSet().getRootEntry();
+        if (names.isEmpty()) {
+            return root;
+        }
+
+        final PathTable table = (this.systemUseSkip >= 0) ? null : getPathTable();
+        final StringBuilder parentPath = new StringBuilder();
+        List<Iso9660FileEntry> children;
+
+        if (null != table) {
+            int directory = PathTable.ROOT;
+            for (int i = 0; i < names.size() - 1; i++) {
+                directory = table.find(directory, names.get(i));
+                if (directory < 0) {
+                    return null;
+                }
+                parentPath.append(names.get(i)).append('/');
+            }
+            children = readDirectory(table.getExtent(directory), parentPath.toString());
+        } else {
+            // no usable path table, walk down from the root instead
+            children = listDirectory(root);
+            for (int i = 0; i < names.size() - 1; i++) {
+                final Iso9660FileEntry directory = findChild(children, names.get(i));
+                if (null == directory || !directory.isDirectory()) {
+                    return null;
+                }
+                children = listDirectory(directory);
+            }
+        }
+
+        return findChild(children, names.get(names.size() - 1));
+    }
+
+    /**
+     * Returns the entries of the given directory, without the "." and ".." entries.
+     */
+    public List<Iso9660FileEntry> listDirectory(Iso9660FileEntry entry) throws IOException {
+        if (!entry.isDirectory()) {
+            throw new IllegalArgumentException("Not a directory: " + entry.getPath());
+        }
+        ensureOpen();
+
+        return parseDirectory(entry.getPath(), getBytes(entry));
+    }
+
+    private static Iso9660FileEntry findChild(List<Iso9660FileEntry> children, String name) {
+        for (Iso9660FileEntry child : children) {
+            if (child.getName().equals(name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the directory whose extent starts at the given block. Its size is taken from the "." entry in the first
+     * block.
+     */
+    private List<Iso9660FileEntry> readDirectory(long block, String path) throws IOException {
+        final byte[] first = new byte[Constants.DEFAULT_BLOCK_SIZE];
+        if (!readBlock(block, first)) {
+            throw new IOException("Directory extent beyond end of file at block " + block);
+        }
+
+        final Iso9660FileEntry self = new Iso9660FileEntry(this, path, first, 1);
+        if (self.getSize() <= first.length) {
+            return parseDirectory(path, Arrays.copyOf(first, (int) self.getSize()));
+        }
+        return parseDirectory(path, getBytes(self));
+    }
+
+    private List<Iso9660FileEntry> parseDirectory(String path, byte[] content) throws IOException {
+        final List<Iso9660FileEntry> children = new ArrayList<Iso9660FileEntry>();
+
+        int offset = 0;
+        boolean paddingMode = false;
+        List<Iso9660FileEntry> sections = null;
+
+        while (offset < content.length) {
+            if (LittleEndian.getUInt8(content, offset) <= 0) {
+                paddingMode = true;
+                offset += 2;
+                continue;
+            }
+
+            Iso9660FileEntry child = new Iso9660FileEntry(this, path, content, offset + 1);
+
+            if (paddingMode && child.getSize() < 0) {
+                continue;
+            }
+
+            offset += child.getEntryLength();
+
+            // the File Sections of a file are merged into the entry of the first one
+            if (null != sections) {
+                sections.add(child);
+                if (!child.isNotFinalSection()) {
+                    sections.get(0).setSections(sections);
+                    sections = null;
+                }
+                continue;
+            }
+            if (child.isNotFinalSection()) {
+                sections = new ArrayList<Iso9660FileEntry>();
+                sections.add(child);
+            }
+
+            // It doesn't seem useful to include the . and .. entries
+            if (!child.isSelfOrParent() && resolveRelocation(child)) {
+                children.add(child);
+            }
+        }
+
+        if (null != sections) {
+            sections.get(0).setSections(sections);
+        }
+
+        return children;
+    }
+
+    /**
+     * Returns the parsed path table, or <code>null</code> if the image has none.
+     */
+    private PathTable getPathTable() throws IOException {
+        PathTable table = this.pathTable;
+        if (null == table) {
+            final Iso9660VolumeDescriptorSet descriptors = (Iso9660VolumeDescriptorSet) getVolumeDescriptorSet();
+            final long size = descriptors.getRootPathTableSize();
+            final long location = descriptors.getRootPathTableLocation();
+            if (size <= 0 || size > Integer.MAX_VALUE || location <= 0) {
+                return null;
+            }
+
+            final byte[] bytes = new byte[(int) size];
+            if (readCachedData(location * Constants.DEFAULT_BLOCK_SIZE, bytes, 0, bytes.length) != bytes.length) {
+                return null;
+            }
+            table = new PathTable(bytes, getEncoding());
+            if (table.size() == 0) {
+                return null;
+            }
+            this.pathTable = table;
+        }
+        return table;
+    }
+
     byte[] getBytes(Iso9660FileEntry entry) throws IOException {
         if (entry.getSize() > Integer.MAX_VALUE) {
             throw new IOException("Entry too large");
@@ -56,21 +363,63 @@ public class Iso9660FileSystem extends AbstractBlockFileSystem<Iso9660FileEntry>
 
         byte[] buf = new byte[size];
 
-        readBytes(entry, 0, buf, 0, size);
+        // only directories are read as a whole, so go through the block cache
+        readCachedData(entry.getStartBlock() * Constants.DEFAULT_BLOCK_SIZE, buf, 0, size);
 
         return buf;
     }
 
     int readBytes(Iso9660FileEntry entry, long entryOffset, byte[] buffer, int bufferOffset, int len)
             throws IOException {
-        long startPos = (entry.getStartBlock() * Constants.DEFAULT_BLOCK_SIZE) + entryOffset;
-        return readData(startPos, buffer, bufferOffset, len);
+        if (entry.getSectionCount() == 1) {
+            long startPos = (entry.getStartBlock() * Constants.DEFAULT_BLOCK_SIZE) + entryOffset;
+            return readData(startPos, buffer, bufferOffset, len);
+        }
+
+        // find the File Section holding the offset, a single read does not cross sections
+        int index = 0;
+        Iso9660FileEntry section = entry.getSection(0);
+        while (entryOffset >= section.getExtentSize() && index < entry.getSectionCount() - 1) {
+            entryOffset -= section.getExtentSize();
+            section = entry.getSection(++index);
+        }
+
+        int toRead = (int) Math.min(len, Math.max(0, section.getExtentSize() - entryOffset));
+        long startPos = (section.getStartBlock() * Constants.DEFAULT_BLOCK_SIZE) + entryOffset;
+        return readData(startPos, buffer, bufferOffset, toRead);
     }
 
     protected Iterator<Iso9660FileEntry> iterator(Iso9660FileEntry rootEntry) {
         return new EntryIterator(this, rootEntry);
     }
 
+    /**
+     * Returns a depth-first iterator of all entries. Unlike {@link #iterator()}, which keeps every discovered entry
+     * until it is visited, it only keeps the directories on the current path.
+     */
+    public Iterator<Iso9660FileEntry> depthFirstIterator() throws IOException {
+        return depthFirstIterator(null);
+    }
+
+    /**
+     * Returns a depth-first iterator of all entries, which does not descend into directories matching
+     * <code>skipSubtree</code>. Such directories are still returned themselves.
+     */
+    public Iterator<Iso9660FileEntry> depthFirstIterator(Predicate<? super Iso9660FileEntry> skipSubtree)
+            throws IOException {
+        ensureOpen();
+        ensureVolumeDescriptors();
+
+        return new DepthFirstEntryIterator(this, getVolumeDescriptorSet().getRootEntry(), skipSubtree);
+    }
+
+    /**
+     * Reads one block of a directory extent, through the block cache if one is set.
+     */
+    boolean readDirectoryBlock(long block, byte[] buffer) throws IOException {
+        return readBlock(block, buffer);
+    }
+
     protected VolumeDescriptorSet<Iso9660FileEntry> createVolumeDescriptorSet() {
         return new Iso9660VolumeDescriptorSet(this);
     }
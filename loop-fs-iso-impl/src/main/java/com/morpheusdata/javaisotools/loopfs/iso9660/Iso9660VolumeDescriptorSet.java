@@ -20,6 +20,7 @@
 package com.morpheusdata.javaisotools.loopfs.iso9660;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import com.morpheusdata.javaisotools.loopfs.api.LoopFileSystemException;
 import com.morpheusdata.javaisotools.loopfs.spi.VolumeDescriptorSet;
@@ -46,6 +47,8 @@ public class Iso9660VolumeDescriptorSet implements VolumeDescriptorSet<Iso9660Fi
     private String preparer;
     private String application;
     private Iso9660FileEntry rootDirectoryEntry;
+    private long rootPathTableSize;
+    private long rootPathTableLocation;
 
     // primary
     private String standardIdentifier;
@@ -61,6 +64,7 @@ public class Iso9660VolumeDescriptorSet implements VolumeDescriptorSet<Iso9660Fi
     private long locationOfOptionalLittleEndianPathTable;
     private long locationOfBigEndianPathTable;
     private long locationOfOptionalBigEndianPathTable;
+    private Iso9660FileEntry primaryRootDirectoryEntry;
 
     // supplementary
     public String encoding = Constants.DEFAULT_ENCODING;
@@ -149,6 +153,7 @@ public class Iso9660VolumeDescriptorSet implements VolumeDescriptorSet<Iso9660Fi
         this.locationOfOptionalLittleEndianPathTable = Util.getUInt32LE(descriptor, 145);
         this.locationOfBigEndianPathTable = Util.getUInt32BE(descriptor, 149);
         this.locationOfOptionalBigEndianPathTable = Util.getUInt32BE(descriptor, 153);
+        this.primaryRootDirectoryEntry = new Iso9660FileEntry(this.isoFile, Arrays.copyOfRange(descriptor, 156, 190), 1);
 
         this.hasPrimary = true;
     }
@@ -194,7 +199,11 @@ public class Iso9660VolumeDescriptorSet implements VolumeDescriptorSet<Iso9660Fi
         this.systemIdentifier = Util.getAChars(descriptor, 9, 32, this.encoding);
         this.volumeIdentifier = Util.getDChars(descriptor, 41, 32, this.encoding);
         this.volumeSetIdentifier = Util.getDChars(descriptor, 191, 128, this.encoding);
-        this.rootDirectoryEntry = new Iso9660FileEntry(this.isoFile, descriptor, 157);
+        // entries keep their buffer, and the descriptor buffer is reused for the next descriptor
+        this.rootDirectoryEntry = new Iso9660FileEntry(this.isoFile, Arrays.copyOfRange(descriptor, 156, 190), 1);
+        // the path table describing the same directory tree as the root entry
+        this.rootPathTableSize = Util.getUInt32Both(descriptor, 133);
+        this.rootPathTableLocation = Util.getUInt32LE(descriptor, 141);
     }
 
     /**
@@ -270,6 +279,39 @@ public class Iso9660VolumeDescriptorSet implements VolumeDescriptorSet<Iso9660Fi
         return this.rootDirectoryEntry;
     }
 
+    /**
+     * Returns the root entry of the directory tree described by the primary volume descriptor.
+     */
+    Iso9660FileEntry getPrimaryRootEntry() {
+        return this.primaryRootDirectoryEntry;
+    }
+
+    /**
+     * Reads the directory tree of the primary volume descriptor even if there is a supplementary one, e.g. because
+     * only the primary tree carries Rock Ridge fields. The root entry, its path table and the encoding revert to those
+     * of the primary volume descriptor.
+     */
+    void usePrimary() {
+        this.rootDirectoryEntry = this.primaryRootDirectoryEntry;
+        this.rootPathTableSize = this.pathTableSize;
+        this.rootPathTableLocation = this.locationOfLittleEndianPathTable;
+        this.encoding = Constants.DEFAULT_ENCODING;
+    }
+
+    /**
+     * Returns the size of the little-endian path table of the directory tree starting at the root entry.
+     */
+    long getRootPathTableSize() {
+        return this.rootPathTableSize;
+    }
+
+    /**
+     * Returns the block number of the little-endian path table of the directory tree starting at the root entry.
+     */
+    long getRootPathTableLocation() {
+        return this.rootPathTableLocation;
+    }
+
     public String getStandardIdentifier() {
         return this.standardIdentifier;
     }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006-2007. loopy project (http://loopy.sourceforge.net).
+ *  
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *  
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.iso9660;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The little-endian path table of an ISO9660 file system. It lists every directory with the location of its extent
+ * and the number of its parent directory, so a directory can be found without reading the directories above it. See
+ * section 9.4.
+ */
+final class PathTable {
+
+    /**
+     * Number of the root directory.
+     */
+    static final int ROOT = 1;
+
+    private final long[] extents;
+    private final Map<String, Integer> numbers;
+
+    /**
+     * Parse a path table.
+     *
+     * @param table    the bytes of the path table
+     * @param encoding the encoding of the directory identifiers
+     */
+    PathTable(final byte[] table, final String encoding) {
+        long[] extents = new long[16];
+        this.numbers = new HashMap<String, Integer>();
+
+        int count = 0;
+        int pos = 1;
+        while (pos + 7 <= table.length) {
+            final int idLength = Util.getUInt8(table, pos);
+            if (idLength == 0 || pos + 8 + idLength > table.length + 1) {
+                break;
+            }
+
+            if (count == extents.length) {
+                long[] grown = new long[count * 2];
+                System.arraycopy(extents, 0, grown, 0, count);
+                extents = grown;
+            }
+            extents[count++] = Util.getUInt32LE(table, pos + 2);
+
+            // the first record is the root directory, which has no name and is its own parent
+            if (count > ROOT) {
+                final int parent = Util.getUInt16LE(table, pos + 6);
+                final String name = Util.getDChars(table, pos + 8, idLength, encoding);
+                this.numbers.put(key(parent, name), Integer.valueOf(count));
+            }
+
+            // identifiers of odd length are followed by a padding byte
+            pos += 8 + idLength + (idLength & 1);
+        }
+
+        this.extents = new long[count];
+        System.arraycopy(extents, 0, this.extents, 0, count);
+    }
+
+    /**
+     * Returns the number of the directory with the given name within the given parent directory, or -1 if there is no
+     * such directory.
+     */
+    int find(final int parent, final String name) {
+        final Integer number = this.numbers.get(key(parent, name));
+        return (null == number) ? -1 : number.intValue();
+    }
+
+    /**
+     * Returns the block number where the extent of the given directory starts.
+     */
+    long getExtent(final int number) {
+        return this.extents[number - 1];
+    }
+
+    int size() {
+        return this.extents.length;
+    }
+
+    private static String key(final int parent, final String name) {
+        return parent + "/" + name;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006-2007. loopy project (http://loopy.sourceforge.net).
+ *  
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *  
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package com.morpheusdata.javaisotools.loopfs.iso9660;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.morpheusdata.javaisotools.loopfs.util.LittleEndian;
+
+/**
+ * The Rock Ridge attributes of a file, decoded from the System Use fields of its directory record and from the
+ * Continuation Areas these refer to. See the System Use Sharing Protocol (IEEE P1281) and the Rock Ridge Interchange
+ * Protocol (IEEE P1282). The POSIX attributes and time stamps are read from the recorded fields when asked for; only
+ * the alternate name and the symbolic link, which may be split over several fields, are assembled up front.
+ * <p>
+ * Names and symbolic links are decoded as ISO-8859-1, the encoding they are written in by this library. As every
+ * byte maps to one character, names recorded in other encodings can be recovered with
+ * <code>getBytes("ISO-8859-1")</code>.
+ */
+public final class RockRidgeAttributes {
+
+    public static final int TF_CREATION = 1;
+    public static final int TF_MODIFY = 2;
+    public static final int TF_ACCESS = 4;
+    public static final int TF_ATTRIBUTES = 8;
+    public static final int TF_BACKUP = 16;
+    public static final int TF_EXPIRATION = 32;
+    public static final int TF_EFFECTIVE = 64;
+
+    private static final int TF_LONG_FORM = 128;
+
+    private static final int NM_CURRENT = 2;
+    private static final int NM_PARENT = 4;
+
+    private static final int CR_CONTINUES = 1;
+    private static final int CR_CURRENT = 2;
+    private static final int CR_PARENT = 4;
+    private static final int CR_ROOT = 8;
+
+    /**
+     * Continuation Areas followed per record, so a CE field referring back to itself cannot loop forever.
+     */
+    private static final int MAX_CONTINUATIONS = 32;
+
+    private static final int CE = signature('C', 'E');
+    private static final int ST = signature('S', 'T');
+    private static final int NM = signature('N', 'M');
+    private static final int PX = signature('P', 'X');
+    private static final int TF = signature('T', 'F');
+    private static final int SL = signature('S', 'L');
+    private static final int CL = signature('C', 'L');
+    private static final int PL = signature('P', 'L');
+    private static final int RE = signature('R', 'E');
+
+    private byte[] px;
+    private int pxPos;
+    private byte[] tf;
+    private int tfPos;
+    private String name;
+    private String symbolicLink;
+    private long childLink = -1;
+    private long parentLink = -1;
+    private boolean relocated;
+
+    private RockRidgeAttributes() {
+    }
+
+    /**
+     * Decodes the System Use fields in <code>area</code> from <code>pos</code> up to <code>end</code>, following any
+     * Continuation Areas. The attributes keep references to the areas, which must not be modified afterwards.
+     *
+     * @return the attributes, or <code>null</code> if there are no Rock Ridge fields
+     */
+    static RockRidgeAttributes decode(final Iso9660FileSystem fileSystem, byte[] area, int pos, int end)
+            throws IOException {
+        final RockRidgeAttributes attributes = new RockRidgeAttributes();
+        boolean found = false;
+        StringBuilder name = null;
+        StringBuilder link = null;
+        boolean separate = false;
+        int continuations = 0;
+
+        while (null != area) {
+            long ceBlock = -1;
+            long ceOffset = 0;
+            long ceLength = 0;
+
+            while (pos + 4 <= end) {
+                final int length = LittleEndian.getUInt8(area, pos + 2);
+                if (length < 4 || pos + length > end) {
+                    break;
+                }
+
+                final int signature = signature(area[pos], area[pos + 1]);
+                if (signature == ST) {
+                    break;
+                } else if (signature == CE && length >= 28) {
+                    ceBlock = LittleEndian.getUInt32(area, pos + 4);
+                    ceOffset = LittleEndian.getUInt32(area, pos + 12);
+                    ceLength = LittleEndian.getUInt32(area, pos + 20);
+                } else if (signature == NM && length >= 5) {
+                    final int flags = LittleEndian.getUInt8(area, pos + 4);
+                    if (null == name) {
+                        name = new StringBuilder();
+                    }
+                    if ((flags & NM_CURRENT) != 0) {
+                        name.append('.');
+                    } else if ((flags & NM_PARENT) != 0) {
+                        name.append("..");
+                    } else {
+                        name.append(new String(area, pos + 5, length - 5, StandardCharsets.ISO_8859_1));
+                    }
+                    found = true;
+                } else if (signature == PX && length >= 36) {
+                    attributes.px = area;
+                    attributes.pxPos = pos;
+                    found = true;
+                } else if (signature == TF && length >= 5) {
+                    attributes.tf = area;
+                    attributes.tfPos = pos;
+                    found = true;
+                } else if (signature == SL && length >= 5) {
+                    if (null == link) {
+                        link = new StringBuilder();
+                    }
+                    // component records, a component may continue in the next record
+                    int record = pos + 5;
+                    while (record + 2 <= pos + length) {
+                        final int flags = LittleEndian.getUInt8(area, record);
+                        final int componentLength = LittleEndian.getUInt8(area, record + 1);
+                        if (record + 2 + componentLength > pos + length) {
+                            break;
+                        }
+                        if ((flags & CR_ROOT) != 0) {
+                            link.append('/');
+                        } else {
+                            if (separate) {
+                                link.append('/');
+                            }
+                            if ((flags & CR_CURRENT) != 0) {
+                                link.append('.');
+                            } else if ((flags & CR_PARENT) != 0) {
+                                link.append("..");
+                            } else {
+                                link.append(new String(area, record + 2, componentLength,
+                                        StandardCharsets.ISO_8859_1));
+                            }
+                        }
+                        separate = (flags & (CR_CONTINUES | CR_ROOT)) == 0;
+                        record += 2 + componentLength;
+                    }
+                    found = true;
+                } else if (signature == CL && length >= 12) {
+                    attributes.childLink = LittleEndian.getUInt32(area, pos + 4);
+                    found = true;
+                } else if (signature == PL && length >= 12) {
+                    attributes.parentLink = LittleEndian.getUInt32(area, pos + 4);
+                    found = true;
+                } else if (signature == RE) {
+                    attributes.relocated = true;
+                    found = true;
+                }
+
+                pos += length;
+            }
+
+            area = null;
+            if (ceBlock >= 0 && ceLength > 0 && continuations++ < MAX_CONTINUATIONS) {
+                area = fileSystem.readContinuationArea(ceBlock, ceOffset, ceLength);
+                pos = 0;
+                end = area.length;
+            }
+        }
+
+        if (!found) {
+            return null;
+        }
+        if (null != name) {
+            attributes.name = name.toString();
+        }
+        if (null != link) {
+            attributes.symbolicLink = link.toString();
+        }
+        return attributes;
+    }
+
+    private static int signature(final int first, final int second) {
+        return ((first & 0xff) << 8) | (second & 0xff);
+    }
+
+    /**
+     * Returns the alternate name from the NM fields, or <code>null</code> if none is recorded.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the target of the symbolic link from the SL fields, or <code>null</code> if this is not a symbolic
+     * link.
+     */
+    public String getSymbolicLink() {
+        return this.symbolicLink;
+    }
+
+    public boolean isSymbolicLink() {
+        return null != this.symbolicLink;
+    }
+
+    /**
+     * Returns the POSIX file mode, including the file type bits, or -1 if no PX field is recorded.
+     */
+    public long getMode() {
+        return getPosixField(4);
+    }
+
+    /**
+     * Returns the number of links, or -1 if no PX field is recorded.
+     */
+    public long getLinks() {
+        return getPosixField(12);
+    }
+
+    /**
+     * Returns the user ID of the owner, or -1 if no PX field is recorded.
+     */
+    public long getUserId() {
+        return getPosixField(20);
+    }
+
+    /**
+     * Returns the group ID of the owner, or -1 if no PX field is recorded.
+     */
+    public long getGroupId() {
+        return getPosixField(28);
+    }
+
+    /**
+     * Returns the file serial number, or -1 if it is not recorded. RRIP 1.09 PX fields, as written by mkisofs, have
+     * none.
+     */
+    public long getSerialNumber() {
+        if (null == this.px || LittleEndian.getUInt8(this.px, this.pxPos + 2) < 44) {
+            return -1;
+        }
+        return getPosixField(36);
+    }
+
+    private long getPosixField(final int fieldOffset) {
+        if (null == this.px) {
+            return -1;
+        }
+        return LittleEndian.getUInt32(this.px, this.pxPos + fieldOffset);
+    }
+
+    /**
+     * Returns the time of last modification from the TF field, or -1 if it is not recorded.
+     */
+    public long getLastModifiedTime() {
+        return getTime(TF_MODIFY);
+    }
+
+    /**
+     * Returns a time stamp from the TF field.
+     *
+     * @param type one of the <code>TF_*</code> constants
+     *
+     * @return the time in milliseconds since the epoch, or -1 if it is not recorded
+     */
+    public long getTime(final int type) {
+        if (null == this.tf) {
+            return -1;
+        }
+
+        final int flags = LittleEndian.getUInt8(this.tf, this.tfPos + 4);
+        if ((flags & type) == 0) {
+            return -1;
+        }
+
+        // the recorded time stamps follow each other in the order of their flags
+        final int size = ((flags & TF_LONG_FORM) != 0) ? 17 : 7;
+        final int index = Integer.bitCount(flags & (type - 1) & ~TF_LONG_FORM);
+        final int pos = this.tfPos + 5 + index * size;
+        if (pos + size > this.tfPos + LittleEndian.getUInt8(this.tf, this.tfPos + 2)) {
+            return -1;
+        }
+
+        // Util takes 1-based positions
+        return (size == 17) ? Util.getStringDate(this.tf, pos + 1) : Util.getDateTime(this.tf, pos + 1);
+    }
+
+    /**
+     * Returns the block of the relocated directory this entry stands for (CL field), or -1.
+     */
+    public long getChildLink() {
+        return this.childLink;
+    }
+
+    /**
+     * Returns the block of the original parent directory of a relocated directory (PL field), or -1.
+     */
+    public long getParentLink() {
+        return this.parentLink;
+    }
+
+    /**
+     * Returns true if this is a relocated directory (RE field), which is listed where its CL field is recorded.
+     */
+    public boolean isRelocated() {
+        return this.relocated;
+    }
+}
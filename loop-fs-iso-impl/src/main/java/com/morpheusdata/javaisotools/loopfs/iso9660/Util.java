@@ -20,6 +20,8 @@
 package com.morpheusdata.javaisotools.loopfs.iso9660;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
 import java.util.Calendar;
 import java.util.TimeZone;
 
@@ -28,6 +30,19 @@ import com.morpheusdata.javaisotools.loopfs.util.LittleEndian;
 
 public final class Util {
 
+    /**
+     * Offsets from GMT in seconds, indexed by the unsigned offset byte counting 15 minute intervals. Offsets of a day or
+     * more fall back to GMT, as TimeZone does not accept them either.
+     */
+    private static final int[] GMT_OFFSETS = new int[256];
+
+    static {
+        for (int i = 0; i < GMT_OFFSETS.length; i++) {
+            final int seconds = ((byte) i) * 15 * 60;
+            GMT_OFFSETS[i] = (Math.abs(seconds) < 24 * 60 * 60) ? seconds : 0;
+        }
+    }
+
     /**
      * Gets an unsigned 8-bit value LSB first. See section 7.1.1.
      */
@@ -122,6 +137,13 @@ public final class Util {
         }
     }
 
+    /**
+     * Gets a string of d-characters. See section 7.4.1.
+     */
+    public static String getDChars(byte[] block, int pos, int length, Charset charset) {
+        return new String(block, pos - 1, length, charset).trim();
+    }
+
     public static long getStringDate(byte[] block, int pos) {
         int i = pos - 1;
         Calendar cal = Calendar.getInstance();
@@ -147,16 +169,13 @@ public final class Util {
 
     public static long getDateTime(byte[] sector, int pos) {
         int i = pos - 1;
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.YEAR, 1900 + sector[i]);
-        cal.set(Calendar.MONTH, sector[i + 1] - 1);
-        cal.set(Calendar.DATE, sector[i + 2]);
-        cal.set(Calendar.HOUR_OF_DAY, sector[i + 3]);
-        cal.set(Calendar.MINUTE, sector[i + 4]);
-        cal.set(Calendar.SECOND, sector[i + 5]);
-        cal.set(Calendar.MILLISECOND, 0);
-        cal.setTimeZone(TimeZone.getTimeZone(getGMTpos(sector[i + 6])));
-        return cal.getTimeInMillis();
+        // the year is unsigned, out of range fields roll over into the next larger one, as with a lenient Calendar
+        long days = LocalDate.of(1900 + (sector[i] & 0xff), 1, 1)
+                .plusMonths(sector[i + 1] - 1)
+                .plusDays(sector[i + 2] - 1)
+                .toEpochDay();
+        long seconds = days * 24 * 60 * 60 + sector[i + 3] * 60 * 60 + sector[i + 4] * 60 + sector[i + 5];
+        return (seconds - GMT_OFFSETS[sector[i + 6] & 0xff]) * 1000;
     }
 
     private static String getGMTpos(byte b) {
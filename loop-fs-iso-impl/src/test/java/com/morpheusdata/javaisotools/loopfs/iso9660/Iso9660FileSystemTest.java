@@ -20,10 +20,13 @@ package com.morpheusdata.javaisotools.loopfs.iso9660;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
+import com.morpheusdata.javaisotools.loopfs.spi.LruBlockCache;
 import com.morpheusdata.javaisotools.loopfs.spi.SeekableInputFile;
 import com.morpheusdata.javaisotools.loopfs.spi.SeekableInputFileHadoop;
+import com.morpheusdata.javaisotools.loopfs.spi.SeekableInputMappedFile;
 import com.google.common.collect.Iterables;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -34,8 +37,14 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * Tests the Iso9660 implementation.
@@ -58,6 +67,184 @@ public class Iso9660FileSystemTest {
         this.runCheck(image);
     }
 
+    @Test
+    public void mappedSmokes() throws Exception {
+        Iso9660FileSystem image = new Iso9660FileSystem(new SeekableInputMappedFile(new File(filePath)), true);
+        this.runCheck(image);
+        image.close();
+    }
+
+    @Test
+    public void cachedSmokes() throws Exception {
+        Iso9660FileSystem image = new Iso9660FileSystem(new File(filePath), true);
+        LruBlockCache cache = new LruBlockCache(Constants.DEFAULT_BLOCK_SIZE, 64);
+        image.setBlockCache(cache);
+        this.runCheck(image);
+        long misses = cache.getMissCount();
+        this.runCheck(image);
+        assertThat("second scan is served from the cache", cache.getMissCount(), is(misses));
+        assertTrue(cache.getHitCount() > 0);
+        image.close();
+    }
+
+    @Test
+    public void shouldLookUpEntriesByPath() throws Exception {
+        Iso9660FileSystem image = new Iso9660FileSystem(new File(filePath), true);
+        for (Iso9660FileEntry entry : image) {
+            Iso9660FileEntry found = image.getEntry("/" + entry.getPath());
+            assertThat(found.getPath(), is(entry.getPath()));
+            assertThat(found.getStartBlock(), is(entry.getStartBlock()));
+            assertThat(found.getSize(), is(entry.getSize()));
+        }
+        assertThat(image.getEntry("/root/missing.txt") == null, is(true));
+        assertThat(image.listDirectory(image.getEntry("root")).size(), is(2));
+        image.close();
+    }
+
+    @Test
+    public void shouldIterateDepthFirst() throws Exception {
+        Iso9660FileSystem image = new Iso9660FileSystem(new File(filePath), true);
+        List<String> expected = new ArrayList<String>();
+        for (Iso9660FileEntry entry : image) {
+            expected.add(entry.getPath());
+        }
+
+        List<String> actual = new ArrayList<String>();
+        Iterator<Iso9660FileEntry> it = image.depthFirstIterator();
+        while (it.hasNext()) {
+            actual.add(it.next().getPath());
+        }
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertThat(actual, is(expected));
+
+        it = image.depthFirstIterator(entry -> "root".equals(entry.getName()));
+        actual.clear();
+        while (it.hasNext()) {
+            actual.add(it.next().getPath());
+        }
+        assertThat(actual, is(Arrays.asList("", "root/")));
+        image.close();
+    }
+
+    @Test
+    public void shouldMergeFileSections() throws Exception {
+        // a file of three File Sections, the last one shorter than a block
+        byte[] data = new byte[2 * Constants.DEFAULT_BLOCK_SIZE + 100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        byte[] bytes = new byte[22 * Constants.DEFAULT_BLOCK_SIZE];
+        System.arraycopy(data, 0, bytes, 19 * Constants.DEFAULT_BLOCK_SIZE, data.length);
+
+        // primary volume descriptor and terminator
+        int pvd = 16 * Constants.DEFAULT_BLOCK_SIZE;
+        bytes[pvd] = 1;
+        System.arraycopy("CD001".getBytes("US-ASCII"), 0, bytes, pvd + 1, 5);
+        bytes[pvd + 6] = 1;
+        putBoth16(bytes, pvd + 128, Constants.DEFAULT_BLOCK_SIZE);
+        putRecord(bytes, pvd + 156, 18, Constants.DEFAULT_BLOCK_SIZE, 0x02, new byte[] {0});
+        int terminator = 17 * Constants.DEFAULT_BLOCK_SIZE;
+        bytes[terminator] = (byte) 255;
+        System.arraycopy("CD001".getBytes("US-ASCII"), 0, bytes, terminator + 1, 5);
+        bytes[terminator + 6] = 1;
+
+        // root directory
+        byte[] name = "BIG.BIN;1".getBytes("US-ASCII");
+        int pos = 18 * Constants.DEFAULT_BLOCK_SIZE;
+        pos = putRecord(bytes, pos, 18, Constants.DEFAULT_BLOCK_SIZE, 0x02, new byte[] {0});
+        pos = putRecord(bytes, pos, 18, Constants.DEFAULT_BLOCK_SIZE, 0x02, new byte[] {1});
+        pos = putRecord(bytes, pos, 19, Constants.DEFAULT_BLOCK_SIZE, 0x80, name);
+        pos = putRecord(bytes, pos, 20, Constants.DEFAULT_BLOCK_SIZE, 0x80, name);
+        putRecord(bytes, pos, 21, 100, 0x00, name);
+
+        File file = File.createTempFile("sections", ".iso");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(bytes);
+        out.close();
+
+        Iso9660FileSystem image = new Iso9660FileSystem(file, true);
+        List<Iso9660FileEntry> entries = new ArrayList<Iso9660FileEntry>();
+        Iterator<Iso9660FileEntry> it = image.depthFirstIterator();
+        while (it.hasNext()) {
+            entries.add(it.next());
+        }
+        assertThat(entries.size(), is(2));
+        assertThat(entries.get(1).getSize(), is((long) data.length));
+        assertThat(Arrays.equals(IOUtil.toByteArray(image.getInputStream(entries.get(1))), data), is(true));
+
+        Iso9660FileEntry entry = image.getEntry("BIG.BIN");
+        assertThat(image.listDirectory(image.getEntry("/")).size(), is(1));
+        assertThat(entry.getSize(), is((long) data.length));
+        InputStream in = image.getInputStream(entry);
+        assertThat(in.skip(Constants.DEFAULT_BLOCK_SIZE + 10), is((long) Constants.DEFAULT_BLOCK_SIZE + 10));
+        assertThat(in.read(), is(data[Constants.DEFAULT_BLOCK_SIZE + 10] & 0xFF));
+        image.close();
+    }
+
+    @Test
+    public void shouldDecodeNamesAndPathsOnFirstUse() throws Exception {
+        Iso9660FileSystem image = new Iso9660FileSystem(new File(filePath), true);
+        // reading an entry loads the volume descriptors, and with them the encoding of the names
+        image.getEntry("root");
+        String encoding = image.getEncoding();
+
+        byte[] block = new byte[Constants.DEFAULT_BLOCK_SIZE];
+        int pos = putRecord(block, 0, 18, Constants.DEFAULT_BLOCK_SIZE, 0x02, new byte[] {0});
+        int parent = pos;
+        pos = putRecord(block, pos, 18, Constants.DEFAULT_BLOCK_SIZE, 0x02, new byte[] {1});
+        int dir = pos;
+        pos = putRecord(block, pos, 19, Constants.DEFAULT_BLOCK_SIZE, 0x02, "SUB".getBytes(encoding));
+        int file = pos;
+        putRecord(block, pos, 20, 5, 0x00, "A.TXT;1".getBytes(encoding));
+        // 5 October 2010 13:06:36 at GMT+1
+        System.arraycopy(new byte[] {110, 10, 5, 13, 6, 36, 4}, 0, block, file + 18, 7);
+
+        Iso9660FileEntry self = new Iso9660FileEntry(image, "root/", block, 1);
+        assertThat(self.getName(), is("."));
+        assertThat(self.getPath(), is(""));
+        assertThat(new Iso9660FileEntry(image, "root/", block, parent + 1).getName(), is(".."));
+        assertThat(new Iso9660FileEntry(image, "root/", block, dir + 1).getPath(), is("root/SUB/"));
+        assertThat(new Iso9660FileEntry(image, block, dir + 1).getPath(), is("SUB/"));
+
+        Iso9660FileEntry entry = new Iso9660FileEntry(image, "root/", block, file + 1);
+        assertThat(entry.getLastModifiedTime(), is(1286280396000L));
+
+        // nothing is decoded until asked for, and then only once
+        putRecord(block, file, 20, 5, 0x00, "B.TXT;1".getBytes(encoding));
+        assertThat(entry.getName(), is("B.TXT"));
+        assertThat(entry.getPath(), is("root/B.TXT"));
+        putRecord(block, file, 20, 5, 0x00, "C.TXT;1".getBytes(encoding));
+        assertThat(entry.getName(), is("B.TXT"));
+        assertThat(entry.getPath(), is("root/B.TXT"));
+        assertThat(new Iso9660FileEntry(image, "root/", block, file + 1).getPath(), is("root/C.TXT"));
+        image.close();
+    }
+
+    private static int putRecord(byte[] bytes, int pos, long extent, long size, int flags, byte[] name) {
+        int length = 33 + name.length + (name.length % 2 == 0 ? 1 : 0);
+        bytes[pos] = (byte) length;
+        putBoth32(bytes, pos + 2, extent);
+        putBoth32(bytes, pos + 10, size);
+        bytes[pos + 25] = (byte) flags;
+        putBoth16(bytes, pos + 28, 1);
+        bytes[pos + 32] = (byte) name.length;
+        System.arraycopy(name, 0, bytes, pos + 33, name.length);
+        return pos + length;
+    }
+
+    private static void putBoth16(byte[] bytes, int pos, int value) {
+        bytes[pos] = bytes[pos + 3] = (byte) value;
+        bytes[pos + 1] = bytes[pos + 2] = (byte) (value >> 8);
+    }
+
+    private static void putBoth32(byte[] bytes, int pos, long value) {
+        for (int i = 0; i < 4; i++) {
+            bytes[pos + i] = bytes[pos + 7 - i] = (byte) (value >> (8 * i));
+        }
+    }
+
     @Test
     public void shouldReadAllBytesWhenSeekableInputPartiallyReads() throws IOException {
         // Create seekeable input which does not read up to specified length
@@ -70,6 +257,46 @@ public class Iso9660FileSystemTest {
         assertThat("All bytes should have been read", new String(bytes), is("Goodbye"));
     }
 
+    @Test
+    public void shouldKeepReadingWhenAnotherReaderIsInterrupted() throws Exception {
+        final Iso9660FileSystem image = new Iso9660FileSystem(new SeekableInputFile(new File(filePath)), true);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        runCheck(image);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }
+        };
+        reader.start();
+
+        // Each interrupted read closes the channel under the other reader
+        Iso9660FileEntry entry = Iterables.getLast(image);
+        int interrupted = 0;
+        while (reader.isAlive()) {
+            Thread.currentThread().interrupt();
+            try {
+                image.getBytes(entry);
+            } catch (IOException expected) {
+                interrupted++;
+            } finally {
+                Thread.interrupted();
+            }
+        }
+        reader.join();
+
+        assertThat(failures.toString(), failures.isEmpty(), is(true));
+        assertTrue("interrupted reads should fail", interrupted > 0);
+        // Once its interrupt status is cleared, the interrupted reader reads again
+        this.runCheck(image);
+        image.close();
+    }
+
     @Test
     public void hdfsSmokes() throws Exception {
         assumeTrue(isNotWindows());
@@ -119,5 +346,14 @@ public class Iso9660FileSystemTest {
             bytes = b;
             return super.read(b, off, length);
         }
+
+        @Override
+        public int read(long pos, byte[] b, int off, int len) throws IOException {
+            // Deliberately miss last byte on first pass
+            boolean firstPass = b != bytes;
+            int length = firstPass ? len - 1 : len;
+            bytes = b;
+            return super.read(pos, b, off, length);
+        }
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.iso9660;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Checks {@link Util#getDateTime(byte[], int)} against the lenient Calendar it replaced.
+ */
+public class UtilTest {
+
+    @Test
+    public void readsDatesWithoutOffset() {
+        assertDateTime(110, 10, 5, 13, 6, 36, 0);
+        assertThat(Util.getDateTime(new byte[] {70, 1, 1, 0, 0, 0, 0}, 1), is(0L));
+    }
+
+    @Test
+    public void readsDatesWithPositiveOffsets() {
+        assertDateTime(110, 10, 5, 13, 6, 36, 4);
+        assertDateTime(110, 10, 5, 13, 6, 36, 52);
+        // Just below a day
+        assertDateTime(110, 10, 5, 13, 6, 36, 95);
+        assertThat(Util.getDateTime(new byte[] {70, 1, 1, 0, 0, 0, 4}, 1), is(-60L * 60 * 1000));
+    }
+
+    @Test
+    public void readsDatesWithNegativeOffsets() {
+        assertDateTime(110, 10, 5, 13, 6, 36, -20);
+        assertDateTime(110, 10, 5, 13, 6, 36, -48);
+        assertDateTime(110, 10, 5, 13, 6, 36, -95);
+        assertThat(Util.getDateTime(new byte[] {70, 1, 1, 0, 0, 0, -4}, 1), is(60L * 60 * 1000));
+    }
+
+    @Test
+    public void readsOutOfRangeOffsetsAsGMT() {
+        for (int offset = 96; offset <= 128; offset++) {
+            assertDateTime(110, 10, 5, 13, 6, 36, offset);
+            assertDateTime(110, 10, 5, 13, 6, 36, -offset);
+        }
+        assertThat(Util.getDateTime(new byte[] {70, 1, 1, 0, 0, 0, 100}, 1), is(0L));
+        assertThat(Util.getDateTime(new byte[] {70, 1, 1, 0, 0, 0, -128}, 1), is(0L));
+    }
+
+    @Test
+    public void readsYearsFrom2028() {
+        assertDateTime(128, 1, 1, 0, 0, 0, 0);
+        assertDateTime(255, 12, 31, 23, 59, 59, -20);
+        assertThat(Util.getDateTime(new byte[] {(byte) 128, 1, 1, 0, 0, 0, 0}, 1), is(1830297600000L));
+        assertThat(Util.getDateTime(new byte[] {(byte) 255, 12, 31, 23, 59, 59, 0}, 1), is(5869583999000L));
+    }
+
+    @Test
+    public void rollsOverOutOfRangeFields() {
+        assertDateTime(110, 13, 5, 13, 6, 36, 0);
+        assertDateTime(110, 0, 0, 0, 0, 0, 8);
+        assertDateTime(110, 2, 30, 24, 60, 60, -8);
+        assertDateTime(100, 2, 29, -1, -1, -1, 0);
+    }
+
+    @Test
+    public void readsAnyRecordAsTheCalendarDid() {
+        Random random = new Random(42);
+        byte[] sector = new byte[16];
+        for (int i = 0; i < 10000; i++) {
+            random.nextBytes(sector);
+            assertThat(Util.getDateTime(sector, 5), is(getCalendarDateTime(sector, 5)));
+        }
+    }
+
+    private static void assertDateTime(int year, int month, int day, int hour, int minute, int second, int offset) {
+        byte[] sector = new byte[] {(byte) 0xff, (byte) year, (byte) month, (byte) day, (byte) hour, (byte) minute,
+                (byte) second, (byte) offset, (byte) 0xff};
+        assertThat(Util.getDateTime(sector, 2), is(getCalendarDateTime(sector, 2)));
+    }
+
+    /**
+     * The implementation replaced by the table of offsets, with the year read as unsigned. TimeZone falls back to GMT
+     * for offsets of a day or more.
+     */
+    private static long getCalendarDateTime(byte[] sector, int pos) {
+        int i = pos - 1;
+        Calendar cal = new GregorianCalendar();
+        cal.clear();
+        cal.set(Calendar.YEAR, 1900 + (sector[i] & 0xff));
+        cal.set(Calendar.MONTH, sector[i + 1] - 1);
+        cal.set(Calendar.DATE, sector[i + 2]);
+        cal.set(Calendar.HOUR_OF_DAY, sector[i + 3]);
+        cal.set(Calendar.MINUTE, sector[i + 4]);
+        cal.set(Calendar.SECOND, sector[i + 5]);
+        cal.set(Calendar.MILLISECOND, 0);
+        byte b = sector[i + 6];
+        int minutes = Math.abs(b) * 15;
+        String id = "GMT" + ((b < 0) ? '-' : '+') + (minutes / 60) + ':'
+                + ((minutes % 60 == 0) ? "00" : String.valueOf(minutes % 60));
+        cal.setTimeZone(TimeZone.getTimeZone(id));
+        return cal.getTimeInMillis();
+    }
+}
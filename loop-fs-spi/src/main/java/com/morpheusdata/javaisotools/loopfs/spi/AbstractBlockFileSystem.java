@@ -33,6 +33,8 @@ public abstract class AbstractBlockFileSystem<T extends FileEntry> extends Abstr
     private final int blockSize;
     private final int reservedBlocks;
     private VolumeDescriptorSet<T> volumeDescriptorSet;
+    private volatile BlockCache blockCache;
+    private final ThreadLocal<byte[]> scratchBlock;
 
     protected AbstractBlockFileSystem(final SeekableInput seekable, final boolean readOnly, final int blockSize,
                                       final int reservedBlocks)
@@ -48,23 +50,34 @@ public abstract class AbstractBlockFileSystem<T extends FileEntry> extends Abstr
 
         this.blockSize = blockSize;
         this.reservedBlocks = reservedBlocks;
+        this.scratchBlock = new ThreadLocal<byte[]>() {
+            protected byte[] initialValue() {
+                return new byte[blockSize];
+            }
+        };
     }
 
     public final Iterator<T> iterator() {
         ensureOpen();
 
-        // load the volume descriptors if necessary
-        if (null == this.volumeDescriptorSet) {
-            try {
-                loadVolumeDescriptors();
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
-            }
+        try {
+            ensureVolumeDescriptors();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
         }
 
         return iterator(this.volumeDescriptorSet.getRootEntry());
     }
 
+    /**
+     * Loads the volume descriptors if necessary.
+     */
+    protected final synchronized void ensureVolumeDescriptors() throws IOException {
+        if (null == this.volumeDescriptorSet) {
+            loadVolumeDescriptors();
+        }
+    }
+
     protected void loadVolumeDescriptors() throws IOException {
         final byte[] buffer = new byte[this.blockSize];
 
@@ -87,7 +100,7 @@ public abstract class AbstractBlockFileSystem<T extends FileEntry> extends Abstr
      *                     size)
      */
     protected final boolean readBlock(final long block, final byte[] buffer) throws IOException {
-        final int bytesRead = readData(block * this.blockSize, buffer, 0, this.blockSize);
+        final int bytesRead = readCachedData(block * this.blockSize, buffer, 0, this.blockSize);
 
         if (bytesRead <= 0) {
             return false;
@@ -105,11 +118,72 @@ public abstract class AbstractBlockFileSystem<T extends FileEntry> extends Abstr
      *
      * @return the number of bytes read into the buffer
      */
-    protected final synchronized int readData(final long startPos, final byte[] buffer, final int offset,
-                                        final int len)
+    protected final int readData(final long startPos, final byte[] buffer, final int offset, final int len)
             throws IOException {
-        seek(startPos);
-        return read(buffer, offset, len);
+        return read(startPos, buffer, offset, len);
+    }
+
+    /**
+     * Read file system metadata, starting at the specified position. Whole blocks are taken from the block cache if
+     * one is set, and blocks read from the file are added to it. File contents should be read with
+     * {@link #readData(long, byte[], int, int)} instead, so they do not evict the metadata.
+     *
+     * @return the number of bytes read into the buffer
+     */
+    protected final int readCachedData(final long startPos, final byte[] buffer, final int offset, final int len)
+            throws IOException {
+        final BlockCache cache = this.blockCache;
+        if (null == cache) {
+            return readData(startPos, buffer, offset, len);
+        }
+
+        int done = 0;
+        while (done < len) {
+            final long pos = startPos + done;
+            final long blockNumber = pos / this.blockSize;
+            final int blockOffset = (int) (pos % this.blockSize);
+            final int count = Math.min(len - done, this.blockSize - blockOffset);
+
+            // whole blocks go straight between the cache and the caller's buffer, parts of them through a scratch block
+            final boolean whole = count == this.blockSize;
+            final byte[] block = whole ? buffer : this.scratchBlock.get();
+            final int blockStart = whole ? offset + done : 0;
+
+            if (!cache.get(blockNumber, block, blockStart)) {
+                final int bytesRead = readData(blockNumber * this.blockSize, block, blockStart, this.blockSize);
+                if (bytesRead < this.blockSize) {
+                    // never cache the partial block at the end of the file
+                    final int available = Math.max(0, Math.min(count, bytesRead - blockOffset));
+                    if (!whole) {
+                        System.arraycopy(block, blockOffset, buffer, offset + done, available);
+                    }
+                    return done + available;
+                }
+                cache.put(blockNumber, block, blockStart);
+            }
+
+            if (!whole) {
+                System.arraycopy(block, blockOffset, buffer, offset + done, count);
+            }
+            done += count;
+        }
+        return done;
+    }
+
+    /**
+     * Sets the cache for blocks read by {@link #readCachedData(long, byte[], int, int)}, or <code>null</code> to read
+     * every block from the file. The cache must not be shared with another file system.
+     */
+    public void setBlockCache(final BlockCache blockCache) {
+        if (null != blockCache && blockCache.getBlockSize() != this.blockSize) {
+            throw new IllegalArgumentException("Block cache uses " + blockCache.getBlockSize()
+                    + " byte blocks, file system uses " + this.blockSize);
+        }
+        this.blockCache = blockCache;
+    }
+
+    public BlockCache getBlockCache() {
+        return this.blockCache;
     }
 
     protected final VolumeDescriptorSet<T> getVolumeDescriptorSet() {
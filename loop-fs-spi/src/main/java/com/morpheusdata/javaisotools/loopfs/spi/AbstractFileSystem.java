@@ -32,7 +32,7 @@ public abstract class AbstractFileSystem<T extends FileEntry> implements FileSys
     /**
      * Channel to the open file.
      */
-    private SeekableInput channel;
+    private volatile SeekableInput channel;
 
     protected AbstractFileSystem(final SeekableInput seekable, final boolean readOnly) throws IOException {
         if (!readOnly) {
@@ -55,7 +55,7 @@ public abstract class AbstractFileSystem<T extends FileEntry> implements FileSys
         }
     }
 
-    public synchronized boolean isClosed() {
+    public boolean isClosed() {
         return (null == this.channel);
     }
 
@@ -88,6 +88,39 @@ public abstract class AbstractFileSystem<T extends FileEntry> implements FileSys
         return readFully(buffer, offset, length);
     }
 
+    /**
+     * Reads up to <code>length</code> bytes into the specified buffer, starting at the absolute position
+     * <code>pos</code> of the underlying file. If the file supports positional reads, no lock is taken and concurrent
+     * calls proceed in parallel; otherwise the file pointer is moved while holding the lock of this file system.
+     *
+     * @return the number of bytes read into the buffer
+     */
+    protected final int read(long pos, byte[] buffer, int offset, int length) throws IOException {
+        final SeekableInput input = this.channel;
+        if (input instanceof PositionalSeekableInput) {
+            return readFully((PositionalSeekableInput) input, pos, buffer, offset, length);
+        }
+
+        synchronized (this) {
+            seek(pos);
+            return read(buffer, offset, length);
+        }
+    }
+
+    private int readFully(PositionalSeekableInput input, long pos, byte[] buffer, int offset, int length)
+            throws IOException {
+        int bytesRead;
+        int remaining = length;
+
+        while (remaining != 0 &&
+                (bytesRead = input.read(pos, buffer, offset, remaining)) != -1) {
+            pos += bytesRead;
+            offset += bytesRead;
+            remaining -= bytesRead;
+        }
+        return length - remaining;
+    }
+
     private int readFully(byte[] buffer, int offset, int length) throws IOException {
         int bytesRead;
         int remaining = length;
@@ -0,0 +1,38 @@
+package com.morpheusdata.javaisotools.loopfs.spi;
+
+/**
+ * A size-bounded cache of file system blocks, keyed by block number. A cache holds the blocks of exactly one file
+ * system and must be safe for use by several threads at once.
+ *
+ * @see AbstractBlockFileSystem#setBlockCache(BlockCache)
+ */
+public interface BlockCache {
+
+    /**
+     * Returns the size of the cached blocks in bytes.
+     */
+    int getBlockSize();
+
+    /**
+     * Copies the cached block into the specified buffer, starting at the specified offset.
+     *
+     * @return if the block was cached
+     */
+    boolean get(long block, byte[] buffer, int offset);
+
+    /**
+     * Adds a block to the cache, evicting another block if the cache is full.
+     */
+    void put(long block, byte[] buffer, int offset);
+
+    /**
+     * Removes all blocks from the cache. The counters are left untouched.
+     */
+    void clear();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+}
@@ -0,0 +1,116 @@
+package com.morpheusdata.javaisotools.loopfs.spi;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A block cache which keeps all blocks in one preallocated buffer and evicts with the CLOCK algorithm, an
+ * approximation of LRU that needs no reordering on a hit. The buffer may be allocated off-heap, so large caches do
+ * not add to the garbage collector's work.
+ */
+public class ClockBlockCache implements BlockCache {
+
+    private final int blockSize;
+    private final ByteBuffer store;
+    private final long[] slotBlocks;
+    private final boolean[] referenced;
+    private final Map<Long, Integer> slots;
+    private int used;
+    private int hand;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ClockBlockCache(int blockSize, int maxBlocks) {
+        this(blockSize, maxBlocks, false);
+    }
+
+    /**
+     * @param direct if the blocks are kept in a direct buffer outside the heap
+     */
+    public ClockBlockCache(int blockSize, int maxBlocks, boolean direct) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("'blockSize' must be > 0");
+        }
+        if (maxBlocks <= 0 || (long) maxBlocks * blockSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("'maxBlocks' must be > 0 and fit into 2 GB");
+        }
+        this.blockSize = blockSize;
+        this.store = direct
+                ? ByteBuffer.allocateDirect(maxBlocks * blockSize)
+                : ByteBuffer.allocate(maxBlocks * blockSize);
+        this.slotBlocks = new long[maxBlocks];
+        this.referenced = new boolean[maxBlocks];
+        this.slots = new HashMap<Long, Integer>(maxBlocks * 4 / 3 + 1);
+    }
+
+    public int getBlockSize() {
+        return this.blockSize;
+    }
+
+    public synchronized boolean get(long block, byte[] buffer, int offset) {
+        Integer slot = this.slots.get(Long.valueOf(block));
+        if (slot == null) {
+            this.misses++;
+            return false;
+        }
+        int index = slot.intValue();
+        this.store.position(index * this.blockSize);
+        this.store.get(buffer, offset, this.blockSize);
+        this.referenced[index] = true;
+        this.hits++;
+        return true;
+    }
+
+    public synchronized void put(long block, byte[] buffer, int offset) {
+        Long key = Long.valueOf(block);
+        Integer slot = this.slots.get(key);
+        int index;
+        if (slot != null) {
+            index = slot.intValue();
+        } else {
+            index = this.used < this.slotBlocks.length ? this.used++ : evict();
+            this.slotBlocks[index] = block;
+            this.slots.put(key, Integer.valueOf(index));
+        }
+        this.store.position(index * this.blockSize);
+        this.store.put(buffer, offset, this.blockSize);
+        this.referenced[index] = true;
+    }
+
+    /**
+     * Advances the clock hand to the first slot not referenced since the last sweep and frees it.
+     */
+    private int evict() {
+        while (this.referenced[this.hand]) {
+            this.referenced[this.hand] = false;
+            this.hand = (this.hand + 1) % this.slotBlocks.length;
+        }
+        int index = this.hand;
+        this.hand = (this.hand + 1) % this.slotBlocks.length;
+        this.slots.remove(Long.valueOf(this.slotBlocks[index]));
+        this.evictions++;
+        return index;
+    }
+
+    public synchronized void clear() {
+        this.slots.clear();
+        Arrays.fill(this.referenced, false);
+        this.used = 0;
+        this.hand = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return this.evictions;
+    }
+}
@@ -0,0 +1,79 @@
+package com.morpheusdata.javaisotools.loopfs.spi;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A block cache on the heap which evicts the least recently used block.
+ */
+public class LruBlockCache implements BlockCache {
+
+    private final int blockSize;
+    private final int maxBlocks;
+    private final LinkedHashMap<Long, byte[]> blocks;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruBlockCache(int blockSize, int maxBlocks) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("'blockSize' must be > 0");
+        }
+        if (maxBlocks <= 0) {
+            throw new IllegalArgumentException("'maxBlocks' must be > 0");
+        }
+        this.blockSize = blockSize;
+        this.maxBlocks = maxBlocks;
+        this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+    }
+
+    public int getBlockSize() {
+        return this.blockSize;
+    }
+
+    public synchronized boolean get(long block, byte[] buffer, int offset) {
+        byte[] data = this.blocks.get(Long.valueOf(block));
+        if (data == null) {
+            this.misses++;
+            return false;
+        }
+        System.arraycopy(data, 0, buffer, offset, this.blockSize);
+        this.hits++;
+        return true;
+    }
+
+    public synchronized void put(long block, byte[] buffer, int offset) {
+        Long key = Long.valueOf(block);
+        byte[] data = this.blocks.get(key);
+        if (data == null) {
+            if (this.blocks.size() >= this.maxBlocks) {
+                // reuse the array of the eldest block
+                Iterator<Map.Entry<Long, byte[]>> it = this.blocks.entrySet().iterator();
+                data = it.next().getValue();
+                it.remove();
+                this.evictions++;
+            } else {
+                data = new byte[this.blockSize];
+            }
+            this.blocks.put(key, data);
+        }
+        System.arraycopy(buffer, offset, data, 0, this.blockSize);
+    }
+
+    public synchronized void clear() {
+        this.blocks.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return this.evictions;
+    }
+}
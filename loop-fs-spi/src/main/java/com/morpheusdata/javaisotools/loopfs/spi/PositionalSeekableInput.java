@@ -0,0 +1,20 @@
+package com.morpheusdata.javaisotools.loopfs.spi;
+
+import java.io.IOException;
+
+/**
+ * A SeekableInput that can also read from an absolute position without moving a shared file pointer. Positional reads
+ * may be issued by several threads at once.
+ */
+public interface PositionalSeekableInput extends SeekableInput {
+
+    /**
+     * Reads up to <code>len</code> bytes starting at the absolute position <code>pos</code>. The position used by
+     * {@link #seek(long)} and {@link #read(byte[], int, int)} is not changed.
+     *
+     * @return the number of bytes read, or -1 if <code>pos</code> is at or beyond the end of the input
+     *
+     * @see java.nio.channels.FileChannel#read(java.nio.ByteBuffer, long)
+     */
+    int read(long pos, byte[] b, int off, int len) throws IOException;
+}
@@ -4,19 +4,34 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 
 /**
- * A Seekable Input File which wraps around a File object
+ * A Seekable Input File which wraps around a File object. Positional reads go through a {@link FileChannel} of their
+ * own and do not move the file pointer, so they may be issued by several threads at once.
+ * <p>
+ * Interrupting a thread in a positional read closes the channel, which all readers share. The interrupted read fails
+ * with a {@link ClosedByInterruptException} and leaves the interrupt status set; every other read, then or later,
+ * opens the file again and carries on. Reads through {@link #seek(long)} and {@link #read(byte[], int, int)} use a
+ * separate file, which an interrupt does not close.
  */
-public class SeekableInputFile implements SeekableInput {
+public class SeekableInputFile implements PositionalSeekableInput {
 
+    private final File file;
     private RandomAccessFile channel;
+    private volatile FileChannel fileChannel;
+    private boolean closed;
 
     public SeekableInputFile(File file) throws IOException {
         if (!file.exists()) {
             throw new FileNotFoundException("File does not exist: " + file);
         }
+        this.file = file;
         this.channel = new RandomAccessFile(file, "r");
+        this.fileChannel = new RandomAccessFile(file, "r").getChannel();
     }
 
     public void seek(long pos) throws IOException {
@@ -27,7 +42,35 @@ public class SeekableInputFile implements SeekableInput {
         return this.channel.read(b, off, len);
     }
 
-    public void close() throws IOException {
-        this.channel.close();
+    public int read(long pos, byte[] b, int off, int len) throws IOException {
+        while (true) {
+            final FileChannel current = this.fileChannel;
+            try {
+                return current.read(ByteBuffer.wrap(b, off, len), pos);
+            } catch (ClosedByInterruptException ex) {
+                throw ex;
+            } catch (ClosedChannelException ex) {
+                // Closed by an interrupt in another thread, or by close()
+                reopen(current);
+            }
+        }
+    }
+
+    private synchronized void reopen(FileChannel stale) throws IOException {
+        if (this.closed) {
+            throw new ClosedChannelException();
+        }
+        if (this.fileChannel == stale) {
+            this.fileChannel = new RandomAccessFile(this.file, "r").getChannel();
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        this.closed = true;
+        try {
+            this.channel.close();
+        } finally {
+            this.fileChannel.close();
+        }
     }
 }
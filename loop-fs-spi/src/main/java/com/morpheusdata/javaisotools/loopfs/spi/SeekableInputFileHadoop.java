@@ -6,9 +6,10 @@ import java.io.IOException;
 import java.io.InputStream;
 
 /**
- * A Seekable Input File to work with Apache Hadoop HDFS
+ * A Seekable Input File to work with Apache Hadoop HDFS. Positional reads use
+ * {@link org.apache.hadoop.fs.PositionedReadable}, which does not move the stream position.
  */
-public class SeekableInputFileHadoop implements SeekableInput {
+public class SeekableInputFileHadoop implements PositionalSeekableInput {
 
     private FSDataInputStream channel;
 
@@ -24,6 +25,10 @@ public class SeekableInputFileHadoop implements SeekableInput {
         return this.channel.read(b, off, len);
     }
 
+    public int read(long pos, byte[] b, int off, int len) throws IOException {
+        return this.channel.read(pos, b, off, len);
+    }
+
     public void close() throws IOException {
         this.channel.close();
     }
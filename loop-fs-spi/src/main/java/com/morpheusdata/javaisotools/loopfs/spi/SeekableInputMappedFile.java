@@ -0,0 +1,109 @@
+package com.morpheusdata.javaisotools.loopfs.spi;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A Seekable Input File which maps the whole file into memory. Images larger than 2 GB are mapped in several chunks.
+ * Reads are served from the page cache without a system call per read. The mapping is released once this object
+ * has been closed and garbage collected.
+ */
+public class SeekableInputMappedFile implements PositionalSeekableInput {
+
+    private static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    private final int chunkShift;
+    private final long chunkMask;
+    private final long length;
+    private volatile MappedByteBuffer[] chunks;
+    private long position;
+
+    public SeekableInputMappedFile(File file) throws IOException {
+        this(file, DEFAULT_CHUNK_SHIFT);
+    }
+
+    SeekableInputMappedFile(File file, int chunkShift) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("File does not exist: " + file);
+        }
+        if (chunkShift <= 0 || chunkShift > DEFAULT_CHUNK_SHIFT) {
+            throw new IllegalArgumentException("'chunkShift' must be > 0 and <= " + DEFAULT_CHUNK_SHIFT);
+        }
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            this.length = channel.size();
+
+            int chunkCount = (int) ((this.length + this.chunkMask) >>> chunkShift);
+            this.chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long start = (long) i << chunkShift;
+                long size = Math.min(this.length - start, 1L << chunkShift);
+                this.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            }
+        } finally {
+            // the mappings stay valid after the channel is closed
+            randomAccessFile.close();
+        }
+    }
+
+    public void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException("Negative seek offset");
+        }
+        this.position = pos;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = read(this.position, b, off, len);
+        if (read > 0) {
+            this.position += read;
+        }
+        return read;
+    }
+
+    public int read(long pos, byte[] b, int off, int len) throws IOException {
+        MappedByteBuffer[] mapped = this.chunks;
+        if (mapped == null) {
+            throw new IOException("File has been closed");
+        }
+        if (pos < 0) {
+            throw new IOException("Negative read offset");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= this.length) {
+            return -1;
+        }
+
+        int total = (int) Math.min(len, this.length - pos);
+        int done = 0;
+        while (done < total) {
+            long current = pos + done;
+            // duplicate, so concurrent readers never share a buffer position
+            ByteBuffer chunk = mapped[(int) (current >>> this.chunkShift)].duplicate();
+            chunk.position((int) (current & this.chunkMask));
+            int count = Math.min(total - done, chunk.remaining());
+            chunk.get(b, off + done, count);
+            done += count;
+        }
+        return total;
+    }
+
+    public long length() {
+        return this.length;
+    }
+
+    public void close() throws IOException {
+        this.chunks = null;
+    }
+}
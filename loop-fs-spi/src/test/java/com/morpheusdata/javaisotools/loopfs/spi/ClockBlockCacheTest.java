@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.spi;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Checks which blocks {@link ClockBlockCache} keeps once it is full.
+ */
+public class ClockBlockCacheTest {
+
+    private static final int BLOCK_SIZE = 4;
+
+    @Test
+    public void keepsReferencedBlocksOnHeap() {
+        keepsReferencedBlocks(new ClockBlockCache(BLOCK_SIZE, 3));
+    }
+
+    @Test
+    public void keepsReferencedBlocksOffHeap() {
+        keepsReferencedBlocks(new ClockBlockCache(BLOCK_SIZE, 3, true));
+    }
+
+    private void keepsReferencedBlocks(ClockBlockCache cache) {
+        put(cache, 1);
+        put(cache, 2);
+        put(cache, 3);
+        assertThat(cache.getEvictionCount(), is(0L));
+
+        // All blocks are referenced, so the sweep clears them all and comes back to the first one
+        put(cache, 4);
+        assertThat(cache.getEvictionCount(), is(1L));
+
+        // Block 2 is referenced again after the sweep and survives the next one, block 3 does not
+        assertHit(cache, 2);
+        put(cache, 5);
+        assertThat(cache.getEvictionCount(), is(2L));
+
+        assertHit(cache, 2);
+        assertMiss(cache, 3);
+        assertHit(cache, 4);
+        assertHit(cache, 5);
+        assertMiss(cache, 1);
+        assertThat(cache.getHitCount(), is(4L));
+        assertThat(cache.getMissCount(), is(2L));
+        assertThat(cache.getEvictionCount(), is(2L));
+    }
+
+    @Test
+    public void replacesBlocksAlreadyCached() {
+        ClockBlockCache cache = new ClockBlockCache(BLOCK_SIZE, 2);
+        put(cache, 1);
+        cache.put(1, new byte[] {9, 9, 9, 9, 7, 7, 7, 7}, 4);
+
+        byte[] buffer = new byte[BLOCK_SIZE + 2];
+        assertThat(cache.get(1, buffer, 2), is(true));
+        assertArrayEquals(new byte[] {0, 0, 7, 7, 7, 7}, buffer);
+        assertThat(cache.getEvictionCount(), is(0L));
+    }
+
+    @Test
+    public void forgetsAllBlocksWhenCleared() {
+        ClockBlockCache cache = new ClockBlockCache(BLOCK_SIZE, 2);
+        put(cache, 1);
+        put(cache, 2);
+        cache.clear();
+
+        assertMiss(cache, 1);
+        assertMiss(cache, 2);
+        // The slots are free again, so nothing is evicted to fill them
+        put(cache, 3);
+        put(cache, 4);
+        assertHit(cache, 3);
+        assertHit(cache, 4);
+        assertThat(cache.getEvictionCount(), is(0L));
+    }
+
+    private static void put(ClockBlockCache cache, long block) {
+        cache.put(block, contents(block), 0);
+    }
+
+    private static void assertHit(ClockBlockCache cache, long block) {
+        byte[] buffer = new byte[BLOCK_SIZE];
+        assertThat(cache.get(block, buffer, 0), is(true));
+        assertArrayEquals(contents(block), buffer);
+    }
+
+    private static void assertMiss(ClockBlockCache cache, long block) {
+        assertThat(cache.get(block, new byte[BLOCK_SIZE], 0), is(false));
+    }
+
+    private static byte[] contents(long block) {
+        byte[] contents = new byte[BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            contents[i] = (byte) (block * 16 + i);
+        }
+        return contents;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.spi;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks that {@link SeekableInputMappedFile} reads across the chunks a file is mapped in as a RandomAccessFile does.
+ */
+public class SeekableInputMappedFileTest {
+
+    // 4 KB chunks, the last one shorter than the others
+    private static final int CHUNK_SHIFT = 12;
+    private static final int LENGTH = 5 * (1 << CHUNK_SHIFT) + 123;
+
+    private File file;
+    private SeekableInputMappedFile input;
+    private RandomAccessFile reference;
+
+    @Before
+    public void createFile() throws IOException {
+        byte[] contents = new byte[LENGTH];
+        new Random(42).nextBytes(contents);
+        this.file = File.createTempFile("mapped", ".bin");
+        this.file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(this.file);
+        try {
+            out.write(contents);
+        } finally {
+            out.close();
+        }
+        this.input = new SeekableInputMappedFile(this.file, CHUNK_SHIFT);
+        this.reference = new RandomAccessFile(this.file, "r");
+    }
+
+    @After
+    public void closeFile() throws IOException {
+        this.input.close();
+        this.reference.close();
+        this.file.delete();
+    }
+
+    @Test
+    public void readsAcrossChunks() throws IOException {
+        assertThat(this.input.length(), is((long) LENGTH));
+
+        int chunkSize = 1 << CHUNK_SHIFT;
+        // Ending at, starting at and spanning chunk boundaries, one spanning several chunks
+        assertRead(chunkSize - 10, 10);
+        assertRead(chunkSize, 10);
+        assertRead(chunkSize - 10, 20);
+        assertRead(chunkSize - 1, 2 * chunkSize + 2);
+        assertRead(0, LENGTH);
+    }
+
+    @Test
+    public void readsTheEndOfTheFile() throws IOException {
+        byte[] buffer = new byte[200];
+        // Only the bytes left are read, none at the end
+        assertThat(this.input.read(LENGTH - 100, buffer, 0, buffer.length), is(100));
+        assertThat(this.input.read(LENGTH, buffer, 0, buffer.length), is(-1));
+        assertRead(LENGTH - 100, 100);
+    }
+
+    @Test
+    public void seeksAcrossChunks() throws IOException {
+        Random random = new Random(42);
+        byte[] expected = new byte[3000];
+        byte[] actual = new byte[3000];
+        for (int i = 0; i < 200; i++) {
+            long pos = random.nextInt(LENGTH);
+            int len = random.nextInt(expected.length) + 1;
+            this.input.seek(pos);
+            this.reference.seek(pos);
+
+            // Two reads in a row, so the second one continues where the first one stopped
+            for (int j = 0; j < 2; j++) {
+                int count = this.reference.read(expected, 0, len);
+                assertThat(this.input.read(actual, 0, len), is(count));
+                if (count > 0) {
+                    assertArrayEquals(Arrays.copyOf(expected, count), Arrays.copyOf(actual, count));
+                }
+            }
+        }
+    }
+
+    private void assertRead(long pos, int len) throws IOException {
+        byte[] expected = new byte[len];
+        this.reference.seek(pos);
+        this.reference.readFully(expected);
+
+        // Leave room in front, so the offset into the buffer is checked as well
+        byte[] actual = new byte[len + 7];
+        assertThat(this.input.read(pos, actual, 7, len), is(len));
+        assertArrayEquals(expected, Arrays.copyOfRange(actual, 7, len + 7));
+
+        this.input.seek(pos);
+        actual = new byte[len];
+        assertThat(this.input.read(actual, 0, len), is(len));
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -41,4 +41,45 @@ public interface Constants {
      * Default character encoding.
      */
     String DEFAULT_ENCODING = "US-ASCII";
+
+    /**
+     * Sectors at which an anchor volume descriptor pointer is looked for.
+     */
+    long[] ANCHOR_SECTORS = {256, 512};
+
+    // descriptor tag identifiers, see ECMA-167 3/7.2.1 and 4/7.2.1
+    int TAG_PRIMARY_VOLUME_DESCRIPTOR = 1;
+    int TAG_ANCHOR_VOLUME_DESCRIPTOR_POINTER = 2;
+    int TAG_VOLUME_DESCRIPTOR_POINTER = 3;
+    int TAG_PARTITION_DESCRIPTOR = 5;
+    int TAG_LOGICAL_VOLUME_DESCRIPTOR = 6;
+    int TAG_TERMINATING_DESCRIPTOR = 8;
+    int TAG_FILE_SET_DESCRIPTOR = 256;
+    int TAG_FILE_IDENTIFIER_DESCRIPTOR = 257;
+    int TAG_ALLOCATION_EXTENT_DESCRIPTOR = 258;
+    int TAG_FILE_ENTRY = 261;
+    int TAG_EXTENDED_FILE_ENTRY = 266;
+
+    // file types of the ICB tag, see ECMA-167 4/14.6.6
+    int FILE_TYPE_DIRECTORY = 4;
+
+    // file characteristics of a file identifier descriptor, see ECMA-167 4/14.4.3
+    int FID_DIRECTORY = 0x02;
+    int FID_DELETED = 0x04;
+    int FID_PARENT = 0x08;
+
+    // allocation descriptor types of the ICB tag flags, see ECMA-167 4/14.6.8
+    int AD_SHORT = 0;
+    int AD_LONG = 1;
+    int AD_EXTENDED = 2;
+    int AD_EMBEDDED = 3;
+
+    // extent types in the two most significant bits of an extent length, see ECMA-167 4/14.14.1.1
+    int EXTENT_RECORDED = 0;
+    int EXTENT_NEXT_ALLOCATION_DESCRIPTORS = 3;
+
+    // partition type identifiers of type 2 partition maps, see UDF 2.60 2.2.8 to 2.2.10
+    String VIRTUAL_PARTITION = "*UDF Virtual Partition";
+    String SPARABLE_PARTITION = "*UDF Sparable Partition";
+    String METADATA_PARTITION = "*UDF Metadata Partition";
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006-2007. loopy project (http://loopy.sourceforge.net).
+ *  
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *  
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.udf;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A breadth-first iterator of the entries in a UDF file system.
+ */
+class EntryIterator implements Iterator<UDFFileEntry> {
+
+    private final UDFFileSystem fileSystem;
+    private final List<UDFFileEntry> queue;
+
+    public EntryIterator(final UDFFileSystem fileSystem, final UDFFileEntry rootEntry) {
+        this.fileSystem = fileSystem;
+        this.queue = new LinkedList<UDFFileEntry>();
+        if (rootEntry != null) {
+            this.queue.add(rootEntry);
+        }
+    }
+
+    public boolean hasNext() {
+        return !this.queue.isEmpty();
+    }
+
+    public UDFFileEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        // pop next entry from the queue
+        final UDFFileEntry entry = this.queue.remove(0);
+
+        // if the entry is a directory, queue all its children
+        if (entry.isDirectory()) {
+            try {
+                this.queue.addAll(this.fileSystem.listDirectory(entry));
+            }
+            catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        return entry;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006-2007. loopy project (http://loopy.sourceforge.net).
+ *  
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *  
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.udf;
+
+/**
+ * A contiguous run of logical blocks holding part of the data of a file, decoded from a short, long or extended
+ * allocation descriptor. See ECMA-167 4/14.14.
+ */
+final class Extent {
+
+    private final long start;
+    private final long length;
+    private final boolean recorded;
+    private final Partition partition;
+    private final long block;
+
+    /**
+     * @param start     the offset of this extent within the file data
+     * @param length    the length of this extent in bytes
+     * @param recorded  if the extent holds data, otherwise it reads as zeros
+     * @param partition the partition holding the extent
+     * @param block     the first logical block of the extent within the partition
+     */
+    Extent(final long start, final long length, final boolean recorded, final Partition partition, final long block) {
+        this.start = start;
+        this.length = length;
+        this.recorded = recorded;
+        this.partition = partition;
+        this.block = block;
+    }
+
+    long getStart() {
+        return this.start;
+    }
+
+    long getLength() {
+        return this.length;
+    }
+
+    boolean isRecorded() {
+        return this.recorded;
+    }
+
+    Partition getPartition() {
+        return this.partition;
+    }
+
+    long getBlock() {
+        return this.block;
+    }
+}
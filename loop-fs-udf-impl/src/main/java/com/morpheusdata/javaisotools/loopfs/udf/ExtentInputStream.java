@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006-2007. loopy project (http://loopy.sourceforge.net).
+ *  
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *  
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.udf;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream that reads the data of a UDFFileEntry across all its extents. Each read is passed straight to the file
+ * system as one positional read per run of consecutive sectors, so large reads stay large and streams of different
+ * entries do not block each other.
+ */
+class ExtentInputStream extends InputStream {
+    // entry within the file system
+    private UDFFileEntry entry;
+
+    // the parent file system
+    private UDFFileSystem fileSystem;
+
+    // current position within entry data
+    private long pos;
+
+    // number of remaining bytes within entry
+    private long rem;
+
+    ExtentInputStream(final UDFFileEntry entry, final UDFFileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+        this.entry = entry;
+        this.pos = 0;
+        this.rem = entry.getSize();
+    }
+
+    public int read(final byte b[], final int off, final int len) throws IOException {
+        ensureOpen();
+
+        if (this.rem <= 0) {
+            return -1;
+        }
+        if (len <= 0) {
+            return 0;
+        }
+
+        int toRead = len;
+
+        if (toRead > this.rem) {
+            // down cast is safe as toRead is int and greater than this.rem
+            toRead = (int) this.rem;
+        }
+
+        if (this.fileSystem.isClosed()) {
+            throw new IOException("UDF file closed.");
+        }
+
+        int read = this.fileSystem.readBytes(this.entry, this.pos, b, off, toRead, false);
+
+        if (read > 0) {
+            this.pos += read;
+            this.rem -= read;
+        } else {
+            // the image is shorter than the entry
+            this.rem = 0;
+        }
+
+        return read;
+    }
+
+    public int read() throws IOException {
+        ensureOpen();
+
+        final byte[] b = new byte[1];
+
+        if (read(b, 0, 1) == 1) {
+            return b[0] & 0xff;
+        } else {
+            return -1;
+        }
+    }
+
+    public long skip(final long n) {
+        ensureOpen();
+
+        final long len = (n > this.rem) ? this.rem : n;
+
+        if (len > 0) {
+            this.pos += len;
+            this.rem -= len;
+        }
+
+        return (len > 0) ? len : 0;
+    }
+
+    public int available() {
+        if (this.rem > Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        } else if (this.rem < 0) {
+            return 0;
+        } else {
+            return (int) this.rem;
+        }
+    }
+
+    public void close() {
+        this.rem = 0;
+        this.entry = null;
+        this.fileSystem = null;
+    }
+
+    private void ensureOpen() {
+        if (null == this.entry) {
+            throw new IllegalStateException("stream has been closed");
+        }
+    }
+}
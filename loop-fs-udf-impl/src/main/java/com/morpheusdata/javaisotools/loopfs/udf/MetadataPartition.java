@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006-2007. loopy project (http://loopy.sourceforge.net).
+ *  
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *  
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.udf;
+
+import java.io.IOException;
+
+import com.morpheusdata.javaisotools.loopfs.api.LoopFileSystemException;
+
+/**
+ * The metadata partition of UDF 2.50 and later. Its logical blocks are the blocks of the metadata file, which is
+ * stored in a physical partition. See UDF 2.60 2.2.10.
+ */
+final class MetadataPartition implements Partition {
+
+    private final UDFFileEntry metadataFile;
+    private final int blockSize;
+
+    MetadataPartition(final UDFFileEntry metadataFile, final int blockSize) {
+        this.metadataFile = metadataFile;
+        this.blockSize = blockSize;
+    }
+
+    public long getSector(final long block) throws IOException {
+        final long offset = block * this.blockSize;
+        final Extent extent = findExtent(offset);
+        final long extentOffset = offset - extent.getStart();
+        return extent.getPartition().getSector(extent.getBlock() + extentOffset / this.blockSize);
+    }
+
+    public long getContiguousBlocks(final long block) throws IOException {
+        final long offset = block * this.blockSize;
+        final Extent extent = findExtent(offset);
+        final long extentOffset = offset - extent.getStart();
+        return (extent.getLength() - extentOffset + this.blockSize - 1) / this.blockSize;
+    }
+
+    private Extent findExtent(final long offset) throws IOException {
+        final Extent extent = this.metadataFile.findExtent(offset);
+        if (null == extent || !extent.isRecorded()) {
+            throw new LoopFileSystemException("Block " + (offset / this.blockSize)
+                    + " is not recorded in the metadata file");
+        }
+        return extent;
+    }
+}
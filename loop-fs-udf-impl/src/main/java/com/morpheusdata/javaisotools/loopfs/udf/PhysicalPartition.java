@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006-2007. loopy project (http://loopy.sourceforge.net).
+ *  
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *  
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.udf;
+
+/**
+ * A partition whose logical blocks are stored in consecutive sectors, as described by a partition descriptor. Type 1
+ * partition maps and sparable partitions refer to these; the sparing tables of the latter are not needed for images.
+ */
+final class PhysicalPartition implements Partition {
+
+    private final int number;
+    private final long start;
+    private final long length;
+
+    PhysicalPartition(final int number, final long start, final long length) {
+        this.number = number;
+        this.start = start;
+        this.length = length;
+    }
+
+    int getNumber() {
+        return this.number;
+    }
+
+    public long getSector(final long block) {
+        return this.start + block;
+    }
+
+    public long getContiguousBlocks(final long block) {
+        // don't stop a read at the end of the partition, the caller knows how much it needs
+        return Math.max(1, this.length - block);
+    }
+}
@@ -19,27 +19,209 @@
 
 package com.morpheusdata.javaisotools.loopfs.udf;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import com.morpheusdata.javaisotools.loopfs.api.FileEntry;
+import com.morpheusdata.javaisotools.loopfs.api.LoopFileSystemException;
 
+/**
+ * Represents a file in a UDF file system, read from its File Entry or Extended File Entry. The data of the file is
+ * described by a list of extents, or embedded in the entry itself.
+ */
 public class UDFFileEntry implements FileEntry {
 
+    /**
+     * Upper limit for chained allocation extent descriptors, to stop on corrupt images.
+     */
+    private static final int MAX_ALLOCATION_EXTENTS = 65536;
+
+    private final String parentPath;
+    private final String name;
+    private final int fileType;
+    private final long size;
+    private final long lastModifiedTime;
+    private final Extent[] extents;
+    private final byte[] embeddedData;
+
+    /**
+     * Initialize this instance by reading the (extended) file entry at the given location.
+     *
+     * @param fileSystem the parent file system
+     * @param parentPath the path of the parent directory
+     * @param name       the name of the file
+     * @param partition  the partition holding the file entry
+     * @param block      the logical block of the file entry within the partition
+     */
+    UDFFileEntry(final UDFFileSystem fileSystem, final String parentPath, final String name,
+                 final Partition partition, final long block) throws IOException {
+        this.parentPath = parentPath;
+        this.name = name;
+
+        final byte[] entry = fileSystem.readSector(partition.getSector(block));
+        final int tag = Util.getTagIdentifier(entry, 0);
+
+        final int adStart;
+        final int adLength;
+        if (tag == Constants.TAG_FILE_ENTRY) {
+            this.size = Util.getUInt64(entry, 56);
+            this.lastModifiedTime = Util.getTimestamp(entry, 84);
+            adStart = 176 + (int) Util.getUInt32(entry, 168);
+            adLength = (int) Util.getUInt32(entry, 172);
+        } else if (tag == Constants.TAG_EXTENDED_FILE_ENTRY) {
+            this.size = Util.getUInt64(entry, 56);
+            this.lastModifiedTime = Util.getTimestamp(entry, 92);
+            adStart = 216 + (int) Util.getUInt32(entry, 208);
+            adLength = (int) Util.getUInt32(entry, 212);
+        } else {
+            throw new LoopFileSystemException("Expected a file entry for '" + name + "' but found tag " + tag);
+        }
+        if (adStart < 0 || adLength < 0 || adStart + adLength > entry.length) {
+            throw new LoopFileSystemException("Invalid allocation descriptors in file entry for '" + name + "'");
+        }
+
+        this.fileType = Util.getUInt8(entry, 27);
+        final int adType = Util.getUInt16(entry, 34) & 0x07;
+
+        if (adType == Constants.AD_EMBEDDED) {
+            this.embeddedData = new byte[(int) Math.min(adLength, this.size)];
+            System.arraycopy(entry, adStart, this.embeddedData, 0, this.embeddedData.length);
+            this.extents = null;
+        } else {
+            this.embeddedData = null;
+            this.extents = readExtents(fileSystem, entry, adStart, adLength, adType, partition);
+        }
+    }
+
+    /**
+     * Decode the allocation descriptors of a file entry, following allocation extent descriptors.
+     */
+    private static Extent[] readExtents(final UDFFileSystem fileSystem, byte[] block, int pos, int length,
+                                        final int adType, final Partition partition) throws IOException {
+        final int adSize;
+        switch (adType) {
+            case Constants.AD_SHORT:
+                adSize = 8;
+                break;
+            case Constants.AD_LONG:
+                adSize = 16;
+                break;
+            case Constants.AD_EXTENDED:
+                adSize = 20;
+                break;
+            default:
+                throw new LoopFileSystemException("Unknown allocation descriptor type " + adType);
+        }
+
+        final List<Extent> extents = new ArrayList<Extent>();
+        long start = 0;
+        int allocationExtents = 0;
+
+        int end = pos + length;
+        while (pos + adSize <= end) {
+            final long lengthAndType = Util.getUInt32(block, pos);
+            final long extentLength = lengthAndType & 0x3FFFFFFF;
+            final int extentType = (int) (lengthAndType >>> 30);
+            if (extentLength == 0) {
+                break;
+            }
+
+            final long extentBlock;
+            final Partition extentPartition;
+            if (adType == Constants.AD_SHORT) {
+                extentBlock = Util.getUInt32(block, pos + 4);
+                extentPartition = partition;
+            } else if (adType == Constants.AD_LONG) {
+                extentBlock = Util.getUInt32(block, pos + 4);
+                extentPartition = fileSystem.getPartition(Util.getUInt16(block, pos + 8));
+            } else {
+                extentBlock = Util.getUInt32(block, pos + 12);
+                extentPartition = fileSystem.getPartition(Util.getUInt16(block, pos + 16));
+            }
+
+            if (extentType == Constants.EXTENT_NEXT_ALLOCATION_DESCRIPTORS) {
+                // continue with the allocation descriptors of an allocation extent descriptor
+                if (++allocationExtents > MAX_ALLOCATION_EXTENTS) {
+                    throw new LoopFileSystemException("Too many allocation extent descriptors");
+                }
+                block = fileSystem.readSector(extentPartition.getSector(extentBlock));
+                Util.checkTag(block, 0, Constants.TAG_ALLOCATION_EXTENT_DESCRIPTOR, "allocation extent descriptor");
+                pos = 24;
+                end = Math.min(block.length, pos + (int) Util.getUInt32(block, 20));
+                continue;
+            }
+
+            extents.add(new Extent(start, extentLength, extentType == Constants.EXTENT_RECORDED,
+                    extentPartition, extentBlock));
+            start += extentLength;
+            pos += adSize;
+        }
+
+        return extents.toArray(new Extent[extents.size()]);
+    }
+
     public String getName() {
-        return null;
+        return this.name;
     }
 
     public String getPath() {
-        return null;
+        if (null == this.parentPath) {
+            return "";
+        }
+
+        StringBuilder buf = new StringBuilder(this.parentPath);
+
+        buf.append(getName());
+
+        if (isDirectory()) {
+            buf.append("/");
+        }
+
+        return buf.toString();
     }
 
     public long getLastModifiedTime() {
-        return 0;
+        return this.lastModifiedTime;
     }
 
     public boolean isDirectory() {
-        return false;
+        return this.fileType == Constants.FILE_TYPE_DIRECTORY;
     }
 
     public long getSize() {
-        return 0;
+        return this.size;
+    }
+
+    /**
+     * Returns the data of the file if it is embedded in the file entry, otherwise <code>null</code>.
+     */
+    byte[] getEmbeddedData() {
+        return this.embeddedData;
+    }
+
+    /**
+     * Returns the extent holding the byte at the given offset of the file data, or <code>null</code> if the offset is
+     * beyond the last extent.
+     */
+    Extent findExtent(final long offset) {
+        if (null == this.extents) {
+            return null;
+        }
+
+        int low = 0;
+        int high = this.extents.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final Extent extent = this.extents[mid];
+            if (offset < extent.getStart()) {
+                high = mid - 1;
+            } else if (offset >= extent.getStart() + extent.getLength()) {
+                low = mid + 1;
+            } else {
+                return extent;
+            }
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -22,8 +22,12 @@ package com.morpheusdata.javaisotools.loopfs.udf;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
+import com.morpheusdata.javaisotools.loopfs.api.LoopFileSystemException;
 import com.morpheusdata.javaisotools.loopfs.spi.AbstractBlockFileSystem;
 import com.morpheusdata.javaisotools.loopfs.spi.SeekableInput;
 import com.morpheusdata.javaisotools.loopfs.spi.SeekableInputFile;
@@ -31,23 +35,170 @@ import com.morpheusdata.javaisotools.loopfs.spi.VolumeDescriptorSet;
 
 public class UDFFileSystem extends AbstractBlockFileSystem<UDFFileEntry> {
 
+    private final int sectorSize;
+
     public UDFFileSystem(File file, boolean readOnly) throws IOException {
         this(new SeekableInputFile(file), readOnly, Constants.DEFAULT_BLOCK_SIZE);
     }
 
     public UDFFileSystem(SeekableInput file, boolean readOnly, int sectorSize) throws IOException {
         super(file, readOnly, sectorSize, Constants.RESERVED_SECTORS);
+        this.sectorSize = sectorSize;
+    }
+
+    public String getVolumeIdentifier() throws IOException {
+        ensureVolumeDescriptors();
+        return ((UDFVolumeDescriptorSet) getVolumeDescriptorSet()).getVolumeIdentifier();
     }
 
     public InputStream getInputStream(UDFFileEntry entry) {
-        return null;
+        ensureOpen();
+        return new ExtentInputStream(entry, this);
+    }
+
+    /**
+     * Returns the entries of the given directory, without the parent and deleted entries.
+     */
+    public List<UDFFileEntry> listDirectory(UDFFileEntry entry) throws IOException {
+        if (!entry.isDirectory()) {
+            throw new IllegalArgumentException("Not a directory: " + entry.getPath());
+        }
+        ensureOpen();
+
+        final byte[] content = getBytes(entry);
+        final String path = entry.getPath();
+        final List<UDFFileEntry> children = new ArrayList<UDFFileEntry>();
+
+        // file identifier descriptors are packed without regard to block boundaries, see ECMA-167 4/14.4
+        int pos = 0;
+        while (pos + 38 <= content.length) {
+            if (Util.getTagIdentifier(content, pos) != Constants.TAG_FILE_IDENTIFIER_DESCRIPTOR) {
+                break;
+            }
+
+            final int characteristics = Util.getUInt8(content, pos + 18);
+            final int nameLength = Util.getUInt8(content, pos + 19);
+            final int implementationUseLength = Util.getUInt16(content, pos + 36);
+            final int nameStart = pos + 38 + implementationUseLength;
+            if (nameStart + nameLength > content.length) {
+                throw new LoopFileSystemException("Truncated file identifier descriptor in " + path);
+            }
+
+            if ((characteristics & (Constants.FID_PARENT | Constants.FID_DELETED)) == 0) {
+                final String name = Util.getOSTAString(content, nameStart, nameLength);
+                final Partition partition = getPartition(Util.getUInt16(content, pos + 28));
+                children.add(new UDFFileEntry(this, path, name, partition, Util.getUInt32(content, pos + 24)));
+            }
+
+            pos += (38 + implementationUseLength + nameLength + 3) & ~3;
+        }
+
+        return children;
+    }
+
+    byte[] getBytes(UDFFileEntry entry) throws IOException {
+        if (entry.getSize() > Integer.MAX_VALUE) {
+            throw new IOException("Entry too large");
+        }
+        int size = (int) entry.getSize();
+
+        byte[] buf = new byte[size];
+
+        int read = readBytes(entry, 0, buf, 0, size, true);
+        if (read < size) {
+            return Arrays.copyOf(buf, Math.max(read, 0));
+        }
+
+        return buf;
+    }
+
+    /**
+     * Read file data, starting at the specified offset within the entry. A single call reads across as many extents
+     * as needed to fill the buffer, issuing one read for each run of consecutive sectors.
+     *
+     * @param cached if the blocks should go through the block cache, which is meant for directories
+     *
+     * @return the number of bytes read, or -1 if the offset is at or beyond the end of the entry
+     */
+    int readBytes(UDFFileEntry entry, long entryOffset, byte[] buffer, int bufferOffset, int len, boolean cached)
+            throws IOException {
+        final long remaining = entry.getSize() - entryOffset;
+        if (remaining <= 0) {
+            return -1;
+        }
+        len = (int) Math.min(len, remaining);
+
+        final byte[] embedded = entry.getEmbeddedData();
+        if (null != embedded) {
+            final int count = (int) Math.max(0, Math.min(len, embedded.length - entryOffset));
+            if (count == 0) {
+                return -1;
+            }
+            System.arraycopy(embedded, (int) entryOffset, buffer, bufferOffset, count);
+            return count;
+        }
+
+        int done = 0;
+        while (done < len) {
+            final long offset = entryOffset + done;
+            final Extent extent = entry.findExtent(offset);
+            if (null == extent) {
+                break;
+            }
+
+            final long extentOffset = offset - extent.getStart();
+            int count = (int) Math.min(len - done, extent.getLength() - extentOffset);
+
+            if (!extent.isRecorded()) {
+                Arrays.fill(buffer, bufferOffset + done, bufferOffset + done + count, (byte) 0);
+            } else {
+                final Partition partition = extent.getPartition();
+                final long block = extent.getBlock() + extentOffset / this.sectorSize;
+                final int blockOffset = (int) (extentOffset % this.sectorSize);
+                final long contiguous = partition.getContiguousBlocks(block) * this.sectorSize - blockOffset;
+                count = (int) Math.min(count, contiguous);
+
+                final long position = partition.getSector(block) * this.sectorSize + blockOffset;
+                final int read = cached
+                        ? readCachedData(position, buffer, bufferOffset + done, count)
+                        : readData(position, buffer, bufferOffset + done, count);
+                if (read < count) {
+                    // the image is truncated
+                    done += Math.max(read, 0);
+                    break;
+                }
+            }
+
+            done += count;
+        }
+
+        return (done == 0) ? -1 : done;
+    }
+
+    /**
+     * Reads a single sector, through the block cache if one is set.
+     */
+    byte[] readSector(long sector) throws IOException {
+        final byte[] buffer = new byte[this.sectorSize];
+        if (!readBlock(sector, buffer)) {
+            throw new LoopFileSystemException("Sector " + sector + " is beyond the end of the file");
+        }
+        return buffer;
+    }
+
+    Partition getPartition(int reference) throws LoopFileSystemException {
+        return ((UDFVolumeDescriptorSet) getVolumeDescriptorSet()).getPartition(reference);
+    }
+
+    int getSectorSize() {
+        return this.sectorSize;
     }
 
     protected Iterator<UDFFileEntry> iterator(UDFFileEntry root) {
-        return null;
+        return new EntryIterator(this, root);
     }
 
     protected VolumeDescriptorSet<UDFFileEntry> createVolumeDescriptorSet() {
         return new UDFVolumeDescriptorSet(this);
     }
-}
\ No newline at end of file
+}
@@ -20,23 +20,239 @@
 package com.morpheusdata.javaisotools.loopfs.udf;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-import com.morpheusdata.javaisotools.loopfs.api.FileEntry;
+import com.morpheusdata.javaisotools.loopfs.api.LoopFileSystemException;
 import com.morpheusdata.javaisotools.loopfs.spi.VolumeDescriptorSet;
 
-public class UDFVolumeDescriptorSet implements VolumeDescriptorSet {
+/**
+ * Reads the volume recognition sequence and, once it is complete, the volume descriptor sequence, the partition maps
+ * and the file set descriptor of a UDF file system.
+ */
+public class UDFVolumeDescriptorSet implements VolumeDescriptorSet<UDFFileEntry> {
+
+    private static final int NONE = -1;
 
     private UDFFileSystem fs;
 
+    private boolean hasBeginning = false;
+    private boolean hasNsr = false;
+
+    private String volumeIdentifier;
+    private String logicalVolumeIdentifier;
+    private long recordingTime;
+    private final List<Partition> partitions = new ArrayList<Partition>();
+    private UDFFileEntry rootEntry;
+
+    // state while reading the volume descriptor sequence
+    private long primaryVdsNumber = NONE;
+    private long logicalVdsNumber = NONE;
+    private final Map<Integer, long[]> partitionDescriptors = new HashMap<Integer, long[]>();
+    private byte[] logicalVolumeDescriptor;
+
     public UDFVolumeDescriptorSet(UDFFileSystem fs) {
         this.fs = fs;
     }
 
     public boolean deserialize(byte[] descriptorBytes) throws IOException {
+        final String identifier = new String(descriptorBytes, 1, 5, "US-ASCII");
+
+        if ("BEA01".equals(identifier)) {
+            this.hasBeginning = true;
+        } else if ("NSR02".equals(identifier) || "NSR03".equals(identifier)) {
+            this.hasNsr = true;
+        } else if ("TEA01".equals(identifier)) {
+            if (!this.hasBeginning || !this.hasNsr) {
+                throw new LoopFileSystemException("No UDF descriptor found in volume recognition sequence");
+            }
+            loadVolume();
+            return true;
+        } else if (!"CD001".equals(identifier) && !"CDW02".equals(identifier) && !"BOOT2".equals(identifier)) {
+            throw new LoopFileSystemException("Unknown volume structure descriptor '" + identifier + "'");
+        }
+
         return false;
     }
 
-    public FileEntry getRootEntry() {
-        return null;
+    private void loadVolume() throws IOException {
+        byte[] anchor = null;
+        for (long sector : Constants.ANCHOR_SECTORS) {
+            final byte[] block = this.fs.readSector(sector);
+            if (Util.getTagIdentifier(block, 0) == Constants.TAG_ANCHOR_VOLUME_DESCRIPTOR_POINTER) {
+                anchor = block;
+                break;
+            }
+        }
+        if (null == anchor) {
+            throw new LoopFileSystemException("No anchor volume descriptor pointer found");
+        }
+
+        // fall back to the reserve sequence if the main one is damaged
+        try {
+            readDescriptorSequence(Util.getUInt32(anchor, 20), Util.getUInt32(anchor, 16));
+        } catch (LoopFileSystemException ex) {
+            readDescriptorSequence(Util.getUInt32(anchor, 28), Util.getUInt32(anchor, 24));
+        }
+        if (null == this.logicalVolumeDescriptor) {
+            throw new LoopFileSystemException("No logical volume descriptor found");
+        }
+
+        final byte[] lvd = this.logicalVolumeDescriptor;
+        final long blockSize = Util.getUInt32(lvd, 212);
+        if (blockSize != this.fs.getSectorSize()) {
+            throw new LoopFileSystemException("Unsupported logical block size: " + blockSize);
+        }
+        this.logicalVolumeIdentifier = Util.getDString(lvd, 84, 128);
+
+        readPartitionMaps(lvd);
+
+        // the file set descriptor is addressed by the long_ad in the logical volume contents use
+        final Partition fsdPartition = getPartition(Util.getUInt16(lvd, 256));
+        final byte[] fsd = this.fs.readSector(fsdPartition.getSector(Util.getUInt32(lvd, 252)));
+        Util.checkTag(fsd, 0, Constants.TAG_FILE_SET_DESCRIPTOR, "file set descriptor");
+
+        final Partition rootPartition = getPartition(Util.getUInt16(fsd, 408));
+        this.rootEntry = new UDFFileEntry(this.fs, null, "", rootPartition, Util.getUInt32(fsd, 404));
+
+        this.partitionDescriptors.clear();
+        this.logicalVolumeDescriptor = null;
+    }
+
+    /**
+     * Read the descriptors of a volume descriptor sequence, following volume descriptor pointers. Of several
+     * descriptors of the same kind, the one with the highest volume descriptor sequence number is used.
+     */
+    private void readDescriptorSequence(long sector, long length) throws IOException {
+        final int sectorSize = this.fs.getSectorSize();
+        int pointers = 0;
+        long end = sector + length / sectorSize;
+
+        while (sector < end) {
+            final byte[] descriptor = this.fs.readSector(sector++);
+            final int tag = Util.getTagIdentifier(descriptor, 0);
+
+            if (tag == Constants.TAG_TERMINATING_DESCRIPTOR) {
+                return;
+            } else if (tag == Constants.TAG_PRIMARY_VOLUME_DESCRIPTOR) {
+                final long number = Util.getUInt32(descriptor, 16);
+                if (number > this.primaryVdsNumber) {
+                    this.primaryVdsNumber = number;
+                    this.volumeIdentifier = Util.getDString(descriptor, 24, 32);
+                    this.recordingTime = Util.getTimestamp(descriptor, 376);
+                }
+            } else if (tag == Constants.TAG_PARTITION_DESCRIPTOR) {
+                final Integer number = Integer.valueOf(Util.getUInt16(descriptor, 22));
+                final long vdsNumber = Util.getUInt32(descriptor, 16);
+                final long[] previous = this.partitionDescriptors.get(number);
+                if (null == previous || vdsNumber > previous[0]) {
+                    this.partitionDescriptors.put(number, new long[]{
+                            vdsNumber, Util.getUInt32(descriptor, 188), Util.getUInt32(descriptor, 192)});
+                }
+            } else if (tag == Constants.TAG_LOGICAL_VOLUME_DESCRIPTOR) {
+                final long number = Util.getUInt32(descriptor, 16);
+                if (number > this.logicalVdsNumber) {
+                    this.logicalVdsNumber = number;
+                    this.logicalVolumeDescriptor = descriptor;
+                }
+            } else if (tag == Constants.TAG_VOLUME_DESCRIPTOR_POINTER) {
+                if (++pointers > 64) {
+                    throw new LoopFileSystemException("Too many volume descriptor pointers");
+                }
+                sector = Util.getUInt32(descriptor, 24);
+                end = sector + Util.getUInt32(descriptor, 20) / sectorSize;
+            } else if (tag <= 0) {
+                // a blank or damaged sector ends the sequence
+                if (null == this.logicalVolumeDescriptor) {
+                    throw new LoopFileSystemException("Damaged volume descriptor sequence at sector " + (sector - 1));
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Resolve the partition maps of the logical volume descriptor. See ECMA-167 3/10.7 and UDF 2.60 2.2.8 to 2.2.10.
+     */
+    private void readPartitionMaps(byte[] lvd) throws IOException {
+        final int count = (int) Util.getUInt32(lvd, 268);
+        final int end = 440 + (int) Math.min(Util.getUInt32(lvd, 264), lvd.length - 440);
+
+        int pos = 440;
+        for (int i = 0; i < count && pos + 2 <= end; i++) {
+            final int type = Util.getUInt8(lvd, pos);
+            final int length = Util.getUInt8(lvd, pos + 1);
+            if (length < 6 || pos + length > end) {
+                throw new LoopFileSystemException("Invalid partition map " + i);
+            }
+
+            if (type == 1) {
+                this.partitions.add(getPhysicalPartition(Util.getUInt16(lvd, pos + 4)));
+            } else if (type == 2 && length >= 64) {
+                final String identifier = new String(lvd, pos + 5, 23, "US-ASCII").trim();
+                final int number = Util.getUInt16(lvd, pos + 38);
+
+                if (identifier.startsWith(Constants.METADATA_PARTITION)) {
+                    this.partitions.add(getMetadataPartition(getPhysicalPartition(number),
+                            Util.getUInt32(lvd, pos + 40), Util.getUInt32(lvd, pos + 44)));
+                } else if (identifier.startsWith(Constants.SPARABLE_PARTITION)) {
+                    // images have no defective packets, so the sparing table can be ignored
+                    this.partitions.add(getPhysicalPartition(number));
+                } else {
+                    throw new LoopFileSystemException("Unsupported partition type '" + identifier + "'");
+                }
+            } else {
+                throw new LoopFileSystemException("Unsupported partition map type " + type);
+            }
+
+            pos += length;
+        }
+    }
+
+    private PhysicalPartition getPhysicalPartition(int number) throws LoopFileSystemException {
+        final long[] descriptor = this.partitionDescriptors.get(Integer.valueOf(number));
+        if (null == descriptor) {
+            throw new LoopFileSystemException("No partition descriptor for partition " + number);
+        }
+        return new PhysicalPartition(number, descriptor[1], descriptor[2]);
+    }
+
+    private MetadataPartition getMetadataPartition(PhysicalPartition partition, long fileBlock, long mirrorBlock)
+            throws IOException {
+        UDFFileEntry metadataFile;
+        try {
+            metadataFile = new UDFFileEntry(this.fs, null, "", partition, fileBlock);
+        } catch (LoopFileSystemException ex) {
+            metadataFile = new UDFFileEntry(this.fs, null, "", partition, mirrorBlock);
+        }
+        return new MetadataPartition(metadataFile, this.fs.getSectorSize());
+    }
+
+    /**
+     * Returns the partition with the given partition reference number, the index of its partition map.
+     */
+    Partition getPartition(int reference) throws LoopFileSystemException {
+        if (reference < 0 || reference >= this.partitions.size()) {
+            throw new LoopFileSystemException("Invalid partition reference number " + reference);
+        }
+        return this.partitions.get(reference);
+    }
+
+    public String getVolumeIdentifier() {
+        return this.volumeIdentifier;
+    }
+
+    public String getLogicalVolumeIdentifier() {
+        return this.logicalVolumeIdentifier;
+    }
+
+    public long getRecordingTime() {
+        return this.recordingTime;
+    }
+
+    public UDFFileEntry getRootEntry() {
+        return this.rootEntry;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006-2007. loopy project (http://loopy.sourceforge.net).
+ *  
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *  
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.udf;
+
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+
+import com.morpheusdata.javaisotools.loopfs.api.LoopFileSystemException;
+import com.morpheusdata.javaisotools.loopfs.util.LittleEndian;
+
+/**
+ * Decoding of the basic UDF types. All positions are zero based byte offsets, as in ECMA-167.
+ */
+final class Util {
+
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+    private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = ((crc & 0x8000) != 0) ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC_TABLE[i] = crc & 0xffff;
+        }
+    }
+
+    static int getUInt8(byte[] block, int pos) {
+        return LittleEndian.getUInt8(block, pos);
+    }
+
+    static int getUInt16(byte[] block, int pos) {
+        return LittleEndian.getUInt16(block, pos);
+    }
+
+    static long getUInt32(byte[] block, int pos) {
+        return LittleEndian.getUInt32(block, pos);
+    }
+
+    static long getUInt64(byte[] block, int pos) {
+        return LittleEndian.getUInt32(block, pos) | (LittleEndian.getUInt32(block, pos + 4) << 32);
+    }
+
+    /**
+     * Returns the identifier of the descriptor tag at the given position, or -1 if the tag checksum or the CRC of the
+     * descriptor does not match, or the descriptor extends beyond the block. See ECMA-167 3/7.2.
+     */
+    static int getTagIdentifier(byte[] block, int pos) {
+        int checksum = 0;
+        for (int i = 0; i < 16; i++) {
+            if (i != 4) {
+                checksum += block[pos + i] & 0xff;
+            }
+        }
+        if ((checksum & 0xff) != (block[pos + 4] & 0xff)) {
+            return -1;
+        }
+
+        // the checksum only covers the tag, a damaged descriptor body is caught by the CRC
+        final int crcLength = getUInt16(block, pos + 10);
+        if (pos + 16 + crcLength > block.length || getCRC(block, pos + 16, crcLength) != getUInt16(block, pos + 8)) {
+            return -1;
+        }
+        return getUInt16(block, pos);
+    }
+
+    /**
+     * Computes the CRC-16 of a descriptor, with the polynomial x^16 + x^12 + x^5 + 1 and an initial value of 0. See
+     * ECMA-167 1/7.2.6.
+     */
+    static int getCRC(byte[] block, int pos, int length) {
+        int crc = 0;
+        for (int i = pos; i < pos + length; i++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >>> 8) ^ block[i]) & 0xff]) & 0xffff;
+        }
+        return crc;
+    }
+
+    /**
+     * Checks that a valid descriptor tag with the given identifier is at the given position.
+     */
+    static void checkTag(byte[] block, int pos, int identifier, String what) throws LoopFileSystemException {
+        final int found = getTagIdentifier(block, pos);
+        if (found != identifier) {
+            throw new LoopFileSystemException("Expected " + what + " (tag " + identifier + ") but found tag " + found);
+        }
+    }
+
+    /**
+     * Decodes an OSTA compressed Unicode string of <code>length</code> bytes, including the compression ID. See UDF
+     * 2.60 2.1.1.
+     */
+    static String getOSTAString(byte[] block, int pos, int length) {
+        if (length <= 1) {
+            return "";
+        }
+        switch (getUInt8(block, pos)) {
+            case 8:
+            case 254:
+                return new String(block, pos + 1, length - 1, LATIN_1);
+            case 16:
+            case 255:
+                return new String(block, pos + 1, (length - 1) & ~1, UTF_16BE);
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Decodes a d-string field of <code>length</code> bytes, whose last byte holds the length of the string. See
+     * ECMA-167 1/7.2.12.
+     */
+    static String getDString(byte[] block, int pos, int length) {
+        final int used = getUInt8(block, pos + length - 1);
+        return getOSTAString(block, pos, Math.min(used, length - 1));
+    }
+
+    /**
+     * Gets a timestamp as milliseconds since the epoch. See ECMA-167 1/7.3.
+     */
+    static long getTimestamp(byte[] block, int pos) {
+        final int typeAndTimezone = getUInt16(block, pos);
+        int offsetMinutes = 0;
+        if ((typeAndTimezone >> 12) == 1) {
+            // sign extend the 12 bit offset, -2047 means no time zone was specified
+            offsetMinutes = (typeAndTimezone << 20) >> 20;
+            if (offsetMinutes == -2047) {
+                offsetMinutes = 0;
+            }
+        }
+
+        final int year = (short) getUInt16(block, pos + 2);
+        // out of range fields roll over into the next larger one, as with a lenient Calendar
+        final long days = LocalDate.of(year, 1, 1)
+                .plusMonths(getUInt8(block, pos + 4) - 1)
+                .plusDays(getUInt8(block, pos + 5) - 1)
+                .toEpochDay();
+        final long seconds = days * 24 * 60 * 60
+                + getUInt8(block, pos + 6) * 60 * 60
+                + getUInt8(block, pos + 7) * 60
+                + getUInt8(block, pos + 8)
+                - offsetMinutes * 60;
+        return seconds * 1000 + getUInt8(block, pos + 9) * 10 + getUInt8(block, pos + 10) / 10;
+    }
+
+    private Util() {
+    }
+}
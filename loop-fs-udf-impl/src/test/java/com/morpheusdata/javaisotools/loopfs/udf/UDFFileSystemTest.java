@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.loopfs.udf;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.morpheusdata.javaisotools.loopfs.spi.BlockCache;
+import com.morpheusdata.javaisotools.loopfs.spi.ClockBlockCache;
+import com.morpheusdata.javaisotools.udflib.UDFImageBuilder;
+import com.morpheusdata.javaisotools.udflib.UDFRevision;
+import com.morpheusdata.javaisotools.udflib.tools.Checksum;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Reads back UDF images written by {@link UDFImageBuilder}, and small hand-built images for the structures it does
+ * not write.
+ */
+public class UDFFileSystemTest {
+
+    private static final int SECTOR = 2048;
+
+    /**
+     * First sector of the physical partition of the hand-built images.
+     */
+    private static final int PARTITION = 272;
+
+    /**
+     * First physical block of the metadata file of the hand-built images.
+     */
+    private static final int METADATA = 8;
+
+    private static File workDir;
+    private static File sourceDir;
+    private static Map<String, byte[]> contents;
+
+    @BeforeClass
+    public static void createSource() throws Exception {
+        workDir = new File(System.getProperty("testWorkDir"));
+        sourceDir = new File(workDir, "udf-source");
+        contents = new HashMap<String, byte[]>();
+
+        Random random = new Random(42);
+        for (int i = 0; i < 150; i++) {
+            // enough entries in one directory for its identifiers to span several blocks
+            String path = (i < 100 ? "wide/" : "deep/a" + (i % 3) + "/b" + (i % 2) + "/") + "file" + i + ".bin";
+            byte[] data = new byte[(i % 7 == 0) ? 100000 : random.nextInt(5000)];
+            random.nextBytes(data);
+
+            File file = new File(sourceDir, path);
+            file.getParentFile().mkdirs();
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            contents.put(path, data);
+        }
+    }
+
+    @Test
+    public void readsRevision102() throws Exception {
+        runCheck(UDFRevision.Revision102);
+    }
+
+    @Test
+    public void readsRevision201() throws Exception {
+        runCheck(UDFRevision.Revision201);
+    }
+
+    @Test
+    public void readsRevision260WithMetadataPartition() throws Exception {
+        runCheck(UDFRevision.Revision260);
+    }
+
+    @Test
+    public void readsThroughTheBlockCache() throws Exception {
+        UDFFileSystem fs = new UDFFileSystem(writeImage(UDFRevision.Revision260), true);
+        BlockCache cache = new ClockBlockCache(Constants.DEFAULT_BLOCK_SIZE, 512);
+        fs.setBlockCache(cache);
+        scan(fs);
+        long misses = cache.getMissCount();
+        scan(fs);
+        assertThat("second scan is served from the cache", cache.getMissCount(), is(misses));
+        assertTrue(cache.getHitCount() > 0);
+        fs.close();
+    }
+
+    @Test
+    public void followsAllocationExtentChains() throws Exception {
+        Fixture fixture = new Fixture(false, "chained.bin");
+        byte[] data = fixture.putData(20, 3 * SECTOR);
+        fixture.putData(25, SECTOR);
+
+        // two blocks at 20, continued at 30 with an unrecorded block and one at 25, continued at 31 with part of 22
+        byte[] ads = new byte[16];
+        putShortAD(ads, 0, 0, 2 * SECTOR, 20);
+        putShortAD(ads, 8, Constants.EXTENT_NEXT_ALLOCATION_DESCRIPTORS, SECTOR, 30);
+        fixture.putFileEntry(fixture.block(3), Constants.TAG_FILE_ENTRY, 5, 4 * SECTOR + 1000, Constants.AD_SHORT, ads);
+
+        ads = new byte[24];
+        putShortAD(ads, 0, 1, SECTOR, 0);
+        putShortAD(ads, 8, 0, SECTOR, 25);
+        putShortAD(ads, 16, Constants.EXTENT_NEXT_ALLOCATION_DESCRIPTORS, SECTOR, 31);
+        fixture.putAllocationExtent(30, ads);
+
+        ads = new byte[8];
+        putShortAD(ads, 0, 0, 1000, 22);
+        fixture.putAllocationExtent(31, ads);
+
+        byte[] expected = new byte[4 * SECTOR + 1000];
+        System.arraycopy(data, 0, expected, 0, 2 * SECTOR);
+        System.arraycopy(fixture.image, fixture.block(25), expected, 3 * SECTOR, SECTOR);
+        System.arraycopy(data, 2 * SECTOR, expected, 4 * SECTOR, 1000);
+        assertArrayEquals(expected, fixture.read("chained.bin"));
+    }
+
+    @Test
+    public void readsExtendedAllocationDescriptors() throws Exception {
+        Fixture fixture = new Fixture(false, "extended.bin");
+        byte[] data = fixture.putData(20, 3 * SECTOR);
+
+        // the second extent starts at the second block of the data, to check that extents are kept apart
+        byte[] ads = new byte[40];
+        putExtendedAD(ads, 0, SECTOR, 20);
+        putExtendedAD(ads, 20, SECTOR + 500, 21);
+        fixture.putFileEntry(fixture.block(3), Constants.TAG_EXTENDED_FILE_ENTRY, 5, 2 * SECTOR + 500,
+                Constants.AD_EXTENDED, ads);
+
+        assertArrayEquals(Arrays.copyOf(data, 2 * SECTOR + 500), fixture.read("extended.bin"));
+    }
+
+    @Test
+    public void readsEmbeddedData() throws Exception {
+        Fixture fixture = new Fixture(false, "embedded.txt");
+        byte[] data = "Data stored in the file entry".getBytes("US-ASCII");
+        fixture.putFileEntry(fixture.block(3), Constants.TAG_FILE_ENTRY, 5, data.length, Constants.AD_EMBEDDED, data);
+
+        assertArrayEquals(data, fixture.read("embedded.txt"));
+    }
+
+    @Test
+    public void fallsBackToTheReserveVolumeDescriptorSequence() throws Exception {
+        Fixture fixture = new Fixture(false, "embedded.txt");
+        byte[] data = "Found through the reserve sequence".getBytes("US-ASCII");
+        fixture.putFileEntry(fixture.block(3), Constants.TAG_FILE_ENTRY, 5, data.length, Constants.AD_EMBEDDED, data);
+
+        // a damaged file set descriptor location in the main logical volume descriptor only shows in its CRC
+        fixture.image[34 * SECTOR + 252] = 47;
+
+        assertArrayEquals(data, fixture.read("embedded.txt"));
+    }
+
+    @Test
+    public void fallsBackToTheMetadataMirrorFile() throws Exception {
+        Fixture fixture = new Fixture(true, "embedded.txt");
+        byte[] data = "Found through the metadata mirror file".getBytes("US-ASCII");
+        fixture.putFileEntry(fixture.block(3), Constants.TAG_FILE_ENTRY, 5, data.length, Constants.AD_EMBEDDED, data);
+
+        // the main metadata file points at unused blocks, which only shows in its CRC
+        fixture.image[(PARTITION + 40) * SECTOR + 180] = 30;
+
+        assertArrayEquals(data, fixture.read("embedded.txt"));
+    }
+
+    private void runCheck(UDFRevision revision) throws Exception {
+        UDFFileSystem fs = new UDFFileSystem(writeImage(revision), true);
+        assertThat(fs.getVolumeIdentifier(), is("UDF Test"));
+        scan(fs);
+        fs.close();
+    }
+
+    private static File writeImage(UDFRevision revision) throws Exception {
+        File image = new File(workDir, revision + ".udf");
+        UDFImageBuilder builder = new UDFImageBuilder();
+        for (File child : sourceDir.listFiles()) {
+            builder.addFileToRootDirectory(child);
+        }
+        builder.setImageIdentifier("UDF Test");
+        builder.writeImage(image.getPath(), revision);
+        return image;
+    }
+
+    private static void scan(UDFFileSystem fs) throws IOException {
+        int files = 0;
+        for (UDFFileEntry entry : fs) {
+            if (!entry.isDirectory()) {
+                assertArrayEquals(entry.getPath(), contents.get(entry.getPath()), readFully(fs.getInputStream(entry)));
+                files++;
+            }
+        }
+        assertThat(files, is(contents.size()));
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static void putShortAD(byte[] block, int pos, int type, int length, int location) {
+        put32(block, pos, length | (type << 30));
+        put32(block, pos + 4, location);
+    }
+
+    private static void putExtendedAD(byte[] block, int pos, int length, int location) {
+        put32(block, pos, length);
+        put32(block, pos + 4, length);
+        put32(block, pos + 8, length);
+        put32(block, pos + 12, location);
+    }
+
+    private static void put16(byte[] block, int pos, int value) {
+        block[pos] = (byte) value;
+        block[pos + 1] = (byte) (value >> 8);
+    }
+
+    private static void put32(byte[] block, int pos, int value) {
+        put16(block, pos, value);
+        put16(block, pos + 2, value >> 16);
+    }
+
+    /**
+     * A UDF image with one physical partition, and optionally a metadata partition on top of it, holding a file set
+     * and a root directory with the given files. The file entry of file i is at block 3 + i of the partition the
+     * root directory is in, and has to be written by the test.
+     */
+    private static final class Fixture {
+
+        final byte[] image = new byte[320 * SECTOR];
+        private final boolean metadata;
+
+        Fixture(boolean metadata, String... names) throws IOException {
+            this.metadata = metadata;
+
+            System.arraycopy("BEA01".getBytes("US-ASCII"), 0, image, 16 * SECTOR + 1, 5);
+            System.arraycopy("NSR02".getBytes("US-ASCII"), 0, image, 17 * SECTOR + 1, 5);
+            System.arraycopy("TEA01".getBytes("US-ASCII"), 0, image, 18 * SECTOR + 1, 5);
+
+            // anchor with a main volume descriptor sequence at 32 and an identical reserve one at 48
+            int anchor = 256 * SECTOR;
+            put32(image, anchor + 16, 4 * SECTOR);
+            put32(image, anchor + 20, 32);
+            put32(image, anchor + 24, 4 * SECTOR);
+            put32(image, anchor + 28, 48);
+            seal(anchor, Constants.TAG_ANCHOR_VOLUME_DESCRIPTOR_POINTER, 512, 256);
+            putVolumeDescriptorSequence(32);
+            putVolumeDescriptorSequence(48);
+
+            int reference = metadata ? 1 : 0;
+            if (metadata) {
+                // main and mirror metadata file, both mapping the metadata partition onto the physical one
+                byte[] ads = new byte[8];
+                putShortAD(ads, 0, 0, 8 * SECTOR, METADATA);
+                putFileEntry((PARTITION + 40) * SECTOR, Constants.TAG_FILE_ENTRY, 250, 8 * SECTOR,
+                        Constants.AD_SHORT, ads);
+                putFileEntry((PARTITION + 41) * SECTOR, Constants.TAG_FILE_ENTRY, 251, 8 * SECTOR,
+                        Constants.AD_SHORT, ads);
+            }
+
+            // file set descriptor pointing at the root directory
+            int fsd = block(0);
+            put32(image, fsd + 404, 1);
+            put16(image, fsd + 408, reference);
+            seal(fsd, Constants.TAG_FILE_SET_DESCRIPTOR, 512, 0);
+
+            // the parent entry followed by the files
+            int pos = block(2);
+            pos += putFileIdentifier(pos, Constants.FID_PARENT | Constants.FID_DIRECTORY, 1, reference, "");
+            for (int i = 0; i < names.length; i++) {
+                pos += putFileIdentifier(pos, 0, 3 + i, reference, names[i]);
+            }
+
+            byte[] ads = new byte[8];
+            putShortAD(ads, 0, 0, pos - block(2), 2);
+            putFileEntry(block(1), Constants.TAG_FILE_ENTRY, Constants.FILE_TYPE_DIRECTORY, pos - block(2),
+                    Constants.AD_SHORT, ads);
+        }
+
+        /**
+         * Returns the offset in the image of a block of the partition the file set is in.
+         */
+        int block(int block) {
+            return (PARTITION + (metadata ? METADATA : 0) + block) * SECTOR;
+        }
+
+        /**
+         * Fills the given blocks of the physical partition with random data and returns it.
+         */
+        byte[] putData(int block, int length) {
+            byte[] data = new byte[length];
+            new Random(block).nextBytes(data);
+            System.arraycopy(data, 0, image, (PARTITION + block) * SECTOR, length);
+            return data;
+        }
+
+        void putFileEntry(int pos, int tag, int fileType, long size, int adType, byte[] ads) {
+            int adStart = (tag == Constants.TAG_EXTENDED_FILE_ENTRY) ? 216 : 176;
+            image[pos + 27] = (byte) fileType;
+            put16(image, pos + 34, adType);
+            put32(image, pos + 56, (int) size);
+            put32(image, pos + adStart - 4, ads.length);
+            System.arraycopy(ads, 0, image, pos + adStart, ads.length);
+            seal(pos, tag, adStart + ads.length, 0);
+        }
+
+        void putAllocationExtent(int block, byte[] ads) {
+            int pos = block(block);
+            put32(image, pos + 20, ads.length);
+            System.arraycopy(ads, 0, image, pos + 24, ads.length);
+            seal(pos, Constants.TAG_ALLOCATION_EXTENT_DESCRIPTOR, 24 + ads.length, block);
+        }
+
+        byte[] read(String name) throws IOException {
+            File file = new File(workDir, "fixture.udf");
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(image);
+            } finally {
+                out.close();
+            }
+
+            UDFFileSystem fs = new UDFFileSystem(file, true);
+            try {
+                for (UDFFileEntry entry : fs) {
+                    if (entry.getPath().equals(name)) {
+                        return readFully(fs.getInputStream(entry));
+                    }
+                }
+                throw new AssertionError("No entry " + name);
+            } finally {
+                fs.close();
+            }
+        }
+
+        private void putVolumeDescriptorSequence(int sector) {
+            int pvd = sector * SECTOR;
+            put32(image, pvd + 16, 1);
+            putDString(pvd + 24, 32, "Fixture");
+            seal(pvd, Constants.TAG_PRIMARY_VOLUME_DESCRIPTOR, 512, sector);
+
+            int pd = (sector + 1) * SECTOR;
+            put32(image, pd + 16, 2);
+            put32(image, pd + 188, PARTITION);
+            put32(image, pd + 192, 48);
+            seal(pd, Constants.TAG_PARTITION_DESCRIPTOR, 512, sector + 1);
+
+            int lvd = (sector + 2) * SECTOR;
+            put32(image, lvd + 16, 3);
+            putDString(lvd + 84, 128, "Fixture");
+            put32(image, lvd + 212, SECTOR);
+            put32(image, lvd + 252, 0);
+            put16(image, lvd + 256, metadata ? 1 : 0);
+            image[lvd + 440] = 1;
+            image[lvd + 441] = 6;
+            int length = 6;
+            if (metadata) {
+                int map = lvd + 446;
+                image[map] = 2;
+                image[map + 1] = 64;
+                putString(map + 5, Constants.METADATA_PARTITION);
+                put32(image, map + 40, 40);
+                put32(image, map + 44, 41);
+                length += 64;
+            }
+            put32(image, lvd + 264, length);
+            put32(image, lvd + 268, metadata ? 2 : 1);
+            seal(lvd, Constants.TAG_LOGICAL_VOLUME_DESCRIPTOR, 440 + length, sector + 2);
+
+            seal((sector + 3) * SECTOR, Constants.TAG_TERMINATING_DESCRIPTOR, 512, sector + 3);
+        }
+
+        private int putFileIdentifier(int pos, int characteristics, int block, int reference, String name) {
+            int nameLength = name.isEmpty() ? 0 : name.length() + 1;
+            image[pos + 18] = (byte) characteristics;
+            image[pos + 19] = (byte) nameLength;
+            put32(image, pos + 20, SECTOR);
+            put32(image, pos + 24, block);
+            put16(image, pos + 28, reference);
+            if (nameLength > 0) {
+                image[pos + 38] = 8;
+                putString(pos + 39, name);
+            }
+            seal(pos, Constants.TAG_FILE_IDENTIFIER_DESCRIPTOR, 38 + nameLength, 2);
+            return (38 + nameLength + 3) & ~3;
+        }
+
+        private void putDString(int pos, int length, String value) {
+            image[pos] = 8;
+            putString(pos + 1, value);
+            image[pos + length - 1] = (byte) (value.length() + 1);
+        }
+
+        private void putString(int pos, String value) {
+            for (int i = 0; i < value.length(); i++) {
+                image[pos + i] = (byte) value.charAt(i);
+            }
+        }
+
+        /**
+         * Fill in the descriptor tag of a descriptor of the given length. See ECMA-167 3/7.2.
+         */
+        private void seal(int pos, int identifier, int length, int location) {
+            put16(image, pos, identifier);
+            put16(image, pos + 2, 2);
+            put16(image, pos + 8, Checksum.cksum(image, pos + 16, length - 16));
+            put16(image, pos + 10, length - 16);
+            put32(image, pos + 12, location);
+
+            int checksum = 0;
+            for (int i = 0; i < 16; i++) {
+                if (i != 4) {
+                    checksum += image[pos + i] & 0xff;
+                }
+            }
+            image[pos + 4] = (byte) checksum;
+        }
+    }
+}
@@ -47,6 +47,24 @@ public class ByteArrayDataReference implements DataReference {
         return this.length;
     }
 
+    /**
+     * Returns the array backing this reference, without copying it
+     *
+     * @return Backing array
+     */
+    public byte[] getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Returns the offset of the referenced bytes in {@link #getBuffer()}
+     *
+     * @return Offset in bytes
+     */
+    public int getStart() {
+        return this.start;
+    }
+
     public InputStream createInputStream() throws IOException {
         return new ByteArrayInputStream(this.buffer, this.start, this.length);
     }
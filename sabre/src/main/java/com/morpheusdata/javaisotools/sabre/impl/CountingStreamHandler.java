@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.sabre.impl;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.Element;
+import com.morpheusdata.javaisotools.sabre.Fixup;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.StreamHandler;
+import com.morpheusdata.javaisotools.sabre.util.FixupJournal;
+
+/**
+ * Stream handler that only counts the bytes it is handed. Data references are never opened, so a document can be laid
+ * out without reading any file contents. If a {@link FixupJournal} is given, all fixups are recorded in it at their
+ * final positions.
+ */
+public class CountingStreamHandler implements StreamHandler {
+
+    private FixupJournal journal = null;
+    private long position = 0;
+    private long fixupCount = 0;
+
+    public CountingStreamHandler() {
+        this(null);
+    }
+
+    public CountingStreamHandler(FixupJournal journal) {
+        this.journal = journal;
+    }
+
+    public void startDocument() throws HandlerException {
+        this.position = 0;
+        this.fixupCount = 0;
+    }
+
+    public void startElement(Element element) throws HandlerException {
+    }
+
+    public void data(DataReference reference) throws HandlerException {
+        this.position += reference.getLength();
+    }
+
+    public Fixup fixup(DataReference reference) throws HandlerException {
+        Fixup fixup = null;
+        if (this.journal != null) {
+            fixup = new JournalFixup(this.journal, this.position, reference.getLength());
+        } else {
+            fixup = new DiscardingFixup(this.position, reference.getLength());
+        }
+        this.fixupCount++;
+        data(reference);
+        return fixup;
+    }
+
+    public long mark() throws HandlerException {
+        return this.position;
+    }
+
+    /**
+     * Returns the number of fixups handed out so far
+     *
+     * @return Number of fixups
+     */
+    public long getFixupCount() {
+        return this.fixupCount;
+    }
+
+    public FixupJournal getJournal() {
+        return this.journal;
+    }
+
+    public void endElement() throws HandlerException {
+    }
+
+    public void endDocument() throws HandlerException {
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.sabre.impl;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.Fixup;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+
+/**
+ * Fixup that ignores its data, for handlers that do not need (or get from elsewhere) the fixed up values.
+ */
+class DiscardingFixup implements Fixup {
+
+    private long position = 0;
+    private long available = 0;
+    private boolean closed = false;
+
+    DiscardingFixup(long position, long available) {
+        this.position = position;
+        this.available = available;
+    }
+
+    public void data(DataReference reference) throws HandlerException {
+        if (!closed) {
+            if (reference.getLength() > available) {
+                throw new HandlerException("Fixup larger than available space.");
+            }
+            position += reference.getLength();
+            available -= reference.getLength();
+        }
+    }
+
+    public Fixup fixup(DataReference reference) throws HandlerException {
+        throw new RuntimeException("Cannot yet handle fixup in fixup.");
+    }
+
+    public long mark() throws HandlerException {
+        return this.position;
+    }
+
+    public void close() throws HandlerException {
+        this.closed = true;
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.sabre.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.Element;
+import com.morpheusdata.javaisotools.sabre.Fixup;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.StreamHandler;
+
+/**
+ * Stream handler writing to a file through a {@link FileChannel}. The contents of {@link FileDataReference}s are
+ * copied with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, so the copy is left
+ * to the operating system. All other data references are copied through a single direct buffer which is reused for
+ * the lifetime of the handler.
+ */
+public class FileChannelStreamHandler implements StreamHandler {
+
+    private static final int BUFFER_LENGTH = 65536;
+
+    private RandomAccessFile randomAccessFile = null;
+    private FileChannel channel = null;
+    private ByteBuffer directBuffer = null;
+    private byte[] buffer = null;
+    private long start = 0;
+    private long position = 0;
+
+    public FileChannelStreamHandler(File file) throws FileNotFoundException {
+        this(file, 0);
+    }
+
+    /**
+     * Stream handler appending to a file. Everything before the start position is kept, positions handed out by
+     * {@link #mark()} are positions in the file.
+     *
+     * @param file  File to write to
+     * @param start Position in the file the document starts at
+     *
+     * @throws FileNotFoundException File cannot be opened for writing
+     */
+    public FileChannelStreamHandler(File file, long start) throws FileNotFoundException {
+        this.start = start;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.channel = this.randomAccessFile.getChannel();
+        this.directBuffer = ByteBuffer.allocateDirect(BUFFER_LENGTH);
+        this.buffer = new byte[BUFFER_LENGTH];
+    }
+
+    public void startDocument() throws HandlerException {
+        try {
+            this.channel.truncate(this.start);
+            this.position = this.start;
+        } catch (IOException e) {
+            throw new HandlerException(e);
+        }
+    }
+
+    public void startElement(Element element) throws HandlerException {
+    }
+
+    public void data(DataReference reference) throws HandlerException {
+        try {
+            // Fixups move the file pointer, so always write from our own position
+            this.channel.position(this.position);
+            if (reference instanceof FileDataReference) {
+                transferFile((FileDataReference) reference);
+            } else {
+                transferStream(reference);
+            }
+        } catch (IOException e) {
+            throw new HandlerException(e);
+        }
+    }
+
+    private void transferFile(FileDataReference reference) throws IOException, HandlerException {
+        long lengthToWrite = reference.getLength();
+        long sourcePosition = reference.getPosition();
+
+        FileInputStream fileInputStream = new FileInputStream(reference.getFile());
+        try {
+            FileChannel source = fileInputStream.getChannel();
+            while (lengthToWrite > 0) {
+                long bytesHandled = source.transferTo(sourcePosition, lengthToWrite, this.channel);
+                if (bytesHandled <= 0) {
+                    throw new HandlerException("Cannot read all data from reference.");
+                }
+
+                sourcePosition += bytesHandled;
+                lengthToWrite -= bytesHandled;
+                this.position += bytesHandled;
+            }
+        } finally {
+            fileInputStream.close();
+        }
+    }
+
+    private void transferStream(DataReference reference) throws IOException, HandlerException {
+        long lengthToWrite = reference.getLength();
+
+        InputStream inputStream = reference.createInputStream();
+        try {
+            while (lengthToWrite > 0) {
+                int bytesToRead = (int) Math.min(lengthToWrite, BUFFER_LENGTH);
+                int bytesHandled = inputStream.read(this.buffer, 0, bytesToRead);
+                if (bytesHandled == -1) {
+                    throw new HandlerException("Cannot read all data from reference.");
+                }
+
+                this.directBuffer.clear();
+                this.directBuffer.put(this.buffer, 0, bytesHandled);
+                this.directBuffer.flip();
+                while (this.directBuffer.hasRemaining()) {
+                    this.channel.write(this.directBuffer);
+                }
+
+                lengthToWrite -= bytesHandled;
+                this.position += bytesHandled;
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    public Fixup fixup(DataReference reference) throws HandlerException {
+        Fixup fixup = null;
+        fixup = new FileFixup(this.randomAccessFile, this.position, reference.getLength());
+        data(reference);
+        return fixup;
+    }
+
+    public long mark() throws HandlerException {
+        return this.position;
+    }
+
+    public void endElement() throws HandlerException {
+    }
+
+    public void endDocument() throws HandlerException {
+        try {
+            this.randomAccessFile.close();
+        } catch (IOException e) {
+            throw new HandlerException(e);
+        }
+    }
+}
@@ -58,6 +58,24 @@ public class FileDataReference implements DataReference {
         return length;
     }
 
+    /**
+     * Returns the file this reference points into
+     *
+     * @return Referenced file
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns the offset of the referenced data within the file
+     *
+     * @return Offset in bytes
+     */
+    public long getPosition() {
+        return this.position;
+    }
+
     public InputStream createInputStream() throws IOException {
         InputStream fileInputStream = null;
 
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.sabre.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.Fixup;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.util.FixupJournal;
+
+/**
+ * Fixup that records its data in a {@link FixupJournal} instead of writing it back into the output.
+ */
+public class JournalFixup implements Fixup {
+
+    private FixupJournal journal = null;
+    private long position = 0;
+    private long available = 0;
+    private boolean closed = false;
+
+    public JournalFixup(FixupJournal journal, long position, long available) {
+        this.journal = journal;
+        this.position = position;
+        this.available = available;
+    }
+
+    public void data(DataReference reference) throws HandlerException {
+        InputStream inputStream = null;
+        int bytesRead = 0;
+
+        // Test if fixup is still open
+        if (!closed) {
+            if (reference.getLength() > available) {
+                throw new HandlerException("Fixup larger than available space.");
+            }
+
+            try {
+                byte[] data = new byte[(int) reference.getLength()];
+                inputStream = reference.createInputStream();
+                while (bytesRead < data.length) {
+                    int bytesHandled = inputStream.read(data, bytesRead, data.length - bytesRead);
+                    if (bytesHandled == -1) {
+                        throw new HandlerException("Cannot read all data from reference.");
+                    }
+                    bytesRead += bytesHandled;
+                }
+                journal.record(position, data);
+
+                // Handle position and available placeholder bytes
+                position += data.length;
+                available -= data.length;
+            } catch (IOException e) {
+                throw new HandlerException(e);
+            } finally {
+                try {
+                    if (inputStream != null) {
+                        inputStream.close();
+                    }
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    public Fixup fixup(DataReference reference) throws HandlerException {
+        throw new RuntimeException("Cannot yet handle fixup in fixup.");
+    }
+
+    public long mark() throws HandlerException {
+        return this.position;
+    }
+
+    public void close() throws HandlerException {
+        this.closed = true;
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    public long getPosition() {
+        return this.position;
+    }
+
+    public long getAvailable() {
+        return this.available;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.sabre.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.Element;
+import com.morpheusdata.javaisotools.sabre.Fixup;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.StreamHandler;
+import com.morpheusdata.javaisotools.sabre.util.FixupJournal;
+
+/**
+ * Stream handler that writes strictly forward to an {@link OutputStream}, so the target does not need to be seekable.
+ * Fixups cannot be written back; instead, the fixed up values have to be known in advance, e.g. from a dry run against
+ * a {@link CountingStreamHandler}, and are spliced into the output from a {@link FixupJournal} before it is written.
+ * The output stream is flushed, but not closed, at the end of the document.
+ */
+public class OutputStreamHandler implements StreamHandler {
+
+    private static final int BUFFER_LENGTH = 65536;
+
+    private OutputStream outputStream = null;
+    private FixupJournal journal = null;
+    private byte[] buffer = null;
+    private int bufferLength = 0;
+    private long bufferStart = 0;
+    private long position = 0;
+
+    public OutputStreamHandler(OutputStream outputStream, FixupJournal journal) {
+        this.outputStream = outputStream;
+        this.journal = journal;
+        this.buffer = new byte[BUFFER_LENGTH];
+    }
+
+    public void startDocument() throws HandlerException {
+    }
+
+    public void startElement(Element element) throws HandlerException {
+    }
+
+    public void data(DataReference reference) throws HandlerException {
+        InputStream inputStream = null;
+        long lengthToWrite = reference.getLength();
+
+        try {
+            inputStream = reference.createInputStream();
+            while (lengthToWrite > 0) {
+                if (bufferLength == buffer.length) {
+                    flushBuffer();
+                }
+
+                int bytesToRead = (int) Math.min(lengthToWrite, buffer.length - bufferLength);
+                int bytesHandled = inputStream.read(buffer, bufferLength, bytesToRead);
+                if (bytesHandled == -1) {
+                    throw new HandlerException("Cannot read all data from reference.");
+                }
+
+                bufferLength += bytesHandled;
+                lengthToWrite -= bytesHandled;
+                position += bytesHandled;
+            }
+        } catch (IOException e) {
+            throw new HandlerException(e);
+        } finally {
+            try {
+                if (inputStream != null) {
+                    inputStream.close();
+                    inputStream = null;
+                }
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        journal.splice(bufferStart, buffer, 0, bufferLength);
+        outputStream.write(buffer, 0, bufferLength);
+        bufferStart += bufferLength;
+        bufferLength = 0;
+    }
+
+    public Fixup fixup(DataReference reference) throws HandlerException {
+        // The placeholder is overwritten from the journal
+        Fixup fixup = new DiscardingFixup(position, reference.getLength());
+        data(reference);
+        return fixup;
+    }
+
+    public long mark() throws HandlerException {
+        return position;
+    }
+
+    public void endElement() throws HandlerException {
+    }
+
+    public void endDocument() throws HandlerException {
+        try {
+            flushBuffer();
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new HandlerException(e);
+        }
+
+        if (!journal.isEmpty()) {
+            throw new HandlerException(journal.size() + " fixups could not be applied, layout differs from dry run.");
+        }
+    }
+}
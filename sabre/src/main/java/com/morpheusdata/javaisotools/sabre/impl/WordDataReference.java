@@ -37,6 +37,15 @@ public class WordDataReference implements DataReference {
         return 4;
     }
 
+    /**
+     * Returns the referenced value; its lowest 32 bits are written
+     *
+     * @return Value
+     */
+    public long getValue() {
+        return this.value;
+    }
+
     public InputStream createInputStream() throws IOException {
         byte[] buffer = null;
 
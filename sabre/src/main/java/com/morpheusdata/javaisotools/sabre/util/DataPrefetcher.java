@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.sabre.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+
+/**
+ * Bounded read-ahead over a sequence of data references. Up to <code>readAhead</code> references are read into memory
+ * on a worker pool while the caller is still busy with the previous ones, but they are handed back strictly in their
+ * original order. The bytes held in memory never exceed the given budget; references larger than the budget are
+ * passed through untouched and read by the caller as usual. Virtual threads are used where the runtime supports them.
+ */
+public class DataPrefetcher {
+
+    private final Iterator<? extends DataReference> references;
+    private final int readAhead;
+    private final long budget;
+    private final LinkedList<Pending> pending;
+    private ExecutorService executor = null;
+    private DataReference lookahead = null;
+    private Pending current = null;
+    private long reserved = 0;
+
+    public DataPrefetcher(Iterator<? extends DataReference> references, int readAhead, long budget) {
+        if (readAhead <= 0) {
+            throw new IllegalArgumentException("'readAhead' must be > 0");
+        }
+        if (budget <= 0) {
+            throw new IllegalArgumentException("'budget' must be > 0");
+        }
+        this.references = references;
+        this.readAhead = readAhead;
+        this.budget = budget;
+        this.pending = new LinkedList<Pending>();
+    }
+
+    public boolean hasNext() {
+        return !pending.isEmpty() || lookahead != null || references.hasNext();
+    }
+
+    /**
+     * Returns the next data reference in order, waiting for it to be read if necessary. The memory held by the
+     * reference returned before is released, so the caller must be done with it.
+     *
+     * @return Next data reference
+     *
+     * @throws HandlerException Problems reading the data
+     */
+    public DataReference next() throws HandlerException {
+        if (current != null) {
+            reserved -= current.reserved;
+            current = null;
+        }
+
+        fill();
+        if (pending.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+
+        current = pending.removeFirst();
+        fill();
+        return current.get();
+    }
+
+    private void fill() {
+        while (pending.size() < readAhead) {
+            if (lookahead == null) {
+                if (!references.hasNext()) {
+                    return;
+                }
+                lookahead = references.next();
+            }
+
+            long length = lookahead.getLength();
+            if (length > budget || length > Integer.MAX_VALUE) {
+                // Too large to be held in memory, the caller reads it itself
+                pending.add(new Pending(lookahead));
+            } else if (reserved + length <= budget) {
+                reserved += length;
+                pending.add(new Pending(submit(lookahead), length));
+            } else {
+                return;
+            }
+            lookahead = null;
+        }
+    }
+
+    private Future<DataReference> submit(final DataReference reference) {
+        if (executor == null) {
+            executor = createExecutor(readAhead);
+        }
+        return executor.submit(new Callable<DataReference>() {
+            public DataReference call() throws IOException {
+                return read(reference);
+            }
+        });
+    }
+
+    private static DataReference read(DataReference reference) throws IOException {
+        byte[] buffer = new byte[(int) reference.getLength()];
+        int bytesRead = 0;
+
+        InputStream inputStream = reference.createInputStream();
+        try {
+            while (bytesRead < buffer.length) {
+                int bytesHandled = inputStream.read(buffer, bytesRead, buffer.length - bytesRead);
+                if (bytesHandled == -1) {
+                    throw new IOException("Cannot read all data from reference.");
+                }
+                bytesRead += bytesHandled;
+            }
+        } finally {
+            inputStream.close();
+        }
+
+        return new ByteArrayDataReference(buffer);
+    }
+
+    /**
+     * Stop reading ahead and drop all data not handed out yet
+     */
+    public void close() {
+        for (Pending p : pending) {
+            if (p.future != null) {
+                p.future.cancel(true);
+            }
+        }
+        pending.clear();
+        current = null;
+        reserved = 0;
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        try {
+            // Java 21+, looked up reflectively to stay compatible with older runtimes
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Exception e) {
+            return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "DataPrefetcher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    private static class Pending {
+
+        final Future<DataReference> future;
+        final DataReference reference;
+        final long reserved;
+
+        Pending(DataReference reference) {
+            this.future = null;
+            this.reference = reference;
+            this.reserved = 0;
+        }
+
+        Pending(Future<DataReference> future, long reserved) {
+            this.future = future;
+            this.reference = null;
+            this.reserved = reserved;
+        }
+
+        DataReference get() throws HandlerException {
+            if (future == null) {
+                return reference;
+            }
+
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HandlerException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw new HandlerException((Exception) cause);
+                }
+                throw (Error) cause;
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Michael Hartle <mhartle@rbg.informatik.tu-darmstadt.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.sabre.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory table of pending fixup data, indexed by the sector the data has to be written to. Stream handlers splice
+ * the patches into their output while it is still buffered and apply whatever is left in a single ascending pass
+ * once the document is complete.
+ */
+public class FixupJournal {
+
+    private final int sectorSize;
+    private final TreeMap<Long, List<Patch>> patches;
+    private int patchCount = 0;
+
+    public FixupJournal(int sectorSize) {
+        if (sectorSize <= 0) {
+            throw new IllegalArgumentException("'sectorSize' must be > 0");
+        }
+        this.sectorSize = sectorSize;
+        this.patches = new TreeMap<Long, List<Patch>>();
+    }
+
+    /**
+     * Record data to be written at an absolute position of the output
+     *
+     * @param position Absolute position in bytes
+     * @param data     Data to be written
+     */
+    public synchronized void record(long position, byte[] data) {
+        Long sector = Long.valueOf(position / sectorSize);
+        List<Patch> list = patches.get(sector);
+        if (list == null) {
+            list = new ArrayList<Patch>(4);
+            patches.put(sector, list);
+        }
+        list.add(new Patch(position, data));
+        patchCount++;
+    }
+
+    /**
+     * Apply all recorded patches starting within the given range of the output to a buffer holding that range and
+     * remove them from the journal. Parts of a patch exceeding the range are kept for later.
+     *
+     * @param start  Absolute position of the first byte in the buffer
+     * @param buffer Buffer holding the output
+     * @param offset Offset of the first byte in the buffer
+     * @param length Number of bytes in the buffer
+     */
+    public synchronized void splice(long start, byte[] buffer, int offset, int length) {
+        if (length <= 0 || patches.isEmpty()) {
+            return;
+        }
+
+        long end = start + length;
+        Long firstSector = Long.valueOf(start / sectorSize);
+        Long lastSector = Long.valueOf((end - 1) / sectorSize);
+        SortedMap<Long, List<Patch>> range = patches.subMap(firstSector, true, lastSector, true);
+
+        List<Patch> remainders = null;
+        Iterator<Map.Entry<Long, List<Patch>>> it = range.entrySet().iterator();
+        while (it.hasNext()) {
+            List<Patch> list = it.next().getValue();
+            Iterator<Patch> pit = list.iterator();
+            while (pit.hasNext()) {
+                Patch patch = pit.next();
+                if (patch.position < start) {
+                    // Targets data that has already left the buffer
+                    continue;
+                }
+
+                int count = (int) Math.min(patch.data.length, end - patch.position);
+                System.arraycopy(patch.data, 0, buffer, offset + (int) (patch.position - start), count);
+                if (count < patch.data.length) {
+                    byte[] rest = new byte[patch.data.length - count];
+                    System.arraycopy(patch.data, count, rest, 0, rest.length);
+                    if (remainders == null) {
+                        remainders = new ArrayList<Patch>();
+                    }
+                    remainders.add(new Patch(end, rest));
+                }
+                pit.remove();
+                patchCount--;
+            }
+            if (list.isEmpty()) {
+                it.remove();
+            }
+        }
+
+        if (remainders != null) {
+            for (Patch patch : remainders) {
+                record(patch.position, patch.data);
+            }
+        }
+    }
+
+    /**
+     * Write all remaining patches to a channel in ascending order. Every affected sector is read, patched and written
+     * back exactly once.
+     *
+     * @param channel Channel holding the complete output
+     *
+     * @throws IOException Problems reading or writing the channel
+     */
+    public synchronized void apply(FileChannel channel) throws IOException {
+        byte[] sector = new byte[sectorSize];
+
+        for (Map.Entry<Long, List<Patch>> entry : patches.entrySet()) {
+            long start = entry.getKey().longValue() * sectorSize;
+            long end = start;
+            for (Patch patch : entry.getValue()) {
+                end = Math.max(end, patch.position + patch.data.length);
+            }
+
+            int length = (int) (end - start);
+            if (sector.length < length) {
+                sector = new byte[length];
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(sector, 0, length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) == -1) {
+                    throw new IOException("Fixup beyond end of output at " + start);
+                }
+            }
+
+            for (Patch patch : entry.getValue()) {
+                System.arraycopy(patch.data, 0, sector, (int) (patch.position - start), patch.data.length);
+            }
+
+            buffer = ByteBuffer.wrap(sector, 0, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, start + buffer.position());
+            }
+        }
+
+        patches.clear();
+        patchCount = 0;
+    }
+
+    /**
+     * Returns the number of patches not yet applied
+     *
+     * @return Number of pending patches
+     */
+    public synchronized int size() {
+        return patchCount;
+    }
+
+    public synchronized boolean isEmpty() {
+        return patchCount == 0;
+    }
+
+    private static class Patch {
+
+        final long position;
+        final byte[] data;
+
+        Patch(long position, byte[] data) {
+            this.position = position;
+            this.data = data;
+        }
+    }
+}
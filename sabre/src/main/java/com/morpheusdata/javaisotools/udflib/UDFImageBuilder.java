@@ -43,6 +43,7 @@ import com.morpheusdata.javaisotools.udflib.structures.Timestamp;
 import com.morpheusdata.javaisotools.udflib.structures.UnallocatedSpaceDescriptor;
 import com.morpheusdata.javaisotools.udflib.structures.VolumeRecognitionSequence;
 import com.morpheusdata.javaisotools.udflib.tools.Permissions;
+import com.morpheusdata.javaisotools.udflib.tools.SectorFile;
 import com.morpheusdata.javaisotools.udflib.tools.UniqueIdDisposer;
 import com.morpheusdata.javaisotools.udflib.structures.EntityID;
 import com.morpheusdata.javaisotools.udflib.structures.PartitionMapType1;
@@ -61,6 +62,7 @@ public class UDFImageBuilder {
     private UDFImageBuilderFile rootUDFImageBuilderFile;
     private UniqueIdDisposer myUniqueIdDisposer;
     private long maximumAllocationLength = 1073739776;
+    private Calendar recordingTime;
 
     public UDFImageBuilder() {
         rootUDFImageBuilderFile = new UDFImageBuilderFile("");
@@ -76,6 +78,19 @@ public class UDFImageBuilder {
         this.imageIdentifier = imageIdentifier;
     }
 
+    /**
+     * Record the image at the given time instead of the time it is written. The root directory gets the same time.
+     *
+     * @param recordingTime Recording time
+     */
+    void setRecordingTime(Calendar recordingTime) {
+        this.recordingTime = recordingTime;
+        rootUDFImageBuilderFile.getAccessTime().setTimeInMillis(recordingTime.getTimeInMillis());
+        rootUDFImageBuilderFile.getAttributeTime().setTimeInMillis(recordingTime.getTimeInMillis());
+        rootUDFImageBuilderFile.getCreationTime().setTimeInMillis(recordingTime.getTimeInMillis());
+        rootUDFImageBuilderFile.getModificationTime().setTimeInMillis(recordingTime.getTimeInMillis());
+    }
+
     public void addFileToRootDirectory(UDFImageBuilderFile myUDFImageBuilderFile)
             throws Exception {
         rootUDFImageBuilderFile.addChild(myUDFImageBuilderFile);
@@ -105,7 +120,7 @@ public class UDFImageBuilder {
         int serialNumberForTags =
                 1;    // all tag serial numbers should be equal to the avdp descriptor tag serial number
         int descriptorVersion = 2;
-        Calendar recordingTimeCalendar = Calendar.getInstance();
+        Calendar recordingTimeCalendar = (recordingTime != null) ? recordingTime : Calendar.getInstance();
         byte udfVersionIdentifierSuffix[] = new byte[]{0x02, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
         int minimumUDFReadRevision = 0x0102;
         int minimumUDFWriteRevision = (udfVersionIdentifierSuffix[1] << 8) | udfVersionIdentifierSuffix[0];
@@ -117,7 +132,7 @@ public class UDFImageBuilder {
             outFile.delete();
         }
 
-        RandomAccessFile myRandomAccessFile = new RandomAccessFile(filename, "rw");
+        RandomAccessFile myRandomAccessFile = openImage(filename);
 
         //	write 32kb reserved area
         ReservedArea.write(myRandomAccessFile);
@@ -257,7 +272,7 @@ public class UDFImageBuilder {
         int serialNumberForTags =
                 1;    // all tag serial numbers should be equal to the avdp descriptor tag serial number
         int descriptorVersion = 3;
-        Calendar recordingTimeCalendar = Calendar.getInstance();
+        Calendar recordingTimeCalendar = (recordingTime != null) ? recordingTime : Calendar.getInstance();
         byte udfVersionIdentifierSuffix[] = new byte[]{0x01, 0x02, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
         int minimumUDFReadRevision = 0x0201;
         int minimumUDFWriteRevision = (udfVersionIdentifierSuffix[1] << 8) | udfVersionIdentifierSuffix[0];
@@ -269,7 +284,7 @@ public class UDFImageBuilder {
             outFile.delete();
         }
 
-        RandomAccessFile myRandomAccessFile = new RandomAccessFile(filename, "rw");
+        RandomAccessFile myRandomAccessFile = openImage(filename);
 
         //	write 32kb reserved area
         ReservedArea.write(myRandomAccessFile);
@@ -409,7 +424,7 @@ public class UDFImageBuilder {
         int serialNumberForTags =
                 1;    // all tag serial numbers should be equal to the avdp descriptor tag serial number
         int descriptorVersion = 3;
-        Calendar recordingTimeCalendar = Calendar.getInstance();
+        Calendar recordingTimeCalendar = (recordingTime != null) ? recordingTime : Calendar.getInstance();
         byte udfVersionIdentifierSuffix[] = new byte[]{0x60, 0x02, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
         int minimumUDFReadRevision = 0x0250;
         int minimumUDFWriteRevision = (udfVersionIdentifierSuffix[1] << 8) | udfVersionIdentifierSuffix[0];
@@ -421,7 +436,7 @@ public class UDFImageBuilder {
             outFile.delete();
         }
 
-        RandomAccessFile myRandomAccessFile = new RandomAccessFile(filename, "rw");
+        RandomAccessFile myRandomAccessFile = openImage(filename);
 
         //	write 32kb reserved area
         ReservedArea.write(myRandomAccessFile);
@@ -1186,8 +1201,27 @@ public class UDFImageBuilder {
         return nextFreeBlocks;
     }
 
+    /**
+     * Open the image file to write to
+     *
+     * @param filename Image file name
+     *
+     * @return Image file, buffering written sectors
+     *
+     * @throws IOException Image file cannot be opened for writing
+     */
+    RandomAccessFile openImage(String filename)
+            throws IOException {
+        return new SectorFile(filename, blockSize);
+    }
+
     private void writeFileData(RandomAccessFile myRandomAccessFile, File sourceFile)
             throws IOException {
+        if (myRandomAccessFile instanceof SectorFile) {
+            ((SectorFile) myRandomAccessFile).transferFrom(sourceFile);
+            return;
+        }
+
         RandomAccessFile sourceRandomAccessFile = new RandomAccessFile(sourceFile, "r");
 
         byte buffer[] = new byte[32768];
@@ -28,6 +28,7 @@ import com.morpheusdata.javaisotools.sabre.Element;
 import com.morpheusdata.javaisotools.sabre.HandlerException;
 import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
 import com.morpheusdata.javaisotools.sabre.impl.ChainingStreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.WordDataReference;
 import com.morpheusdata.javaisotools.udflib.structures.Tag;
 import com.morpheusdata.javaisotools.udflib.tools.BinaryTools;
 import com.morpheusdata.javaisotools.udflib.tools.Checksum;
@@ -64,58 +65,62 @@ public class DescriptorTagHandler extends ChainingStreamHandler {
         super.endElement();
     }
 
+    /**
+     * Pass the descriptor tag and the payload on. Tag fields given as {@link WordDataReference}s and payloads given as
+     * {@link ByteArrayDataReference}s are read straight from the reference, and such a payload is passed on as it is,
+     * without being copied.
+     */
     private void createAndPassDescriptorTag()
             throws HandlerException {
-        InputStream myInputStream = null;
         Tag descriptorTag = new Tag();
-        byte[] payload = new byte[0];
+        DataReference payload = dataReferenceStack.pop();
 
         try {
-            DataReference myDataReference = dataReferenceStack.pop();
-            myInputStream = myDataReference.createInputStream();
-            payload = BinaryTools.readByteArray(myInputStream, (int) myDataReference.getLength());
-            myInputStream.close();
-            myInputStream = null;
-
-            myInputStream = dataReferenceStack.pop().createInputStream();
-            descriptorTag.DescriptorVersion = (int) BinaryTools.readUInt32AsLong(myInputStream);
-            myInputStream.close();
-            myInputStream = null;
-
-            myInputStream = dataReferenceStack.pop().createInputStream();
-            descriptorTag.TagSerialNumber = (int) BinaryTools.readUInt32AsLong(myInputStream);
-            myInputStream.close();
-            myInputStream = null;
-
-            myInputStream = dataReferenceStack.pop().createInputStream();
-            descriptorTag.TagLocation = BinaryTools.readUInt32AsLong(myInputStream);
-            myInputStream.close();
-            myInputStream = null;
-
-            myInputStream = dataReferenceStack.pop().createInputStream();
-            descriptorTag.TagIdentifier = (int) BinaryTools.readUInt32AsLong(myInputStream);
-            myInputStream.close();
-            myInputStream = null;
-
-        }
-        catch (IOException myIOException) {
-            throw new HandlerException(myIOException);
-        }
-        finally {
-            if (myInputStream != null) {
+            descriptorTag.DescriptorVersion = (int) readUInt32(dataReferenceStack.pop());
+            descriptorTag.TagSerialNumber = (int) readUInt32(dataReferenceStack.pop());
+            descriptorTag.TagLocation = readUInt32(dataReferenceStack.pop());
+            descriptorTag.TagIdentifier = (int) readUInt32(dataReferenceStack.pop());
+
+            if (payload instanceof ByteArrayDataReference) {
+                ByteArrayDataReference byteArrayPayload = (ByteArrayDataReference) payload;
+                descriptorTag.DescriptorCRCLength = (int) payload.getLength();
+                descriptorTag.DescriptorCRC = Checksum.cksum(byteArrayPayload.getBuffer(), byteArrayPayload.getStart(),
+                        descriptorTag.DescriptorCRCLength);
+            } else {
+                InputStream myInputStream = payload.createInputStream();
+                byte[] payloadBytes;
                 try {
-                    myInputStream.close();
+                    payloadBytes = BinaryTools.readByteArray(myInputStream, (int) payload.getLength());
                 }
-                catch (IOException myIOException) {
+                finally {
+                    myInputStream.close();
                 }
+                descriptorTag.DescriptorCRCLength = payloadBytes.length;
+                descriptorTag.DescriptorCRC = Checksum.cksum(payloadBytes);
+                payload = new ByteArrayDataReference(payloadBytes);
             }
         }
-
-        descriptorTag.DescriptorCRCLength = payload.length;
-        descriptorTag.DescriptorCRC = Checksum.cksum(payload);
+        catch (IOException myIOException) {
+            throw new HandlerException(myIOException);
+        }
 
         super.data(new ByteArrayDataReference(descriptorTag.getBytes()));
-        super.data(new ByteArrayDataReference(payload));
+        super.data(payload);
+    }
+
+    private static long readUInt32(DataReference myDataReference)
+            throws IOException {
+        if (myDataReference instanceof WordDataReference) {
+            return ((WordDataReference) myDataReference).getValue() & 0xFFFFFFFFL;
+        }
+
+        InputStream myInputStream = myDataReference.createInputStream();
+        try {
+            return BinaryTools.readUInt32AsLong(myInputStream);
+        }
+        finally {
+            myInputStream.close();
+        }
     }
 
     public void data(DataReference myDataReference)
@@ -19,6 +19,14 @@
 
 package com.morpheusdata.javaisotools.udflib.tools;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * CRC-16 CCITT (polynomial 0x1021, initial value 0) of UDF descriptor tags, see ECMA-167 7.2.6. Eight bytes are
+ * processed per step with a slicing-by-8 table: the table of slice k holds the CRC of a byte followed by k zero bytes,
+ * so the CRCs of the eight bytes of a step can be looked up independently and combined by XOR.
+ */
 public class Checksum {
 
     private static int crc_table[] =
@@ -57,14 +65,117 @@ public class Checksum {
                     0x6E17, 0x7E36, 0x4E55, 0x5E74, 0x2E93, 0x3EB2, 0x0ED1, 0x1EF0
             };
 
+    private static final int[] slices = new int[8 * 256];
+
+    static {
+        System.arraycopy(crc_table, 0, slices, 0, 256);
+        for (int k = 1; k < 8; k++) {
+            for (int n = 0; n < 256; n++) {
+                int crc = slices[(k - 1) * 256 + n];
+                slices[k * 256 + n] = (crc_table[crc >>> 8] ^ (crc << 8)) & 0xffff;
+            }
+        }
+    }
+
     public static int cksum(byte[] s) {
-        int crc = 0;
+        return update(0, s, 0, s.length);
+    }
+
+    /**
+     * CRC of a slice of an array
+     *
+     * @param s      Array
+     * @param offset Offset of the slice
+     * @param length Length of the slice
+     *
+     * @return CRC
+     */
+    public static int cksum(byte[] s, int offset, int length) {
+        return update(0, s, offset, length);
+    }
 
-        for (int n = 0; n < s.length; ++n) {
-            crc = crc_table[(crc >> 8 ^ s[n]) & 0xff] ^ (crc << 8);
+    /**
+     * CRC of the remaining bytes of a buffer. The position of the buffer is not changed.
+     *
+     * @param buffer Buffer
+     *
+     * @return CRC
+     */
+    public static int cksum(ByteBuffer buffer) {
+        return update(0, buffer);
+    }
+
+    /**
+     * Continue a CRC with a slice of an array
+     *
+     * @param crc    CRC of the preceding bytes, 0 to start
+     * @param s      Array
+     * @param offset Offset of the slice
+     * @param length Length of the slice
+     *
+     * @return CRC of the preceding bytes and the slice
+     */
+    public static int update(int crc, byte[] s, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > s.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + s.length);
+        }
+
+        int n = offset;
+        int end = offset + length;
+
+        for (; n <= end - 8; n += 8) {
+            crc = slices[7 * 256 + ((crc >>> 8 ^ s[n]) & 0xff)]
+                    ^ slices[6 * 256 + ((crc ^ s[n + 1]) & 0xff)]
+                    ^ slices[5 * 256 + (s[n + 2] & 0xff)]
+                    ^ slices[4 * 256 + (s[n + 3] & 0xff)]
+                    ^ slices[3 * 256 + (s[n + 4] & 0xff)]
+                    ^ slices[2 * 256 + (s[n + 5] & 0xff)]
+                    ^ slices[256 + (s[n + 6] & 0xff)]
+                    ^ slices[s[n + 7] & 0xff];
+        }
+        for (; n < end; ++n) {
+            crc = (crc_table[(crc >> 8 ^ s[n]) & 0xff] ^ (crc << 8)) & 0xffff;
+        }
+
+        return crc;
+    }
+
+    /**
+     * Continue a CRC with the remaining bytes of a buffer. The position of the buffer is not changed.
+     *
+     * @param crc    CRC of the preceding bytes, 0 to start
+     * @param buffer Buffer
+     *
+     * @return CRC of the preceding bytes and the buffer
+     */
+    public static int update(int crc, ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return update(crc, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+
+        boolean reverse = buffer.order() != ByteOrder.BIG_ENDIAN;
+        int n = buffer.position();
+        int end = buffer.limit();
+
+        for (; n <= end - 8; n += 8) {
+            long word = buffer.getLong(n);
+            if (reverse) {
+                word = Long.reverseBytes(word);
+            }
+            crc = slices[7 * 256 + ((crc >>> 8 ^ (int) (word >>> 56)) & 0xff)]
+                    ^ slices[6 * 256 + ((crc ^ (int) (word >>> 48)) & 0xff)]
+                    ^ slices[5 * 256 + ((int) (word >>> 40) & 0xff)]
+                    ^ slices[4 * 256 + ((int) (word >>> 32) & 0xff)]
+                    ^ slices[3 * 256 + ((int) (word >>> 24) & 0xff)]
+                    ^ slices[2 * 256 + ((int) (word >>> 16) & 0xff)]
+                    ^ slices[256 + ((int) (word >>> 8) & 0xff)]
+                    ^ slices[(int) word & 0xff];
+        }
+        for (; n < end; ++n) {
+            crc = (crc_table[(crc >> 8 ^ buffer.get(n)) & 0xff] ^ (crc << 8)) & 0xffff;
         }
 
-        return (crc & 0xffff);
+        return crc;
     }
 
 /*	public static void main( String argv[] )
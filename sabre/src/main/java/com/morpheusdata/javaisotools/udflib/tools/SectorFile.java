@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ * Copyright (c) 2006. Björn Stickler <bjoern@stickler.de>.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.udflib.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Random access file for writing images sector by sector. Seeking only moves a position kept here, and written bytes
+ * are collected per sector instead of being written right away. The pending sectors are written in the order of their
+ * location, with runs of consecutive sectors combined in one direct buffer and written with a single positional
+ * write, once there are too many of them, before reading and when the file is closed. Only the bytes written to a
+ * sector are written back, so its other bytes are kept as they are in the file.
+ * <p/>
+ * The contents of other files are copied with {@link #transferFrom(File)}, which leaves the copy to the operating
+ * system. The channel of this file must not be used directly.
+ */
+public class SectorFile extends RandomAccessFile {
+
+    private static final int DEFAULT_PENDING_SECTORS = 8192;
+    private static final int COMBINED_SECTORS = 512;
+
+    private final int sectorSize;
+    private final int maximumPendingSectors;
+    private final TreeMap<Long, Sector> pendingSectors;
+    private final ByteBuffer combineBuffer;
+    private final FileChannel channel;
+    private final byte[] singleByte;
+    private long position;
+
+    public SectorFile(String name, int sectorSize)
+            throws FileNotFoundException {
+        this(new File(name), sectorSize, DEFAULT_PENDING_SECTORS);
+    }
+
+    /**
+     * Open a file for writing sector by sector
+     *
+     * @param file                  File to write to
+     * @param sectorSize            Size of a sector in bytes
+     * @param maximumPendingSectors Number of sectors to collect before they are written
+     *
+     * @throws FileNotFoundException File cannot be opened for writing
+     */
+    public SectorFile(File file, int sectorSize, int maximumPendingSectors)
+            throws FileNotFoundException {
+        super(file, "rw");
+
+        if (sectorSize <= 0 || maximumPendingSectors <= 0) {
+            throw new IllegalArgumentException("sector size and number of pending sectors must be positive");
+        }
+
+        this.sectorSize = sectorSize;
+        this.maximumPendingSectors = maximumPendingSectors;
+        this.pendingSectors = new TreeMap<Long, Sector>();
+        this.combineBuffer = ByteBuffer.allocateDirect(sectorSize * COMBINED_SECTORS);
+        this.channel = super.getChannel();
+        this.singleByte = new byte[1];
+    }
+
+    public long getFilePointer() {
+        return position;
+    }
+
+    public void seek(long pos)
+            throws IOException {
+        if (pos < 0) {
+            throw new IOException("Negative seek offset");
+        }
+
+        position = pos;
+    }
+
+    public long length()
+            throws IOException {
+        flush();
+        return super.length();
+    }
+
+    public void setLength(long newLength)
+            throws IOException {
+        flush();
+        super.setLength(newLength);
+
+        if (position > newLength) {
+            position = newLength;
+        }
+    }
+
+    public void write(int b)
+            throws IOException {
+        singleByte[0] = (byte) b;
+        write(singleByte, 0, 1);
+    }
+
+    public void write(byte[] b)
+            throws IOException {
+        write(b, 0, b.length);
+    }
+
+    public void write(byte[] b, int off, int len)
+            throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        while (len > 0) {
+            long sectorNumber = position / sectorSize;
+            int sectorOffset = (int) (position % sectorSize);
+            int bytesToWrite = Math.min(len, sectorSize - sectorOffset);
+
+            Sector sector = pendingSectors.get(sectorNumber);
+            if (sector == null) {
+                sector = new Sector(sectorSize);
+                pendingSectors.put(sectorNumber, sector);
+            }
+            sector.put(sectorNumber, sectorOffset, b, off, bytesToWrite);
+
+            position += bytesToWrite;
+            off += bytesToWrite;
+            len -= bytesToWrite;
+        }
+
+        if (pendingSectors.size() >= maximumPendingSectors) {
+            flush();
+        }
+    }
+
+    /**
+     * Copy the contents of a file to the current position, which is advanced by the number of bytes copied
+     *
+     * @param sourceFile File to copy
+     *
+     * @return Number of bytes copied
+     *
+     * @throws IOException Problems reading the file or writing this one
+     */
+    public long transferFrom(File sourceFile)
+            throws IOException {
+        FileInputStream sourceInputStream = new FileInputStream(sourceFile);
+        try {
+            FileChannel source = sourceInputStream.getChannel();
+            long length = source.size();
+
+            // pending sectors would overwrite the copy when written
+            if (length > 0 && !pendingSectors.subMap(position / sectorSize, true,
+                    (position + length - 1) / sectorSize, true).isEmpty()) {
+                flush();
+            }
+
+            long bytesTransferred = 0;
+            while (bytesTransferred < length) {
+                channel.position(position);
+                long bytesHandled = source.transferTo(bytesTransferred, length - bytesTransferred, channel);
+                if (bytesHandled <= 0) {
+                    // the file has become shorter
+                    break;
+                }
+
+                bytesTransferred += bytesHandled;
+                position += bytesHandled;
+            }
+
+            return bytesTransferred;
+        }
+        finally {
+            sourceInputStream.close();
+        }
+    }
+
+    public int read()
+            throws IOException {
+        return (read(singleByte, 0, 1) == 1) ? singleByte[0] & 0xFF : -1;
+    }
+
+    public int read(byte[] b)
+            throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    public int read(byte[] b, int off, int len)
+            throws IOException {
+        flush();
+        super.seek(position);
+
+        int bytesRead = super.read(b, off, len);
+        if (bytesRead > 0) {
+            position += bytesRead;
+        }
+
+        return bytesRead;
+    }
+
+    /**
+     * Write all pending sectors to the file
+     *
+     * @throws IOException Problems writing the file
+     */
+    public void flush()
+            throws IOException {
+        long runPosition = 0;
+
+        for (Map.Entry<Long, Sector> entry : pendingSectors.entrySet()) {
+            Sector sector = entry.getValue();
+            long sectorPosition = entry.getKey() * sectorSize + sector.start;
+            int sectorLength = sector.end - sector.start;
+
+            if (combineBuffer.position() > 0 && (sectorPosition != runPosition + combineBuffer.position()
+                    || sectorLength > combineBuffer.remaining())) {
+                writeCombined(runPosition);
+            }
+            if (combineBuffer.position() == 0) {
+                runPosition = sectorPosition;
+            }
+
+            combineBuffer.put(sector.data, sector.start, sectorLength);
+        }
+
+        if (combineBuffer.position() > 0) {
+            writeCombined(runPosition);
+        }
+
+        pendingSectors.clear();
+    }
+
+    private void writeCombined(long runPosition)
+            throws IOException {
+        combineBuffer.flip();
+        while (combineBuffer.hasRemaining()) {
+            channel.write(combineBuffer, runPosition + combineBuffer.position());
+        }
+        combineBuffer.clear();
+    }
+
+    public void close()
+            throws IOException {
+        try {
+            if (channel.isOpen()) {
+                flush();
+            }
+        }
+        finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Bytes written to a sector. Only the range from start to end has been written.
+     */
+    private final class Sector {
+
+        private final byte[] data;
+        private int start;
+        private int end;
+
+        Sector(int sectorSize) {
+            data = new byte[sectorSize];
+        }
+
+        void put(long sectorNumber, int offset, byte[] b, int off, int len)
+                throws IOException {
+            if (start == end) {
+                start = offset;
+                end = offset;
+            }
+
+            // keep the range contiguous, filling gaps with what the file holds there
+            if (offset > end) {
+                readFromFile(sectorNumber, end, offset - end);
+            } else if (offset + len < start) {
+                readFromFile(sectorNumber, offset + len, start - offset - len);
+            }
+
+            System.arraycopy(b, off, data, offset, len);
+            start = Math.min(start, offset);
+            end = Math.max(end, offset + len);
+        }
+
+        private void readFromFile(long sectorNumber, int offset, int len)
+                throws IOException {
+            ByteBuffer target = ByteBuffer.wrap(data, offset, len);
+            long filePosition = sectorNumber * sectorSize + offset;
+
+            while (target.hasRemaining()) {
+                // beyond the end of the file the gap is left zeroed
+                if (channel.read(target, filePosition + target.position() - offset) < 0) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.sabre.util;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+
+/**
+ * Checks that {@link DataPrefetcher} hands back the contents of all references in their original order.
+ */
+public class DataPrefetcherTest {
+
+    private Random random = new Random(42);
+
+    @Test
+    public void keepsTheOrderOfTheReferences() throws Exception {
+        List<DataReference> references = createReferences(100, 1000);
+
+        DataPrefetcher prefetcher = new DataPrefetcher(references.iterator(), 4, 4000);
+        try {
+            for (DataReference reference : references) {
+                assertThat(prefetcher.hasNext(), is(true));
+                DataReference next = prefetcher.next();
+                // Read into memory, so no longer the reference passed in
+                assertThat(next, not(sameInstance(reference)));
+                assertArrayEquals(read(reference), read(next));
+            }
+            assertThat(prefetcher.hasNext(), is(false));
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    @Test
+    public void passesReferencesLargerThanTheBudgetThrough() throws Exception {
+        List<DataReference> references = createReferences(20, 2000);
+
+        // Less than one reference fits, so all of those above the budget are left to the caller
+        DataPrefetcher prefetcher = new DataPrefetcher(references.iterator(), 4, 500);
+        try {
+            for (DataReference reference : references) {
+                DataReference next = prefetcher.next();
+                if (reference.getLength() > 500) {
+                    assertThat(next, sameInstance(reference));
+                }
+                assertArrayEquals(read(reference), read(next));
+            }
+            assertThat(prefetcher.hasNext(), is(false));
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    @Test
+    public void reportsAFailedReadWhenTheReferenceIsReached() throws Exception {
+        List<DataReference> references = createReferences(5, 100);
+        final IOException failure = new IOException("Cannot read");
+        references.add(2, new ByteArrayDataReference(new byte[10]) {
+            public InputStream createInputStream() throws IOException {
+                throw failure;
+            }
+        });
+
+        DataPrefetcher prefetcher = new DataPrefetcher(references.iterator(), 4, 4000);
+        try {
+            // References ahead of the failing one are still handed out
+            assertArrayEquals(read(references.get(0)), read(prefetcher.next()));
+            assertArrayEquals(read(references.get(1)), read(prefetcher.next()));
+            try {
+                prefetcher.next();
+                fail("Failed read not reported");
+            } catch (HandlerException e) {
+                assertThat(e.getCause(), instanceOf(IOException.class));
+                assertThat(e.getCause(), sameInstance((Throwable) failure));
+            }
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    private List<DataReference> createReferences(int count, int maxLength) {
+        List<DataReference> references = new ArrayList<DataReference>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] contents = new byte[random.nextInt(maxLength + 1)];
+            random.nextBytes(contents);
+            references.add(new ByteArrayDataReference(contents));
+        }
+        return references;
+    }
+
+    private static byte[] read(DataReference reference) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = reference.createInputStream();
+        try {
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+}
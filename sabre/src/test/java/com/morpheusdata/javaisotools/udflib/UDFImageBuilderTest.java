@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.udflib;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that images written through {@link com.morpheusdata.javaisotools.udflib.tools.SectorFile} are the same as
+ * images written straight to a {@link RandomAccessFile}.
+ */
+public class UDFImageBuilderTest {
+
+    private static File workDir;
+    private static File sourceDir;
+
+    @BeforeClass
+    public static void createSource() throws Exception {
+        workDir = new File(System.getProperty("testWorkDir"));
+        sourceDir = new File(workDir, "udf-builder-source");
+
+        Random random = new Random(42);
+        for (int i = 0; i < 60; i++) {
+            String path = (i < 40 ? "wide/" : "deep/a" + (i % 3) + "/b" + (i % 2) + "/") + "file" + i + ".bin";
+            byte[] data = new byte[(i % 7 == 0) ? 100000 : random.nextInt(5000)];
+            random.nextBytes(data);
+
+            File file = new File(sourceDir, path);
+            file.getParentFile().mkdirs();
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(data);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    @Test
+    public void writesRevision102AsRandomAccessFileWould() throws Exception {
+        runCheck(UDFRevision.Revision102);
+    }
+
+    @Test
+    public void writesRevision201AsRandomAccessFileWould() throws Exception {
+        runCheck(UDFRevision.Revision201);
+    }
+
+    @Test
+    public void writesRevision260AsRandomAccessFileWould() throws Exception {
+        runCheck(UDFRevision.Revision260);
+    }
+
+    private void runCheck(UDFRevision revision) throws Exception {
+        // Share the files, so both images get the same timestamps
+        List<UDFImageBuilderFile> children = new ArrayList<UDFImageBuilderFile>();
+        for (File child : sourceDir.listFiles()) {
+            children.add(new UDFImageBuilderFile(child));
+        }
+        Calendar recordingTime = Calendar.getInstance();
+        recordingTime.setTimeInMillis(1121040000000L);
+
+        File sectorImage = new File(workDir, revision + "-sector.udf");
+        UDFImageBuilder builder = new UDFImageBuilder();
+        for (UDFImageBuilderFile child : children) {
+            builder.addFileToRootDirectory(child);
+        }
+        builder.setRecordingTime(recordingTime);
+        builder.writeImage(sectorImage.getPath(), revision);
+
+        File plainImage = new File(workDir, revision + "-plain.udf");
+        builder = new UDFImageBuilder() {
+            RandomAccessFile openImage(String filename) throws IOException {
+                return new RandomAccessFile(filename, "rw");
+            }
+        };
+        for (UDFImageBuilderFile child : children) {
+            builder.addFileToRootDirectory(child);
+        }
+        builder.setRecordingTime(recordingTime);
+        builder.writeImage(plainImage.getPath(), revision);
+
+        assertArrayEquals(readFile(plainImage), readFile(sectorImage));
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] contents = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < contents.length) {
+                offset += in.read(contents, offset, contents.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return contents;
+    }
+}
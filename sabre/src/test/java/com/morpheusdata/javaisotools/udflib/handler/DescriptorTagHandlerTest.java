@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.udflib.handler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import com.morpheusdata.javaisotools.sabre.DataReference;
+import com.morpheusdata.javaisotools.sabre.HandlerException;
+import com.morpheusdata.javaisotools.sabre.impl.ByteArrayDataReference;
+import com.morpheusdata.javaisotools.sabre.impl.ChainingStreamHandler;
+import com.morpheusdata.javaisotools.sabre.impl.WordDataReference;
+import com.morpheusdata.javaisotools.udflib.SabreUDFElement;
+import com.morpheusdata.javaisotools.udflib.SabreUDFImageBuilder;
+import com.morpheusdata.javaisotools.udflib.UDFRevision;
+import com.morpheusdata.javaisotools.udflib.structures.Tag;
+import com.morpheusdata.javaisotools.udflib.tools.Checksum;
+
+/**
+ * Checks that descriptor tags computed straight from words and byte arrays are the same as those read through input
+ * streams, and that all tags of an image are valid.
+ */
+public class DescriptorTagHandlerTest {
+
+    @Test
+    public void writesTheSameTagsAsFromStreams() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            byte[] buffer = new byte[random.nextInt(2048) + 32];
+            random.nextBytes(buffer);
+            int start = random.nextInt(16);
+            int length = random.nextInt(buffer.length - start);
+            // All bits set in some of the fields
+            long[] fields = {random.nextInt(0x10000), random.nextLong() & 0xFFFFFFFFL, 0xFFFFFFFFL,
+                    random.nextInt(0x10000)};
+
+            byte[] direct = writeDescriptor(fields, new ByteArrayDataReference(buffer, start, length), false);
+            byte[] streamed = writeDescriptor(fields, new ByteArrayDataReference(buffer, start, length), true);
+            assertThat(direct.length, is(16 + length));
+            assertArrayEquals(streamed, direct);
+            assertValidTag(direct, 0);
+        }
+    }
+
+    @Test
+    public void writesValidTagsForRevision102() throws Exception {
+        runCheck(UDFRevision.Revision102);
+    }
+
+    @Test
+    public void writesValidTagsForRevision201() throws Exception {
+        runCheck(UDFRevision.Revision201);
+    }
+
+    @Test
+    public void writesValidTagsForRevision260() throws Exception {
+        runCheck(UDFRevision.Revision260);
+    }
+
+    private void runCheck(UDFRevision revision) throws Exception {
+        File workDir = new File(System.getProperty("testWorkDir"));
+        File sourceDir = new File(workDir, "descriptor-tags-source");
+        for (int i = 0; i < 20; i++) {
+            File file = new File(sourceDir, "dir" + (i % 3) + "/file" + i + ".txt");
+            file.getParentFile().mkdirs();
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                // Text, so the contents of the files do not pass for a descriptor tag
+                for (int j = 0; j < i * 300; j++) {
+                    out.write('a' + j % 26);
+                }
+            } finally {
+                out.close();
+            }
+        }
+
+        File image = new File(workDir, revision + "-tags.udf");
+        SabreUDFImageBuilder builder = new SabreUDFImageBuilder();
+        for (File child : sourceDir.listFiles()) {
+            builder.addFileToRootDirectory(child);
+        }
+        builder.writeImage(image.getPath(), revision);
+
+        // Descriptors are written at the start of a block, check every block that starts with a tag
+        byte[] block = new byte[2048];
+        int tags = 0;
+        RandomAccessFile in = new RandomAccessFile(image, "r");
+        try {
+            for (long pos = 0; pos + block.length <= in.length(); pos += block.length) {
+                in.seek(pos);
+                in.readFully(block);
+                Tag tag = new Tag();
+                tag.read(block, 0);
+                if (isTagIdentifier(tag.TagIdentifier) && tag.calculateChecksum() == tag.TagChecksum) {
+                    assertValidTag(block, 0);
+                    tags++;
+                }
+            }
+        } finally {
+            in.close();
+        }
+        // Volume descriptors, file set descriptor and a file entry per file and directory at least
+        assertTrue("Only " + tags + " descriptor tags found", tags > 20 + 4 + 6);
+    }
+
+    private static boolean isTagIdentifier(int identifier) {
+        return (identifier >= 1 && identifier <= 9) || (identifier >= 256 && identifier <= 266);
+    }
+
+    private static void assertValidTag(byte[] bytes, int offset) {
+        Tag tag = new Tag();
+        tag.read(bytes, offset);
+        assertThat(tag.calculateChecksum(), is(tag.TagChecksum));
+        assertTrue(offset + 16 + tag.DescriptorCRCLength <= bytes.length);
+        assertThat(tag.DescriptorCRC, is(Checksum.cksum(bytes, offset + 16, tag.DescriptorCRCLength)));
+    }
+
+    /**
+     * Pass a descriptor through the handler as the UDF handlers do and return what comes out
+     *
+     * @param fields   Tag identifier, tag location, tag serial number and descriptor version
+     * @param payload  Descriptor without its tag
+     * @param streamed Whether to hide the types of the references, so they are read through input streams
+     */
+    private static byte[] writeDescriptor(long[] fields, DataReference payload, boolean streamed)
+            throws HandlerException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChainingStreamHandler recorder = new ChainingStreamHandler(null, null) {
+            public void data(DataReference reference) throws HandlerException {
+                try {
+                    InputStream in = reference.createInputStream();
+                    try {
+                        byte[] buffer = new byte[(int) reference.getLength()];
+                        int offset = 0;
+                        while (offset < buffer.length) {
+                            offset += in.read(buffer, offset, buffer.length - offset);
+                        }
+                        out.write(buffer, 0, buffer.length);
+                    } finally {
+                        in.close();
+                    }
+                } catch (IOException e) {
+                    throw new HandlerException(e);
+                }
+            }
+        };
+
+        DescriptorTagHandler handler = new DescriptorTagHandler(recorder, recorder);
+        handler.startElement(new SabreUDFElement(SabreUDFElement.UDFElementType.DescriptorTag));
+        for (long field : fields) {
+            DataReference word = new WordDataReference(field);
+            handler.data(streamed ? hide(word) : word);
+        }
+        handler.data(streamed ? hide(payload) : payload);
+        handler.endElement();
+        return out.toByteArray();
+    }
+
+    private static DataReference hide(final DataReference reference) {
+        return new DataReference() {
+            public long getLength() {
+                return reference.getLength();
+            }
+
+            public InputStream createInputStream() throws IOException {
+                return reference.createInputStream();
+            }
+        };
+    }
+}
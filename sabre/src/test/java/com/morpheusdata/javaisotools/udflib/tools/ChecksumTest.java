@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.udflib.tools;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Checks the slicing-by-8 CRC of {@link Checksum} against a CRC computed bit by bit.
+ */
+public class ChecksumTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void matchesTheExampleOfECMA167() {
+        // ECMA-167 7.2.6
+        assertThat(Checksum.cksum(new byte[] {0x70, 0x6A, 0x77}), is(0x3299));
+    }
+
+    @Test
+    public void matchesBitwiseCRCForShortArrays() {
+        // Below, at and above one and two steps of eight bytes
+        for (int length = 0; length <= 17; length++) {
+            byte[] bytes = randomBytes(length);
+            assertThat("length " + length, Checksum.cksum(bytes), is(bitwise(0, bytes, 0, length)));
+        }
+    }
+
+    @Test
+    public void matchesBitwiseCRCForSlices() {
+        byte[] bytes = randomBytes(64);
+        for (int offset = 0; offset <= 9; offset++) {
+            for (int length = 0; length <= 17; length++) {
+                assertThat("offset " + offset + ", length " + length, Checksum.cksum(bytes, offset, length),
+                        is(bitwise(0, bytes, offset, length)));
+            }
+        }
+    }
+
+    @Test
+    public void matchesBitwiseCRCForLongArrays() {
+        for (int length : new int[] {2032, 2048, 65535}) {
+            byte[] bytes = randomBytes(length);
+            assertThat("length " + length, Checksum.cksum(bytes), is(bitwise(0, bytes, 0, length)));
+        }
+    }
+
+    @Test
+    public void matchesBitwiseCRCForHeapBuffers() {
+        byte[] bytes = randomBytes(100);
+        for (int offset = 0; offset <= 9; offset++) {
+            for (int length = 0; length <= 17; length++) {
+                // A slice, so the array offset of the buffer is not 0
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, 90).slice();
+                buffer.position(offset);
+                buffer.limit(offset + length);
+                assertThat("offset " + offset + ", length " + length, Checksum.cksum(buffer),
+                        is(bitwise(0, bytes, 1 + offset, length)));
+                assertThat(buffer.position(), is(offset));
+            }
+        }
+    }
+
+    @Test
+    public void matchesBitwiseCRCForDirectBuffers() {
+        byte[] bytes = randomBytes(100);
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).order(order);
+            buffer.put(bytes);
+            for (int offset = 0; offset <= 9; offset++) {
+                for (int length = 0; length <= 17; length++) {
+                    buffer.limit(offset + length);
+                    buffer.position(offset);
+                    assertThat(order + ", offset " + offset + ", length " + length, Checksum.cksum(buffer),
+                            is(bitwise(0, bytes, offset, length)));
+                    assertThat(buffer.position(), is(offset));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void continuesCRCsAcrossUpdates() {
+        byte[] bytes = randomBytes(300);
+        int expected = bitwise(0, bytes, 0, bytes.length);
+
+        // Chunks of all sizes around a step, from arrays and buffers in turn
+        int crc = 0;
+        int offset = 0;
+        int chunk = 0;
+        while (offset < bytes.length) {
+            int length = Math.min(chunk % 18, bytes.length - offset);
+            if (chunk % 3 == 0) {
+                crc = Checksum.update(crc, bytes, offset, length);
+            } else {
+                ByteBuffer buffer = chunk % 3 == 1 ? ByteBuffer.allocate(length) : ByteBuffer.allocateDirect(length);
+                buffer.put(bytes, offset, length);
+                buffer.flip();
+                crc = Checksum.update(crc, buffer);
+            }
+            assertThat("chunk " + chunk, crc, is(bitwise(0, bytes, 0, offset + length)));
+            offset += length;
+            chunk++;
+        }
+        assertThat(crc, is(expected));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsSlicesOutsideTheArray() {
+        Checksum.cksum(new byte[16], 10, 7);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * CRC-16 CCITT one bit at a time, most significant bit first
+     */
+    private static int bitwise(int crc, byte[] bytes, int offset, int length) {
+        for (int n = offset; n < offset + length; n++) {
+            crc ^= (bytes[n] & 0xff) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = ((crc & 0x8000) != 0) ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            crc &= 0xffff;
+        }
+        return crc;
+    }
+}
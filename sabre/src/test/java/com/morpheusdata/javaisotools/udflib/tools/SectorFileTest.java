@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2010. Stephen Connolly.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package com.morpheusdata.javaisotools.udflib.tools;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks that {@link SectorFile} leaves the same file behind as a plain {@link RandomAccessFile}.
+ */
+public class SectorFileTest {
+
+    private static final int SECTOR_SIZE = 16;
+
+    private static File workDir;
+
+    private Random random = new Random(42);
+
+    @BeforeClass
+    public static void loadConfiguration() {
+        workDir = new File(System.getProperty("testWorkDir"));
+    }
+
+    @Test
+    public void keepsFileContentsAroundUnalignedWritesOutOfOrder() throws Exception {
+        byte[] expected = createFile("unaligned.bin", 4 * SECTOR_SIZE);
+        SectorFile file = new SectorFile(new File(workDir, "unaligned.bin"), SECTOR_SIZE, 64);
+
+        // Later bytes of a sector first, then earlier ones with a gap in between, then across a sector boundary
+        write(file, expected, 21, 4);
+        write(file, expected, 17, 2);
+        write(file, expected, 27, 3);
+        write(file, expected, 14, 5);
+        write(file, expected, 2, 1);
+        file.close();
+
+        assertArrayEquals(expected, readFile("unaligned.bin"));
+    }
+
+    @Test
+    public void writesPastTheEndOfTheFile() throws Exception {
+        byte[] contents = createFile("past-end.bin", 10);
+        SectorFile file = new SectorFile(new File(workDir, "past-end.bin"), SECTOR_SIZE, 64);
+
+        byte[] expected = Arrays.copyOf(contents, 5 * SECTOR_SIZE + 7);
+        write(file, expected, 5 * SECTOR_SIZE + 3, 4);
+        write(file, expected, 8, 4);
+        assertThat(file.getFilePointer(), is(12L));
+        file.close();
+
+        // The gap up to the written bytes reads as zeros
+        assertArrayEquals(expected, readFile("past-end.bin"));
+    }
+
+    @Test
+    public void transfersOverPendingSectors() throws Exception {
+        byte[] expected = createFile("transfer.bin", 6 * SECTOR_SIZE);
+        byte[] source = new byte[2 * SECTOR_SIZE + 5];
+        random.nextBytes(source);
+        writeFile("transfer-source.bin", source);
+        SectorFile file = new SectorFile(new File(workDir, "transfer.bin"), SECTOR_SIZE, 64);
+
+        // Pending bytes before, inside and after the range the transfer covers
+        write(file, expected, SECTOR_SIZE + 2, 4);
+        write(file, expected, 2 * SECTOR_SIZE + 9, 3);
+        write(file, expected, 4 * SECTOR_SIZE + 1, 2);
+
+        file.seek(SECTOR_SIZE + 7);
+        assertThat(file.transferFrom(new File(workDir, "transfer-source.bin")), is((long) source.length));
+        System.arraycopy(source, 0, expected, SECTOR_SIZE + 7, source.length);
+        assertThat(file.getFilePointer(), is((long) SECTOR_SIZE + 7 + source.length));
+
+        // Bytes written after the transfer win over it
+        write(file, expected, 2 * SECTOR_SIZE, 6);
+        file.close();
+
+        assertArrayEquals(expected, readFile("transfer.bin"));
+    }
+
+    @Test
+    public void readsPendingWrites() throws Exception {
+        byte[] expected = createFile("read.bin", 3 * SECTOR_SIZE);
+        SectorFile file = new SectorFile(new File(workDir, "read.bin"), SECTOR_SIZE, 64);
+
+        write(file, expected, 5, 20);
+        file.seek(3);
+        byte[] buffer = new byte[30];
+        file.readFully(buffer);
+        assertArrayEquals(Arrays.copyOfRange(expected, 3, 33), buffer);
+        assertThat(file.getFilePointer(), is(33L));
+
+        // Reading leaves the file pointer after the bytes read, where the next write goes
+        write(file, expected, 33, 2);
+        assertThat(file.read(), is(expected[35] & 0xFF));
+        file.close();
+
+        assertArrayEquals(expected, readFile("read.bin"));
+    }
+
+    @Test
+    public void setsTheLength() throws Exception {
+        byte[] contents = createFile("length.bin", 2 * SECTOR_SIZE);
+        SectorFile file = new SectorFile(new File(workDir, "length.bin"), SECTOR_SIZE, 64);
+
+        byte[] expected = Arrays.copyOf(contents, 4 * SECTOR_SIZE + 3);
+        write(file, expected, 4 * SECTOR_SIZE, 3);
+        assertThat(file.length(), is(4L * SECTOR_SIZE + 3));
+
+        // Truncating moves the file pointer back to the new end
+        file.setLength(SECTOR_SIZE + 5);
+        assertThat(file.length(), is((long) SECTOR_SIZE + 5));
+        assertThat(file.getFilePointer(), is((long) SECTOR_SIZE + 5));
+
+        expected = Arrays.copyOf(expected, SECTOR_SIZE + 9);
+        write(file, expected, SECTOR_SIZE + 5, 4);
+        assertThat(file.length(), is((long) SECTOR_SIZE + 9));
+        file.close();
+
+        assertArrayEquals(expected, readFile("length.bin"));
+    }
+
+    @Test
+    public void matchesRandomAccessFile() throws Exception {
+        byte[] contents = createFile("random.bin", 20 * SECTOR_SIZE);
+        writeFile("random-plain.bin", contents);
+        byte[] source = new byte[3 * SECTOR_SIZE + 1];
+        random.nextBytes(source);
+        writeFile("random-source.bin", source);
+
+        // Few pending sectors, so they are written while the operations go on
+        SectorFile file = new SectorFile(new File(workDir, "random.bin"), SECTOR_SIZE, 8);
+        RandomAccessFile plain = new RandomAccessFile(new File(workDir, "random-plain.bin"), "rw");
+        for (int i = 0; i < 500; i++) {
+            long position = random.nextInt(25 * SECTOR_SIZE);
+            file.seek(position);
+            plain.seek(position);
+
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                // Mostly a few bytes within a sector, sometimes several sectors
+                byte[] bytes = new byte[random.nextInt(random.nextBoolean() ? 4 : 3 * SECTOR_SIZE) + 1];
+                random.nextBytes(bytes);
+                file.write(bytes);
+                plain.write(bytes);
+            } else if (operation < 8) {
+                file.transferFrom(new File(workDir, "random-source.bin"));
+                plain.write(source);
+            } else if (operation < 9) {
+                byte[] bytes = new byte[2 * SECTOR_SIZE];
+                byte[] plainBytes = new byte[2 * SECTOR_SIZE];
+                assertThat(file.read(bytes), is(plain.read(plainBytes)));
+                assertArrayEquals(plainBytes, bytes);
+            } else {
+                assertThat(file.length(), is(plain.length()));
+            }
+            assertThat(file.getFilePointer(), is(plain.getFilePointer()));
+        }
+        file.close();
+        plain.close();
+
+        assertArrayEquals(readFile("random-plain.bin"), readFile("random.bin"));
+    }
+
+    private void write(SectorFile file, byte[] expected, int position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        System.arraycopy(bytes, 0, expected, position, length);
+        file.seek(position);
+        file.write(bytes);
+    }
+
+    private byte[] createFile(String name, int length) throws IOException {
+        byte[] contents = new byte[length];
+        random.nextBytes(contents);
+        writeFile(name, contents);
+        return contents;
+    }
+
+    private static void writeFile(String name, byte[] contents) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(workDir, name));
+        try {
+            out.write(contents);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] readFile(String name) throws IOException {
+        File file = new File(workDir, name);
+        byte[] contents = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < contents.length) {
+                offset += in.read(contents, offset, contents.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return contents;
+    }
+}